@@ -0,0 +1,130 @@
+package common;
+
+/**
+ * Histogram of durations in nanoseconds. Values are counted in buckets whose
+ * width grows with the value, similar to HDR histogram, so the relative error
+ * of a recorded value is below 1/16 and the memory use is fixed.
+ */
+public class LatencyHistogram {
+	static final int subBucketBits = 4;
+	static final int subBucketCount = 1 << subBucketBits;
+	public static final int numBuckets = 64 * subBucketCount;
+
+	private final long[] counts = new long[numBuckets];
+	private long totalCount = 0;
+	private long totalValue = 0;
+	private long maxValue = 0;
+
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		counts[getBucketIndex(value)]++;
+		totalCount++;
+		totalValue += value;
+		if (value > maxValue) {
+			maxValue = value;
+		}
+	}
+
+	/**
+	 * Adds values counted in another histogram to this histogram.
+	 */
+	public void add(final LatencyHistogram other) {
+		for (int i = 0; i < numBuckets; i++) {
+			counts[i] += other.counts[i];
+		}
+		totalCount += other.totalCount;
+		totalValue += other.totalValue;
+		if (other.maxValue > maxValue) {
+			maxValue = other.maxValue;
+		}
+	}
+
+	/**
+	 * Adds a bucket count received from other process.
+	 */
+	public void addBucket(final int index, final long count) {
+		counts[index] += count;
+		totalCount += count;
+	}
+
+	/**
+	 * Adds total and maximum value received from other process. Used together
+	 * with {@link #addBucket(int, long)}.
+	 */
+	public void addTotal(final long value, final long max) {
+		totalValue += value;
+		if (max > maxValue) {
+			maxValue = max;
+		}
+	}
+
+	public void reset() {
+		for (int i = 0; i < numBuckets; i++) {
+			counts[i] = 0;
+		}
+		totalCount = 0;
+		totalValue = 0;
+		maxValue = 0;
+	}
+
+	public long getBucketCount(final int index) {
+		return counts[index];
+	}
+
+	public long getTotalCount() {
+		return totalCount;
+	}
+
+	public long getTotalValue() {
+		return totalValue;
+	}
+
+	public long getMaxValue() {
+		return maxValue;
+	}
+
+	public double getMean() {
+		return totalCount == 0 ? 0 : (double) totalValue / totalCount;
+	}
+
+	/**
+	 * Gets the value below which the given percentage of recorded values fall.
+	 * The result is the upper bound of the bucket and never exceeds the
+	 * maximum recorded value.
+	 */
+	public long getValueAtPercentile(final double percentile) {
+		if (totalCount == 0) {
+			return 0;
+		}
+		final long target = Math.max(1, (long) Math.ceil((percentile / 100.0) * totalCount));
+		long accumulated = 0;
+		for (int i = 0; i < numBuckets; i++) {
+			accumulated += counts[i];
+			if (accumulated >= target) {
+				return Math.min(getBucketUpperBound(i), maxValue);
+			}
+		}
+		return maxValue;
+	}
+
+	static int getBucketIndex(final long value) {
+		if (value < subBucketCount) {
+			return (int) value;
+		}
+		final int exponent = 63 - Long.numberOfLeadingZeros(value);
+		final int shift = exponent - subBucketBits;
+		final int subBucket = (int) (value >>> shift) & (subBucketCount - 1);
+		return ((shift + 1) * subBucketCount) + subBucket;
+	}
+
+	static long getBucketUpperBound(final int index) {
+		if (index < subBucketCount) {
+			return index;
+		}
+		final int shift = (index / subBucketCount) - 1;
+		final long lowerBound = (long) (subBucketCount + (index % subBucketCount)) << shift;
+		return lowerBound + (1L << shift) - 1;
+	}
+}
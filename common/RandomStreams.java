@@ -0,0 +1,114 @@
+package common;
+
+import java.util.Random;
+
+/**
+ * Source of all random numbers in simulation. A stream is derived from the run
+ * seed and a key, so the numbers drawn from a stream do not depend on the
+ * order in which threads or workers draw from other streams.
+ * <p>
+ * Worker streams are keyed by worker key and purpose, and are used for
+ * sequential tasks of a worker, e.g., creating vehicles. The key of a worker
+ * is based on the partition index of its work area rather than its random
+ * name. Vehicle streams are keyed by vehicle ID, purpose and an event number,
+ * e.g., the step of a decision. The ID of an internal vehicle starts with the
+ * key of the worker that creates it, so a vehicle gets the same numbers after
+ * moving to another worker.
+ */
+public final class RandomStreams {
+	/**
+	 * What the random numbers are used for. Streams of different purposes are
+	 * independent.
+	 */
+	public enum Purpose {
+		CAV, DRIVER_PROFILE, START_POSITION, LANE_CHANGE, ROUTING, PUBLIC_TRANSPORT_ROUTE, OD, TEMPORAL, VEHICLE_TYPE,
+		WORKLOAD_PARTITION
+	}
+
+	private RandomStreams() {
+	}
+
+	/**
+	 * Gets a stream for sequential draws by a worker. The server uses its own
+	 * key in the same way.
+	 */
+	public static Random forWorker(final long runSeed, final String workerKey, final Purpose purpose) {
+		return new SplitMixRandom(key(runSeed, hash(workerKey), purpose.ordinal(), -1));
+	}
+
+	/**
+	 * Gets a stream for the draws made by a vehicle for one event.
+	 */
+	public static Random forVehicle(final long runSeed, final String vehicleId, final Purpose purpose,
+			final long event) {
+		return new SplitMixRandom(key(runSeed, hash(vehicleId), purpose.ordinal(), event));
+	}
+
+	/**
+	 * Gets a stream keyed by a number rather than a worker or vehicle, e.g.,
+	 * the nodes of a route request that is not made by a vehicle.
+	 */
+	public static Random forKey(final long runSeed, final long name, final Purpose purpose, final long event) {
+		return new SplitMixRandom(key(runSeed, name, purpose.ordinal(), event));
+	}
+
+	static long key(final long runSeed, final long name, final int purpose, final long event) {
+		long h = mix(runSeed);
+		h = mix(h ^ name);
+		h = mix(h ^ purpose);
+		return mix(h ^ event);
+	}
+
+	/**
+	 * 64-bit FNV-1a hash. Unlike {@link String#hashCode()}, this uses all the
+	 * 64 bits.
+	 */
+	static long hash(final String s) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < s.length(); i++) {
+			h ^= s.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		return h;
+	}
+
+	/**
+	 * Finalizer of SplitMix64.
+	 */
+	static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * SplitMix64 generator behind the {@link Random} interface. It is cheap to
+	 * create and not thread-safe. Each stream is used by one thread.
+	 */
+	static class SplitMixRandom extends Random {
+		private static final long serialVersionUID = 1L;
+		private static final long gamma = 0x9e3779b97f4a7c15L;
+		private long state;
+
+		SplitMixRandom(final long seed) {
+			super(0);
+			state = seed;
+		}
+
+		@Override
+		public void setSeed(final long seed) {
+			state = seed;
+		}
+
+		@Override
+		public long nextLong() {
+			state += gamma;
+			return mix(state);
+		}
+
+		@Override
+		protected int next(final int bits) {
+			return (int) (nextLong() >>> (64 - bits));
+		}
+	}
+}
@@ -10,6 +10,7 @@ import processor.communication.externalMessage.ExternalSimulationListener;
 import traffic.light.manager.TLManager;
 import traffic.network.*;
 import traffic.light.TrafficLightTiming;
+import traffic.routing.Landmarks;
 import traffic.routing.Routing;
 import traffic.vehicle.EmergencyStrategy;
 import traffic.vehicle.lanedecide.LaneDecider;
@@ -38,6 +39,8 @@ public class Settings {
 	@Expose() public double numStepsPerSecond = 5;//This determines the step length.
 	@Expose() public int pauseTimeBetweenStepsInMilliseconds = 0;//Can be used to adjust pace so a user can slow down simulation on GUI
 	@Expose() public int trafficReportStepGapInServerlessMode = 1;
+	@Expose() public long randomSeed = 1;//Seed of all random numbers in simulation. Runs with the same seed and setup give the same result.
+	public boolean isFastForwardIdleSteps = false;//Whether to skip the steps in which the network is empty and no vehicle, light change or demand is due. Not used with an external or simulation listener
 
 
 	/*
@@ -58,6 +61,7 @@ public class Settings {
 	public double maxGridCellWidthHeightInMeters = 500;//A cell should not be too large for load balancing purpose
 	public static String serverAddress = "127.0.0.1";
 	public static int serverListeningPortForWorkers = 50000;//Server's port for listening connection request initiated by worker
+	public int numVehicleUpdateThreads = 0;//Threads used by a worker to move vehicles forward. '0' means the original serial update in place. A positive value means a two-phase update, which gives the same result for any positive number of threads but is not identical to the serial update.
 
 	/*
 	 * Input
@@ -73,6 +77,7 @@ public class Settings {
 	@Expose() public String inputBuiltinAdministrativeRegionCentroid = inputBuiltinResource + "country_centroids_all.csv";//Coordinates of administrative regions
 	@Expose() public String inputForegroundVehicleFile = "";//Route file of foreground vehicles
 	@Expose() public String inputBackgroundVehicleFile = "";//Route file of background vehicles
+	public String inputSnapshot = "";//Folder of traffic snapshot to start simulation from. Simulation starts with empty roads if this is empty.
 
 	/*
 	 * Output
@@ -84,6 +89,10 @@ public class Settings {
 	public String prefixOutputRoutePlan = "route_";//Route plan of vehicles that have appeared in simulation
 	public String prefixOutputSimLog = "log";//General statistic, e.g., simulation time
 	public String prefixOutputForegroundTravelTime = "time_";//Travel time of foreground vehicles
+	public boolean isProfileSteps = false;//Whether workers measure the time spent on each phase of a step. A summary is written at the end of simulation.
+	public String prefixOutputStepProfile = "step_profile_";//Time spent by workers on each phase of a step
+	public int snapshotStep = -1;//Workers write a snapshot of traffic at the end of this step. '-1' means no snapshot.
+	public String prefixOutputSnapshot = "snapshot_";//Folder of traffic snapshot, which is followed by the step of snapshot
 
 	/*
 	 * Road network
@@ -121,11 +130,27 @@ public class Settings {
 	public List<double[]> listRouteSourceWindowForInternalVehicle = new ArrayList<>();//List of windows where random routes start
 	public List<double[]> listRouteDestinationWindowForInternalVehicle = new ArrayList<>();//List of windows where random routes end
 	public List<double[]> listRouteSourceDestinationWindowForInternalVehicle = new ArrayList<>();//List of windows where random routes start or end
+	public boolean isHybridMesoscopic = false;//Whether edges outside microscopic windows use the mesoscopic queue model
+	public List<double[]> listMicroscopicWindows = new ArrayList<>();//List of windows where edges use car-following and lane-changing models in hybrid mode
 
 	public List<double[]> guiSourceWindowsForInternalVehicle = new ArrayList<>();//List of windows where random routes start
 	public List<double[]> guiDestinationWindowsForInternalVehicle = new ArrayList<>();//List of windows where random routes end
 	public List<double[]> guiSourceDestinationWindowsForInternalVehicle = new ArrayList<>();//List of windows where random routes start or end
 	public boolean isAllowPriorityVehicleUseTramTrack = true;//Whether priority vehicles can use tram edge
+	public boolean isCacheRoutingPreprocessing = true;//Whether preprocessed routing data, e.g., contraction hierarchy, is saved to disk and reused for the same road network
+	public String routingCacheFolder = "";//Folder of preprocessed routing data. Empty means the folder of the imported map.
+	public int routeCacheSize = 10000;//Maximum number of routes kept for reuse until routing costs change. '0' disables the cache.
+	public int numRoutingLandmarks = 8;//Number of landmarks whose travel time tables give the heuristic of landmark A* search
+	public Landmarks.Selection routingLandmarkSelection = Landmarks.Selection.FARTHEST;//How landmarks of landmark A* search are chosen
+	public int numIncrementalRoutingTrees = 32;//Maximum number of destinations whose search state is kept for reuse by incremental routing
+	public int numAlternativeRoutes = 3;//Maximum number of alternative routes found for an origin-destination pair
+	public double alternativeRoutePenalty = 1.5;//Factor applied to the travel time of the edges on each found route before searching the next alternative route
+	public double alternativeRouteMaxStretch = 0.3;//Alternative routes whose travel time exceeds that of the fastest route by more than this fraction are discarded
+	public double alternativeRouteLogitScale = 5;//Scale of the logit model that chooses among alternative routes. Higher value favors faster routes more.
+	public int alternativeRouteCacheSize = 1000;//Maximum number of origin-destination pairs whose alternative routes are kept for reuse until routing costs change
+	public int rerouteBudgetPerStep = 0;//Maximum number of vehicles that re-route in one step at a worker. Other vehicles wait for later steps, blocked road ahead first and then longest jam. '0' means no limit.
+	public int numRerouteThreads = 0;//Threads used by a worker to search new routes of vehicles in background. '0' means routes are searched when vehicles move. A positive value means new routes are applied after 'rerouteDelaySteps'.
+	public int rerouteDelaySteps = 1;//Number of steps from a background reroute request to the step at which its new route is applied. The simulation waits for searches that are not done by then, so results do not depend on how long searches take.
 
 	public double cavPercentage = 1;
 
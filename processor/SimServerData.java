@@ -1,6 +1,7 @@
 package processor;
 
 import com.google.gson.Gson;
+import common.LatencyHistogram;
 import common.Settings;
 import osm.OSM;
 import processor.communication.message.*;
@@ -14,7 +15,9 @@ import traffic.road.Lane;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.TreeMap;
 
 /**
@@ -46,8 +49,11 @@ public class SimServerData {
     private FileOutput fileOutput;
     private double simulationWallTime = 0;//Total time length spent on simulation
     private int totalNumWwCommChannels = 0;//Total number of communication channels between workers. A worker has two channels with a neighbor worker, one for sending and one for receiving.
+    private int numSkippedIdleSteps = 0;//Total number of steps skipped because no worker had work to do
+    private int snapshotStep = -1;//Step of the snapshot from which the simulation continues. '-1' means the simulation does not start from a snapshot.
     private ArrayList<SerializableRouteDump> allRoutes = new ArrayList<SerializableRouteDump>();
     private HashMap<String, TreeMap<Double, double[]>> allTrajectories = new HashMap<String, TreeMap<Double, double[]>>();
+    private TreeMap<String, Map<String, LatencyHistogram>> stepPhaseTimes = new TreeMap<>();//Time spent on each phase of step at each worker
     private long timeStamp = 0;
     private int numInternalNonPubVehiclesAtAllWorkers = 0;
     private int numInternalTramsAtAllWorkers = 0;
@@ -179,6 +185,20 @@ public class SimServerData {
         getChangedLanesFromWorker(edgeList);
     }
 
+    /**
+     * Adds the time spent by a worker on each phase of step since its last report.
+     */
+    public void updateStepPhaseTimes(final String workerName, final ArrayList<SerializableStepPhaseTime> phaseTimes) {
+        if (phaseTimes.isEmpty()) {
+            return;
+        }
+        final Map<String, LatencyHistogram> workerPhaseTimes = stepPhaseTimes.computeIfAbsent(workerName,
+                k -> new LinkedHashMap<>());
+        for (final SerializableStepPhaseTime phaseTime : phaseTimes) {
+            phaseTime.addTo(workerPhaseTimes.computeIfAbsent(phaseTime.phase, k -> new LatencyHistogram()));
+        }
+    }
+
     private void getChangedLanesFromWorker(ArrayList<SerializableLaneIndex> laneIndexes){
         ArrayList<Integer> edges = new ArrayList<>();
         for (SerializableLaneIndex index :laneIndexes){
@@ -263,12 +283,14 @@ public class SimServerData {
     }
 
     public void writeOutputFiles(int step) {
-        fileOutput.outputSimLog(step, simulationWallTime, totalNumWwCommChannels, (int) settings.numStepsPerSecond);
+        fileOutput.outputSimLog(step, simulationWallTime, totalNumWwCommChannels, numSkippedIdleSteps, snapshotStep, (int) settings.numStepsPerSecond);
         fileOutput.outputRoutes(allRoutes);
         fileOutput.outputBestTTData(allRoutes);
         allRoutes.clear();
         fileOutput.outputTrajectories(allTrajectories);
         allTrajectories.clear();
+        fileOutput.outputStepProfile(stepPhaseTimes);
+        stepPhaseTimes.clear();
         fileOutput.close();
     }
 
@@ -320,6 +342,8 @@ public class SimServerData {
         // Reset temporary variables
         simulationWallTime = 0;
         totalNumWwCommChannels = 0;
+        numSkippedIdleSteps = 0;
+        snapshotStep = -1;
         numVehiclesCreatedDuringSetup = 0;
         numVehiclesNeededAtStart = 0;
         step = 0;
@@ -353,6 +377,14 @@ public class SimServerData {
         totalNumWwCommChannels += count;
     }
 
+    public void updateSkippedIdleSteps(int count) {
+        numSkippedIdleSteps += count;
+    }
+
+    public void setSnapshotStep(int snapshotStep) {
+        this.snapshotStep = snapshotStep;
+    }
+
     public int getStep() {
         return step;
     }
@@ -411,6 +443,15 @@ public class SimServerData {
         settings.stopsAtMaxSteps = experiment.isStopsAtMaxSteps();
         settings.safetyHeadwayMultiplier = experiment.getHeadwayMultiplier();
         settings.updateStepInterval = experiment.getUpdateStepInterval();
+        settings.numVehicleUpdateThreads = experiment.getNumVehicleUpdateThreads();
+        settings.isProfileSteps = experiment.isProfileSteps();
+        // Each run of an experiment gets a different but reproducible seed
+        settings.randomSeed = experiment.getRandomSeed() + Math.max(runIndex, 1) - 1;
+        settings.isFastForwardIdleSteps = experiment.isFastForwardIdleSteps();
+        settings.snapshotStep = experiment.getSnapshotAtStep();
+        settings.inputSnapshot = experiment.getStartFromSnapshot();
+        settings.isHybridMesoscopic = experiment.isHybridMesoscopic();
+        settings.listMicroscopicWindows = experiment.getMicroscopicWindowList();
         if (experiment.getTlManager() != null) settings.tlManager = experiment.getTlManager();
 
         return isNewMap;
@@ -51,7 +51,7 @@ public class TrafficData {
                             numVehiclesStraight++;
                         }
 
-                        if (v.speed < 5) {
+                        if (v.getSpeed() < 5) {
                             numVehiclesStopped++;
                         } else {
                             numVehiclesOnMove++;
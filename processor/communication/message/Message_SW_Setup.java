@@ -1,5 +1,6 @@
 package processor.communication.message;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -8,6 +9,7 @@ import processor.server.WorkerMeta;
 import traffic.light.LightUtil;
 import traffic.road.Edge;
 import traffic.road.Node;
+import traffic.routing.Landmarks;
 import traffic.routing.RouteUtil;
 
 /**
@@ -37,6 +39,22 @@ public class Message_SW_Setup {
 	public boolean isServerBased;
 	public String roadGraph;
 	public String routingAlgorithm;
+	/**
+	 * Folder of preprocessed routing data. Empty means no caching.
+	 */
+	public String routingCacheFolder = "";
+	public int routeCacheSize;
+	public int numRoutingLandmarks;
+	public String routingLandmarkSelection = "";
+	public int numIncrementalRoutingTrees;
+	public int numAlternativeRoutes;
+	public double alternativeRoutePenalty;
+	public double alternativeRouteMaxStretch;
+	public double alternativeRouteLogitScale;
+	public int alternativeRouteCacheSize;
+	public int rerouteBudgetPerStep;
+	public int numRerouteThreads;
+	public int rerouteDelaySteps;
 	public ArrayList<SerializableInt> lightNodes = new ArrayList<>();
 	public boolean isAllowPriorityVehicleUseTramTrack;
 	public boolean isOutputForegroundTrajectory = false;
@@ -47,6 +65,15 @@ public class Message_SW_Setup {
 	public boolean isAllowReroute = false;
 	public boolean isAllowTramRule = true;
 	public boolean isDriveOnLeft;
+	public int numVehicleUpdateThreads;
+	public boolean isProfileSteps;
+	public long randomSeed;
+	public boolean isFastForwardIdleSteps;
+	public int snapshotStep;
+	public String prefixOutputSnapshot = "";
+	public String inputSnapshot = "";
+	public boolean isHybridMesoscopic;
+	public ArrayList<Serializable_GPS_Rectangle> listMicroscopicWindows = new ArrayList<>();
 
 	public Message_SW_Setup() {
 
@@ -84,6 +111,19 @@ public class Message_SW_Setup {
 			roadGraph = "";
 		}
 		routingAlgorithm = settings.routingAlgorithm.name();
+		routingCacheFolder = getRoutingCacheFolder(settings);
+		routeCacheSize = settings.routeCacheSize;
+		numRoutingLandmarks = settings.numRoutingLandmarks;
+		routingLandmarkSelection = settings.routingLandmarkSelection.name();
+		numIncrementalRoutingTrees = settings.numIncrementalRoutingTrees;
+		numAlternativeRoutes = settings.numAlternativeRoutes;
+		alternativeRoutePenalty = settings.alternativeRoutePenalty;
+		alternativeRouteMaxStretch = settings.alternativeRouteMaxStretch;
+		alternativeRouteLogitScale = settings.alternativeRouteLogitScale;
+		alternativeRouteCacheSize = settings.alternativeRouteCacheSize;
+		rerouteBudgetPerStep = settings.rerouteBudgetPerStep;
+		numRerouteThreads = settings.numRerouteThreads;
+		rerouteDelaySteps = settings.rerouteDelaySteps;
 		isAllowPriorityVehicleUseTramTrack = settings.isAllowPriorityVehicleUseTramTrack;
 		this.lightNodes = getLightNodeIndex(workerToReceiveMessage.lightNodes);
 		isOutputForegroundTrajectory = settings.isOutputTrajectory;
@@ -96,6 +136,32 @@ public class Message_SW_Setup {
 		isAllowReroute = settings.isAllowReroute;
 		isAllowTramRule = settings.isAllowTramRule;
 		isDriveOnLeft = settings.isDriveOnLeft;
+		numVehicleUpdateThreads = settings.numVehicleUpdateThreads;
+		isProfileSteps = settings.isProfileSteps;
+		randomSeed = settings.randomSeed;
+		isFastForwardIdleSteps = settings.isFastForwardIdleSteps;
+		snapshotStep = settings.snapshotStep;
+		prefixOutputSnapshot = settings.prefixOutputSnapshot;
+		inputSnapshot = settings.inputSnapshot;
+		isHybridMesoscopic = settings.isHybridMesoscopic;
+		listMicroscopicWindows = getListRouteWindow(settings.listMicroscopicWindows);
+	}
+
+	/**
+	 * Gets the folder where workers cache preprocessed routing data. By
+	 * default this is the folder of the imported map. Routing data is not
+	 * cached for the builtin road network.
+	 */
+	String getRoutingCacheFolder(Settings settings) {
+		if (!settings.isCacheRoutingPreprocessing) {
+			return "";
+		} else if (!settings.routingCacheFolder.isEmpty()) {
+			return settings.routingCacheFolder;
+		} else if (settings.isBuiltinRoadGraph) {
+			return "";
+		}
+		final File folder = new File(settings.inputOpenStreetMapFile).getAbsoluteFile().getParentFile();
+		return folder == null ? "" : folder.getPath();
 	}
 
 	ArrayList<SerializableWorkerMetadata> appendMetadataOfWorkers(List<WorkerMeta> workers) {
@@ -143,6 +209,20 @@ public class Message_SW_Setup {
 		settings.isVisualize = isVisualize;
 		settings.isServerBased = isServerBased;
 		settings.routingAlgorithm = RouteUtil.getRoutingAlgorithmFromString(routingAlgorithm);
+		settings.isCacheRoutingPreprocessing = !routingCacheFolder.isEmpty();
+		settings.routingCacheFolder = routingCacheFolder;
+		settings.routeCacheSize = routeCacheSize;
+		settings.numRoutingLandmarks = numRoutingLandmarks;
+		settings.routingLandmarkSelection = Landmarks.Selection.valueOf(routingLandmarkSelection);
+		settings.numIncrementalRoutingTrees = numIncrementalRoutingTrees;
+		settings.numAlternativeRoutes = numAlternativeRoutes;
+		settings.alternativeRoutePenalty = alternativeRoutePenalty;
+		settings.alternativeRouteMaxStretch = alternativeRouteMaxStretch;
+		settings.alternativeRouteLogitScale = alternativeRouteLogitScale;
+		settings.alternativeRouteCacheSize = alternativeRouteCacheSize;
+		settings.rerouteBudgetPerStep = rerouteBudgetPerStep;
+		settings.numRerouteThreads = numRerouteThreads;
+		settings.rerouteDelaySteps = rerouteDelaySteps;
 		settings.isAllowPriorityVehicleUseTramTrack = isAllowPriorityVehicleUseTramTrack;
 		settings.isOutputInitialRoutes = isOutputInternalBackgroundRoutePlan;
 		settings.isOutputTrajectory = isOutputForegroundTrajectory;
@@ -152,6 +232,15 @@ public class Message_SW_Setup {
 		settings.isAllowReroute = isAllowReroute;
 		settings.isAllowTramRule = isAllowTramRule;
 		settings.isDriveOnLeft = isDriveOnLeft;
+		settings.numVehicleUpdateThreads = numVehicleUpdateThreads;
+		settings.isProfileSteps = isProfileSteps;
+		settings.randomSeed = randomSeed;
+		settings.isFastForwardIdleSteps = isFastForwardIdleSteps;
+		settings.snapshotStep = snapshotStep;
+		settings.prefixOutputSnapshot = prefixOutputSnapshot;
+		settings.inputSnapshot = inputSnapshot;
+		settings.isHybridMesoscopic = isHybridMesoscopic;
+		settings.listMicroscopicWindows = setRouteSourceDestinationWindow(listMicroscopicWindows);
 	}
 
 	/**
@@ -33,12 +33,14 @@ public class Message_WS_TrafficReport {
 	public int numInternalBuses;
 	public ArrayList<SerializableLaneIndex> laneIndexes = new ArrayList<>();
 	public ArrayList<SerializableLaneIndex> edgesToUpdate = new ArrayList<>();
+	public ArrayList<SerializableStepPhaseTime> stepPhaseTimes = new ArrayList<>();
+	public int numIdleSteps;//Number of steps after this step that the worker can skip
 
 	public Message_WS_TrafficReport() {
 
 	}
 
-	public Message_WS_TrafficReport(Settings settings, final String workerName, final ArrayList<Vehicle> vehiclesOnRoad,
+	public Message_WS_TrafficReport(Settings settings, final String workerName, final List<Vehicle> vehiclesOnRoad,
 									final LightCoordinator lightCoordinator, final ArrayList<Vehicle> newVehiclesSinceLastReport,
 									List<Vehicle> vehiclesFinished,final int step,
 									final int numInternalNonPubVehicles, final int numInternalTrams, final int numInternalBuses,
@@ -63,10 +65,10 @@ public class Message_WS_TrafficReport {
 	}
 
 	public Message_WS_TrafficReport(Settings settings, final String workerName, final int step, final TrafficNetwork trafficNetwork, final ArrayList<Integer> edgesToUpdate){
-		this(settings, workerName, trafficNetwork.vehicles, trafficNetwork.lightCoordinator,
+		this(settings, workerName, trafficNetwork.vehicles.asList(), trafficNetwork.lightCoordinator,
 				trafficNetwork.newVehiclesSinceLastReport, trafficNetwork.getFinishedVehicles(), step,
-				trafficNetwork.numInternalNonPublicVehicle,
-				trafficNetwork.numInternalTram, trafficNetwork.numInternalBus, trafficNetwork.laneIndexOfChangeDir, edgesToUpdate);
+				trafficNetwork.getNumInternalNonPublicVehicle(),
+				trafficNetwork.getNumInternalTram(), trafficNetwork.getNumInternalBus(), trafficNetwork.laneIndexOfChangeDir, edgesToUpdate);
 	}
 
 	ArrayList<SerializableLaneIndex> addLaneIndexes(final ArrayList<Integer> lanes){
@@ -77,7 +79,7 @@ public class Message_WS_TrafficReport {
 		return l;
 	}
 
-	ArrayList<Serializable_GUI_Vehicle> getDetailOfActiveVehiclesOnRoad(final ArrayList<Vehicle> vehicles) {
+	ArrayList<Serializable_GUI_Vehicle> getDetailOfActiveVehiclesOnRoad(final List<Vehicle> vehicles) {
 		final ArrayList<Serializable_GUI_Vehicle> list = new ArrayList<>();
 		for (final Vehicle v : vehicles) {
 			if (v.active && (v.lane != null)) {
@@ -87,8 +89,8 @@ public class Message_WS_TrafficReport {
 				} else {
 					sVehicle.type = v.type.name();
 				}
-				sVehicle.speed = v.speed;
-				sVehicle.acceleration = v.acceleration;
+				sVehicle.speed = v.getSpeed();
+				sVehicle.acceleration = v.getAcceleration();
 				final double[] coordinates = VehicleUtil.calculateCoordinates(v);
 				sVehicle.lonHead = coordinates[0];
 				sVehicle.latHead = coordinates[1];
@@ -96,7 +98,7 @@ public class Message_WS_TrafficReport {
 				sVehicle.latTail = coordinates[3];
 				sVehicle.length = v.type.length;
 				sVehicle.width = v.type.width;
-				sVehicle.numLinksToGo = v.getRouteLegCount() - 1 - v.indexLegOnRoute;
+				sVehicle.numLinksToGo = v.getRouteLegCount() - 1 - v.getIndexLegOnRoute();
 				sVehicle.id = v.id;
 				sVehicle.vid = v.vid;
 				sVehicle.worker = workerName;
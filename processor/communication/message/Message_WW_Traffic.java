@@ -52,8 +52,8 @@ public class Message_WW_Traffic {
 					oneV.endPosition = edge.length + 1;
 					oneV.speed = 10000;
 				} else {
-					oneV.endPosition = lastV.headPosition - lastV.length;
-					oneV.speed = lastV.speed;
+					oneV.endPosition = lastV.getHeadPosition() - lastV.getLength();
+					oneV.speed = lastV.getSpeed();
 				}
 				serializableInfo.add(oneV);
 			}
@@ -73,10 +73,10 @@ public class Message_WW_Traffic {
 		final SerializableVehicle serializableVehicle = new SerializableVehicle();
 		serializableVehicle.type = vehicle.type.name();
 		serializableVehicle.routeLegs = getSerializableRoute(vehicle);
-		serializableVehicle.indexRouteLeg = vehicle.indexLegOnRoute;
+		serializableVehicle.indexRouteLeg = vehicle.getIndexLegOnRoute();
 		serializableVehicle.laneIndex = vehicle.lane.index;
-		serializableVehicle.headPosition = vehicle.headPosition;
-		serializableVehicle.speed = vehicle.speed;
+		serializableVehicle.headPosition = vehicle.getHeadPosition();
+		serializableVehicle.speed = vehicle.getSpeed();
 		serializableVehicle.timeRouteStart = vehicle.timeRouteStart;
 		serializableVehicle.id = vehicle.id;
 		serializableVehicle.isExternal = vehicle.isExternal;
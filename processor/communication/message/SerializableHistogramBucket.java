@@ -0,0 +1,15 @@
+package processor.communication.message;
+
+public class SerializableHistogramBucket {
+	public int index;
+	public long count;
+
+	public SerializableHistogramBucket() {
+
+	}
+
+	public SerializableHistogramBucket(final int index, final long count) {
+		this.index = index;
+		this.count = count;
+	}
+}
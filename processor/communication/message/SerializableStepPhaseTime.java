@@ -0,0 +1,38 @@
+package processor.communication.message;
+
+import java.util.ArrayList;
+
+import common.LatencyHistogram;
+
+/**
+ * Time spent by a worker on one phase of step since the last traffic report.
+ * Only non-empty buckets of the histogram are included.
+ */
+public class SerializableStepPhaseTime {
+	public String phase;
+	public long totalNanos;
+	public long maxNanos;
+	public ArrayList<SerializableHistogramBucket> buckets = new ArrayList<>();
+
+	public SerializableStepPhaseTime() {
+
+	}
+
+	public SerializableStepPhaseTime(final String phase, final long totalNanos, final long maxNanos,
+			final ArrayList<SerializableHistogramBucket> buckets) {
+		this.phase = phase;
+		this.totalNanos = totalNanos;
+		this.maxNanos = maxNanos;
+		this.buckets = buckets;
+	}
+
+	/**
+	 * Adds the time to the given histogram.
+	 */
+	public void addTo(final LatencyHistogram histogram) {
+		for (final SerializableHistogramBucket bucket : buckets) {
+			histogram.addBucket(bucket.index, bucket.count);
+		}
+		histogram.addTotal(totalNanos, maxNanos);
+	}
+}
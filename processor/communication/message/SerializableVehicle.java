@@ -29,12 +29,12 @@ public class SerializableVehicle {
 	public Vehicle createVehicle(TrafficNetwork trafficNetwork){
 		final Vehicle vehicle = new Vehicle(trafficNetwork.getSettings());
 		vehicle.type = VehicleType.getVehicleTypeFromName(type);
-		vehicle.length = vehicle.type.length;
+		vehicle.setLength(vehicle.type.length);
 		vehicle.setRouteLegs(RouteUtil.parseReceivedRoute(routeLegs, trafficNetwork.edges));
-		vehicle.indexLegOnRoute = indexRouteLeg;
-		vehicle.lane = trafficNetwork.lanes.get(laneIndex);
-		vehicle.headPosition = headPosition;
-		vehicle.speed = speed;
+		vehicle.setIndexLegOnRoute(indexRouteLeg);
+		vehicle.setLane(trafficNetwork.lanes.get(laneIndex));
+		vehicle.setHeadPosition(headPosition);
+		vehicle.setSpeed(speed);
 		vehicle.timeRouteStart = timeRouteStart;
 		vehicle.id = id;
 		vehicle.isExternal = isExternal;
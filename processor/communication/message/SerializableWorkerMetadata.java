@@ -9,6 +9,7 @@ public class SerializableWorkerMetadata {
 	public String name;
 	public String address;
 	public int port;
+	public int partitionIndex = -1;
 	public ArrayList<SerializableGridCell> gridCells = new ArrayList<>();
 
 	public SerializableWorkerMetadata() {
@@ -19,6 +20,7 @@ public class SerializableWorkerMetadata {
 		name = worker.name;
 		address = worker.sender.address;
 		port = worker.sender.port;
+		partitionIndex = worker.partitionIndex;
 		gridCells = getSerializableGridCells(worker);
 	}
 
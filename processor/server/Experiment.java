@@ -41,6 +41,14 @@ public class Experiment {
     boolean stopsAtMaxSteps;
     int updateStepInterval;
     String tlManager;
+    int numVehicleUpdateThreads;
+    boolean profileSteps;
+    long randomSeed = 1;
+    boolean fastForwardIdleSteps;
+    int snapshotAtStep = -1;
+    String startFromSnapshot = "";
+    boolean hybridMesoscopic;
+    String microscopicWindows;
 
     public void setExperimentId(String experimentId) {
         this.experimentId = experimentId;
@@ -298,6 +306,88 @@ public class Experiment {
         this.updateStepInterval = updateStepInterval;
     }
 
+    public int getNumVehicleUpdateThreads() {
+        return numVehicleUpdateThreads;
+    }
+
+    public void setNumVehicleUpdateThreads(int numVehicleUpdateThreads) {
+        this.numVehicleUpdateThreads = numVehicleUpdateThreads;
+    }
+
+    public boolean isHybridMesoscopic() {
+        return hybridMesoscopic;
+    }
+
+    public void setHybridMesoscopic(boolean hybridMesoscopic) {
+        this.hybridMesoscopic = hybridMesoscopic;
+    }
+
+    public String getMicroscopicWindows() {
+        return microscopicWindows;
+    }
+
+    public void setMicroscopicWindows(String microscopicWindows) {
+        this.microscopicWindows = microscopicWindows;
+    }
+
+    /**
+     * Gets microscopic windows from a string like "minLon,maxLat,maxLon,minLat;minLon,maxLat,maxLon,minLat".
+     */
+    public List<double[]> getMicroscopicWindowList() {
+        List<double[]> windows = new ArrayList<>();
+        if (microscopicWindows == null || microscopicWindows.isEmpty()) {
+            return windows;
+        }
+        for (String window : microscopicWindows.split(";")) {
+            String[] values = window.split(",");
+            if (values.length == 4) {
+                windows.add(new double[]{Double.parseDouble(values[0]), Double.parseDouble(values[1]),
+                        Double.parseDouble(values[2]), Double.parseDouble(values[3])});
+            }
+        }
+        return windows;
+    }
+
+    public long getRandomSeed() {
+        return randomSeed;
+    }
+
+    public void setRandomSeed(long randomSeed) {
+        this.randomSeed = randomSeed;
+    }
+
+    public boolean isFastForwardIdleSteps() {
+        return fastForwardIdleSteps;
+    }
+
+    public void setFastForwardIdleSteps(boolean fastForwardIdleSteps) {
+        this.fastForwardIdleSteps = fastForwardIdleSteps;
+    }
+
+    public int getSnapshotAtStep() {
+        return snapshotAtStep;
+    }
+
+    public void setSnapshotAtStep(int snapshotAtStep) {
+        this.snapshotAtStep = snapshotAtStep;
+    }
+
+    public String getStartFromSnapshot() {
+        return startFromSnapshot;
+    }
+
+    public void setStartFromSnapshot(String startFromSnapshot) {
+        this.startFromSnapshot = startFromSnapshot;
+    }
+
+    public boolean isProfileSteps() {
+        return profileSteps;
+    }
+
+    public void setProfileSteps(boolean profileSteps) {
+        this.profileSteps = profileSteps;
+    }
+
     public String getTlManager() {
         return tlManager;
     }
@@ -446,6 +536,38 @@ public class Experiment {
                 setUpdateStepInterval(Integer.valueOf(value));
                 break;
             }
+            case "numVehicleUpdateThreads":{
+                setNumVehicleUpdateThreads(Integer.valueOf(value));
+                break;
+            }
+            case "hybridMesoscopic":{
+                setHybridMesoscopic(Boolean.valueOf(value));
+                break;
+            }
+            case "microscopicWindows":{
+                setMicroscopicWindows(value);
+                break;
+            }
+            case "randomSeed":{
+                setRandomSeed(Long.valueOf(value));
+                break;
+            }
+            case "fastForwardIdleSteps":{
+                setFastForwardIdleSteps(Boolean.valueOf(value));
+                break;
+            }
+            case "snapshotAtStep":{
+                setSnapshotAtStep(Integer.valueOf(value));
+                break;
+            }
+            case "startFromSnapshot":{
+                setStartFromSnapshot(value);
+                break;
+            }
+            case "profileSteps":{
+                setProfileSteps(Boolean.valueOf(value));
+                break;
+            }
         }
     }
 
@@ -483,6 +605,14 @@ public class Experiment {
         experiment.setVehicleTypeDistributor(vehicleTypeDistributor);
         experiment.setStopsAtMaxSteps(stopsAtMaxSteps);
         experiment.setUpdateStepInterval(updateStepInterval);
+        experiment.setNumVehicleUpdateThreads(numVehicleUpdateThreads);
+        experiment.setProfileSteps(profileSteps);
+        experiment.setRandomSeed(randomSeed);
+        experiment.setFastForwardIdleSteps(fastForwardIdleSteps);
+        experiment.setSnapshotAtStep(snapshotAtStep);
+        experiment.setStartFromSnapshot(startFromSnapshot);
+        experiment.setHybridMesoscopic(hybridMesoscopic);
+        experiment.setMicroscopicWindows(microscopicWindows);
         return experiment;
     }
 }
@@ -8,6 +8,7 @@ import java.util.*;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import common.LatencyHistogram;
 import common.Settings;
 import common.SysUtil;
 import processor.communication.message.SerializableRouteDump;
@@ -140,7 +141,7 @@ public class FileOutput {
 			final File file = getNewFile(settings.prefixOutputSimLog);
 			// Print column titles
 			fosLog = new FileOutputStream(file, true);
-			outputStringToFile(fosLog, "Time Stamp, Real Time(s), Simulation Time(s), # of Worker-Worker Connections"
+			outputStringToFile(fosLog, "Time Stamp, Real Time(s), Simulation Time(s), # of Worker-Worker Connections, # of Skipped Idle Steps, Snapshot Time(s)"
 					+ System.getProperty("line.separator"));
 		} catch (final Exception e) {
 			e.printStackTrace();
@@ -276,7 +277,8 @@ public class FileOutput {
 		}
 	}
 
-	public void outputSimLog(final int stepCurrent, final double simulationTimeCounter, final int totalNumFellowsOfWorker, int resolution) {
+	public void outputSimLog(final int stepCurrent, final double simulationTimeCounter, final int totalNumFellowsOfWorker,
+			final int numSkippedIdleSteps, final int snapshotStep, int resolution) {
 		final Date date = new Date();
 
 		if (settings.isOutputSimulationLog && (fosLog != null)) {
@@ -287,10 +289,65 @@ public class FileOutput {
 			outputStringToFile(fosLog, String.valueOf(simulationTimeCounter));
 			outputStringToFile(fosLog, ",");
 			outputStringToFile(fosLog, String.valueOf(totalNumFellowsOfWorker));
+			outputStringToFile(fosLog, ",");
+			outputStringToFile(fosLog, String.valueOf(numSkippedIdleSteps));
+			outputStringToFile(fosLog, ",");
+			outputStringToFile(fosLog, snapshotStep < 0 ? "" : String.valueOf(snapshotStep / resolution));
 			outputStringToFile(fosLog, System.getProperty("line.separator"));
 		}
 	}
 
+	/**
+	 * Writes a summary of the time spent by workers on each phase of a step.
+	 * The rows of each worker are followed by rows of all workers combined.
+	 * The last column of a combined row is the ratio between the largest total
+	 * time of a worker and the average total time of workers, which is high
+	 * when some workers are much slower than others in the phase.
+	 */
+	public void outputStepProfile(final Map<String, Map<String, LatencyHistogram>> stepPhaseTimes) {
+		if (stepPhaseTimes.isEmpty()) {
+			return;
+		}
+		final String newLine = System.getProperty("line.separator");
+		final Map<String, LatencyHistogram> allWorkers = new LinkedHashMap<>();
+		final Map<String, Long> maxWorkerTotal = new HashMap<>();
+		final StringBuilder sb = new StringBuilder();
+		sb.append("Worker,Phase,Count,Total(ms),Mean(us),P50(us),P90(us),P99(us),Max(us),Slowest/Average Worker" + newLine);
+		for (final String worker : stepPhaseTimes.keySet()) {
+			for (final Map.Entry<String, LatencyHistogram> entry : stepPhaseTimes.get(worker).entrySet()) {
+				final LatencyHistogram histogram = entry.getValue();
+				appendStepProfileRow(sb, worker, entry.getKey(), histogram, "");
+				allWorkers.computeIfAbsent(entry.getKey(), k -> new LatencyHistogram()).add(histogram);
+				maxWorkerTotal.merge(entry.getKey(), histogram.getTotalValue(), Math::max);
+			}
+		}
+		for (final Map.Entry<String, LatencyHistogram> entry : allWorkers.entrySet()) {
+			final LatencyHistogram histogram = entry.getValue();
+			final double averageWorkerTotal = (double) histogram.getTotalValue() / stepPhaseTimes.size();
+			final String imbalance = averageWorkerTotal > 0
+					? String.format("%.2f", maxWorkerTotal.get(entry.getKey()) / averageWorkerTotal) : "";
+			appendStepProfileRow(sb, "ALL", entry.getKey(), histogram, imbalance);
+		}
+		try {
+			final File file = getNewFile(settings.prefixOutputStepProfile);
+			final FileOutputStream fos = new FileOutputStream(file, true);
+			outputStringToFile(fos, sb.toString());
+			fos.close();
+		} catch (final IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	void appendStepProfileRow(final StringBuilder sb, final String worker, final String phase,
+			final LatencyHistogram histogram, final String imbalance) {
+		sb.append(worker + "," + phase + "," + histogram.getTotalCount() + ",");
+		sb.append(String.format("%.3f,%.1f,%.1f,%.1f,%.1f,%.1f,", histogram.getTotalValue() / 1e6,
+				histogram.getMean() / 1e3, histogram.getValueAtPercentile(50) / 1e3,
+				histogram.getValueAtPercentile(90) / 1e3, histogram.getValueAtPercentile(99) / 1e3,
+				histogram.getMaxValue() / 1e3));
+		sb.append(imbalance + System.getProperty("line.separator"));
+	}
+
 	void outputStringToFile(final FileOutputStream fos, final String str) {
 
 		final byte[] dataInBytes = str.getBytes();
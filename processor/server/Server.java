@@ -1,5 +1,7 @@
 package processor.server;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -14,6 +16,7 @@ import processor.communication.externalMessage.DemandBasedLaneManager;
 import processor.communication.externalMessage.ExternalSimulationListener;
 import processor.communication.externalMessage.LaneManager;
 import processor.communication.message.*;
+import traffic.TrafficSnapshot;
 import traffic.network.ODDistributor;
 import traffic.road.Node;
 import traffic.road.RoadNetwork;
@@ -219,6 +222,7 @@ public class Server implements MessageHandler, Runnable, SimulationProcessor {
 			data.updateFromReport(message.vehicleList, message.lightList, message.workerName, workerMetas.size(),
 					message.step, message.randomRoutes, message.finishedList,message.numInternalNonPubVehicles, message.numInternalTrams,
 					message.numInternalBuses, message.laneIndexes, message.edgesToUpdate);
+			data.updateStepPhaseTimes(message.workerName, message.stepPhaseTimes);
 			// Remove processed message
 			iMessage.remove();
 		}
@@ -265,6 +269,9 @@ public class Server implements MessageHandler, Runnable, SimulationProcessor {
 		receivedTrafficReportCache.clear();
 
 		if (settings.isVisualize == false) data.loadSettingsFromScript();
+		if (!settings.inputSnapshot.isEmpty()) {
+			startFromSnapshotStep();
+		}
 		//data.initRoadNetwork();
 		//data.updateSettings();
 		// In a new environment (map), determine the work areas for all workers
@@ -285,6 +292,21 @@ public class Server implements MessageHandler, Runnable, SimulationProcessor {
 		settings.isNewEnvironment = false;
 	}
 
+	/**
+	 * Continues simulation from the step of the snapshot to restore. In
+	 * server-based mode, step is incremented before the first step is
+	 * simulated.
+	 */
+	void startFromSnapshotStep() {
+		try {
+			final int snapshotStep = TrafficSnapshot.readStep(new File(settings.inputSnapshot));
+			data.setStep(settings.isServerBased ? snapshotStep : snapshotStep + 1);
+			data.setSnapshotStep(snapshotStep);
+		} catch (final IOException e) {
+			e.printStackTrace();
+		}
+	}
+
 	private void assignODWindows(){
 		ODDistributor odDistributor = settings.getODDistributor();
 		settings.listRouteSourceWindowForInternalVehicle = odDistributor.getSourceWidows(getRoadNetwork());
@@ -373,6 +395,33 @@ public class Server implements MessageHandler, Runnable, SimulationProcessor {
 		}
 	}
 
+	synchronized void updateWorkerIdleSteps(final String workerName, final int numIdleSteps) {
+		for (final WorkerMeta worker : workerMetas) {
+			if (worker.name.equals(workerName)) {
+				worker.numIdleSteps = numIdleSteps;
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Skips the steps in which no worker has anything to do. Workers catch up
+	 * with the skipped steps when they are asked to do the next step.
+	 */
+	void skipIdleSteps() {
+		if (!settings.isFastForwardIdleSteps) {
+			return;
+		}
+		int numIdleSteps = settings.maxNumSteps - 1 - data.getStep();
+		for (final WorkerMeta worker : workerMetas) {
+			numIdleSteps = Math.min(numIdleSteps, worker.numIdleSteps);
+		}
+		if (numIdleSteps > 0) {
+			data.setStep(data.getStep() + numIdleSteps);
+			data.updateSkippedIdleSteps(numIdleSteps);
+		}
+	}
+
 	private void onWSJoinMessage(Message_WS_Join msg){
 		if (isOpenForNewWorkers)
 			addWorker(msg);
@@ -427,11 +476,13 @@ public class Server implements MessageHandler, Runnable, SimulationProcessor {
 		// Stop if max number of steps is reached in server-based mode
 		if (settings.isServerBased) {
 			updateWorkerState(msg.workerName, WorkerState.FINISHED_ONE_STEP);
+			updateWorkerIdleSteps(msg.workerName, msg.numIdleSteps);
 			if (isAllWorkersAtState(WorkerState.FINISHED_ONE_STEP)) {
 				data.updateSimulationTime();
 				if (data.isSimulationStopReached()) {
 					stopSim();
 				} else if (isSimulating) {
+					skipIdleSteps();
 					askWorkersShareTrafficDataWithFellowWorkers();
 				}
 			}
@@ -22,6 +22,8 @@ public class WorkerMeta {
 	public int numRandomTrams;
 	public int numRandomBuses;
 	public WorkerState state = WorkerState.NEW;
+	public int numIdleSteps = 0;//Number of steps the worker can skip after its last reported step
+	public int partitionIndex = -1;//Index of the work area in the partition of grid cells, which does not depend on worker name
 	public ArrayList<SerializableExternalVehicle> externalRoutes = new ArrayList<>();
 	public List<Node> lightNodes = new ArrayList<>();
 	public List<Node> nodesRoAddLight = new ArrayList<>();
@@ -4,6 +4,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
+import common.RandomStreams;
+import common.RandomStreams.Purpose;
 import common.Settings;
 import processor.communication.message.Message_SW_Setup;
 import processor.communication.message.SerializableExternalVehicle;
@@ -25,7 +27,6 @@ public class WorkloadBalancer {
 	private RoadNetwork roadNetwork;
 
 	public WorkloadBalancer(List<WorkerMeta> workerMetaList, RoadNetwork roadNetwork){
-		this.random = new Random();
 		this.workerMetaList = workerMetaList;
 		this.roadNetwork = roadNetwork;
 	}
@@ -151,9 +152,12 @@ public class WorkloadBalancer {
 	private void partitionGridCells(Settings settings, List<WorkerMeta> workers, RoadNetwork roadNetwork) {
 
 		// Clear existing grid cells in the work area of each worker
-		for (final WorkerMeta worker : workers) {
-			worker.workarea.workCells.clear();
+		for (int i = 0; i < workers.size(); i++) {
+			workers.get(i).workarea.workCells.clear();
+			workers.get(i).partitionIndex = i;
 		}
+		// Same seed gives same partition
+		random = RandomStreams.forWorker(settings.randomSeed, "server", Purpose.WORKLOAD_PARTITION);
 
 		final GridCell[][] grid = roadNetwork.grid;
 
@@ -1,6 +1,10 @@
 package processor.worker;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -12,9 +16,14 @@ import processor.communication.externalMessage.RoadControl;
 import processor.communication.externalMessage.RoadIndex;
 import processor.communication.message.SerializableExternalVehicle;
 import processor.communication.message.SerializableInt;
+import processor.communication.message.SerializableStepPhaseTime;
 import processor.communication.message.SerializableWorkerMetadata;
 import traffic.TrafficNetwork;
+import traffic.TrafficSnapshot;
 import traffic.road.*;
+import traffic.routing.RerouteService;
+import traffic.routing.Routing;
+import traffic.vehicle.MesoscopicModel;
 import traffic.vehicle.Vehicle;
 
 /**
@@ -40,6 +49,12 @@ public class Simulation {
 	ExternalSimulationListener extListner = null;
 	boolean extListnerInitCalled = false;
 	Settings settings;
+	VehicleStepper vehicleStepper = null;
+	RerouteService rerouteService = null;// Null if routes are searched on the simulation thread
+	MesoscopicModel mesoscopicModel = null;
+	final StepProfiler stepProfiler = new StepProfiler();
+	BitSet pspBorderEdgeMask = null;// Index mask of pspBorderEdges. Null if the list is not ordered by index.
+	BitSet pspNonBorderEdgeMask = null;// Index mask of pspNonBorderEdges. Null if the list is not ordered by index.
 
 
 	public Simulation(Settings settings,int startStep, String roadGraph,
@@ -66,6 +81,7 @@ public class Simulation {
 								List<SerializableInt> lightNodes){
 		this.settings = settings;
 		setStep(startStep);
+		stepProfiler.setEnabled(settings.isProfileSteps);
 		this.numLocalRandomPrivateVehicles = numLocalRandomPrivateVehicles;
 		this.numLocalRandomTrams = numLocalRandomTrams;
 		this.numLocalRandomBuses = numLocalRandomBuses;
@@ -97,7 +113,88 @@ public class Simulation {
 
 
 
-	ArrayList<Vehicle> moveVehicleForward(final double timeNow, final List<Edge> edges) {
+	ArrayList<Vehicle> moveVehicleForward(final double timeNow, final List<Edge> allEdges) {
+		final List<Edge> edges = getMovingEdges(allEdges);
+		List<Edge> microscopicEdges = edges;
+		final ArrayList<Edge> mesoscopicEdges = new ArrayList<>();
+		if (settings.isHybridMesoscopic) {
+			microscopicEdges = new ArrayList<>();
+			for (final Edge edge : edges) {
+				if (edge.isMesoscopic) {
+					mesoscopicEdges.add(edge);
+				} else {
+					microscopicEdges.add(edge);
+				}
+			}
+		}
+		final ArrayList<Vehicle> vehicles;
+		if (settings.numVehicleUpdateThreads > 0) {
+			vehicles = moveVehicleForwardInTwoPhases(timeNow, microscopicEdges);
+		} else {
+			vehicles = moveVehicleForwardInPlace(timeNow, microscopicEdges);
+		}
+		if (!mesoscopicEdges.isEmpty()) {
+			vehicles.addAll(moveVehicleForwardMesoscopic(timeNow, mesoscopicEdges));
+		}
+		for (final Edge edge : edges) {
+			trafficNetwork.activeEdges.settleMoving(edge);
+		}
+		return vehicles;
+	}
+
+	/**
+	 * Gets the edges in the given list that are in the moving set of traffic
+	 * network. The order of edges in the list is kept. If the list is ordered
+	 * by edge index, only the moving set is scanned.
+	 */
+	List<Edge> getMovingEdges(final List<Edge> allEdges) {
+		final BitSet moving = trafficNetwork.activeEdges.moving;
+		final ArrayList<Edge> edges = new ArrayList<>();
+		BitSet mask = null;
+		if (allEdges == pspBorderEdges) {
+			mask = pspBorderEdgeMask;
+		} else if (allEdges == pspNonBorderEdges) {
+			mask = pspNonBorderEdgeMask;
+		}
+		if (mask != null) {
+			for (int i = moving.nextSetBit(0); i >= 0; i = moving.nextSetBit(i + 1)) {
+				if (mask.get(i)) {
+					edges.add(trafficNetwork.edges.get(i));
+				}
+			}
+		} else {
+			for (final Edge edge : allEdges) {
+				if (moving.get(edge.index)) {
+					edges.add(edge);
+				}
+			}
+		}
+		return edges;
+	}
+
+	/**
+	 * Gets the indices of the edges in a list, or null if the list is not
+	 * ordered by edge index.
+	 */
+	static BitSet getEdgeMask(final List<Edge> edges) {
+		final BitSet mask = new BitSet();
+		int lastIndex = -1;
+		for (final Edge edge : edges) {
+			if (edge.index <= lastIndex) {
+				return null;
+			}
+			mask.set(edge.index);
+			lastIndex = edge.index;
+		}
+		return mask;
+	}
+
+	/**
+	 * Moves vehicles forward one by one on this thread. A vehicle sees the
+	 * vehicles ahead of it that have already moved in this step. This is the
+	 * default update, on which the models are calibrated.
+	 */
+	ArrayList<Vehicle> moveVehicleForwardInPlace(final double timeNow, final List<Edge> edges) {
 		final ArrayList<Vehicle> vehicles = new ArrayList<>();
 		for (final Edge edge : edges) {
 			double accumulatedVehicleSpeed = 0;
@@ -115,20 +212,9 @@ public class Simulation {
 					vehicle.moveForward(timeNow);
 
 					// Update accumulated vehicle speed
-					accumulatedVehicleSpeed += vehicle.speed;
-
-					//
-
-					if (vehicle.isCAV() || vehicle.isConnectedV()) {
-						vehicle.reRoute(timeNow, trafficNetwork.routingAlgorithm);
-						vehicle.dynamicReRoute(timeNow, trafficNetwork.routingAlgorithm);
-					}
+					accumulatedVehicleSpeed += vehicle.getSpeed();
 
-					if(vehicle.isFinished()){
-						oneStepData_allVehiclesReachedDestination.add(vehicle);
-					}
-					// Set priority lanes
-					vehicle.setPriorityLanes(true);
+					finishMove(timeNow, vehicle);
 				}
 
 			}
@@ -143,6 +229,141 @@ public class Simulation {
 		return vehicles;
 	}
 
+	/**
+	 * Moves vehicles forward with the two-phase update of {@link VehicleStepper}.
+	 * This is used when vehicle update threads are set. The result is the same
+	 * for any positive number of threads, but differs from the update in place
+	 * as every vehicle sees the vehicles ahead at the previous step. Re-routing
+	 * and priority lanes are done afterwards on this thread as routing
+	 * algorithms are not thread-safe.
+	 */
+	ArrayList<Vehicle> moveVehicleForwardInTwoPhases(final double timeNow, final List<Edge> edges) {
+		if (vehicleStepper == null || vehicleStepper.getNumThreads() != settings.numVehicleUpdateThreads) {
+			if (vehicleStepper != null) {
+				vehicleStepper.shutdown();
+			}
+			vehicleStepper = new VehicleStepper(settings.numVehicleUpdateThreads);
+		}
+		vehicleStepper.step(timeNow, edges);
+
+		final ArrayList<Vehicle> vehicles = new ArrayList<>();
+		for (final Edge edge : edges) {
+			for (final Lane lane : edge.getLanes()) {
+				for (final Vehicle vehicle : lane.getVehicles()) {
+					if (!vehicle.active) {
+						continue;
+					}
+					vehicles.add(vehicle);
+				}
+			}
+		}
+		for (final Vehicle vehicle : vehicles) {
+			finishMove(timeNow, vehicle);
+		}
+		return vehicles;
+	}
+
+	/**
+	 * Moves vehicles on mesoscopic edges with the queue model.
+	 */
+	ArrayList<Vehicle> moveVehicleForwardMesoscopic(final double timeNow, final List<Edge> edges) {
+		if (mesoscopicModel == null) {
+			mesoscopicModel = new MesoscopicModel(settings);
+		}
+		final ArrayList<Vehicle> vehicles = new ArrayList<>();
+		for (final Edge edge : edges) {
+			mesoscopicModel.moveVehicles(edge, timeNow, vehicles);
+		}
+		for (final Vehicle vehicle : vehicles) {
+			finishMove(timeNow, vehicle);
+		}
+		return vehicles;
+	}
+
+	/**
+	 * Tasks after a vehicle moves forward, which are done on this thread.
+	 */
+	void finishMove(final double timeNow, final Vehicle vehicle) {
+		if (vehicle.isCAV() || vehicle.isConnectedV()) {
+			reRoute(timeNow, vehicle);
+		}
+		if (vehicle.isFinished()) {
+			oneStepData_allVehiclesReachedDestination.add(vehicle);
+		}
+		vehicle.setPriorityLanes(true);
+	}
+
+	/**
+	 * Re-routes a vehicle if needed. Routes are searched on this thread, or by
+	 * the reroute service if it is enabled in settings. If the number of
+	 * re-routes per step is limited, the vehicle waits for its turn in the
+	 * reroute scheduler instead.
+	 */
+	void reRoute(final double timeNow, final Vehicle vehicle) {
+		if (trafficNetwork.rerouteScheduler.isEnabled()) {
+			final boolean isPending = (rerouteService != null) && rerouteService.isPending(vehicle);
+			if (!isPending && (vehicle.isReRouteNeeded(timeNow) || vehicle.isDynamicReRouteNeeded(timeNow))) {
+				trafficNetwork.rerouteScheduler.offer(vehicle);
+			}
+			return;
+		}
+		reRouteNow(timeNow, vehicle);
+	}
+
+	void reRouteNow(final double timeNow, final Vehicle vehicle) {
+		final Routing routing = rerouteService == null ? trafficNetwork.getRoutingAlgorithm() : null;
+		vehicle.reRoute(timeNow, routing, rerouteService);
+		vehicle.dynamicReRoute(timeNow, routing, rerouteService);
+	}
+
+	/**
+	 * Re-routes the vehicles chosen by the reroute scheduler after all the
+	 * vehicles have moved.
+	 */
+	void reRouteScheduledVehicles(final double timeNow) {
+		if (!trafficNetwork.rerouteScheduler.isEnabled()) {
+			return;
+		}
+		for (final Vehicle vehicle : trafficNetwork.rerouteScheduler.select()) {
+			if (!vehicle.active || vehicle.isFinished()) {
+				continue;
+			}
+			reRouteNow(timeNow, vehicle);
+			if (vehicle.isFinished()) {
+				oneStepData_allVehiclesReachedDestination.add(vehicle);
+			}
+			vehicle.setPriorityLanes(true);
+		}
+	}
+
+	/**
+	 * Applies the new routes due at this step. The reroute service is created
+	 * or removed here when the number of threads changes.
+	 */
+	void applyReroutes(final int step) {
+		if (rerouteService != null) {
+			rerouteService.applyResults(step);
+			if (rerouteService.getNumThreads() != settings.numRerouteThreads) {
+				trafficNetwork.routingService.setRerouteService(null);
+				rerouteService.shutdown();
+				rerouteService = null;
+			}
+		}
+		if (rerouteService == null && settings.numRerouteThreads > 0) {
+			rerouteService = new RerouteService(trafficNetwork, settings.numRerouteThreads);
+			trafficNetwork.routingService.setRerouteService(rerouteService);
+		}
+	}
+
+	/**
+	 * Starts searching the new routes requested in this step.
+	 */
+	void submitReroutes(final int step) {
+		if (rerouteService != null) {
+			rerouteService.submitRequests(step);
+		}
+	}
+
 	void moveVehicleToNextLink(List<Fellow> connectedFellows, final double timeNow, final ArrayList<Vehicle> vehiclesToCheck) {
 		for (final Vehicle vehicle : vehiclesToCheck) {
 
@@ -160,9 +381,22 @@ public class Simulation {
 	}
 
 	void updateLaneDirections(){
-		for (Lane lane : trafficNetwork.lanes){
+		final BitSet lanesChangingDirection = trafficNetwork.activeEdges.lanesChangingDirection;
+		if (!lanesChangingDirection.isEmpty()) {
+			trafficNetwork.routingService.stopBackgroundSearches();
+		}
+		for (int i = lanesChangingDirection.nextSetBit(0); i >= 0; i = lanesChangingDirection.nextSetBit(i + 1)) {
+			final Lane lane = trafficNetwork.lanes.get(i);
 			if(lane.updateDirection()){
 				trafficNetwork.laneIndexOfChangeDir.add(lane.index);
+				// Blocked lanes may have moved between the two edges
+				trafficNetwork.routingService.markEdgeChanged(lane.edge);
+				if (lane.edge.getOppositeEdge() != null) {
+					trafficNetwork.routingService.markEdgeChanged(lane.edge.getOppositeEdge());
+				}
+			}
+			if (!lane.isDirectionChanging) {
+				lanesChangingDirection.clear(i);
 			}
 		}
 	}
@@ -206,39 +440,43 @@ public class Simulation {
 											 List<Edge> pspNonBorderEdges, int numLocalRandomPrivateVehicles, int numLocalRandomTrams,
 											 int numLocalRandomBuses, boolean isNewNonPubVehiclesAllowed,
 			boolean isNewTramsAllowed, boolean isNewBusesAllowed) {
+		stepProfiler.startStep(worker.name, step);
 		pause();
+		stepProfiler.lap(StepPhase.PAUSE);
 		waitForInit();
+		stepProfiler.lap(StepPhase.WAIT_FOR_INIT);
+		applyReroutes(step);
+		stepProfiler.lap(StepPhase.APPLY_REROUTES);
 		updateLaneDirections();
+		stepProfiler.lap(StepPhase.UPDATE_LANE_DIRECTIONS);
 
 		moveVehiclesAroundBorder(worker.connectedFellows, timeNow, pspBorderEdges);
+		stepProfiler.lap(StepPhase.MOVE_BORDER_VEHICLES);
 		transferDataTofellow(worker);
+		stepProfiler.lap(StepPhase.TRANSFER_TO_FELLOW);
 		moveVehiclesNotAroundBorder(worker.connectedFellows, timeNow, pspNonBorderEdges);
+		stepProfiler.lap(StepPhase.MOVE_NON_BORDER_VEHICLES);
+		reRouteScheduledVehicles(timeNow);
+		stepProfiler.lap(StepPhase.SCHEDULED_REROUTES);
 		onVehicleMove(step);
+		stepProfiler.lap(StepPhase.ON_VEHICLE_MOVE);
 
-		removeTripFinishedVehicles();
-		onVehicleRemove(oneStepData_allVehiclesReachedDestination, step);
-		trafficNetwork.changeLaneOfVehicles(timeNow);
-		trafficNetwork.updateTrafficLights(timeNow);
-		trafficNetwork.updateTramStopTimers();
-		trafficNetwork.releaseTripMakingVehicles(timeNow, simulationListener);
-		trafficNetwork.releaseVehicleFromParking(timeNow, simulationListener);
-		trafficNetwork.blockTramAtTramStop();
-		trafficNetwork.removeActiveVehicles(oneStepData_vehiclesReachedFellowWorker);
-		trafficNetwork.createInternalVehicles(numLocalRandomPrivateVehicles, numLocalRandomTrams,
-				numLocalRandomBuses, isNewNonPubVehiclesAllowed, isNewTramsAllowed, isNewBusesAllowed,
-				timeNow);
-		trafficNetwork.repeatExternalVehicles(step, timeNow);
-		trafficNetwork.finishRemoveCheck(timeNow);
+		simulateRestOfStep(timeNow, step, numLocalRandomPrivateVehicles, numLocalRandomTrams, numLocalRandomBuses,
+				isNewNonPubVehiclesAllowed, isNewTramsAllowed, isNewBusesAllowed);
 
 		trafficNetwork.updateStatistics(step);
+		stepProfiler.lap(StepPhase.UPDATE_STATISTICS);
 		//sendTrafficDataToExternal();
 
 		// Wait for External agent for send instructions after number of time sreps
 		sendTrafficData();
 		waitForActionsFromExternalClient();
+		stepProfiler.lap(StepPhase.EXTERNAL_LISTENER);
 
 		// Clear one-step data
 		clearOneStepData();
+		submitReroutes(step);
+		stepProfiler.lap(StepPhase.SUBMIT_REROUTES);
 
 		//if (step % 18000 == 0){
 		//	resetTraffic();
@@ -286,6 +524,8 @@ public class Simulation {
 			RoadIndex roadIndex = extListner.getRoadDirChange();
 			if (roadIndex != null) {
 				if (roadIndex.edges != null) {
+					trafficNetwork.routingService.stopBackgroundSearches();
+					boolean isSpeedChanged = false;
 					for (RoadControl edge : roadIndex.edges) {
 						if (edge.laneChange) {
 							int oppositeEdgeIndex = trafficNetwork.edges.get(edge.index).getOppositeEdge().index;
@@ -297,8 +537,12 @@ public class Simulation {
 
 						if (edge.speed > 0){
 							trafficNetwork.edges.get(edge.index).changeFreeFlowSpeed(edge.speed);
+							isSpeedChanged = true;
 						}
 					}
+					if (isSpeedChanged) {
+						trafficNetwork.routingService.updateTravelTimes();
+					}
 				}
 			}
 		}
@@ -320,7 +564,7 @@ public class Simulation {
 	public  void markLanesToChange(){
 		for (final Edge edge : trafficNetwork.edges){
 			if (edge.index == 292){
-				edge.getLastLane().isDirectionChanging = true;
+				edge.getLastLane().setDirectionChanging();
 			}
 		}
 	}
@@ -348,7 +592,7 @@ public class Simulation {
 
 	public void onVehicleMove(int step){
 		if(simulationListener != null && trafficNetwork.isPublishTime(step)){
-			List<Vehicle> allmovedVehicles = trafficNetwork.vehicles.stream().filter(vehicle -> vehicle.active)
+			List<Vehicle> allmovedVehicles = trafficNetwork.vehicles.asList().stream().filter(vehicle -> vehicle.active)
 					.collect(Collectors.toList());
 			simulationListener.onVehicleMove(allmovedVehicles, step, trafficNetwork);
 		}
@@ -364,26 +608,93 @@ public class Simulation {
 											 List<Edge> pspNonBorderEdges, int numLocalRandomPrivateVehicles, int numLocalRandomTrams,
 											 int numLocalRandomBuses, boolean isNewNonPubVehiclesAllowed,
 											 boolean isNewTramsAllowed, boolean isNewBusesAllowed) {
+		stepProfiler.startStep("single", step);
 		pause();
+		stepProfiler.lap(StepPhase.PAUSE);
+		applyReroutes(step);
+		stepProfiler.lap(StepPhase.APPLY_REROUTES);
 		moveVehiclesAroundBorder(new ArrayList<>(), timeNow, pspBorderEdges);
+		stepProfiler.lap(StepPhase.MOVE_BORDER_VEHICLES);
 		moveVehiclesNotAroundBorder(new ArrayList<>(), timeNow, pspNonBorderEdges);
+		stepProfiler.lap(StepPhase.MOVE_NON_BORDER_VEHICLES);
+		reRouteScheduledVehicles(timeNow);
+		stepProfiler.lap(StepPhase.SCHEDULED_REROUTES);
 		onVehicleMove(step);
+		stepProfiler.lap(StepPhase.ON_VEHICLE_MOVE);
+		simulateRestOfStep(timeNow, step, numLocalRandomPrivateVehicles, numLocalRandomTrams, numLocalRandomBuses,
+				isNewNonPubVehiclesAllowed, isNewTramsAllowed, isNewBusesAllowed);
+		// Clear one-step data
+		clearOneStepData();
+		submitReroutes(step);
+		stepProfiler.lap(StepPhase.SUBMIT_REROUTES);
+	}
+
+	/**
+	 * Tasks after moving vehicles forward, which are the same in all modes.
+	 */
+	void simulateRestOfStep(double timeNow, int step, int numLocalRandomPrivateVehicles, int numLocalRandomTrams,
+			int numLocalRandomBuses, boolean isNewNonPubVehiclesAllowed, boolean isNewTramsAllowed,
+			boolean isNewBusesAllowed) {
 		removeTripFinishedVehicles();
 		onVehicleRemove(oneStepData_allVehiclesReachedDestination, step);
+		stepProfiler.lap(StepPhase.REMOVE_FINISHED_VEHICLES);
 		trafficNetwork.changeLaneOfVehicles(timeNow);
+		stepProfiler.lap(StepPhase.CHANGE_LANE);
 		trafficNetwork.updateTrafficLights(timeNow);
+		stepProfiler.lap(StepPhase.UPDATE_LIGHTS);
 		trafficNetwork.updateTramStopTimers();
+		stepProfiler.lap(StepPhase.UPDATE_TRAM_STOP_TIMERS);
 		trafficNetwork.releaseTripMakingVehicles(timeNow, simulationListener);
+		stepProfiler.lap(StepPhase.RELEASE_TRIP_MAKING_VEHICLES);
 		trafficNetwork.releaseVehicleFromParking(timeNow, simulationListener);
+		stepProfiler.lap(StepPhase.RELEASE_FROM_PARKING);
 		trafficNetwork.blockTramAtTramStop();
+		stepProfiler.lap(StepPhase.BLOCK_TRAM_AT_STOP);
 		trafficNetwork.removeActiveVehicles(oneStepData_vehiclesReachedFellowWorker);
+		stepProfiler.lap(StepPhase.REMOVE_VEHICLES_REACHED_FELLOW);
 		trafficNetwork.createInternalVehicles(numLocalRandomPrivateVehicles, numLocalRandomTrams,
 				numLocalRandomBuses, isNewNonPubVehiclesAllowed, isNewTramsAllowed, isNewBusesAllowed,
 				timeNow);
+		stepProfiler.lap(StepPhase.CREATE_VEHICLES);
 		trafficNetwork.repeatExternalVehicles(step, timeNow);
+		stepProfiler.lap(StepPhase.REPEAT_EXTERNAL_VEHICLES);
 		trafficNetwork.finishRemoveCheck(timeNow);
-		// Clear one-step data
-		clearOneStepData();
+		stepProfiler.lap(StepPhase.FINISH_REMOVE_CHECK);
+	}
+
+	/**
+	 * Gets the number of steps after the current step in which this worker has
+	 * nothing to do, i.e., the network is empty and no vehicle, light change
+	 * or demand is due. Listeners need every step, so nothing is skipped when
+	 * a listener is used.
+	 */
+	public int getNumIdleSteps() {
+		if (!settings.isFastForwardIdleSteps || settings.isExternalListenerUsed || (simulationListener != null)) {
+			return 0;
+		}
+		return trafficNetwork.getNextEventStep(step, settings.maxNumSteps) - step - 1;
+	}
+
+	/**
+	 * Skips the steps up to the given step, which must be idle steps. Timers
+	 * of tram stops and statistics windows are updated as if the steps were
+	 * simulated. Lights need no update, as no light period ends in idle steps:
+	 * {@link TrafficNetwork#getNextEventStep(int, int)} does not go past the
+	 * end of the current period of any light cluster.
+	 */
+	public void fastForward(final int targetStep) {
+		for (int s = step + 1; s <= targetStep; s++) {
+			trafficNetwork.updateTramStopTimers();
+			trafficNetwork.updateStatistics(s);
+		}
+		setStep(targetStep);
+	}
+
+	/**
+	 * Gets the time spent on each phase of step since the last call.
+	 */
+	public ArrayList<SerializableStepPhaseTime> takeStepPhaseTimes() {
+		return stepProfiler.takePhaseTimes();
 	}
 
 	/////////////////////////////////////////
@@ -391,6 +702,8 @@ public class Simulation {
 	public void setPspEdges(Map<String, List<Edge>> pspEdges){
 		this.pspBorderEdges = pspEdges.get("Border");
 		this.pspNonBorderEdges = pspEdges.get("NonBorder");
+		this.pspBorderEdgeMask = getEdgeMask(pspBorderEdges);
+		this.pspNonBorderEdgeMask = getEdgeMask(pspNonBorderEdges);
 	}
 
 	public TrafficNetwork getTrafficNetwork() {
@@ -403,8 +716,41 @@ public class Simulation {
 				numLocalRandomBuses, true, true, true, timeNow);
 	}
 
+	/**
+	 * Restores traffic from the snapshot given in settings instead of creating
+	 * vehicles. External routes that repeat vehicles continue to create
+	 * vehicles after the restore.
+	 */
+	public void restoreSnapshot(ArrayList<SerializableExternalVehicle> externalRoutes) throws IOException {
+		if (rerouteService != null) {
+			rerouteService.clear();
+		}
+		TrafficSnapshot.restore(trafficNetwork, new File(settings.inputSnapshot));
+		for (final SerializableExternalVehicle vehicle : externalRoutes) {
+			if (vehicle.numberRepeatPerSecond > 0) {
+				trafficNetwork.addExternalVehicleRepeat(vehicle);
+			}
+		}
+	}
+
+	/**
+	 * Writes the traffic of this worker at the current step to the snapshot
+	 * folder of the step.
+	 *
+	 * @param vehiclesToTransfer
+	 *            Vehicles waiting to be sent to fellow workers.
+	 */
+	public void writeSnapshot(String workerName, Collection<Vehicle> vehiclesToTransfer) throws IOException {
+		final File folder = new File(settings.prefixOutputSnapshot + step);
+		folder.mkdirs();
+		TrafficSnapshot.write(trafficNetwork, step, vehiclesToTransfer, TrafficSnapshot.getFile(folder, workerName));
+	}
+
 	public void changeLaneBlock(int laneIndex, boolean isBlocked) {
-		trafficNetwork.lanes.get(laneIndex).isBlocked = isBlocked;
+		trafficNetwork.routingService.stopBackgroundSearches();
+		final Lane lane = trafficNetwork.lanes.get(laneIndex);
+		lane.isBlocked = isBlocked;
+		trafficNetwork.routingService.markEdgeChanged(lane.edge);
 	}
 
 	public void changeLaneDirection(int edgeIndex){
@@ -443,6 +789,9 @@ public class Simulation {
 		for (final Edge edge : pspNonBorderEdges) {
 			edge.clearVehicles();
 		}
+		if (rerouteService != null) {
+			rerouteService.clear();
+		}
 		trafficNetwork.resetTraffic();
 	}
 
@@ -0,0 +1,13 @@
+package processor.worker;
+
+/**
+ * Phases of simulating one step at worker. The order follows the order of
+ * tasks in a step.
+ */
+public enum StepPhase {
+	PAUSE, WAIT_FOR_INIT, APPLY_REROUTES, UPDATE_LANE_DIRECTIONS, MOVE_BORDER_VEHICLES, TRANSFER_TO_FELLOW,
+	MOVE_NON_BORDER_VEHICLES, SCHEDULED_REROUTES, ON_VEHICLE_MOVE, REMOVE_FINISHED_VEHICLES, CHANGE_LANE,
+	UPDATE_LIGHTS, UPDATE_TRAM_STOP_TIMERS, RELEASE_TRIP_MAKING_VEHICLES, RELEASE_FROM_PARKING,
+	BLOCK_TRAM_AT_STOP, REMOVE_VEHICLES_REACHED_FELLOW, CREATE_VEHICLES, REPEAT_EXTERNAL_VEHICLES,
+	FINISH_REMOVE_CHECK, UPDATE_STATISTICS, EXTERNAL_LISTENER, SUBMIT_REROUTES
+}
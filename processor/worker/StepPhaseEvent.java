@@ -0,0 +1,22 @@
+package processor.worker;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event covering one phase of a step. The event is only
+ * recorded when a recording with this event enabled is running.
+ */
+@Name("smarts.StepPhase")
+@Label("Step Phase")
+@Category("SMARTS")
+class StepPhaseEvent extends Event {
+	@Label("Worker")
+	String worker;
+	@Label("Step")
+	int step;
+	@Label("Phase")
+	String phase;
+}
@@ -0,0 +1,107 @@
+package processor.worker;
+
+import java.util.ArrayList;
+
+import common.LatencyHistogram;
+import processor.communication.message.SerializableHistogramBucket;
+import processor.communication.message.SerializableStepPhaseTime;
+
+/**
+ * Measures the time spent on each phase of a step. A step starts with
+ * {@link #startStep(String, int)} and each call of {@link #lap(StepPhase)}
+ * assigns the time since the previous call to the given phase. Times are
+ * collected in histograms until they are taken for a traffic report. Each
+ * phase is also recorded as a flight recorder event.
+ */
+class StepProfiler {
+	private final LatencyHistogram[] histograms = new LatencyHistogram[StepPhase.values().length];
+	private boolean isEnabled = false;
+	private String workerName = "";
+	private int step = 0;
+	private long timeLastLap = 0;
+	private StepPhaseEvent event = null;
+
+	StepProfiler() {
+		for (int i = 0; i < histograms.length; i++) {
+			histograms[i] = new LatencyHistogram();
+		}
+	}
+
+	void setEnabled(final boolean isEnabled) {
+		this.isEnabled = isEnabled;
+	}
+
+	boolean isEnabled() {
+		return isEnabled;
+	}
+
+	void startStep(final String workerName, final int step) {
+		if (!isEnabled) {
+			return;
+		}
+		this.workerName = workerName;
+		this.step = step;
+		timeLastLap = System.nanoTime();
+		beginEvent();
+	}
+
+	/**
+	 * Assigns the time since the previous lap, or the start of step, to the
+	 * given phase.
+	 */
+	void lap(final StepPhase phase) {
+		if (!isEnabled) {
+			return;
+		}
+		final long now = System.nanoTime();
+		histograms[phase.ordinal()].record(now - timeLastLap);
+		timeLastLap = now;
+		if (event != null) {
+			event.end();
+			if (event.shouldCommit()) {
+				event.worker = workerName;
+				event.step = step;
+				event.phase = phase.name();
+				event.commit();
+			}
+		}
+		beginEvent();
+	}
+
+	private void beginEvent() {
+		event = new StepPhaseEvent();
+		if (event.isEnabled()) {
+			event.begin();
+		} else {
+			event = null;
+		}
+	}
+
+	/**
+	 * Gets the times measured since the last call of this method and clears
+	 * them. Phases without any measurement are not included.
+	 */
+	ArrayList<SerializableStepPhaseTime> takePhaseTimes() {
+		final ArrayList<SerializableStepPhaseTime> list = new ArrayList<>();
+		if (!isEnabled) {
+			return list;
+		}
+		for (final StepPhase phase : StepPhase.values()) {
+			final LatencyHistogram histogram = histograms[phase.ordinal()];
+			if (histogram.getTotalCount() == 0) {
+				continue;
+			}
+			final ArrayList<SerializableHistogramBucket> buckets = new ArrayList<>();
+			for (int i = 0; i < LatencyHistogram.numBuckets; i++) {
+				final long count = histogram.getBucketCount(i);
+				if (count > 0) {
+					buckets.add(new SerializableHistogramBucket(i, count));
+				}
+			}
+			list.add(new SerializableStepPhaseTime(phase.name(), histogram.getTotalValue(), histogram.getMaxValue(),
+					buckets));
+			histogram.reset();
+		}
+		return list;
+	}
+}
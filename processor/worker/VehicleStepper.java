@@ -0,0 +1,143 @@
+package processor.worker;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+import traffic.road.Edge;
+import traffic.road.Lane;
+import traffic.vehicle.Vehicle;
+
+/**
+ * Moves vehicles forward in two phases, optionally using multiple threads.
+ * Without threads, both phases run on the calling thread. In the compute
+ * phase, every vehicle finds its acceleration while no vehicle moves. In the
+ * commit phase, vehicles update their speed and position. Edges are shared
+ * among threads and vehicles on the same edge are always handled by the same
+ * thread in lane order, so the result does not depend on the number of
+ * threads.
+ */
+class VehicleStepper {
+	/**
+	 * Number of edges processed by a thread without further splitting.
+	 */
+	static final int edgesPerTask = 64;
+
+	private final int numThreads;
+	private final ForkJoinPool pool;
+
+	VehicleStepper(final int numThreads) {
+		this.numThreads = numThreads;
+		if (numThreads > 1) {
+			pool = new ForkJoinPool(numThreads, p -> {
+				final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+				thread.setDaemon(true);
+				thread.setName("vehicle-stepper-" + thread.getPoolIndex());
+				return thread;
+			}, null, false);
+		} else {
+			pool = null;
+		}
+	}
+
+	int getNumThreads() {
+		return numThreads;
+	}
+
+	/**
+	 * Runs both phases for the vehicles on the given edges. Current speed of
+	 * each edge is also updated in the commit phase.
+	 */
+	void step(final double timeNow, final List<Edge> edges) {
+		run(new PhaseTask(edges, 0, edges.size(), timeNow, false));
+		run(new PhaseTask(edges, 0, edges.size(), timeNow, true));
+	}
+
+	void shutdown() {
+		if (pool != null) {
+			pool.shutdown();
+		}
+	}
+
+	private void run(final PhaseTask task) {
+		if (pool == null) {
+			task.compute();
+		} else {
+			pool.invoke(task);
+		}
+	}
+
+	static void computeEdge(final double timeNow, final Edge edge) {
+		for (final Lane lane : edge.getLanes()) {
+			for (final Vehicle vehicle : lane.getVehicles()) {
+				if (vehicle.active) {
+					vehicle.computeAcceleration(timeNow);
+				}
+			}
+		}
+	}
+
+	static void commitEdge(final double timeNow, final Edge edge) {
+		double accumulatedVehicleSpeed = 0;
+		int numVehiclesOnEdge = 0;
+		for (final Lane lane : edge.getLanes()) {
+			for (final Vehicle vehicle : lane.getVehicles()) {
+				if (vehicle.active) {
+					vehicle.commitMove(timeNow);
+					accumulatedVehicleSpeed += vehicle.getSpeed();
+					numVehiclesOnEdge++;
+				}
+			}
+		}
+		// Update average vehicle speed for this edge
+		if (numVehiclesOnEdge > 0) {
+			edge.currentSpeed = accumulatedVehicleSpeed / numVehiclesOnEdge;
+		} else {
+			edge.currentSpeed = edge.freeFlowSpeed;
+		}
+		edge.mvgCurrentSpeed = 0.01 * edge.mvgCurrentSpeed + 0.99 * edge.currentSpeed;
+	}
+
+	/**
+	 * Processes a range of edges in one phase. The range is split in halves
+	 * until it is small enough.
+	 */
+	static class PhaseTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		final List<Edge> edges;
+		final int from;
+		final int to;
+		final double timeNow;
+		/**
+		 * Whether this is the commit phase. Otherwise it is the compute phase.
+		 */
+		final boolean isCommit;
+
+		PhaseTask(final List<Edge> edges, final int from, final int to, final double timeNow,
+				final boolean isCommit) {
+			this.edges = edges;
+			this.from = from;
+			this.to = to;
+			this.timeNow = timeNow;
+			this.isCommit = isCommit;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > edgesPerTask && getPool() != null) {
+				final int mid = (from + to) >>> 1;
+				invokeAll(new PhaseTask(edges, from, mid, timeNow, isCommit),
+						new PhaseTask(edges, mid, to, timeNow, isCommit));
+				return;
+			}
+			for (int i = from; i < to; i++) {
+				if (isCommit) {
+					commitEdge(timeNow, edges.get(i));
+				} else {
+					computeEdge(timeNow, edges.get(i));
+				}
+			}
+		}
+	}
+}
@@ -97,7 +97,13 @@ public class Worker implements MessageHandler, Runnable {
 						}
 					}
 					simulation.simulateOneStep(me, true, true, true);
+					writeSnapshotIfDue();
 					sendTrafficReportInServerlessMode();
+					// No fellow worker to wait for, so idle steps can be skipped right away
+					final int numIdleSteps = getNumIdleSteps();
+					if (numIdleSteps > 0) {
+						simulation.fastForward(simulation.getStep() + numIdleSteps);
+					}
 					simulation.setStep(simulation.getStep() + 1);
 				}
 				// Finish simulation
@@ -106,9 +112,49 @@ public class Worker implements MessageHandler, Runnable {
 		};
 	}
 
+	void sendTrafficReport() {
+		final Message_WS_TrafficReport report = new Message_WS_TrafficReport(settings, name, simulation.getStep(),
+				simulation.getTrafficNetwork(), simulation.getLaneChanges());
+		report.stepPhaseTimes = simulation.takeStepPhaseTimes();
+		report.numIdleSteps = getNumIdleSteps();
+		senderForServer.send(report);
+	}
+
+	/**
+	 * Gets the number of steps after the current step that this worker can
+	 * skip. Vehicles waiting to be sent to fellow workers need the next step.
+	 */
+	int getNumIdleSteps() {
+		for (final Fellow fellow : connectedFellows) {
+			if (fellow.vehiclesToCreateAtBorder.size() > 0) {
+				return 0;
+			}
+		}
+		return simulation.getNumIdleSteps();
+	}
+
+	/**
+	 * Writes a snapshot of traffic if the current step is the step of
+	 * snapshot given in settings. This is called at the end of a step.
+	 */
+	void writeSnapshotIfDue() {
+		if (simulation.getStep() != settings.snapshotStep) {
+			return;
+		}
+		final ArrayList<Vehicle> vehiclesToTransfer = new ArrayList<>();
+		for (final Fellow fellow : connectedFellows) {
+			vehiclesToTransfer.addAll(fellow.vehiclesToCreateAtBorder);
+		}
+		try {
+			simulation.writeSnapshot(name, vehiclesToTransfer);
+		} catch (final IOException e) {
+			e.printStackTrace();
+		}
+	}
+
 	public void sendTrafficReportInServerlessMode() {
 		if ((simulation.getStep() + 1) % settings.trafficReportStepGapInServerlessMode == 0) {
-			senderForServer.send(new Message_WS_TrafficReport(settings, name, simulation.getStep(), simulation.getTrafficNetwork(), simulation.getLaneChanges()));
+			sendTrafficReport();
 			simulation.clearReportedTrafficData();
 		}
 	}
@@ -137,6 +183,8 @@ public class Worker implements MessageHandler, Runnable {
 			}
 		}
 		pspBorderEdges.addAll(edgeSet);
+		// Keep edges in index order so that vehicles are always moved in the same order
+		pspBorderEdges.sort(Comparator.comparingInt(e -> e.index));
 		for (final Edge e : simulation.getTrafficNetwork().edges) {
 			if (!edgeSet.contains(e)) {
 				pspNonBorderEdges.add(e);
@@ -234,6 +282,7 @@ public class Worker implements MessageHandler, Runnable {
 				} else if (!isPausingServerlessSim) {
 					simulation.setStep(simulation.getStep() + 1);
 					simulation.simulateOneStep(this, true, true, true);
+					writeSnapshotIfDue();
 					proceedBasedOnSyncMethod();
 				}
 			}
@@ -401,7 +450,15 @@ public class Worker implements MessageHandler, Runnable {
 		if (settings.isVisualize) {
 			progressTimer.scheduleAtFixedRate(progressTimerTask, 500, random.nextInt(1000) + 1);
 		}
-		simulation.createVehicles(msg.externalRoutes);
+		if (settings.inputSnapshot.isEmpty()) {
+			simulation.createVehicles(msg.externalRoutes);
+		} else {
+			try {
+				simulation.restoreSnapshot(msg.externalRoutes);
+			} catch (final IOException e) {
+				e.printStackTrace();
+			}
+		}
 		progressTimerTask.cancel();
 		progressTimer.cancel();
 		// Let server know that setup is done
@@ -409,6 +466,10 @@ public class Worker implements MessageHandler, Runnable {
 	}
 
 	private void onSWServerBasedShareTrafficMsg(Message_SW_ServerBased_ShareTraffic msg){
+		// Server skips steps when all workers report idle steps
+		if (msg.currentStep > simulation.getStep() + 1) {
+			simulation.fastForward(msg.currentStep - 1);
+		}
 		simulation.setStep(msg.currentStep);
 		transferVehicleDataToFellow();
 		proceedBasedOnSyncMethod();
@@ -421,7 +482,8 @@ public class Worker implements MessageHandler, Runnable {
 
 	public void onSWServerBasedSimulate(Message_SW_ServerBased_Simulate msg){
 		simulation.simulateOneStep(this, msg.isNewNonPubVehiclesAllowed, msg.isNewTramsAllowed, msg.isNewBusesAllowed);
-		senderForServer.send(new Message_WS_TrafficReport(settings, name, simulation.getStep(), simulation.getTrafficNetwork(), simulation.getLaneChanges()));
+		writeSnapshotIfDue();
+		sendTrafficReport();
 		simulation.clearReportedTrafficData();
 	}
 
@@ -435,6 +497,7 @@ public class Worker implements MessageHandler, Runnable {
 			singleWorkerServerlessThread.start();
 		} else {
 			simulation.simulateOneStep(this, true, true, true);
+			writeSnapshotIfDue();
 			proceedBasedOnSyncMethod();
 		}
 	}
@@ -0,0 +1,226 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import common.Settings;
+import osm.OSM;
+import traffic.TrafficNetwork;
+import traffic.road.Node;
+import traffic.road.RoadUtil;
+import traffic.routing.Dijkstra;
+import traffic.routing.RouteLeg;
+import traffic.routing.Routing;
+import traffic.routing.RoutingAlgoFactory;
+import traffic.routing.RoutingGraph;
+import traffic.vehicle.VehicleType;
+
+/**
+ * Measures the routing algorithms on fixed sets of random origin-destination
+ * pairs. Each operation finds the route of one pair for a car. The benchmarks
+ * run for all combinations of the parameters:
+ * <ul>
+ * <li>map: 'builtin' for the built-in road network, or the path of an OSM
+ * file or of a road network file in the built-in format.</li>
+ * <li>algorithm: each routing algorithm.</li>
+ * <li>distance: straight-line distance between origin and destination,
+ * relative to the size of the map.</li>
+ * <li>start: 'COLD' creates a new routing object for each route, so no search
+ * state is reused. 'WARM' reuses the routing object of the thread, as the
+ * simulation does.</li>
+ * </ul>
+ * The routing graph, including contraction hierarchies and landmarks, is built
+ * before measuring. Routes of 'multiThread' are found by all the available
+ * processors over the same graph.
+ * <p>
+ * Besides routes per second, the results include the settled nodes per second
+ * in 'settledNodes', so dividing it by the routes per second gives the settled
+ * nodes per route. Allocation per route is 'gc.alloc.rate.norm' of the GC
+ * profiler, which is added by {@link #main(String[])}. For example, the
+ * following measures Dijkstra on an OSM file.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar -p map=/path/to/map.osm -p algorithm=DIJKSTRA
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoutingBenchmark {
+	public enum Distance {
+		SHORT(0, 0.1), MEDIUM(0.25, 0.45), CROSS_CITY(0.6, Double.MAX_VALUE);
+
+		/**
+		 * Range of straight-line distance as a fraction of the diagonal of the
+		 * map.
+		 */
+		final double minFraction, maxFraction;
+
+		Distance(final double minFraction, final double maxFraction) {
+			this.minFraction = minFraction;
+			this.maxFraction = maxFraction;
+		}
+	}
+
+	public enum Start {
+		COLD, WARM
+	}
+
+	static final int numPairs = 256;
+	static final int maxNumTriesPerPair = 10000;
+	static final long seed = 1;
+
+	@State(Scope.Benchmark)
+	public static class Network {
+		@Param("builtin")
+		public String map;
+		@Param
+		public Routing.Algorithm algorithm;
+		@Param
+		public Distance distance;
+		@Param
+		public Start start;
+
+		final RoutingAlgoFactory routingAlgoFactory = new RoutingAlgoFactory();
+		TrafficNetwork trafficNetwork;
+		RoutingGraph graph;
+		Node[] origins;
+		Node[] destinations;
+
+		@Setup(Level.Trial)
+		public void setup() throws IOException {
+			final Settings settings = new Settings();
+			if (map.equals("builtin")) {
+				settings.roadGraph = RoadUtil.importBuiltinRoadGraphFile(settings.inputBuiltinRoadGraph);
+			} else if (map.toLowerCase().endsWith(".osm")) {
+				settings.inputOpenStreetMapFile = map;
+				new OSM().processOSM(map, true, settings);
+			} else {
+				settings.roadGraph = new String(Files.readAllBytes(Paths.get(map)), StandardCharsets.UTF_8);
+			}
+			trafficNetwork = new TrafficNetwork(settings, "bench", new ArrayList<>());
+			graph = new RoutingGraph(trafficNetwork);
+			choosePairs();
+			// Build the data of the algorithm before measuring
+			createRouting().createCompleteRoute(origins[0], destinations[0], VehicleType.CAR);
+		}
+
+		/**
+		 * Chooses pairs of nodes in the distance range. Only pairs with a route
+		 * are chosen.
+		 */
+		void choosePairs() {
+			final Random random = new Random(seed);
+			final Dijkstra dijkstra = new Dijkstra(trafficNetwork, graph);
+			final double diagonal = RoadUtil.getDistInMeters(trafficNetwork.minLat, trafficNetwork.minLon,
+					trafficNetwork.maxLat, trafficNetwork.maxLon);
+			final ArrayList<Node> chosenOrigins = new ArrayList<>();
+			final ArrayList<Node> chosenDestinations = new ArrayList<>();
+			for (int i = 0; (i < numPairs * maxNumTriesPerPair) && (chosenOrigins.size() < numPairs); i++) {
+				final Node origin = trafficNetwork.nodes.get(random.nextInt(trafficNetwork.nodes.size()));
+				final Node destination = trafficNetwork.nodes.get(random.nextInt(trafficNetwork.nodes.size()));
+				final double fraction = RoadUtil.getDistInMeters(origin.lat, origin.lon, destination.lat,
+						destination.lon) / diagonal;
+				if ((origin == destination) || (fraction < distance.minFraction) || (fraction > distance.maxFraction)) {
+					continue;
+				}
+				if (dijkstra.createCompleteRoute(origin, destination, VehicleType.CAR) == null) {
+					continue;
+				}
+				chosenOrigins.add(origin);
+				chosenDestinations.add(destination);
+			}
+			if (chosenOrigins.isEmpty()) {
+				throw new IllegalStateException("No route is found in distance range " + distance);
+			}
+			origins = chosenOrigins.toArray(new Node[0]);
+			destinations = chosenDestinations.toArray(new Node[0]);
+		}
+
+		Routing createRouting() {
+			return routingAlgoFactory.getRoutingAlgo(algorithm, trafficNetwork, graph);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Searcher {
+		Routing routing;
+		int nextPair;
+
+		@Setup(Level.Trial)
+		public void setup(final Network network, final ThreadParams threadParams) {
+			routing = network.createRouting();
+			// Threads start at different pairs
+			nextPair = (threadParams.getThreadIndex() * 31) % network.origins.length;
+		}
+
+		ArrayList<RouteLeg> route(final Network network, final Counters counters) {
+			final Routing routingOfPair = network.start == Start.COLD ? network.createRouting() : routing;
+			final int pair = nextPair;
+			nextPair = (nextPair + 1) % network.origins.length;
+			final long numSettledNodesBefore = routingOfPair.getNumSettledNodes();
+			final ArrayList<RouteLeg> route = routingOfPair.createCompleteRoute(network.origins[pair],
+					network.destinations[pair], VehicleType.CAR);
+			counters.settledNodes += routingOfPair.getNumSettledNodes() - numSettledNodesBefore;
+			return route;
+		}
+	}
+
+	/**
+	 * Counters reported with the results, which are normalized by time like
+	 * the routes.
+	 */
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Counters {
+		public long settledNodes;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			settledNodes = 0;
+		}
+	}
+
+	public static void main(final String[] args) throws Exception {
+		new Runner(new OptionsBuilder().parent(new CommandLineOptions(args)).addProfiler(GCProfiler.class).build())
+				.run();
+	}
+
+	@Benchmark
+	public ArrayList<RouteLeg> singleThread(final Network network, final Searcher searcher, final Counters counters) {
+		return searcher.route(network, counters);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public ArrayList<RouteLeg> multiThread(final Network network, final Searcher searcher, final Counters counters) {
+		return searcher.route(network, counters);
+	}
+}
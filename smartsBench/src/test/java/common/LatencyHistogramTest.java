@@ -0,0 +1,93 @@
+package common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+	static final double maxRelativeError = 1.0 / 16;
+
+	void assertClose(final long expected, final long actual) {
+		assertTrue("expected about " + expected + " but was " + actual, actual >= expected);
+		assertTrue("expected about " + expected + " but was " + actual,
+				actual - expected <= expected * maxRelativeError);
+	}
+
+	@Test
+	public void bucketsContainTheirValues() {
+		final Random random = new Random(1);
+		for (int i = 0; i < 100000; i++) {
+			final long value = random.nextLong() >>> (1 + random.nextInt(63));
+			final int index = LatencyHistogram.getBucketIndex(value);
+			assertTrue(index >= 0 && index < LatencyHistogram.numBuckets);
+			assertClose(value, LatencyHistogram.getBucketUpperBound(index));
+		}
+		for (int value = 0; value < LatencyHistogram.subBucketCount; value++) {
+			assertEquals(value, LatencyHistogram.getBucketUpperBound(LatencyHistogram.getBucketIndex(value)));
+		}
+	}
+
+	@Test
+	public void percentilesOfUniformValues() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		for (long value = 1; value <= 10000; value++) {
+			histogram.record(value);
+		}
+		assertEquals(10000, histogram.getTotalCount());
+		assertEquals(5000.5, histogram.getMean(), 1e-9);
+		assertClose(5000, histogram.getValueAtPercentile(50));
+		assertClose(9000, histogram.getValueAtPercentile(90));
+		assertClose(9900, histogram.getValueAtPercentile(99));
+		assertEquals(10000, histogram.getValueAtPercentile(100));
+		assertEquals(1, histogram.getValueAtPercentile(0));
+	}
+
+	@Test
+	public void percentilesDoNotExceedMaximum() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(1000);
+		histogram.record(-5);
+		assertEquals(1000, histogram.getMaxValue());
+		assertEquals(0, histogram.getValueAtPercentile(50));
+		assertEquals(1000, histogram.getValueAtPercentile(99.9));
+		assertEquals(0, new LatencyHistogram().getValueAtPercentile(99));
+	}
+
+	@Test
+	public void mergedHistogramsMatchSingleHistogram() {
+		final Random random = new Random(2);
+		final LatencyHistogram all = new LatencyHistogram();
+		final LatencyHistogram first = new LatencyHistogram();
+		final LatencyHistogram second = new LatencyHistogram();
+		for (int i = 0; i < 1000; i++) {
+			final long value = random.nextInt(1000000);
+			all.record(value);
+			(i % 2 == 0 ? first : second).record(value);
+		}
+		final LatencyHistogram merged = new LatencyHistogram();
+		merged.add(first);
+		merged.add(second);
+		// Histogram received as bucket counts and totals
+		final LatencyHistogram received = new LatencyHistogram();
+		for (int i = 0; i < LatencyHistogram.numBuckets; i++) {
+			if (all.getBucketCount(i) > 0) {
+				received.addBucket(i, all.getBucketCount(i));
+			}
+		}
+		received.addTotal(all.getTotalValue(), all.getMaxValue());
+		for (final LatencyHistogram histogram : new LatencyHistogram[] { merged, received }) {
+			assertEquals(all.getTotalCount(), histogram.getTotalCount());
+			assertEquals(all.getTotalValue(), histogram.getTotalValue());
+			assertEquals(all.getMaxValue(), histogram.getMaxValue());
+			for (final double percentile : new double[] { 50, 90, 99, 99.9 }) {
+				assertEquals(all.getValueAtPercentile(percentile), histogram.getValueAtPercentile(percentile));
+			}
+		}
+		merged.reset();
+		assertEquals(0, merged.getTotalCount());
+		assertEquals(0, merged.getValueAtPercentile(50));
+	}
+}
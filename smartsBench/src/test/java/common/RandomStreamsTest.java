@@ -0,0 +1,60 @@
+package common;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import common.RandomStreams.Purpose;
+
+public class RandomStreamsTest {
+	long[] draw(final Random random) {
+		final long[] values = new long[8];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = random.nextLong();
+		}
+		return values;
+	}
+
+	@Test
+	public void sameKeyGivesSameStream() {
+		assertArrayEquals(draw(RandomStreams.forWorker(1, "P0_", Purpose.OD)),
+				draw(RandomStreams.forWorker(1, "P0_", Purpose.OD)));
+		assertArrayEquals(draw(RandomStreams.forVehicle(1, "P0_5", Purpose.LANE_CHANGE, 100)),
+				draw(RandomStreams.forVehicle(1, "P0_5", Purpose.LANE_CHANGE, 100)));
+	}
+
+	@Test
+	public void eachPartOfKeyChangesStream() {
+		final long[] base = draw(RandomStreams.forVehicle(1, "P0_5", Purpose.ROUTING, 100));
+		assertFalse(Arrays.equals(base, draw(RandomStreams.forVehicle(2, "P0_5", Purpose.ROUTING, 100))));
+		assertFalse(Arrays.equals(base, draw(RandomStreams.forVehicle(1, "P1_5", Purpose.ROUTING, 100))));
+		assertFalse(Arrays.equals(base, draw(RandomStreams.forVehicle(1, "P0_5", Purpose.CAV, 100))));
+		assertFalse(Arrays.equals(base, draw(RandomStreams.forVehicle(1, "P0_5", Purpose.ROUTING, 101))));
+		assertFalse(Arrays.equals(base, draw(RandomStreams.forWorker(1, "P0_5", Purpose.ROUTING))));
+		assertFalse(Arrays.equals(draw(RandomStreams.forWorker(1, "P0_", Purpose.OD)),
+				draw(RandomStreams.forWorker(1, "P0_", Purpose.TEMPORAL))));
+	}
+
+	@Test
+	public void streamDoesNotDependOnDrawsFromOtherStreams() {
+		final long[] alone = draw(RandomStreams.forWorker(1, "P0_", Purpose.OD));
+		final Random other = RandomStreams.forWorker(1, "P0_", Purpose.TEMPORAL);
+		other.nextLong();
+		final Random stream = RandomStreams.forWorker(1, "P0_", Purpose.OD);
+		other.nextLong();
+		assertArrayEquals(alone, draw(stream));
+	}
+
+	@Test
+	public void reseedingRestartsStream() {
+		final Random random = RandomStreams.forWorker(1, "P0_", Purpose.OD);
+		random.setSeed(42);
+		final long[] first = draw(random);
+		random.setSeed(42);
+		assertArrayEquals(first, draw(random));
+	}
+}
@@ -0,0 +1,83 @@
+package processor.worker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import common.Settings;
+import traffic.road.Edge;
+import traffic.road.Lane;
+import traffic.routing.RerouteService;
+import traffic.vehicle.Vehicle;
+
+public class RerouteServiceTest {
+	static final int numSteps = 400;
+	static final int blockInterval = 5;
+
+	/**
+	 * Blocks or unblocks a lane of the edge two legs ahead of some vehicles.
+	 * Only edges with more than one lane are changed, so no edge is blocked
+	 * completely.
+	 */
+	static void toggleLanesAhead(final Simulation simulation) {
+		int i = 0;
+		for (final Vehicle vehicle : new ArrayList<>(simulation.getTrafficNetwork().vehicles.asList())) {
+			if (((i++ % 3) != 0) || (vehicle.lane == null)
+					|| ((vehicle.getIndexLegOnRoute() + 2) >= vehicle.getRouteLegs().size())) {
+				continue;
+			}
+			final Edge edge = vehicle.getRouteLegs().get(vehicle.getIndexLegOnRoute() + 2).edge;
+			if (edge.getLaneCount() > 1) {
+				final Lane lane = edge.getLanes().get(0);
+				simulation.changeLaneBlock(lane.index, !lane.isBlocked);
+			}
+		}
+	}
+
+	/**
+	 * Runs the simulation with background reroutes. Lanes are blocked and
+	 * unblocked while searches are in progress, which stops and restarts the
+	 * searches.
+	 *
+	 * @param counts
+	 *            Gets the number of applied and restarted searches.
+	 */
+	static List<String> getTrajectories(final int numRerouteThreads, final int rerouteDelaySteps,
+			final long[] counts) {
+		final Settings settings = TestSimulation.createSettings();
+		settings.numRerouteThreads = numRerouteThreads;
+		settings.rerouteDelaySteps = rerouteDelaySteps;
+		final Simulation simulation = TestSimulation.createSimulation(settings,
+				TestSimulation.createWorker(settings, "AAAA", 0));
+		simulation.createVehicles(new ArrayList<>());
+		final List<String> trajectories = new ArrayList<>();
+		for (int step = 1; step <= numSteps; step++) {
+			TestSimulation.simulateStep(simulation, step);
+			trajectories.addAll(TestSimulation.getVehicleStates(simulation));
+			if ((step % blockInterval) == 0) {
+				toggleLanesAhead(simulation);
+			}
+		}
+		final RerouteService rerouteService = simulation.rerouteService;
+		counts[0] = rerouteService.getNumApplied();
+		counts[1] = rerouteService.getNumRestarted();
+		rerouteService.shutdown();
+		return trajectories;
+	}
+
+	@Test
+	public void resultsDoNotDependOnNumberOfThreads() {
+		final long[] counts = new long[2];
+		final List<String> oneThread = getTrajectories(1, 5, counts);
+		assertFalse(oneThread.isEmpty());
+		assertTrue(counts[0] > 0);
+		assertTrue(counts[1] > 0);
+		assertEquals(oneThread, getTrajectories(4, 5, counts));
+		assertEquals(oneThread, getTrajectories(4, 5, counts));
+	}
+}
@@ -0,0 +1,131 @@
+package processor.worker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import common.Settings;
+import processor.communication.message.SerializableWorkerMetadata;
+import traffic.TrafficNetwork;
+import traffic.road.Lane;
+import traffic.vehicle.Vehicle;
+
+public class SimulationTest {
+	static final int numSteps = 300;
+
+	List<String> getTrajectories(final long randomSeed, final String workerName) {
+		final Settings settings = TestSimulation.createSettings();
+		settings.randomSeed = randomSeed;
+		return TestSimulation.getTrajectories(settings, TestSimulation.createWorker(settings, workerName, 0),
+				numSteps);
+	}
+
+	/**
+	 * Worker names are random, so runs with the same seed must not depend on
+	 * them.
+	 */
+	@Test
+	public void sameSeedGivesSameTrajectoriesWithDifferentWorkerNames() {
+		final List<String> first = getTrajectories(1, "AAAA");
+		assertFalse(first.isEmpty());
+		assertEquals(first, getTrajectories(1, "BBBB"));
+	}
+
+	@Test
+	public void vehicleIdsAreBasedOnPartition() {
+		for (final String trajectory : getTrajectories(1, "AAAA")) {
+			final String id = trajectory.split(" ")[1];
+			assertTrue(id, id.startsWith("P0_"));
+		}
+	}
+
+	@Test
+	public void differentSeedsGiveDifferentTrajectories() {
+		assertNotEquals(getTrajectories(1, "AAAA"), getTrajectories(2, "AAAA"));
+	}
+
+	/**
+	 * Checks that the vehicles of every lane are ordered by head position and
+	 * that every vehicle on road is in the list of its own lane only.
+	 */
+	static void assertLanesSorted(final TrafficNetwork network) {
+		int numVehiclesInLanes = 0;
+		for (final Lane lane : network.lanes) {
+			final List<Vehicle> vehicles = lane.getVehicles();
+			for (int i = 0; i < vehicles.size(); i++) {
+				assertTrue(vehicles.get(i).lane == lane);
+				if (i > 0) {
+					assertTrue(vehicles.get(i - 1).getHeadPosition() >= vehicles.get(i).getHeadPosition());
+				}
+			}
+			numVehiclesInLanes += vehicles.size();
+		}
+		int numVehiclesOnRoad = 0;
+		for (final Vehicle vehicle : network.vehicles) {
+			if (vehicle.lane != null) {
+				numVehiclesOnRoad++;
+			}
+		}
+		assertEquals(numVehiclesOnRoad, numVehiclesInLanes);
+	}
+
+	/**
+	 * Overtaking, lane changes and moving to the next edge keep the vehicles of
+	 * each lane in order, with the serial update and the two-phase update.
+	 */
+	@Test
+	public void lanesStaySortedAfterEveryStep() {
+		for (final int numThreads : new int[] { 0, 2 }) {
+			final Settings settings = TestSimulation.createSettings();
+			settings.numVehicleUpdateThreads = numThreads;
+			final Simulation simulation = TestSimulation.createSimulation(settings,
+					TestSimulation.createWorker(settings, "AAAA", 0));
+			simulation.createVehicles(new ArrayList<>());
+			for (int step = 1; step <= numSteps; step++) {
+				TestSimulation.simulateStep(simulation, step);
+				assertLanesSorted(simulation.getTrafficNetwork());
+			}
+		}
+	}
+
+	Settings createIdleSettings(final boolean isFastForwardIdleSteps) {
+		final Settings settings = TestSimulation.createSettings(new TestSimulation.ConnectedTrafficGenerator(0, 0));
+		// Listeners need every step
+		settings.isExternalListenerUsed = false;
+		settings.isFastForwardIdleSteps = isFastForwardIdleSteps;
+		return settings;
+	}
+
+	/**
+	 * Skipping idle steps gives the same trajectories as simulating them.
+	 * Vehicles start far apart in time, so the network is empty between them.
+	 * Skipped steps get the states after skipping, which must be the states
+	 * that the normal run has in those steps.
+	 */
+	@Test
+	public void fastForwardMatchesNormalRun() {
+		final double[] startTimes = { 0, 103.4, 251.2, 407.8 };
+		final int numSteps = 3000;
+		final Settings normal = createIdleSettings(false);
+		final SerializableWorkerMetadata normalWorker = TestSimulation.createWorker(normal, "AAAA", 0);
+		final int[] numSkippedSteps = new int[1];
+		final List<String> expected = TestSimulation.getTrajectories(normal, normalWorker, numSteps,
+				TestSimulation.getExternalRoutes(normal, normalWorker, startTimes), numSkippedSteps);
+		assertEquals(0, numSkippedSteps[0]);
+
+		final Settings fast = createIdleSettings(true);
+		final SerializableWorkerMetadata fastWorker = TestSimulation.createWorker(fast, "AAAA", 0);
+		final List<String> actual = TestSimulation.getTrajectories(fast, fastWorker, numSteps,
+				TestSimulation.getExternalRoutes(fast, fastWorker, startTimes), numSkippedSteps);
+		// Most of the run is idle
+		assertTrue(numSkippedSteps[0] > numSteps / 2);
+		assertFalse(expected.isEmpty());
+		assertEquals(expected, actual);
+	}
+}
@@ -0,0 +1,133 @@
+package processor.worker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import common.Settings;
+import processor.communication.message.SerializableGridCell;
+import processor.communication.message.SerializableWorkerMetadata;
+import traffic.road.GridCell;
+import traffic.road.Lane;
+import traffic.vehicle.Vehicle;
+
+public class SnapshotTest {
+	static final int numStepsBeforeSnapshot = 200;
+	static final int numStepsAfterSnapshot = 200;
+
+	Settings settings;
+	SerializableWorkerMetadata worker;
+	Simulation written;
+
+	@Before
+	public void writeSnapshot() throws IOException {
+		settings = TestSimulation.createSettings();
+		settings.prefixOutputSnapshot = Files.createTempDirectory("snapshot").toString() + File.separator;
+		worker = TestSimulation.createWorker(settings, "AAAA", 0);
+		written = TestSimulation.createSimulation(settings, worker);
+		written.createVehicles(new ArrayList<>());
+		for (int step = 1; step <= numStepsBeforeSnapshot; step++) {
+			TestSimulation.simulateStep(written, step);
+		}
+		written.writeSnapshot(worker.name, new ArrayList<>());
+		settings.inputSnapshot = settings.prefixOutputSnapshot + numStepsBeforeSnapshot;
+	}
+
+	Simulation restore(final SerializableWorkerMetadata restoringWorker) throws IOException {
+		final Simulation simulation = TestSimulation.createSimulation(settings, restoringWorker);
+		simulation.restoreSnapshot(new ArrayList<>());
+		simulation.setStep(numStepsBeforeSnapshot);
+		return simulation;
+	}
+
+	static int getIdNumber(final Vehicle vehicle) {
+		return Integer.parseInt(vehicle.id.substring(vehicle.id.lastIndexOf('_') + 1));
+	}
+
+	@Test
+	public void restoresVehiclesAndLanes() throws IOException {
+		final Simulation restored = restore(worker);
+		assertFalse(TestSimulation.getVehicleStates(written).isEmpty());
+		assertEquals(TestSimulation.getVehicleStates(written), TestSimulation.getVehicleStates(restored));
+		for (final Lane lane : written.getTrafficNetwork().lanes) {
+			final Lane restoredLane = restored.getTrafficNetwork().lanes.get(lane.index);
+			assertEquals(lane.getVehicleCount(), restoredLane.getVehicleCount());
+			for (int i = 0; i < lane.getVehicleCount(); i++) {
+				assertEquals(lane.getVehicles().get(i).id, restoredLane.getVehicles().get(i).id);
+			}
+		}
+	}
+
+	/**
+	 * Vehicles created after restoring must not reuse the IDs of vehicles
+	 * created before the snapshot.
+	 */
+	@Test
+	public void newVehiclesDoNotReuseIds() throws IOException {
+		final Simulation restored = restore(worker);
+		final Set<String> restoredIds = new HashSet<>();
+		int maxRestoredIdNumber = 0;
+		for (final Vehicle vehicle : restored.getTrafficNetwork().vehicles) {
+			restoredIds.add(vehicle.id);
+			maxRestoredIdNumber = Math.max(maxRestoredIdNumber, getIdNumber(vehicle));
+		}
+		int numNewVehicles = 0;
+		for (int step = numStepsBeforeSnapshot + 1; step <= numStepsBeforeSnapshot + numStepsAfterSnapshot; step++) {
+			TestSimulation.simulateStep(restored, step);
+			for (final Vehicle vehicle : restored.getTrafficNetwork().vehicles) {
+				if (!restoredIds.contains(vehicle.id)) {
+					assertTrue(vehicle.id, getIdNumber(vehicle) > maxRestoredIdNumber);
+					numNewVehicles++;
+				}
+			}
+		}
+		assertTrue(numNewVehicles > 0);
+	}
+
+	/**
+	 * A worker only restores the edges and lanes in its own work area.
+	 */
+	@Test
+	public void restoresOnlyOwnEdges() throws IOException {
+		for (final Lane lane : written.getTrafficNetwork().lanes) {
+			lane.isBlocked = true;
+		}
+		written.writeSnapshot(worker.name, new ArrayList<>());
+		final SerializableWorkerMetadata partialWorker = TestSimulation.createWorker(settings, "BBBB", 0);
+		int maxRow = 0;
+		for (final SerializableGridCell cell : partialWorker.gridCells) {
+			maxRow = Math.max(maxRow, cell.row);
+		}
+		final ArrayList<SerializableGridCell> ownCells = new ArrayList<>();
+		for (final SerializableGridCell cell : partialWorker.gridCells) {
+			if (cell.row <= maxRow / 2) {
+				ownCells.add(cell);
+			}
+		}
+		partialWorker.gridCells = ownCells;
+		final Simulation restored = restore(partialWorker);
+		final Set<GridCell> workCells = new HashSet<>(restored.getTrafficNetwork().workarea.workCells);
+		int numOwnLanes = 0;
+		for (final Lane lane : restored.getTrafficNetwork().lanes) {
+			if (workCells.contains(lane.edge.endNode.gridCell)) {
+				assertTrue(lane.isBlocked);
+				numOwnLanes++;
+			} else {
+				assertFalse(lane.isBlocked);
+				assertEquals(0, lane.getVehicleCount());
+			}
+		}
+		assertTrue(numOwnLanes > 0);
+		assertTrue(numOwnLanes < restored.getTrafficNetwork().lanes.size());
+	}
+}
@@ -0,0 +1,231 @@
+package processor.worker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import common.Settings;
+import processor.communication.message.SerializableExternalVehicle;
+import processor.communication.message.SerializableGridCell;
+import processor.communication.message.SerializableRouteLeg;
+import processor.communication.message.SerializableWorkerMetadata;
+import traffic.TrafficNetwork;
+import traffic.light.TrafficLightTiming;
+import traffic.network.DefaultVehicleTypeDistributor;
+import traffic.network.ODDemand;
+import traffic.network.RandomODDistributor;
+import traffic.network.TrafficGenerator;
+import traffic.network.UniformTemporalDistributor;
+import traffic.road.Edge;
+import traffic.road.GridCell;
+import traffic.road.Node;
+import traffic.road.RoadNetwork;
+import traffic.road.RoadUtil;
+import traffic.routing.Dijkstra;
+import traffic.routing.RouteLeg;
+import traffic.vehicle.DriverProfile;
+import traffic.vehicle.Vehicle;
+import traffic.vehicle.VehicleType;
+
+/**
+ * Runs a single worker on the built-in road network and records the
+ * trajectories of vehicles, so that runs with different settings can be
+ * compared.
+ */
+class TestSimulation {
+	static final String generatorName = "Test";
+
+	/**
+	 * Generates cars between random nodes that are connected.
+	 */
+	static class ConnectedTrafficGenerator extends TrafficGenerator {
+		final int numPairs;
+		final int numVehiclesPerPair;
+
+		ConnectedTrafficGenerator() {
+			this(10, 2);
+		}
+
+		ConnectedTrafficGenerator(final int numPairs, final int numVehiclesPerPair) {
+			super(new RandomODDistributor(), new UniformTemporalDistributor(), new DefaultVehicleTypeDistributor());
+			this.numPairs = numPairs;
+			this.numVehiclesPerPair = numVehiclesPerPair;
+		}
+
+		@Override
+		public ArrayList<ODDemand> getGeneratedTraffic(final TrafficNetwork trafficNetwork,
+				final List<Edge> possibleStartEdges, final List<Edge> possibleEndEdges, final int timeStep) {
+			final ArrayList<ODDemand> demands = new ArrayList<>();
+			final Dijkstra dijkstra = new Dijkstra(trafficNetwork);
+			for (int i = 0; i < numPairs; i++) {
+				final Node[] od = getOdDistributor().getStartAndEndEdge(trafficNetwork, possibleStartEdges,
+						possibleEndEdges, timeStep);
+				if ((od[0] == od[1]) || (dijkstra.createCompleteRoute(od[0], od[1], VehicleType.CAR) == null)) {
+					continue;
+				}
+				final ODDemand demand = new ODDemand();
+				demand.setOrigin(od[0]);
+				demand.setDestination(od[1]);
+				demand.setNumVehicles(numVehiclesPerPair);
+				demand.setVehicleType(VehicleType.CAR);
+				demands.add(demand);
+			}
+			return demands;
+		}
+	}
+
+	/**
+	 * Creates settings of a worker without traffic lights, so the whole map is
+	 * simulated by the worker.
+	 */
+	static Settings createSettings() {
+		return createSettings(new ConnectedTrafficGenerator());
+	}
+
+	static Settings createSettings(final ConnectedTrafficGenerator generator) {
+		final Settings settings = new Settings();
+		settings.dictionary.addtrafficGenerator(generatorName, generator);
+		settings.trafficGenerator = generatorName;
+		settings.trafficLightTiming = TrafficLightTiming.NONE;
+		settings.roadGraph = RoadUtil.importBuiltinRoadGraphFile(settings.inputBuiltinRoadGraph);
+		return settings;
+	}
+
+	/**
+	 * Creates the metadata of a worker that covers all grid cells of the map.
+	 */
+	static SerializableWorkerMetadata createWorker(final Settings settings, final String name,
+			final int partitionIndex) {
+		final SerializableWorkerMetadata worker = new SerializableWorkerMetadata();
+		worker.name = name;
+		worker.partitionIndex = partitionIndex;
+		for (final GridCell[] row : new RoadNetwork(settings).grid) {
+			for (final GridCell cell : row) {
+				worker.gridCells.add(new SerializableGridCell(cell));
+			}
+		}
+		return worker;
+	}
+
+	/**
+	 * Runs the simulation and gets the ID, lane, position and speed of every
+	 * vehicle at every step.
+	 */
+	static List<String> getTrajectories(final Settings settings, final SerializableWorkerMetadata worker,
+			final int numSteps) {
+		final Simulation simulation = createSimulation(settings, worker);
+		simulation.createVehicles(new ArrayList<>());
+		final List<String> trajectories = new ArrayList<>();
+		for (int step = 1; step <= numSteps; step++) {
+			simulateStep(simulation, step);
+			trajectories.addAll(getVehicleStates(simulation));
+		}
+		return trajectories;
+	}
+
+	/**
+	 * Creates the simulation of a single worker, which has no traffic yet.
+	 */
+	static Simulation createSimulation(final Settings settings, final SerializableWorkerMetadata worker) {
+		return new Simulation(settings, 0, "builtin", 0, 0, 0, worker.name,
+				new ArrayList<>(Collections.singletonList(worker)), new ArrayList<>());
+	}
+
+	static void simulateStep(final Simulation simulation, final int step) {
+		simulation.setStep(step);
+		simulation.simulateOneStepSingle(simulation.getTimeNow(), step, simulation.getTrafficNetwork().edges,
+				new ArrayList<>(), 0, 0, 0, true, true, true);
+	}
+
+	/**
+	 * Runs the simulation with vehicles of the given routes and gets the
+	 * trajectories as {@link #getTrajectories(Settings, SerializableWorkerMetadata, int)}
+	 * does. If fast-forward is on, idle steps are skipped as a worker does and
+	 * the states after skipping are recorded for each skipped step.
+	 *
+	 * @param numSkippedSteps
+	 *            The number of skipped steps is added to the first element.
+	 */
+	static List<String> getTrajectories(final Settings settings, final SerializableWorkerMetadata worker,
+			final int numSteps, final ArrayList<SerializableExternalVehicle> externalRoutes,
+			final int[] numSkippedSteps) {
+		final Simulation simulation = createSimulation(settings, worker);
+		simulation.createVehicles(externalRoutes);
+		final List<String> trajectories = new ArrayList<>();
+		for (int step = 1; step <= numSteps; step++) {
+			simulateStep(simulation, step);
+			trajectories.addAll(getVehicleStates(simulation));
+			final int numIdleSteps = Math.min(simulation.getNumIdleSteps(), numSteps - step);
+			if (numIdleSteps > 0) {
+				simulation.fastForward(step + numIdleSteps);
+				for (int s = step + 1; s <= step + numIdleSteps; s++) {
+					trajectories.addAll(getVehicleStates(simulation, s));
+				}
+				numSkippedSteps[0] += numIdleSteps;
+				step += numIdleSteps;
+			}
+		}
+		return trajectories;
+	}
+
+	/**
+	 * Gets external vehicles that start one by one at the given times. Their
+	 * routes only use edges that are long enough for a vehicle to wait at the
+	 * end, so the vehicles do not block each other and the network becomes
+	 * empty between them.
+	 */
+	static ArrayList<SerializableExternalVehicle> getExternalRoutes(final Settings settings,
+			final SerializableWorkerMetadata worker, final double[] startTimes) {
+		final TrafficNetwork network = createSimulation(settings, worker).getTrafficNetwork();
+		final Dijkstra dijkstra = new Dijkstra(network);
+		final Random random = new Random(settings.randomSeed);
+		final ArrayList<SerializableExternalVehicle> vehicles = new ArrayList<>();
+		while (vehicles.size() < startTimes.length) {
+			final Node start = network.nodes.get(random.nextInt(network.nodes.size()));
+			final Node end = network.nodes.get(random.nextInt(network.nodes.size()));
+			final ArrayList<RouteLeg> route = dijkstra.createCompleteRoute(start, end, VehicleType.CAR);
+			if ((start == end) || (route == null) || (route.size() < 3)) {
+				continue;
+			}
+			boolean isLongEdges = true;
+			for (final RouteLeg leg : route) {
+				isLongEdges &= leg.edge.length > 30;
+			}
+			if (!isLongEdges) {
+				continue;
+			}
+			final SerializableExternalVehicle vehicle = new SerializableExternalVehicle();
+			vehicle.id = "E" + vehicles.size();
+			vehicle.vid = vehicles.size();
+			vehicle.startTime = startTimes[vehicles.size()];
+			vehicle.vehicleType = VehicleType.CAR.name();
+			vehicle.driverProfile = DriverProfile.NORMAL.name();
+			for (final RouteLeg leg : route) {
+				vehicle.route.add(new SerializableRouteLeg(leg.edge.index, 0));
+			}
+			vehicles.add(vehicle);
+		}
+		return vehicles;
+	}
+
+	/**
+	 * Gets the step, ID, lane, position and speed of every vehicle.
+	 */
+	static List<String> getVehicleStates(final Simulation simulation) {
+		return getVehicleStates(simulation, simulation.getStep());
+	}
+
+	/**
+	 * Gets the states of every vehicle, labelled with the given step.
+	 */
+	static List<String> getVehicleStates(final Simulation simulation, final int step) {
+		final List<String> states = new ArrayList<>();
+		for (final Vehicle vehicle : simulation.getTrafficNetwork().vehicles) {
+			states.add(step + " " + vehicle.id + " "
+					+ (vehicle.lane == null ? -1 : vehicle.lane.index) + " " + vehicle.getHeadPosition() + " "
+					+ vehicle.getSpeed());
+		}
+		return states;
+	}
+}
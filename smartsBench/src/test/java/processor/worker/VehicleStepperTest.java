@@ -0,0 +1,40 @@
+package processor.worker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import common.Settings;
+
+public class VehicleStepperTest {
+	static final int numSteps = 600;
+
+	List<String> getTrajectories(final int numVehicleUpdateThreads) {
+		final Settings settings = TestSimulation.createSettings();
+		settings.numVehicleUpdateThreads = numVehicleUpdateThreads;
+		return TestSimulation.getTrajectories(settings, TestSimulation.createWorker(settings, "AAAA", 0), numSteps);
+	}
+
+	/**
+	 * The serial update in place is the default, so runs that do not set
+	 * vehicle update threads keep their results.
+	 */
+	@Test
+	public void serialUpdateIsDefault() {
+		assertEquals(0, new Settings().numVehicleUpdateThreads);
+		final List<String> serial = getTrajectories(0);
+		assertFalse(serial.isEmpty());
+		assertEquals(serial, getTrajectories(0));
+	}
+
+	@Test
+	public void twoPhaseTrajectoriesDoNotDependOnNumberOfThreads() {
+		final List<String> oneThread = getTrajectories(1);
+		assertFalse(oneThread.isEmpty());
+		assertEquals(oneThread, getTrajectories(2));
+		assertEquals(oneThread, getTrajectories(4));
+	}
+}
@@ -0,0 +1,115 @@
+package traffic.routing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+import common.RandomStreams;
+import common.RandomStreams.Purpose;
+import traffic.TrafficNetwork;
+import traffic.road.Node;
+import traffic.vehicle.VehicleType;
+
+public class AlternativeRoutingTest {
+	static final int numVehicles = 100;
+	static final long step = 10;
+
+	static Random getVehicleRandom(final TrafficNetwork network, final int vehicle) {
+		return RandomStreams.forVehicle(network.getSettings().randomSeed, "v" + vehicle, Purpose.ROUTING, step);
+	}
+
+	static void assertSameEdges(final ArrayList<RouteLeg> expected, final ArrayList<RouteLeg> route) {
+		if (expected == null) {
+			assertNull(route);
+			return;
+		}
+		assertNotNull(route);
+		assertEquals(expected.size(), route.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertSame(expected.get(i).edge, route.get(i).edge);
+		}
+	}
+
+	/**
+	 * Finds a pair that has more than one alternative route.
+	 */
+	static Node[] getPairWithAlternatives(final TrafficNetwork network, final AlternativeRouting routing) {
+		final Node[][] pairs = TestRouting.getPairs(network, 1);
+		for (int i = 0; i < TestRouting.numPairs; i++) {
+			if (routing.findAlternatives(pairs[0][i], pairs[1][i], VehicleType.CAR, 0).routes.size() > 1) {
+				return new Node[] { pairs[0][i], pairs[1][i] };
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * The route of a vehicle only depends on its random stream, not on the
+	 * requests served earlier by the routing object, e.g., by another thread.
+	 */
+	@Test
+	public void routeDoesNotDependOnRoutingObject() {
+		final TrafficNetwork network = TestRouting.createNetwork();
+		final RoutingGraph graph = new RoutingGraph(network);
+		TestRouting.changeSpeeds(network, graph, 1);
+		final AlternativeRouting first = new AlternativeRouting(network, graph);
+		final AlternativeRouting second = new AlternativeRouting(network, graph);
+		final Node[][] pairs = TestRouting.getPairs(network, 2);
+		for (int i = 0; i < 50; i++) {
+			second.createCompleteRoute(pairs[0][i], pairs[1][i], VehicleType.CAR);
+		}
+		for (int i = 0; i < TestRouting.numPairs; i++) {
+			assertSameEdges(
+					first.createCompleteRoute(pairs[0][i], pairs[1][i], VehicleType.CAR,
+							getVehicleRandom(network, i)),
+					second.createCompleteRoute(pairs[0][i], pairs[1][i], VehicleType.CAR,
+							getVehicleRandom(network, i)));
+		}
+	}
+
+	/**
+	 * Vehicles with the same origin and destination choose different routes.
+	 */
+	@Test
+	public void vehiclesSpreadOverAlternatives() {
+		final TrafficNetwork network = TestRouting.createNetwork();
+		final RoutingGraph graph = new RoutingGraph(network);
+		final AlternativeRouting routing = new AlternativeRouting(network, graph);
+		final Node[] pair = getPairWithAlternatives(network, routing);
+		assertNotNull(pair);
+		final ArrayList<ArrayList<RouteLeg>> chosen = new ArrayList<>();
+		for (int i = 0; i < numVehicles; i++) {
+			final ArrayList<RouteLeg> route = routing.createCompleteRoute(pair[0], pair[1], VehicleType.CAR,
+					getVehicleRandom(network, i));
+			if (!routing.isFound(route, chosen)) {
+				chosen.add(route);
+			}
+		}
+		assertTrue(chosen.size() > 1);
+	}
+
+	/**
+	 * Requests without a vehicle get a stream derived from the pair, so they
+	 * get the same route from any routing object.
+	 */
+	@Test
+	public void requestsWithoutVehicleAreRepeatable() {
+		final TrafficNetwork network = TestRouting.createNetwork();
+		final RoutingGraph graph = new RoutingGraph(network);
+		final AlternativeRouting first = new AlternativeRouting(network, graph);
+		final AlternativeRouting second = new AlternativeRouting(network, graph);
+		final Node[][] pairs = TestRouting.getPairs(network, 3);
+		for (int i = 0; i < TestRouting.numPairs; i++) {
+			final ArrayList<RouteLeg> route = first.createCompleteRoute(pairs[0][i], pairs[1][i], VehicleType.CAR);
+			assertSameEdges(route, first.createCompleteRoute(pairs[0][i], pairs[1][i], VehicleType.CAR));
+			assertSameEdges(route, second.createCompleteRoute(pairs[0][i], pairs[1][i], VehicleType.CAR));
+		}
+	}
+}
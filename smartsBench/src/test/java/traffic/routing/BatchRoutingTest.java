@@ -0,0 +1,91 @@
+package traffic.routing;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import traffic.TrafficNetwork;
+import traffic.road.Node;
+import traffic.vehicle.VehicleType;
+
+public class BatchRoutingTest {
+	static final int numStarts = 10;
+
+	/**
+	 * Gets requests from a few start nodes, so requests share their start
+	 * node. Some requests are repeated and some are for trams.
+	 */
+	static List<RouteRequest> getRequests(final TrafficNetwork network, final long seed) {
+		final Node[][] pairs = TestRouting.getPairs(network, seed);
+		final List<RouteRequest> requests = new ArrayList<>();
+		for (int i = 0; i < TestRouting.numPairs; i++) {
+			final Node start = pairs[0][i % numStarts];
+			final Node end = pairs[1][i % (TestRouting.numPairs / 2)];
+			if (start != end) {
+				requests.add(new RouteRequest(start, end, (i % 7) == 0 ? VehicleType.TRAM : VehicleType.CAR));
+			}
+		}
+		return requests;
+	}
+
+	/**
+	 * Checks that routes of a batch cost the same as routes searched one by
+	 * one. Returns the number of nodes settled by the batch.
+	 */
+	static long assertSameCostsAsSingleRoutes(final Routing batch, final Routing single,
+			final List<RouteRequest> requests, final double[] costs) {
+		final long numSettledNodesBefore = batch.getNumSettledNodes();
+		batch.createCompleteRoutes(requests);
+		final long numSettledNodes = batch.getNumSettledNodes() - numSettledNodesBefore;
+		int numRoutes = 0;
+		for (final RouteRequest request : requests) {
+			TestRouting.assertSameCost(single.createCompleteRoute(request.start, request.end, request.type),
+					request.route, request.start, request.end, request.type, costs);
+			if (request.route != null) {
+				numRoutes++;
+			}
+		}
+		assertTrue(numRoutes > 0);
+		return numSettledNodes;
+	}
+
+	@Test
+	public void dijkstraBatchFindsShortestRoutes() {
+		final TrafficNetwork network = TestRouting.createNetwork();
+		final RoutingGraph graph = new RoutingGraph(network);
+		final Dijkstra single = new Dijkstra(network, graph);
+		final List<RouteRequest> requests = getRequests(network, 1);
+		final long numSettledNodes = assertSameCostsAsSingleRoutes(new Dijkstra(network, graph), single, requests,
+				graph.lengths);
+		// Requests from the same start node share one search
+		assertTrue(numSettledNodes < single.getNumSettledNodes());
+	}
+
+	@Test
+	public void dijkstraLpfBatchFindsFastestRoutes() {
+		final TrafficNetwork network = TestRouting.createNetwork();
+		final RoutingGraph graph = new RoutingGraph(network);
+		TestRouting.changeSpeeds(network, graph, 1);
+		assertSameCostsAsSingleRoutes(new Dijkstra_LPF(network, graph), new Dijkstra_LPF(network, graph),
+				getRequests(network, 2), graph.getTravelTimes());
+	}
+
+	/**
+	 * Cached routes are taken and the other routes are found in one batch.
+	 */
+	@Test
+	public void cachedBatchFindsShortestRoutes() {
+		final TrafficNetwork network = TestRouting.createNetwork();
+		final RoutingGraph graph = new RoutingGraph(network);
+		final CachedRouting cached = new CachedRouting(network, new Dijkstra(network, graph),
+				Routing.Algorithm.DIJKSTRA, new RouteCache(1000));
+		final List<RouteRequest> requests = getRequests(network, 3);
+		for (int i = 0; i < requests.size(); i += 3) {
+			cached.createCompleteRoute(requests.get(i).start, requests.get(i).end, requests.get(i).type);
+		}
+		assertSameCostsAsSingleRoutes(cached, new Dijkstra(network, graph), requests, graph.lengths);
+	}
+}
@@ -0,0 +1,48 @@
+package traffic.routing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+import traffic.TrafficNetwork;
+import traffic.road.Node;
+import traffic.vehicle.VehicleType;
+
+public class ContractionHierarchyTest {
+	@Test
+	public void findsRoutesAsShortAsDijkstra() {
+		final TrafficNetwork network = TestRouting.createNetwork();
+		final RoutingGraph graph = new RoutingGraph(network);
+		final Node[][] pairs = TestRouting.getPairs(network, 1);
+		final int numRoutes = TestRouting.assertSameCosts(new Dijkstra(network, graph),
+				new ContractionHierarchyRouting(network, graph), pairs, graph.lengths);
+		assertTrue(numRoutes > 0);
+	}
+
+	/**
+	 * A hierarchy read from the cache folder finds the same routes as the one
+	 * built from the graph.
+	 */
+	@Test
+	public void findsSameRoutesWithCachedHierarchy() throws IOException {
+		final File folder = Files.createTempDirectory("routing").toFile();
+		final TrafficNetwork network = TestRouting.createNetwork();
+		network.getSettings().isCacheRoutingPreprocessing = true;
+		network.getSettings().routingCacheFolder = folder.getPath();
+		final RoutingGraph graph = new RoutingGraph(network);
+		final Node[][] pairs = TestRouting.getPairs(network, 2);
+		final ContractionHierarchyRouting built = new ContractionHierarchyRouting(network, graph);
+		built.createCompleteRoute(pairs[0][0], pairs[1][0], VehicleType.CAR);
+		assertEquals(1, folder.listFiles().length);
+
+		final RoutingGraph loadedGraph = new RoutingGraph(network);
+		TestRouting.assertSameCosts(built, new ContractionHierarchyRouting(network, loadedGraph), pairs,
+				graph.lengths);
+		assertEquals(2, folder.listFiles().length);
+	}
+}
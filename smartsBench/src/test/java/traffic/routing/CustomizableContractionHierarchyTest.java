@@ -0,0 +1,99 @@
+package traffic.routing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import traffic.TrafficNetwork;
+import traffic.road.Edge;
+import traffic.road.Node;
+import traffic.vehicle.VehicleType;
+
+public class CustomizableContractionHierarchyTest {
+	@Test
+	public void findsRoutesAsFastAsDijkstra() {
+		final TrafficNetwork network = TestRouting.createNetwork();
+		final RoutingGraph graph = new RoutingGraph(network);
+		TestRouting.changeSpeeds(network, graph, 1);
+		final int numRoutes = TestRouting.assertSameCosts(new Dijkstra_LPF(network, graph),
+				new ContractionHierarchy_LPF(network, graph), TestRouting.getPairs(network, 1),
+				graph.getTravelTimes());
+		assertTrue(numRoutes > 0);
+	}
+
+	/**
+	 * The hierarchy is customized again after travel times change, so it keeps
+	 * finding the fastest routes.
+	 */
+	@Test
+	public void findsFastestRoutesAfterTravelTimesChange() {
+		final TrafficNetwork network = TestRouting.createNetwork();
+		final RoutingGraph graph = new RoutingGraph(network);
+		final Dijkstra_LPF dijkstra = new Dijkstra_LPF(network, graph);
+		final ContractionHierarchy_LPF hierarchy = new ContractionHierarchy_LPF(network, graph);
+		final Node[][] pairs = TestRouting.getPairs(network, 2);
+		TestRouting.assertSameCosts(dijkstra, hierarchy, pairs, graph.getTravelTimes());
+		for (int seed = 1; seed <= 3; seed++) {
+			TestRouting.changeSpeeds(network, graph, seed);
+			TestRouting.assertSameCosts(dijkstra, hierarchy, pairs, graph.getTravelTimes());
+		}
+	}
+
+	/**
+	 * Edges blocked or unblocked after a customization are taken into account
+	 * before the next one, so routes stay as fast as the ones of Dijkstra.
+	 */
+	@Test
+	public void findsFastestRoutesWhenEdgesAreBlockedBetweenCustomizations() {
+		final TrafficNetwork network = TestRouting.createNetwork();
+		final RoutingGraph graph = new RoutingGraph(network);
+		final Dijkstra_LPF dijkstra = new Dijkstra_LPF(network, graph);
+		final ContractionHierarchy_LPF hierarchy = new ContractionHierarchy_LPF(network, graph);
+		final Node[][] pairs = TestRouting.getPairs(network, 3);
+		TestRouting.changeSpeeds(network, graph, 1);
+		final List<Edge> blockedEdges = new ArrayList<>();
+		for (int i = 1; i < TestRouting.numPairs; i += 10) {
+			final ArrayList<RouteLeg> route = hierarchy.createCompleteRoute(pairs[0][i], pairs[1][i],
+					VehicleType.CAR);
+			if (route != null) {
+				final Edge edge = route.get(route.size() / 2).edge;
+				IncrementalDijkstraTest.setBlocked(graph, edge, true);
+				blockedEdges.add(edge);
+			}
+		}
+		assertTrue(blockedEdges.size() > 0);
+		TestRouting.assertSameCosts(dijkstra, hierarchy, pairs, graph.getTravelTimes());
+		graph.updateTravelTimes();
+		for (final Edge edge : blockedEdges) {
+			IncrementalDijkstraTest.setBlocked(graph, edge, false);
+		}
+		TestRouting.assertSameCosts(dijkstra, hierarchy, pairs, graph.getTravelTimes());
+	}
+
+	/**
+	 * Background searches are stopped before a new travel time table is
+	 * published or an edge is changed, while searches can still read the
+	 * previous table.
+	 */
+	@Test
+	public void stopsBackgroundSearchesBeforeChanges() {
+		final TrafficNetwork network = TestRouting.createNetwork();
+		final RoutingGraph graph = new RoutingGraph(network);
+		final double[] previous = graph.getTravelTimes();
+		final List<double[]> tablesWhenStopped = new ArrayList<>();
+		graph.setBeforeChange(() -> tablesWhenStopped.add(graph.getTravelTimes()));
+		graph.updateTravelTimes();
+		assertEquals(1, tablesWhenStopped.size());
+		assertSame(previous, tablesWhenStopped.get(0));
+		assertNotSame(previous, graph.getTravelTimes());
+		graph.markEdgeChanged(0);
+		graph.markAllEdgesChanged();
+		assertEquals(3, tablesWhenStopped.size());
+	}
+}
@@ -0,0 +1,139 @@
+package traffic.routing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import traffic.TrafficNetwork;
+import traffic.road.Edge;
+import traffic.road.Lane;
+import traffic.road.Node;
+import traffic.vehicle.VehicleType;
+
+public class IncrementalDijkstraTest {
+	static final int numDestinations = 5;
+	static final int numRounds = 20;
+	static final int numRoutesPerRound = 50;
+
+	static void setBlocked(final RoutingGraph graph, final Edge edge, final boolean isBlocked) {
+		for (final Lane lane : edge.getLanes()) {
+			lane.isBlocked = isBlocked;
+		}
+		graph.markEdgeChanged(edge.index);
+	}
+
+	/**
+	 * Blocks edges on the found routes and unblocks earlier blocked edges
+	 * between rounds of routes to a few destinations, so the search trees are
+	 * repaired many times.
+	 */
+	@Test
+	public void findsRoutesAsShortAsDijkstraAfterLaneBlocks() {
+		final TrafficNetwork network = TestRouting.createNetwork();
+		final RoutingGraph graph = new RoutingGraph(network);
+		final Dijkstra dijkstra = new Dijkstra(network, graph);
+		final IncrementalDijkstra incremental = new IncrementalDijkstra(network, graph);
+		final Random random = new Random(1);
+		final Node[] destinations = new Node[numDestinations];
+		for (int i = 0; i < numDestinations; i++) {
+			destinations[i] = network.nodes.get(random.nextInt(network.nodes.size()));
+		}
+		final List<Edge> blockedEdges = new ArrayList<>();
+		int numRoutes = 0;
+		for (int round = 0; round < numRounds; round++) {
+			for (int i = 0; i < numRoutesPerRound; i++) {
+				final Node start = network.nodes.get(random.nextInt(network.nodes.size()));
+				final Node end = destinations[random.nextInt(numDestinations)];
+				if (start == end) {
+					continue;
+				}
+				final VehicleType type = (i % 7) == 0 ? VehicleType.TRAM : VehicleType.CAR;
+				final ArrayList<RouteLeg> expected = dijkstra.createCompleteRoute(start, end, type);
+				TestRouting.assertSameCost(expected, incremental.createCompleteRoute(start, end, type), start, end,
+						type, graph.lengths);
+				if (expected == null) {
+					continue;
+				}
+				numRoutes++;
+				if ((i % 10) == 0) {
+					final Edge edge = expected.get(expected.size() / 2).edge;
+					setBlocked(graph, edge, true);
+					blockedEdges.add(edge);
+				}
+			}
+			for (int i = blockedEdges.size() - 1; i >= 0; i--) {
+				if (random.nextBoolean()) {
+					setBlocked(graph, blockedEdges.remove(i), false);
+				}
+			}
+			if (round == (numRounds / 2)) {
+				graph.markAllEdgesChanged();
+			}
+		}
+		assertTrue(numRoutes > 0);
+	}
+
+	/**
+	 * Later routes to the same destination reuse the search tree.
+	 */
+	@Test
+	public void reusesSearchTreeOfDestination() {
+		final TrafficNetwork network = TestRouting.createNetwork();
+		final RoutingGraph graph = new RoutingGraph(network);
+		final Dijkstra dijkstra = new Dijkstra(network, graph);
+		final IncrementalDijkstra incremental = new IncrementalDijkstra(network, graph);
+		final Node[][] pairs = TestRouting.getPairs(network, 1);
+		final Node end = pairs[1][0];
+		for (int i = 0; i < TestRouting.numPairs; i++) {
+			if (pairs[0][i] != end) {
+				TestRouting.assertSameCost(dijkstra.createCompleteRoute(pairs[0][i], end, VehicleType.CAR),
+						incremental.createCompleteRoute(pairs[0][i], end, VehicleType.CAR), pairs[0][i], end,
+						VehicleType.CAR, graph.lengths);
+			}
+		}
+		assertTrue(incremental.getNumSettledNodes() < dijkstra.getNumSettledNodes());
+	}
+
+	/**
+	 * The graph only keeps the latest changed edges. Trees that have fallen
+	 * further behind are reset, so they still find the shortest routes.
+	 */
+	@Test
+	public void resetsTreesThatFallBehindChangeLog() {
+		final TrafficNetwork network = TestRouting.createNetwork();
+		final RoutingGraph graph = new RoutingGraph(network);
+		final Dijkstra dijkstra = new Dijkstra(network, graph);
+		final IncrementalDijkstra incremental = new IncrementalDijkstra(network, graph);
+		final Node[][] pairs = TestRouting.getPairs(network, 4);
+		final Random random = new Random(2);
+		for (int round = 0; round < 3; round++) {
+			for (int i = 0; i < TestRouting.numPairs; i++) {
+				TestRouting.assertSameCost(dijkstra.createCompleteRoute(pairs[0][i], pairs[1][i], VehicleType.CAR),
+						incremental.createCompleteRoute(pairs[0][i], pairs[1][i], VehicleType.CAR), pairs[0][i],
+						pairs[1][i], VehicleType.CAR, graph.lengths);
+			}
+			final List<Edge> blockedEdges = new ArrayList<>();
+			for (int i = 0; i < 20; i++) {
+				final Edge edge = network.edges.get(random.nextInt(network.edges.size()));
+				setBlocked(graph, edge, true);
+				blockedEdges.add(edge);
+			}
+			for (int i = 0; i < RoutingGraph.maxNumChangedEdges; i++) {
+				graph.markEdgeChanged(random.nextInt(network.edges.size()));
+			}
+			for (int i = 0; i < 10; i++) {
+				setBlocked(graph, blockedEdges.get(i), false);
+			}
+		}
+		final int numChanges = graph.getNumChangedEdges();
+		assertNull(graph.getChangedEdges(numChanges - RoutingGraph.maxNumChangedEdges - 1));
+		assertEquals(RoutingGraph.maxNumChangedEdges,
+				graph.getChangedEdges(numChanges - RoutingGraph.maxNumChangedEdges).length);
+	}
+}
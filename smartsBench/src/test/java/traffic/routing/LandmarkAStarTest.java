@@ -0,0 +1,52 @@
+package traffic.routing;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import traffic.TrafficNetwork;
+import traffic.road.Node;
+
+public class LandmarkAStarTest {
+	@Test
+	public void findsRoutesAsFastAsDijkstra() {
+		final TrafficNetwork network = TestRouting.createNetwork();
+		final RoutingGraph graph = new RoutingGraph(network);
+		TestRouting.changeSpeeds(network, graph, 1);
+		final int numRoutes = TestRouting.assertSameCosts(new Dijkstra_LPF(network, graph),
+				new LandmarkAStar(network, graph), TestRouting.getPairs(network, 1), graph.getTravelTimes());
+		assertTrue(numRoutes > 0);
+	}
+
+	/**
+	 * Landmarks are measured once, so the heuristic must stay admissible after
+	 * travel times change.
+	 */
+	@Test
+	public void findsFastestRoutesAfterTravelTimesChange() {
+		final TrafficNetwork network = TestRouting.createNetwork();
+		final RoutingGraph graph = new RoutingGraph(network);
+		final Dijkstra_LPF dijkstra = new Dijkstra_LPF(network, graph);
+		final LandmarkAStar landmarkAStar = new LandmarkAStar(network, graph);
+		final Node[][] pairs = TestRouting.getPairs(network, 2);
+		TestRouting.assertSameCosts(dijkstra, landmarkAStar, pairs, graph.getTravelTimes());
+		for (int seed = 1; seed <= 3; seed++) {
+			TestRouting.changeSpeeds(network, graph, seed);
+			TestRouting.assertSameCosts(dijkstra, landmarkAStar, pairs, graph.getTravelTimes());
+		}
+	}
+
+	/**
+	 * Landmark A* settles fewer nodes than Dijkstra for the same routes.
+	 */
+	@Test
+	public void settlesFewerNodesThanDijkstra() {
+		final TrafficNetwork network = TestRouting.createNetwork();
+		final RoutingGraph graph = new RoutingGraph(network);
+		final Dijkstra_LPF dijkstra = new Dijkstra_LPF(network, graph);
+		final LandmarkAStar landmarkAStar = new LandmarkAStar(network, graph);
+		TestRouting.assertSameCosts(dijkstra, landmarkAStar, TestRouting.getPairs(network, 3),
+				graph.getTravelTimes());
+		assertTrue(landmarkAStar.getNumSettledNodes() < dijkstra.getNumSettledNodes());
+	}
+}
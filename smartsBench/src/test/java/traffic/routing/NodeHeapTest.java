@@ -0,0 +1,113 @@
+package traffic.routing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class NodeHeapTest {
+	static final int numNodes = 200;
+
+	/**
+	 * Polls all nodes and checks that keys do not decrease.
+	 */
+	static int pollAll(final NodeHeap heap) {
+		int numPolled = 0;
+		double lastKey = Double.NEGATIVE_INFINITY;
+		while (!heap.isEmpty()) {
+			heap.poll();
+			assertTrue(heap.getLastKey() >= lastKey);
+			lastKey = heap.getLastKey();
+			numPolled++;
+		}
+		return numPolled;
+	}
+
+	@Test
+	public void pollsNodesInOrderOfKey() {
+		final NodeHeap heap = new NodeHeap(numNodes);
+		final Random random = new Random(1);
+		for (int node = 0; node < numNodes; node++) {
+			heap.addOrDecrease(node, random.nextInt(50));
+		}
+		assertEquals(numNodes, heap.size());
+		assertEquals(numNodes, pollAll(heap));
+	}
+
+	@Test
+	public void keepsLowerKeyOfNodeAddedTwice() {
+		final NodeHeap heap = new NodeHeap(numNodes);
+		heap.addOrDecrease(3, 10);
+		heap.addOrDecrease(3, 20);
+		assertEquals(1, heap.size());
+		assertEquals(10, heap.getKey(3), 0);
+		heap.addOrDecrease(4, 8);
+		heap.addOrDecrease(3, 5);
+		assertEquals(5, heap.peekKey(), 0);
+		assertEquals(3, heap.poll());
+		assertFalse(heap.contains(3));
+		assertEquals(4, heap.poll());
+	}
+
+	/**
+	 * Random adds, updates and removals are checked against the keys of a
+	 * plain array.
+	 */
+	@Test
+	public void matchesKeysAfterRandomOperations() {
+		final NodeHeap heap = new NodeHeap(numNodes);
+		final double[] keys = new double[numNodes];
+		Arrays.fill(keys, Double.NaN);
+		final Random random = new Random(2);
+		for (int i = 0; i < 20000; i++) {
+			final int node = random.nextInt(numNodes);
+			final double key = random.nextDouble();
+			final int operation = random.nextInt(4);
+			if (operation == 0) {
+				heap.addOrDecrease(node, key);
+				keys[node] = Double.isNaN(keys[node]) ? key : Math.min(keys[node], key);
+			} else if (operation == 1) {
+				heap.update(node, key);
+				keys[node] = key;
+			} else if (operation == 2) {
+				heap.remove(node);
+				keys[node] = Double.NaN;
+			} else if (!heap.isEmpty()) {
+				final int polled = heap.poll();
+				for (final double other : keys) {
+					assertFalse(other < heap.getLastKey());
+				}
+				assertEquals(keys[polled], heap.getLastKey(), 0);
+				keys[polled] = Double.NaN;
+			}
+			int size = 0;
+			for (int v = 0; v < numNodes; v++) {
+				assertEquals(!Double.isNaN(keys[v]), heap.contains(v));
+				if (heap.contains(v)) {
+					assertEquals(keys[v], heap.getKey(v), 0);
+					size++;
+				}
+			}
+			assertEquals(size, heap.size());
+		}
+	}
+
+	@Test
+	public void clearRemovesAllNodes() {
+		final NodeHeap heap = new NodeHeap(numNodes);
+		for (int node = 0; node < numNodes; node += 2) {
+			heap.addOrDecrease(node, node);
+		}
+		heap.clear();
+		assertTrue(heap.isEmpty());
+		for (int node = 0; node < numNodes; node++) {
+			assertFalse(heap.contains(node));
+		}
+		heap.addOrDecrease(1, 1);
+		assertEquals(1, heap.poll());
+	}
+}
@@ -0,0 +1,160 @@
+package traffic.routing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import common.Settings;
+import traffic.vehicle.Vehicle;
+
+public class RerouteSchedulerTest {
+	static final int budget = 4;
+
+	static Settings createSettings(final int rerouteBudgetPerStep) {
+		final Settings settings = new Settings();
+		settings.rerouteBudgetPerStep = rerouteBudgetPerStep;
+		return settings;
+	}
+
+	static Vehicle createVehicle(final Settings settings, final boolean isRoadBlockedAhead, final double timeJamStart,
+			final double lastReRouted) {
+		final Vehicle vehicle = new Vehicle(settings);
+		vehicle.isRoadBlockedAhead = isRoadBlockedAhead;
+		vehicle.timeJamStart = timeJamStart;
+		vehicle.lastReRouted = lastReRouted;
+		return vehicle;
+	}
+
+	@Test
+	public void isEnabledOnlyWithBudget() {
+		assertFalse(new RerouteScheduler(createSettings(0)).isEnabled());
+		assertTrue(new RerouteScheduler(createSettings(budget)).isEnabled());
+	}
+
+	/**
+	 * Vehicles on a blocked road go first, then the ones in a jam for longest,
+	 * then the ones with the oldest route. Ties keep the order of offers.
+	 */
+	@Test
+	public void ordersBlockedThenJamStartThenLastReRoute() {
+		final Settings settings = createSettings(budget);
+		final Vehicle latestJam = createVehicle(settings, false, 30, 0);
+		final Vehicle recentRoute = createVehicle(settings, false, 10, 20);
+		final Vehicle blockedLateJam = createVehicle(settings, true, 50, 0);
+		final Vehicle oldRoute = createVehicle(settings, false, 10, 5);
+		final Vehicle blockedEarlyJam = createVehicle(settings, true, 20, 0);
+		final Vehicle tieFirst = createVehicle(settings, false, 40, 1);
+		final Vehicle tieSecond = createVehicle(settings, false, 40, 1);
+		final List<Vehicle> vehicles = new ArrayList<>(
+				Arrays.asList(latestJam, recentRoute, blockedLateJam, oldRoute, tieFirst, blockedEarlyJam, tieSecond));
+		vehicles.sort(RerouteScheduler.getPriorityComparator());
+		assertEquals(Arrays.asList(blockedEarlyJam, blockedLateJam, oldRoute, recentRoute, latestJam, tieFirst,
+				tieSecond), vehicles);
+	}
+
+	/**
+	 * At most the budget of vehicles re-route in a step, and they are the
+	 * most urgent ones. The others are counted as deferred.
+	 */
+	@Test
+	public void selectsMostUrgentWithinBudget() {
+		final Settings settings = createSettings(budget);
+		final RerouteScheduler scheduler = new RerouteScheduler(settings);
+		final List<Vehicle> urgent = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			final Vehicle vehicle = createVehicle(settings, false, 100 - i, 0);
+			scheduler.offer(vehicle);
+			if (i >= 6) {
+				urgent.add(0, vehicle);
+			}
+		}
+		assertEquals(urgent, scheduler.select());
+		assertEquals(budget, scheduler.getNumScheduled());
+		assertEquals(10 - budget, scheduler.getNumDeferred());
+		assertTrue(scheduler.select().isEmpty());
+	}
+
+	/**
+	 * Vehicles within the budget all re-route in the order they are offered.
+	 */
+	@Test
+	public void selectsAllWhenBudgetIsNotExceeded() {
+		final Settings settings = createSettings(budget);
+		final RerouteScheduler scheduler = new RerouteScheduler(settings);
+		final Vehicle first = createVehicle(settings, false, 50, 0);
+		final Vehicle second = createVehicle(settings, true, 10, 0);
+		scheduler.offer(first);
+		scheduler.offer(second);
+		final List<Vehicle> selected = scheduler.select();
+		assertEquals(2, selected.size());
+		assertSame(first, selected.get(0));
+		assertSame(second, selected.get(1));
+		assertEquals(0, scheduler.getNumDeferred());
+	}
+
+	/**
+	 * Vehicles that are not selected still need a new route, so they are
+	 * offered again in the next step, as the simulation does, until all of
+	 * them have re-routed once. Each wait is counted as deferred.
+	 */
+	@Test
+	public void deferredVehiclesAreOfferedAgain() {
+		final Settings settings = createSettings(budget);
+		final RerouteScheduler scheduler = new RerouteScheduler(settings);
+		final List<Vehicle> waiting = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			waiting.add(createVehicle(settings, (i % 5) == 4, i, 0));
+		}
+		final Set<Vehicle> reRouted = new HashSet<>();
+		long expectedNumDeferred = 0;
+		int numSteps = 0;
+		while (!waiting.isEmpty()) {
+			for (final Vehicle vehicle : waiting) {
+				scheduler.offer(vehicle);
+			}
+			final List<Vehicle> selected = scheduler.select();
+			assertEquals(Math.min(budget, waiting.size()), selected.size());
+			expectedNumDeferred += waiting.size() - selected.size();
+			for (final Vehicle vehicle : selected) {
+				assertTrue(reRouted.add(vehicle));
+			}
+			waiting.removeAll(selected);
+			numSteps++;
+		}
+		assertEquals(3, numSteps);
+		assertEquals(10, reRouted.size());
+		assertEquals(10, scheduler.getNumScheduled());
+		assertEquals(expectedNumDeferred, scheduler.getNumDeferred());
+		assertEquals(6 + 2, scheduler.getNumDeferred());
+	}
+
+	/**
+	 * A vehicle that becomes blocked overtakes vehicles deferred earlier.
+	 */
+	@Test
+	public void blockedVehicleOvertakesDeferredVehicles() {
+		final Settings settings = createSettings(1);
+		final RerouteScheduler scheduler = new RerouteScheduler(settings);
+		final Vehicle jammed = createVehicle(settings, false, 0, 0);
+		final Vehicle deferred = createVehicle(settings, false, 5, 0);
+		scheduler.offer(jammed);
+		scheduler.offer(deferred);
+		assertEquals(Arrays.asList(jammed), scheduler.select());
+		final Vehicle blocked = createVehicle(settings, true, 50, 0);
+		scheduler.offer(deferred);
+		scheduler.offer(blocked);
+		assertEquals(Arrays.asList(blocked), scheduler.select());
+		scheduler.offer(deferred);
+		assertEquals(Arrays.asList(deferred), scheduler.select());
+		assertEquals(2, scheduler.getNumDeferred());
+	}
+}
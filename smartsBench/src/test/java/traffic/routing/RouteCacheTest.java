@@ -0,0 +1,121 @@
+package traffic.routing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import traffic.TrafficNetwork;
+import traffic.road.Node;
+import traffic.vehicle.VehicleType;
+
+public class RouteCacheTest {
+	static RouteCache.Key key(final int start, final long epoch) {
+		return new RouteCache.Key(start, 0, VehicleType.CAR, Routing.Algorithm.DIJKSTRA, epoch);
+	}
+
+	static ArrayList<RouteLeg> route() {
+		return new ArrayList<>();
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsedRoute() {
+		final RouteCache cache = new RouteCache(2);
+		final ArrayList<RouteLeg> first = route();
+		final ArrayList<RouteLeg> second = route();
+		cache.put(key(1, 0), first);
+		cache.put(key(2, 0), second);
+		// Using the first route makes the second one the least recently used
+		assertSame(first, cache.get(key(1, 0)));
+		cache.put(key(3, 0), route());
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getNumEvictions());
+		assertSame(first, cache.get(key(1, 0)));
+		assertNull(cache.get(key(2, 0)));
+		assertNotNull(cache.get(key(3, 0)));
+	}
+
+	@Test
+	public void keyIncludesEveryPart() {
+		final RouteCache cache = new RouteCache(10);
+		cache.put(new RouteCache.Key(1, 2, VehicleType.CAR, Routing.Algorithm.DIJKSTRA, 0), route());
+		assertNotNull(cache.get(new RouteCache.Key(1, 2, VehicleType.CAR, Routing.Algorithm.DIJKSTRA, 0)));
+		assertNull(cache.get(new RouteCache.Key(2, 2, VehicleType.CAR, Routing.Algorithm.DIJKSTRA, 0)));
+		assertNull(cache.get(new RouteCache.Key(1, 3, VehicleType.CAR, Routing.Algorithm.DIJKSTRA, 0)));
+		assertNull(cache.get(new RouteCache.Key(1, 2, VehicleType.TRAM, Routing.Algorithm.DIJKSTRA, 0)));
+		assertNull(cache.get(new RouteCache.Key(1, 2, VehicleType.CAR, Routing.Algorithm.DIJKSTRA_LPF, 0)));
+		assertNull(cache.get(new RouteCache.Key(1, 2, VehicleType.CAR, Routing.Algorithm.DIJKSTRA, 1)));
+	}
+
+	@Test
+	public void countsHitsAndMisses() {
+		final RouteCache cache = new RouteCache(10);
+		cache.put(key(1, 0), route());
+		cache.get(key(1, 0));
+		cache.get(key(1, 0));
+		cache.get(key(2, 0));
+		assertEquals(2, cache.getNumHits());
+		assertEquals(1, cache.getNumMisses());
+		assertEquals(2.0 / 3, cache.getHitRate(), 1e-9);
+	}
+
+	/**
+	 * A cached route is reused without searching until the epoch is bumped,
+	 * and each vehicle gets its own copy of the legs.
+	 */
+	@Test
+	public void cachedRoutingReusesRoutesWithinEpoch() {
+		final TrafficNetwork network = TestRouting.createNetwork();
+		final RoutingGraph graph = new RoutingGraph(network);
+		final Dijkstra dijkstra = new Dijkstra(network, graph);
+		final RouteCache cache = new RouteCache(10);
+		final CachedRouting routing = new CachedRouting(network, dijkstra, Routing.Algorithm.DIJKSTRA, cache);
+		final Node[][] pairs = TestRouting.getPairs(network, 1);
+		int i = 0;
+		while (dijkstra.createCompleteRoute(pairs[0][i], pairs[1][i], VehicleType.CAR) == null) {
+			i++;
+		}
+		final Node start = pairs[0][i];
+		final Node end = pairs[1][i];
+
+		final ArrayList<RouteLeg> found = routing.createCompleteRoute(start, end, VehicleType.CAR);
+		final long numSettledNodes = routing.getNumSettledNodes();
+		final ArrayList<RouteLeg> reused = routing.createCompleteRoute(start, end, VehicleType.CAR);
+		assertEquals(numSettledNodes, routing.getNumSettledNodes());
+		assertEquals(found.size(), reused.size());
+		for (int j = 0; j < found.size(); j++) {
+			assertSame(found.get(j).edge, reused.get(j).edge);
+			assertNotSame(found.get(j), reused.get(j));
+		}
+
+		cache.bumpEpoch();
+		routing.createCompleteRoute(start, end, VehicleType.CAR);
+		assertEquals(1, cache.getNumHits());
+		assertEquals(2, cache.getNumMisses());
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void cachedRoutingRemembersMissingRoutes() {
+		final TrafficNetwork network = TestRouting.createNetwork();
+		final RoutingGraph graph = new RoutingGraph(network);
+		final Dijkstra dijkstra = new Dijkstra(network, graph);
+		final RouteCache cache = new RouteCache(10);
+		final CachedRouting routing = new CachedRouting(network, dijkstra, Routing.Algorithm.DIJKSTRA, cache);
+		final Node[][] pairs = TestRouting.getPairs(network, 1);
+		int i = 0;
+		while (dijkstra.createCompleteRoute(pairs[0][i], pairs[1][i], VehicleType.CAR) != null) {
+			i++;
+		}
+		assertNull(routing.createCompleteRoute(pairs[0][i], pairs[1][i], VehicleType.CAR));
+		final long numSettledNodes = routing.getNumSettledNodes();
+		assertNull(routing.createCompleteRoute(pairs[0][i], pairs[1][i], VehicleType.CAR));
+		assertEquals(numSettledNodes, routing.getNumSettledNodes());
+		assertEquals(1, cache.getNumHits());
+	}
+}
@@ -0,0 +1,118 @@
+package traffic.routing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import common.Settings;
+import traffic.TrafficNetwork;
+import traffic.road.Edge;
+import traffic.road.Node;
+import traffic.road.RoadUtil;
+import traffic.vehicle.VehicleType;
+import traffic.vehicle.VehicleUtil;
+
+/**
+ * Builds the built-in road network and checks the routes of an algorithm
+ * against the routes of a reference algorithm.
+ */
+class TestRouting {
+	static final int numPairs = 500;
+	static final double tolerance = 1e-6;
+
+	/**
+	 * Creates the traffic network of the built-in road network. Preprocessed
+	 * routing data is not saved to disk.
+	 */
+	static TrafficNetwork createNetwork() {
+		final Settings settings = new Settings();
+		settings.isCacheRoutingPreprocessing = false;
+		settings.roadGraph = RoadUtil.importBuiltinRoadGraphFile(settings.inputBuiltinRoadGraph);
+		return new TrafficNetwork(settings, "test", new ArrayList<>());
+	}
+
+	/**
+	 * Changes the free-flow speed of edges randomly within the range of speeds
+	 * allowed on each edge, and updates the travel times of the graph, so the
+	 * fastest routes are different from the shortest ones.
+	 */
+	static void changeSpeeds(final TrafficNetwork network, final RoutingGraph graph, final long seed) {
+		final Random random = new Random(seed);
+		for (final Edge edge : network.edges) {
+			final double minSpeed = Math.max(1, edge.minFreeFlowSpeed);
+			edge.freeFlowSpeed = minSpeed + (random.nextDouble() * (edge.maxFreeFlowSpeed - minSpeed));
+		}
+		graph.updateTravelTimes();
+	}
+
+	/**
+	 * Gets random pairs of distinct nodes, as an array of start nodes followed
+	 * by an array of end nodes.
+	 */
+	static Node[][] getPairs(final TrafficNetwork network, final long seed) {
+		final Random random = new Random(seed);
+		final Node[][] pairs = new Node[2][numPairs];
+		for (int i = 0; i < numPairs; i++) {
+			do {
+				pairs[0][i] = network.nodes.get(random.nextInt(network.nodes.size()));
+				pairs[1][i] = network.nodes.get(random.nextInt(network.nodes.size()));
+			} while (pairs[0][i] == pairs[1][i]);
+		}
+		return pairs;
+	}
+
+	/**
+	 * Gets the cost of a route by the given cost of each edge, after checking
+	 * that the route goes from the start to the end through edges the vehicle
+	 * can use.
+	 */
+	static double getCost(final List<RouteLeg> route, final Node start, final Node end, final VehicleType type,
+			final double[] costs) {
+		Node node = start;
+		double cost = 0;
+		for (final RouteLeg leg : route) {
+			assertSame(node, leg.edge.startNode);
+			assertTrue(VehicleUtil.canGoThrough(leg.edge, type, false));
+			cost += costs[leg.edge.index];
+			node = leg.edge.endNode;
+		}
+		assertSame(end, node);
+		return cost;
+	}
+
+	static void assertSameCost(final List<RouteLeg> expected, final List<RouteLeg> actual, final Node start,
+			final Node end, final VehicleType type, final double[] costs) {
+		if (expected == null) {
+			assertNull(actual);
+			return;
+		}
+		assertNotNull(actual);
+		final double expectedCost = getCost(expected, start, end, type, costs);
+		assertEquals(expectedCost, getCost(actual, start, end, type, costs), tolerance * expectedCost);
+	}
+
+	/**
+	 * Checks that an algorithm finds routes of the same cost as the reference
+	 * algorithm for cars and trams. Returns the number of pairs with a route.
+	 */
+	static int assertSameCosts(final Routing reference, final Routing routing, final Node[][] pairs,
+			final double[] costs) {
+		int numRoutes = 0;
+		for (int i = 0; i < numPairs; i++) {
+			final VehicleType type = (i % 5) == 0 ? VehicleType.TRAM : VehicleType.CAR;
+			final ArrayList<RouteLeg> expected = reference.createCompleteRoute(pairs[0][i], pairs[1][i], type);
+			assertSameCost(expected, routing.createCompleteRoute(pairs[0][i], pairs[1][i], type), pairs[0][i],
+					pairs[1][i], type, costs);
+			if (expected != null) {
+				numRoutes++;
+			}
+		}
+		return numRoutes;
+	}
+}
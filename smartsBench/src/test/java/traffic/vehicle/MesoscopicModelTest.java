@@ -0,0 +1,326 @@
+package traffic.vehicle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import common.Settings;
+import traffic.TrafficNetwork;
+import traffic.light.LightColor;
+import traffic.road.Edge;
+import traffic.road.Lane;
+import traffic.road.RoadType;
+import traffic.road.RoadUtil;
+import traffic.routing.RouteLeg;
+
+public class MesoscopicModelTest {
+	static final double tolerance = 1e-9;
+
+	final TrafficNetwork network = createNetwork();
+	final Settings settings = network.getSettings();
+	final MesoscopicModel model = new MesoscopicModel(settings);
+	/**
+	 * Three connected edges. The middle one uses the mesoscopic model and the
+	 * others use the microscopic model.
+	 */
+	final Edge previous, edge, next;
+
+	public MesoscopicModelTest() {
+		final Edge[] edges = findEdges();
+		previous = edges[0];
+		edge = edges[1];
+		next = edges[2];
+		for (final Edge e : network.edges) {
+			e.isMesoscopic = false;
+		}
+		edge.isMesoscopic = true;
+		edge.mesoOutflowCredit = 0;
+		edge.timeMesoOutflowCreditUpdated = 0;
+	}
+
+	static TrafficNetwork createNetwork() {
+		final Settings settings = new Settings();
+		settings.isCacheRoutingPreprocessing = false;
+		settings.roadGraph = RoadUtil.importBuiltinRoadGraphFile(settings.inputBuiltinRoadGraph);
+		return new TrafficNetwork(settings, "test", new ArrayList<>());
+	}
+
+	static boolean isUsable(final Edge edge) {
+		return (edge.type != RoadType.tram) && (edge.getLaneCount() > 0);
+	}
+
+	/**
+	 * Finds a long edge between two other edges, where the route does not
+	 * turn back.
+	 */
+	Edge[] findEdges() {
+		for (final Edge e : network.edges) {
+			if (!isUsable(e) || (e.length < 100)) {
+				continue;
+			}
+			for (final Edge p : e.startNode.inwardEdges) {
+				if (!isUsable(p) || (p.startNode == e.endNode) || (p.length < 20)) {
+					continue;
+				}
+				for (final Edge n : e.endNode.outwardEdges) {
+					if (isUsable(n) && (n.endNode != e.startNode) && (n.length > 20)) {
+						return new Edge[] { p, e, n };
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	Vehicle createVehicle(final String id, final Edge... route) {
+		final Vehicle vehicle = new Vehicle(settings);
+		vehicle.id = id;
+		vehicle.type = VehicleType.CAR;
+		vehicle.driverProfile = DriverProfile.NORMAL;
+		vehicle.setLength(VehicleType.CAR.length);
+		final List<RouteLeg> legs = new ArrayList<>();
+		for (final Edge e : route) {
+			legs.add(new RouteLeg(e, 0));
+		}
+		vehicle.setRouteLegs(legs);
+		vehicle.active = true;
+		network.vehicles.add(vehicle);
+		return vehicle;
+	}
+
+	/**
+	 * Puts vehicle on the given lane, which is on the edge of the given route
+	 * leg.
+	 */
+	void putOnLane(final Vehicle vehicle, final int indexLeg, final Lane lane, final double headPosition) {
+		vehicle.setIndexLegOnRoute(indexLeg);
+		vehicle.setHeadPosition(headPosition);
+		vehicle.updateLane(lane);
+	}
+
+	/**
+	 * Gets the number of lanes in the network that list the vehicle.
+	 */
+	int getNumLanesListing(final Vehicle vehicle) {
+		int num = 0;
+		for (final Lane lane : network.lanes) {
+			for (final Vehicle v : lane.getVehicles()) {
+				if (v == vehicle) {
+					num++;
+				}
+			}
+		}
+		return num;
+	}
+
+	double getTime(final int step) {
+		return step / settings.numStepsPerSecond;
+	}
+
+	/**
+	 * Moves the vehicles on the mesoscopic edge for one step. Vehicles that
+	 * reach the end move to the next edge, where they are checked and then
+	 * taken off road so they do not block the next vehicles.
+	 */
+	List<Vehicle> moveOneStep(final int step) {
+		final double timeNow = getTime(step);
+		final List<Vehicle> moved = new ArrayList<>();
+		model.moveVehicles(edge, timeNow, moved);
+		final List<Vehicle> exited = new ArrayList<>();
+		for (final Vehicle vehicle : moved) {
+			if (vehicle.getHeadPosition() >= edge.length) {
+				vehicle.moveToNextLink(timeNow, new ArrayList<>());
+				assertSame(next, vehicle.lane.edge);
+				assertEquals(1, getNumLanesListing(vehicle));
+				vehicle.updateLane(null);
+				exited.add(vehicle);
+			}
+		}
+		return exited;
+	}
+
+	@Test
+	public void speedFollowsFundamentalDiagram() {
+		assertEquals(edge.freeFlowSpeed, MesoscopicModel.getSpeed(edge, 0), tolerance);
+		double last = edge.freeFlowSpeed;
+		final int numJammed = (int) Math.ceil(MesoscopicModel.getStorageCapacity(edge));
+		for (int n = 1; n <= numJammed; n++) {
+			final double speed = MesoscopicModel.getSpeed(edge, n);
+			assertTrue(speed <= last);
+			last = speed;
+		}
+		final double minSpeed = Math.min(MesoscopicModel.minSpeed, edge.freeFlowSpeed);
+		assertEquals(minSpeed, MesoscopicModel.getSpeed(edge, numJammed), tolerance);
+		assertEquals(minSpeed, MesoscopicModel.getSpeed(edge, numJammed * 2), tolerance);
+	}
+
+	@Test
+	public void outflowCapacityIsPeakFlow() {
+		final double capacity = MesoscopicModel.getOutflowCapacity(edge);
+		assertEquals((edge.freeFlowSpeed / MesoscopicModel.jamSpacing / 4) * edge.getLaneCount(), capacity,
+				tolerance);
+		// Flow of the fundamental diagram, before speed reaches its minimum
+		double peak = 0;
+		for (int n = 1; n < MesoscopicModel.getStorageCapacity(edge); n++) {
+			final double flow = (n / edge.length) * MesoscopicModel.getSpeed(edge, n);
+			assertTrue(flow <= capacity + tolerance);
+			peak = Math.max(peak, flow);
+		}
+		assertTrue(peak > capacity * 0.9);
+	}
+
+	@Test
+	public void outflowCreditIsCapped() {
+		final double capacity = MesoscopicModel.getOutflowCapacity(edge);
+		final double elapsed = 0.5 / capacity;
+		model.updateOutflowCredit(edge, elapsed);
+		assertEquals(0.5, edge.mesoOutflowCredit, tolerance);
+		// Time going back adds no credit
+		model.updateOutflowCredit(edge, 0);
+		assertEquals(0.5, edge.mesoOutflowCredit, tolerance);
+		// Unused credit is capped at one vehicle per lane
+		model.updateOutflowCredit(edge, 1000);
+		assertEquals(edge.getLaneCount(), edge.mesoOutflowCredit, tolerance);
+		model.updateOutflowCredit(edge, 2000);
+		assertEquals(edge.getLaneCount(), edge.mesoOutflowCredit, tolerance);
+	}
+
+	@Test
+	public void redLightBlocksLeaving() {
+		final Vehicle vehicle = createVehicle("v", edge, next);
+		putOnLane(vehicle, 0, edge.getLane(0), edge.length - MesoscopicModel.waitingGapToEnd);
+		assertTrue(model.canLeave(edge, vehicle));
+		for (final LightColor color : Arrays.asList(LightColor.GYR_R, LightColor.KEEP_RED)) {
+			edge.setMovementLight(vehicle.getCurrentMovement(), color);
+			assertFalse(model.canLeave(edge, vehicle));
+		}
+
+		// The vehicle waits before the end of the edge while the light is red
+		for (int step = 1; step <= 100; step++) {
+			assertTrue(moveOneStep(step).isEmpty());
+			assertTrue(vehicle.getHeadPosition() <= edge.length - MesoscopicModel.waitingGapToEnd);
+		}
+		edge.setMovementLight(vehicle.getCurrentMovement(), LightColor.GYR_G);
+		assertTrue(model.canLeave(edge, vehicle));
+		assertEquals(Arrays.asList(vehicle), moveOneStep(101));
+	}
+
+	@Test
+	public void fullNextEdgeBlocksLeaving() {
+		final Vehicle vehicle = createVehicle("v", edge, next);
+		putOnLane(vehicle, 0, edge.getLane(0), edge.length - MesoscopicModel.waitingGapToEnd);
+
+		// Mesoscopic next edge is full when its storage capacity is used
+		next.isMesoscopic = true;
+		assertTrue(model.canLeave(edge, vehicle));
+		final int numToFill = (int) Math.ceil(MesoscopicModel.getStorageCapacity(next));
+		for (int i = 0; i < numToFill; i++) {
+			final Vehicle other = createVehicle("n" + i, next);
+			putOnLane(other, 0, next.getLane(i % next.getLaneCount()), next.length - (i * MesoscopicModel.jamSpacing));
+		}
+		assertFalse(model.canLeave(edge, vehicle));
+		for (final Lane lane : next.getLanes()) {
+			for (final Vehicle other : new ArrayList<>(lane.getVehicles())) {
+				other.updateLane(null);
+			}
+		}
+		assertTrue(model.canLeave(edge, vehicle));
+
+		// Microscopic next lane has no space if its last vehicle is at the start
+		next.isMesoscopic = false;
+		final Lane nextLane = settings.getLaneDecider().getNextEdgeLane(vehicle);
+		assertNotNull(nextLane);
+		final Vehicle last = createVehicle("last", next);
+		putOnLane(last, 0, nextLane, last.getLength());
+		assertFalse(model.canLeave(edge, vehicle));
+		last.updateLane(null);
+		// The lane decider avoids a blocked lane, so all the lanes are blocked
+		for (final Lane lane : next.getLanes()) {
+			lane.isBlocked = true;
+		}
+		assertFalse(model.canLeave(edge, vehicle));
+		for (final Lane lane : next.getLanes()) {
+			lane.isBlocked = false;
+		}
+		assertTrue(model.canLeave(edge, vehicle));
+	}
+
+	/**
+	 * Vehicles queued in a lane leave in the order of the queue, and no more
+	 * vehicles leave than the outflow capacity allows.
+	 */
+	@Test
+	public void vehiclesLeaveInOrderWithinCapacity() {
+		final Lane lane = edge.getLane(0);
+		final int numVehicles = Math.min(30, (int) (edge.length / MesoscopicModel.jamSpacing) - 1);
+		final List<Vehicle> queue = new ArrayList<>();
+		for (int i = 0; i < numVehicles; i++) {
+			final Vehicle vehicle = createVehicle("q" + i, edge, next);
+			putOnLane(vehicle, 0, lane, edge.length - MesoscopicModel.waitingGapToEnd
+					- (i * MesoscopicModel.jamSpacing));
+			queue.add(vehicle);
+		}
+		assertEquals(queue, lane.getVehicles());
+
+		final double capacity = MesoscopicModel.getOutflowCapacity(edge);
+		final List<Vehicle> exited = new ArrayList<>();
+		for (int step = 1; (step <= 100000) && (exited.size() < numVehicles); step++) {
+			exited.addAll(moveOneStep(step));
+			assertTrue(exited.size() <= (capacity * getTime(step)) + tolerance);
+			assertEquals(numVehicles, exited.size() + lane.getVehicleCount());
+		}
+		assertEquals(queue, exited);
+	}
+
+	/**
+	 * A vehicle gets onto the mesoscopic edge from a microscopic edge, is
+	 * scheduled from its position on the edge, and leaves onto the next
+	 * microscopic edge. It is listed by exactly one lane all the time.
+	 */
+	@Test
+	public void vehicleCrossesWindowBoundaryOnce() {
+		final Vehicle vehicle = createVehicle("v", previous, edge, next);
+		final double overshoot = 2;
+		putOnLane(vehicle, 0, previous.getLane(0), previous.length + overshoot);
+		vehicle.takeIntersectionDecision();
+		vehicle.moveToNextLink(0, new ArrayList<>());
+		assertSame(edge, vehicle.lane.edge);
+		assertEquals(1, vehicle.getIndexLegOnRoute());
+		assertEquals(overshoot, vehicle.getHeadPosition(), tolerance);
+		assertEquals(1, getNumLanesListing(vehicle));
+
+		// Schedule is made on the first step on the edge
+		final int numVehicles = 1;
+		final double speed = MesoscopicModel.getSpeed(edge, numVehicles);
+		final List<Vehicle> exited = moveOneStep(1);
+		assertSame(edge, vehicle.mesoEdge);
+		assertEquals(getTime(1), vehicle.mesoEntryTime, tolerance);
+		assertEquals(overshoot, vehicle.mesoEntryPosition, tolerance);
+		assertEquals(getTime(1) + ((edge.length - overshoot) / speed), vehicle.mesoExitTime, tolerance);
+		// Speed is set from the move, so car following can take over
+		assertEquals((vehicle.getHeadPosition() - overshoot) * settings.numStepsPerSecond, vehicle.getSpeed(),
+				tolerance);
+
+		double lastPosition = vehicle.getHeadPosition();
+		for (int step = 2; exited.isEmpty() && (step <= 100000); step++) {
+			assertSame(edge, vehicle.lane.edge);
+			assertEquals(1, getNumLanesListing(vehicle));
+			exited.addAll(moveOneStep(step));
+			if (exited.isEmpty()) {
+				assertTrue(vehicle.getHeadPosition() >= lastPosition);
+				lastPosition = vehicle.getHeadPosition();
+			}
+		}
+		assertEquals(Arrays.asList(vehicle), exited);
+		assertEquals(2, vehicle.getIndexLegOnRoute());
+		assertEquals(0, getNumLanesListing(vehicle));
+	}
+}
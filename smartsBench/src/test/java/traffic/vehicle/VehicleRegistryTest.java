@@ -0,0 +1,116 @@
+package traffic.vehicle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import common.Settings;
+
+public class VehicleRegistryTest {
+	final Settings settings = new Settings();
+
+	Vehicle createVehicle(final VehicleType type, final boolean isExternal) {
+		final Vehicle vehicle = new Vehicle(settings);
+		vehicle.type = type;
+		vehicle.isExternal = isExternal;
+		return vehicle;
+	}
+
+	List<Vehicle> getVehicles(final VehicleRegistry registry) {
+		final List<Vehicle> vehicles = new ArrayList<>();
+		for (final Vehicle vehicle : registry) {
+			vehicles.add(vehicle);
+		}
+		return vehicles;
+	}
+
+	@Test
+	public void removalKeepsOrderOfRemainingVehicles() {
+		final VehicleRegistry registry = new VehicleRegistry();
+		final List<Vehicle> remaining = new ArrayList<>();
+		final List<Vehicle> removed = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			final Vehicle vehicle = createVehicle(VehicleType.CAR, false);
+			registry.add(vehicle);
+			if (i % 3 == 0) {
+				remaining.add(vehicle);
+			} else {
+				removed.add(vehicle);
+			}
+		}
+		// Enough vehicles are removed to reclaim the empty slots
+		for (final Vehicle vehicle : removed) {
+			assertTrue(registry.remove(vehicle));
+		}
+		assertEquals(remaining.size(), registry.size());
+		assertEquals(remaining, getVehicles(registry));
+		assertEquals(remaining, registry.asList());
+		for (final Vehicle vehicle : remaining) {
+			assertTrue(registry.contains(vehicle));
+			assertSame(vehicle, registry.asList().get(vehicle.registryIndex));
+		}
+		for (final Vehicle vehicle : removed) {
+			assertFalse(registry.contains(vehicle));
+			assertEquals(-1, vehicle.registryIndex);
+		}
+	}
+
+	@Test
+	public void vehiclesAddedAfterCompactionFollowRemainingVehicles() {
+		final VehicleRegistry registry = new VehicleRegistry();
+		final List<Vehicle> expected = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			final Vehicle vehicle = createVehicle(VehicleType.CAR, false);
+			registry.add(vehicle);
+			expected.add(vehicle);
+		}
+		for (int i = 0; i < 80; i++) {
+			registry.remove(expected.remove(0));
+		}
+		for (int i = 0; i < 10; i++) {
+			final Vehicle vehicle = createVehicle(VehicleType.BUS, false);
+			registry.add(vehicle);
+			expected.add(vehicle);
+		}
+		registry.remove(expected.remove(3));
+		assertEquals(expected, getVehicles(registry));
+		assertEquals(expected, registry.asList());
+	}
+
+	@Test
+	public void countsVehiclesByTypeAndOrigin() {
+		final VehicleRegistry registry = new VehicleRegistry();
+		final Vehicle internalCar = createVehicle(VehicleType.CAR, false);
+		final Vehicle externalCar = createVehicle(VehicleType.CAR, true);
+		final Vehicle internalBus = createVehicle(VehicleType.BUS, false);
+		registry.add(internalCar);
+		registry.add(externalCar);
+		registry.add(internalBus);
+		// Adding a vehicle again does not change counts
+		registry.add(internalCar);
+		assertEquals(3, registry.size());
+		assertEquals(2, registry.getNumVehicles(VehicleType.CAR));
+		assertEquals(1, registry.getNumInternalVehicles(VehicleType.CAR));
+		assertEquals(1, registry.getNumVehicles(VehicleType.BUS));
+		assertEquals(2, registry.getNumInternalVehicles());
+
+		assertTrue(registry.remove(internalCar));
+		assertFalse(registry.remove(internalCar));
+		assertEquals(1, registry.getNumVehicles(VehicleType.CAR));
+		assertEquals(0, registry.getNumInternalVehicles(VehicleType.CAR));
+		assertEquals(1, registry.getNumInternalVehicles());
+
+		registry.clear();
+		assertEquals(0, registry.size());
+		assertEquals(0, registry.getNumVehicles(VehicleType.CAR));
+		assertEquals(0, registry.getNumInternalVehicles());
+		assertFalse(registry.contains(externalCar));
+		assertTrue(getVehicles(registry).isEmpty());
+	}
+}
@@ -0,0 +1,97 @@
+package traffic.vehicle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import common.Settings;
+
+public class VehicleStateStoreTest {
+	final Settings settings = new Settings();
+
+	Vehicle createVehicle(final int i) {
+		final Vehicle vehicle = new Vehicle(settings);
+		vehicle.type = VehicleType.CAR;
+		vehicle.setHeadPosition(i);
+		vehicle.setSpeed(i + 0.5);
+		vehicle.setAcceleration(-i);
+		vehicle.setLength(4 + i);
+		vehicle.setIndexLegOnRoute(2 * i);
+		return vehicle;
+	}
+
+	void assertState(final Vehicle vehicle, final int i) {
+		assertEquals(i, vehicle.getHeadPosition(), 0);
+		assertEquals(i + 0.5, vehicle.getSpeed(), 0);
+		assertEquals(-i, vehicle.getAcceleration(), 0);
+		assertEquals(4 + i, vehicle.getLength(), 0);
+		assertEquals(2 * i, vehicle.getIndexLegOnRoute());
+	}
+
+	@Test
+	public void stateSurvivesAddAndRemove() {
+		final VehicleRegistry registry = new VehicleRegistry();
+		final List<Vehicle> vehicles = new ArrayList<>();
+		for (int i = 0; i < 3000; i++) {
+			final Vehicle vehicle = createVehicle(i);
+			registry.add(vehicle);
+			vehicles.add(vehicle);
+		}
+		final VehicleStateStore states = registry.getStates();
+		for (int i = 0; i < vehicles.size(); i++) {
+			final Vehicle vehicle = vehicles.get(i);
+			assertTrue(states.contains(vehicle));
+			assertSame(vehicle, states.getVehicle(vehicle.getStateSlot()));
+			assertEquals(i, states.headPosition[vehicle.getStateSlot()], 0);
+			assertState(vehicle, i);
+		}
+		for (int i = 0; i < vehicles.size(); i += 2) {
+			registry.remove(vehicles.get(i));
+		}
+		assertEquals(vehicles.size() / 2, states.getVehicleCount());
+		for (int i = 0; i < vehicles.size(); i++) {
+			assertEquals(i % 2 == 1, states.contains(vehicles.get(i)));
+			assertState(vehicles.get(i), i);
+		}
+	}
+
+	@Test
+	public void freedSlotsAreReused() {
+		final VehicleRegistry registry = new VehicleRegistry();
+		final VehicleStateStore states = registry.getStates();
+		final Vehicle first = createVehicle(1);
+		final Vehicle second = createVehicle(2);
+		registry.add(first);
+		registry.add(second);
+		final int slot = first.getStateSlot();
+		registry.remove(first);
+		assertNull(states.getVehicle(slot));
+		final Vehicle third = createVehicle(3);
+		registry.add(third);
+		assertEquals(slot, third.getStateSlot());
+		assertEquals(2, states.getSlotCount());
+		assertState(first, 1);
+		assertState(second, 2);
+		assertState(third, 3);
+	}
+
+	@Test
+	public void clearMovesVehiclesOut() {
+		final VehicleRegistry registry = new VehicleRegistry();
+		final Vehicle vehicle = createVehicle(5);
+		registry.add(vehicle);
+		registry.clear();
+		assertFalse(registry.getStates().contains(vehicle));
+		assertEquals(0, registry.getStates().getVehicleCount());
+		assertState(vehicle, 5);
+		vehicle.setSpeed(7);
+		assertEquals(7, vehicle.getSpeed(), 0);
+	}
+}
@@ -5,6 +5,8 @@ import java.awt.geom.Point2D;
 import java.io.IOException;
 import java.util.*;
 
+import common.RandomStreams;
+import common.RandomStreams.Purpose;
 import common.Settings;
 import processor.SimulationListener;
 import processor.communication.externalMessage.VehiclePathExternal;
@@ -13,12 +15,16 @@ import processor.communication.message.SerializableRouteLeg;
 import processor.communication.message.SerializableWorkerMetadata;
 import processor.worker.Workarea;
 import traffic.light.LightCoordinator;
+import traffic.light.LightPeriod;
+import traffic.light.TrafficLightCluster;
 import traffic.light.TrafficLightTiming;
 import traffic.network.ODDemand;
+import traffic.network.TrafficGenerator;
 import traffic.road.*;
 import traffic.routing.*;
 import traffic.vehicle.DriverProfile;
 import traffic.vehicle.Vehicle;
+import traffic.vehicle.VehicleRegistry;
 import traffic.vehicle.VehicleType;
 
 /**
@@ -58,7 +64,8 @@ public class TrafficNetwork extends RoadNetwork {
 
 
 	public Workarea workarea;
-	public ArrayList<Vehicle> vehicles = new ArrayList<>();
+	public VehicleRegistry vehicles = new VehicleRegistry();
+	public ActiveEdgeSet activeEdges;
 
 	// For report data
 	public ArrayList<Vehicle> newVehiclesSinceLastReport = new ArrayList<>();
@@ -73,16 +80,20 @@ public class TrafficNetwork extends RoadNetwork {
 	ArrayList<Edge> internalTramStartEdges = new ArrayList<>();
 	ArrayList<Edge> internalTramEndEdges = new ArrayList<>();
 	public ArrayList<Integer> laneIndexOfChangeDir = new ArrayList<>();
-	public Routing routingAlgorithm;
-	public RoutingAlgoFactory routingAlgoFactory;
+	public RoutingService routingService;
+	public final RerouteScheduler rerouteScheduler;
 
 
-	Random random = new Random();
+	Random random;//For picking routes of public transport
+	Random driverProfileRandom;
 	int numInternalVehicleAllTime = 0;
-	public int numInternalNonPublicVehicle = 0;
-	public int numInternalTram = 0;
-	public int numInternalBus = 0;
 	public LightCoordinator lightCoordinator = new LightCoordinator();
+	/**
+	 * Prefix of the IDs of internal vehicles, which is also the key of the
+	 * random streams of this worker. It is based on the partition index of the
+	 * work area, so runs with the same seed create the same vehicles although
+	 * worker names are random.
+	 */
 	String internalVehiclePrefix = "";
 	double timeLastPublicVehicleCreated = 0;
 	ArrayList<String> internalTramRefInSdWindow = new ArrayList<>();
@@ -96,7 +107,7 @@ public class TrafficNetwork extends RoadNetwork {
 	HashMap<String, ArrayList<Edge>> internalBusEndEdgesInDestinationWindow = new HashMap<>();
 	List<Vehicle> finishedVehicles = new ArrayList<>();
 
-	private PriorityQueue<Vehicle> tripMakingVehicles;
+	PriorityQueue<Vehicle> tripMakingVehicles;
 
 	private ArrayList<VehiclePathExternal> paths = new ArrayList<>();
 
@@ -105,14 +116,36 @@ public class TrafficNetwork extends RoadNetwork {
 	 */
 	public TrafficNetwork(Settings settings, String name, List<SerializableWorkerMetadata> metadataWorkers) {
 		super(settings);
+		activeEdges = new ActiveEdgeSet(edges, lanes);
 		this.internalVehiclePrefix = name;
 		setupWorkArea(name, metadataWorkers);
 		identifyInternalTramStopEdges();
 		addTramStopsToParallelNonTramEdges();
 		tripMakingVehicles = new PriorityQueue<>(getTripMakingVehicleComparator());
+		rerouteScheduler = new RerouteScheduler(settings);
 		setCrossingIncreasingOrders();
-		routingAlgoFactory = new RoutingAlgoFactory();
+		resetRandomStreams();
+	}
 
+	/**
+	 * Gets a random stream of this worker for the given purpose. The stream
+	 * restarts from the same state for every call.
+	 */
+	public Random getWorkerRandom(final Purpose purpose) {
+		return RandomStreams.forWorker(settings.randomSeed, internalVehiclePrefix, purpose);
+	}
+
+	/**
+	 * Restarts the random streams used for creating vehicles, so runs with the
+	 * same seed create the same vehicles.
+	 */
+	void resetRandomStreams() {
+		random = getWorkerRandom(Purpose.PUBLIC_TRANSPORT_ROUTE);
+		driverProfileRandom = getWorkerRandom(Purpose.DRIVER_PROFILE);
+		final TrafficGenerator trafficGenerator = settings.dictionary.getTrafficGenerator(settings.trafficGenerator);
+		if (trafficGenerator != null) {
+			trafficGenerator.setRandom(settings.randomSeed, internalVehiclePrefix);
+		}
 	}
 
 	private void setupWorkArea(String name, List<SerializableWorkerMetadata> metadataWorkers){
@@ -121,11 +154,22 @@ public class TrafficNetwork extends RoadNetwork {
 			final ArrayList<GridCell> cellsInWorkarea = metadata.processReceivedGridCells(grid);
 			if (metadata.name.equals(name)) {
 				workarea.setWorkCells(cellsInWorkarea);
+				if (metadata.partitionIndex >= 0) {
+					internalVehiclePrefix = getPartitionPrefix(metadata.partitionIndex);
+				}
 				break;
 			}
 		}
 	}
 
+	/**
+	 * Gets the prefix of vehicle IDs for the work area of the given partition
+	 * index. The separator keeps IDs of different partitions apart.
+	 */
+	static String getPartitionPrefix(final int partitionIndex) {
+		return "P" + partitionIndex + "_";
+	}
+
 	public void clearReportedData() {
 		newVehiclesSinceLastReport.clear();
 		finishedVehicles.clear();
@@ -156,7 +200,7 @@ public class TrafficNetwork extends RoadNetwork {
 		// External or internal?
 		vehicle.isExternal = isExternal;
 		// Length of vehicle
-		vehicle.length = type.length;
+		vehicle.setLength(type.length);
 		vehicle.setStart(start);
 		vehicle.setEnd(end);
 		// Legs of route
@@ -167,27 +211,14 @@ public class TrafficNetwork extends RoadNetwork {
 		vehicle.active = true;
 		// Add vehicle to system
 
-		if (Math.random() <= settings.cavPercentage)
-			vehicle.setCAV(true);
-		else {
-			vehicle.setConnectedV(true);
-			vehicle.setCAV(false);
-		}
-
 		vehicle.setHeadWayMultiplier(settings.safetyHeadwayMultiplier);
 		if (!vehicle.isExternal) {
-			// Update vehicle counters				
+			// Update vehicle counter
 			numInternalVehicleAllTime++;
-			if (type == VehicleType.TRAM) {
-				numInternalTram++;
-			} else if (type == VehicleType.BUS) {
-				numInternalBus++;
-			} else {
-				numInternalNonPublicVehicle++;
-			}
 			// Assign vehicle ID
 			vehicle.id = idPrefix + Long.toString(numInternalVehicleAllTime);
 			vehicle.vid = numInternalVehicleAllTime;
+			setCAV(vehicle);
 			// Add vehicle to system
 			vehicles.add(vehicle);
 			tripMakingVehicles.add(vehicle);
@@ -196,6 +227,7 @@ public class TrafficNetwork extends RoadNetwork {
 			// Add external vehicle to system
 			vehicle.id = externalId;
 			vehicle.vid = vid;
+			setCAV(vehicle);
 			vehicles.add(vehicle);
 			tripMakingVehicles.add(vehicle);
 			//vehicle.park(true, timeRouteStart);
@@ -210,15 +242,6 @@ public class TrafficNetwork extends RoadNetwork {
 		vehicle.active = true;
 		vehicles.add(vehicle);
 		vehicle.lane.addVehicleToLane(vehicle);
-		if (!vehicle.isExternal) {
-			if (vehicle.type == VehicleType.TRAM) {
-				numInternalTram++;
-			} else if (vehicle.type == VehicleType.BUS) {
-				numInternalBus++;
-			} else {
-				numInternalNonPublicVehicle++;
-			}
-		}
 		if (vehicle.getCurrentLeg().stopover > 0) {
 			vehicle.park(false, timeNow);
 		}
@@ -272,11 +295,33 @@ public class TrafficNetwork extends RoadNetwork {
 		identifyInternalVehicleRouteStartEndEdges();
 		identifyReferencesOfAllPublicTransportTypesInSourceDestinationWindow();
 		computeAccumulatedDriverProfileDistribution();
+		identifyMesoscopicEdges();
 
-		routingAlgorithm = routingAlgoFactory.getRoutingAlgo(settings.routingAlgorithm, this);
+		routingService = new RoutingService(this);
 
 	}
 
+	/**
+	 * Gets the routing algorithm in settings for the calling thread.
+	 */
+	public Routing getRoutingAlgorithm() {
+		return routingService.get(settings.routingAlgorithm);
+	}
+
+	/**
+	 * In hybrid mode, edges outside the microscopic windows use the
+	 * mesoscopic model. Tram edges always use the microscopic model.
+	 */
+	void identifyMesoscopicEdges() {
+		for (final Edge edge : edges) {
+			edge.isMesoscopic = settings.isHybridMesoscopic && (edge.type != RoadType.tram)
+					&& !isNodeInsideRectangle(edge.startNode, settings.listMicroscopicWindows)
+					&& !isNodeInsideRectangle(edge.endNode, settings.listMicroscopicWindows);
+			edge.mesoOutflowCredit = edge.getLaneCount();
+			edge.timeMesoOutflowCreditUpdated = 0;
+		}
+	}
+
 	void computeAccumulatedDriverProfileDistribution() {
 		driverProfilePercAccumulated = new ArrayList<>();
 		double total = 0;
@@ -304,13 +349,20 @@ public class TrafficNetwork extends RoadNetwork {
 						routeLegs.get(routeLegs.size()-1).edge.endNode, routeLegs , "",
 						vehicle.startTime, vehicle.id, vehicle.vid, DriverProfile.valueOf(vehicle.driverProfile));
 			} else {
-				// This is a simple way to get number of vehicles per step. The result number may be inaccurate.
-				final double numRepeatPerStep = vehicle.numberRepeatPerSecond / settings.numStepsPerSecond;
-				externalVehicleRepeatPerStep.put(vehicle, numRepeatPerStep);
+				addExternalVehicleRepeat(vehicle);
 			}
 		}
 	}
 
+	/**
+	 * Add an external route that creates vehicles repeatedly.
+	 */
+	public void addExternalVehicleRepeat(final SerializableExternalVehicle vehicle) {
+		// This is a simple way to get number of vehicles per step. The result number may be inaccurate.
+		final double numRepeatPerStep = vehicle.numberRepeatPerSecond / settings.numStepsPerSecond;
+		externalVehicleRepeatPerStep.put(vehicle, numRepeatPerStep);
+	}
+
 	/**
 	 * Create non-public vehicle.
 	 * 
@@ -352,13 +404,13 @@ public class TrafficNetwork extends RoadNetwork {
 	void createInternalPublicVehicles(int numLocalRandomTrams, int numLocalRandomBuses, boolean isNewTramsAllowed,
 			boolean isNewBusesAllowed, final double timeNow) {
 		if (isNewTramsAllowed) {
-			int numTramsNeeded = numLocalRandomTrams - numInternalTram;
+			int numTramsNeeded = numLocalRandomTrams - getNumInternalTram();
 			for (int i = 0; i < numTramsNeeded; i++) {
 				createOneInternalPublicVehicle(VehicleType.TRAM, timeNow);
 			}
 		}
 		if (isNewBusesAllowed) {
-			int numBusesNeeded = numLocalRandomBuses - numInternalBus;
+			int numBusesNeeded = numLocalRandomBuses - getNumInternalBus();
 			for (int i = 0; i < numBusesNeeded; i++) {
 				createOneInternalPublicVehicle(VehicleType.BUS, timeNow);
 			}
@@ -409,11 +461,11 @@ public class TrafficNetwork extends RoadNetwork {
 		}
 
 		ArrayList<RouteLeg> route = ReferenceBasedSearch.createRoute(transport, randomRef, startEdgesOfRandomRoute,
-				endEdgesOfRandomRoute);
+				endEdgesOfRandomRoute, random);
 		for (int numTry = 0; numTry < 10; numTry++) {
 			if (route == null) {
 				route = ReferenceBasedSearch.createRoute(transport, randomRef, startEdgesOfRandomRoute,
-						endEdgesOfRandomRoute);
+						endEdgesOfRandomRoute, random);
 			} else {
 				break;
 			}
@@ -431,7 +483,7 @@ public class TrafficNetwork extends RoadNetwork {
 	/*ArrayList<RouteLeg> createOneRandomInternalRoute(final VehicleType type) {
 
 
-		final ArrayList<RouteLeg> route = routingAlgorithm.createCompleteRoute(edges[0], edges[1], type);
+		final ArrayList<RouteLeg> route = getRoutingAlgorithm().createCompleteRoute(edges[0], edges[1], type);
 
 		if ((route == null) || (route.size() == 0)) {
 			return null;
@@ -444,7 +496,7 @@ public class TrafficNetwork extends RoadNetwork {
 		if(settings.inputOnlyODPairsOfForegroundVehicleFile){
 			SerializableRouteLeg legStart = serializedData.get(0);
 			SerializableRouteLeg legEnd = serializedData.get(serializedData.size()-1);
-			return routingAlgorithm.createCompleteRoute(edges.get(legStart.edgeIndex).startNode, edges.get(legEnd.edgeIndex).endNode, type);
+			return getRoutingAlgorithm().createCompleteRoute(edges.get(legStart.edgeIndex).startNode, edges.get(legEnd.edgeIndex).endNode, type);
 		}else {
 			final ArrayList<RouteLeg> route = new ArrayList<>(1000);
 			for (final SerializableRouteLeg sLeg : serializedData) {
@@ -455,8 +507,21 @@ public class TrafficNetwork extends RoadNetwork {
 		}
 	}
 
+	/**
+	 * Decides whether the vehicle is fully automated or only connected. This
+	 * is called after the vehicle gets its ID.
+	 */
+	void setCAV(final Vehicle vehicle) {
+		if (RandomStreams.forVehicle(settings.randomSeed, vehicle.id, Purpose.CAV, 0).nextDouble() <= settings.cavPercentage)
+			vehicle.setCAV(true);
+		else {
+			vehicle.setConnectedV(true);
+			vehicle.setCAV(false);
+		}
+	}
+
 	DriverProfile getRandomDriverProfile() {
-		final double r = random.nextDouble();
+		final double r = driverProfileRandom.nextDouble();
 		for (int i = 0; i < DriverProfile.values().length; i++) {
 			if (r < driverProfilePercAccumulated.get(i)) {
 				return DriverProfile.values()[i];
@@ -622,18 +687,6 @@ public class TrafficNetwork extends RoadNetwork {
 			 * Remove vehicle from the traffic network on this worker
 			 */
 			vehicles.remove(v);
-			/*
-			 * Update count of internally generated vehicles
-			 */
-			if (!v.isExternal) {
-				if (v.type == VehicleType.TRAM) {
-					numInternalTram--;
-				} else if (v.type == VehicleType.BUS) {
-					numInternalBus--;
-				} else {
-					numInternalNonPublicVehicle--;
-				}
-			}
 		}
 	}
 
@@ -666,6 +719,9 @@ public class TrafficNetwork extends RoadNetwork {
 		vehicles.clear();
 		externalVehicleRepeatPerStep.clear();
 		// Reset temp values for lanes
+		if (routingService != null) {
+			routingService.stopBackgroundSearches();
+		}
 		for (final Lane lane : lanes) {
 			lane.clearVehicles();
 			lane.isBlocked = false;
@@ -673,6 +729,10 @@ public class TrafficNetwork extends RoadNetwork {
 			lane.endPositionOfLatestVehicleLeftThisWorker = 1000000000;
 			lane.isPriority = false;
 		}
+		if (routingService != null) {
+			routingService.markAllEdgesChanged();
+		}
+		rerouteScheduler.clear();
 
 		// Clear parked vehicles from edges
 		for (final Edge edge : edges) {
@@ -680,11 +740,9 @@ public class TrafficNetwork extends RoadNetwork {
 		}
 
 		// Reset temporary values
-		numInternalNonPublicVehicle = 0;
-		numInternalTram = 0;
-		numInternalBus = 0;
 		numInternalVehicleAllTime = 0;
 		timeLastPublicVehicleCreated = 0;
+		resetRandomStreams();
 	}
 
 
@@ -715,15 +773,16 @@ public class TrafficNetwork extends RoadNetwork {
 	}
 
 	public void blockTramAtTramStop() {
-		for (int i = 0; i < vehicles.size(); i++) {
-			final Vehicle vehicle = vehicles.get(i);
+		if (vehicles.getNumVehicles(VehicleType.TRAM) == 0) {
+			return;
+		}
+		for (final Vehicle vehicle : vehicles) {
 			vehicle.blockAtTramStop();
 		}
 	}
 
 	public void changeLaneOfVehicles(final double timeNow) {
-		for (int i = 0; i < vehicles.size(); i++) {
-			final Vehicle vehicle = vehicles.get(i);
+		for (final Vehicle vehicle : vehicles) {
 			vehicle.changeLane(timeNow);
 		}
 	}
@@ -735,7 +794,8 @@ public class TrafficNetwork extends RoadNetwork {
 	 *
 	 */
 	public void releaseVehicleFromParking(final double timeNow,SimulationListener listener) {
-		for (Edge edge : edges) {
+		for (int i = activeEdges.parking.nextSetBit(0); i >= 0; i = activeEdges.parking.nextSetBit(i + 1)) {
+			final Edge edge = edges.get(i);
 			Vehicle next = edge.getVehicleToGetIntoTheLane();
 			if(next == null) {
 				next = edge.getNextParkedVehicle(timeNow);
@@ -743,29 +803,58 @@ public class TrafficNetwork extends RoadNetwork {
 			edge.setNextVehicleToGetIntoTheLane(next);
 			if(next != null && next.startFromParking()){
 				if(listener != null){
-					listener.onVehicleStartMoving(vehicles, (int) (timeNow*settings.numStepsPerSecond), this);
+					listener.onVehicleStartMoving(vehicles.asList(), (int) (timeNow*settings.numStepsPerSecond), this);
 				}
 			}
+			if (!edge.hasParkingVehicles()) {
+				activeEdges.parking.clear(i);
+			}
 		}
 	}
 
+	/**
+	 * Routes and parks the vehicles whose trips start now. Routes of all the
+	 * vehicles are found in batches, one for each routing algorithm, so the
+	 * vehicles starting from the same node share one search.
+	 */
 	public void releaseTripMakingVehicles(final double timeNow, SimulationListener listener) {
+		final ArrayList<Vehicle> released = new ArrayList<>();
+		final ArrayList<RouteRequest> requests = new ArrayList<>();
+		final ArrayList<RouteRequest> connectedRequests = new ArrayList<>();
 		Vehicle next = getNextTripMakingVehicle(timeNow);
 		while (next != null){
-
+			final RouteRequest request = new RouteRequest(next.getStart(), next.getEnd(), next.type);
+			request.random = next.getRoutingRandom(timeNow);
 			if (!(next.isCAV() || next.isConnectedV())){
-				next.setRouteLegs(routingAlgoFactory.getRoutingAlgo(Routing.Algorithm.DIJKSTRA, this).createCompleteRoute(next.getStart(), next.getEnd(), next.type));
+				requests.add(request);
+			}
+			else {
+				connectedRequests.add(request);
+			}
+			released.add(next);
+			next = getNextTripMakingVehicle(timeNow);
+		}
+		if (released.isEmpty()) {
+			return;
+		}
+		routingService.get(Routing.Algorithm.DIJKSTRA).createCompleteRoutes(requests);
+		getRoutingAlgorithm().createCompleteRoutes(connectedRequests);
+
+		int i = 0;
+		int j = 0;
+		for (final Vehicle vehicle : released) {
+			if (!(vehicle.isCAV() || vehicle.isConnectedV())){
+				vehicle.setRouteLegs(requests.get(i++).route);
 			}
 			else {
-				next.setRouteLegs(routingAlgorithm.createCompleteRoute(next.getStart(), next.getEnd(), next.type));
+				vehicle.setRouteLegs(connectedRequests.get(j++).route);
 			}
 			if(listener != null){
-				listener.onVehicleAdd(Arrays.asList(next),(int)(timeNow/settings.numStepsPerSecond), this);
+				listener.onVehicleAdd(Arrays.asList(vehicle),(int)(timeNow/settings.numStepsPerSecond), this);
 			}
-			newVehiclesSinceLastReport.add(next);
-			newVehiclesforDemandEstimation.add(next);
-			next.park(true, timeNow);
-			next = getNextTripMakingVehicle(timeNow);
+			newVehiclesSinceLastReport.add(vehicle);
+			newVehiclesforDemandEstimation.add(vehicle);
+			vehicle.park(true, timeNow);
 		}
 	}
 
@@ -777,6 +866,74 @@ public class TrafficNetwork extends RoadNetwork {
 		return null;
 	}
 
+	/**
+	 * Finds the first step after the given step in which this network has
+	 * work to do. Work is due in the next step if any vehicle is on road or
+	 * waiting to get into lane, or if any lane is changing direction.
+	 * Otherwise, the step is the earliest of the steps when a vehicle starts
+	 * its trip, a parked vehicle can leave parking, a traffic light changes
+	 * its color, vehicles are generated or external vehicles are repeated.
+	 *
+	 * @param lastStep
+	 *            The returned step is not larger than this step.
+	 */
+	public int getNextEventStep(final int step, final int lastStep) {
+		if (!activeEdges.moving.isEmpty() || !activeEdges.lanesChangingDirection.isEmpty()) {
+			return step + 1;
+		}
+		int nextStep = lastStep;
+		final Vehicle nextTripMakingVehicle = tripMakingVehicles.peek();
+		if (nextTripMakingVehicle != null) {
+			nextStep = Math.min(nextStep, getFirstStepAtOrAfter(nextTripMakingVehicle.timeRouteStart));
+		}
+		for (int i = activeEdges.parking.nextSetBit(0); i >= 0; i = activeEdges.parking.nextSetBit(i + 1)) {
+			final Edge edge = edges.get(i);
+			if (edge.getVehicleToGetIntoTheLane() != null) {
+				return step + 1;
+			}
+			nextStep = Math.min(nextStep, getFirstStepAtOrAfter(edge.getEarliestTimeToLeaveParking()));
+		}
+		if (settings.trafficLightTiming != TrafficLightTiming.NONE) {
+			for (final TrafficLightCluster cluster : lightCoordinator.lightClusters) {
+				final LightPeriod period = cluster.getLightSchedule().getCurrentPeriod();
+				if (period != null) {
+					nextStep = Math.min(nextStep, getFirstStepAtOrAfter(period.getEnd()));
+				}
+			}
+		}
+		for (final double numRepeatPerStep : externalVehicleRepeatPerStep.values()) {
+			if (numRepeatPerStep >= 1.0) {
+				return step + 1;
+			}
+			final int numStepsPerRepeat = (int) (1.0 / numRepeatPerStep);
+			nextStep = Math.min(nextStep, ((step / numStepsPerRepeat) + 1) * numStepsPerRepeat);
+		}
+		if ((internalNonPublicVehicleStartEdges.size() > 0) && (internalNonPublicVehicleEndEdges.size() > 0)) {
+			// Same check as the one for creating internal vehicles
+			for (int s = step + 1; s < nextStep; s++) {
+				if (((s / settings.numStepsPerSecond) % settings.demandGenerationTimeInterval) == 0) {
+					nextStep = s;
+					break;
+				}
+			}
+		}
+		return Math.max(step + 1, nextStep);
+	}
+
+	/**
+	 * Gets the first step whose time is not earlier than the given time.
+	 */
+	int getFirstStepAtOrAfter(final double time) {
+		if ((time * settings.numStepsPerSecond) >= Integer.MAX_VALUE) {
+			return Integer.MAX_VALUE;
+		}
+		int step = (int) Math.ceil(time * settings.numStepsPerSecond) - 1;
+		while ((step / settings.numStepsPerSecond) < time) {
+			step++;
+		}
+		return step;
+	}
+
 	public void updateTrafficLights(double timeNow){
 		if (settings.trafficLightTiming != TrafficLightTiming.NONE) {
 			lightCoordinator.scheduleLights(timeNow);
@@ -788,6 +945,18 @@ public class TrafficNetwork extends RoadNetwork {
 		return vehicles.size();
 	}
 
+	public int getNumInternalTram(){
+		return vehicles.getNumInternalVehicles(VehicleType.TRAM);
+	}
+
+	public int getNumInternalBus(){
+		return vehicles.getNumInternalVehicles(VehicleType.BUS);
+	}
+
+	public int getNumInternalNonPublicVehicle(){
+		return vehicles.getNumInternalVehicles() - getNumInternalTram() - getNumInternalBus();
+	}
+
 	public void finishRemoveCheck(final double timeNow){
 		for (Vehicle vehicle : vehicles) {
 			if(!vehicle.isFinished()){
@@ -931,13 +1100,16 @@ public class TrafficNetwork extends RoadNetwork {
 			for (Edge edge : edges) {
 				edge.updateTrafficStatistics();
 			}
+			routingService.updateTravelTimes();
 		}
 	}
 
 
 	public void updateVehicleNumbers(int step){
 		if (step%settings.mvgVehicleCount == 0) {
-			for (Edge edge : edges) {
+			final BitSet edgesToUpdate = activeEdges.statistics;
+			for (int i = edgesToUpdate.nextSetBit(0); i >= 0; i = edgesToUpdate.nextSetBit(i + 1)) {
+				final Edge edge = edges.get(i);
 				int numVehicles = 0;
 				int numVehiclesRight = 0;
 				int numVehiclesStraight = 0;
@@ -962,6 +1134,10 @@ public class TrafficNetwork extends RoadNetwork {
 
 				}
 				edge.updateVehicleNumbers(numVehicles, numVehiclesStraight, numVehiclesRight, numVehiclesLeft);
+				// Numbers stay at zero until a vehicle gets into the edge again
+				if (edge.isVehicleNumbersZero() && !edge.hasVehiclesInLanes()) {
+					edgesToUpdate.clear(i);
+				}
 			}
 		}
 	}
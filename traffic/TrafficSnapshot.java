@@ -0,0 +1,349 @@
+package traffic;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import traffic.light.LightColor;
+import traffic.light.LightCoordinator;
+import traffic.light.LightPeriod;
+import traffic.light.Phase;
+import traffic.light.TrafficLightCluster;
+import traffic.light.manager.TLManager;
+import traffic.light.schedule.TrafficLightSchedule;
+import traffic.road.Edge;
+import traffic.road.GridCell;
+import traffic.road.Lane;
+import traffic.road.Node;
+import traffic.vehicle.Vehicle;
+
+/**
+ * Binary snapshot of the traffic in a running simulation. A snapshot is a
+ * folder with one file per worker. The file of a worker contains its vehicles,
+ * the state of the edges and lanes in its work area, the light schedules of
+ * the light clusters in its work area and the step at which the snapshot is
+ * taken.
+ * <p>
+ * When restoring, a worker reads the files of all workers and keeps the
+ * vehicles, edges and lanes in its own work area, so the number of workers and the partition
+ * of the network can be different from the run that wrote the snapshot.
+ * Random streams restart from the seed of the new run, so the continued run is
+ * not identical to a run without interruption.
+ */
+public class TrafficSnapshot {
+	static final int magic = 0x534D5254;
+	static final int version = 2;
+	public static final String fileExtension = ".snp";
+
+	/**
+	 * Vehicle is in the vehicle collection of the network.
+	 */
+	static final int vehicleInNetwork = 0;
+	/**
+	 * Vehicle is waiting to start its trip.
+	 */
+	static final int vehicleTripMaking = 1;
+	/**
+	 * Vehicle has left the work area and is waiting to be sent to a fellow
+	 * worker.
+	 */
+	static final int vehicleToTransfer = 2;
+
+	private TrafficSnapshot() {
+	}
+
+	public static File getFile(final File folder, final String workerName) {
+		return new File(folder, workerName + fileExtension);
+	}
+
+	/**
+	 * Writes the traffic of a worker to a file.
+	 *
+	 * @param vehiclesToTransfer
+	 *            Vehicles that have left the work area but have not been sent
+	 *            to fellow workers.
+	 */
+	public static void write(final TrafficNetwork network, final int step,
+			final Collection<Vehicle> vehiclesToTransfer, final File file) throws IOException {
+		final double timeNow = step / network.getSettings().numStepsPerSecond;
+		final Set<GridCell> cells = new HashSet<>(network.workarea.workCells);
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file))))) {
+			out.writeInt(magic);
+			out.writeInt(version);
+			out.writeInt(step);
+			out.writeUTF(network.workarea.workerName);
+			out.writeInt(network.nodes.size());
+			out.writeInt(network.edges.size());
+			out.writeInt(network.lanes.size());
+			out.writeInt(network.lightCoordinator.lightClusters.size());
+			out.writeInt(network.numInternalVehicleAllTime);
+
+			// Vehicles
+			final Set<Vehicle> tripMakingVehicles = new HashSet<>(network.tripMakingVehicles);
+			final List<Vehicle> vehicles = new ArrayList<>(network.vehicles.asList());
+			final int numVehiclesInNetwork = vehicles.size();
+			for (final Vehicle vehicle : vehiclesToTransfer) {
+				if (!network.vehicles.contains(vehicle)) {
+					vehicles.add(vehicle);
+				}
+			}
+			final Map<Vehicle, Integer> vehicleIndices = new HashMap<>();
+			out.writeInt(vehicles.size());
+			for (int i = 0; i < vehicles.size(); i++) {
+				final Vehicle vehicle = vehicles.get(i);
+				vehicleIndices.put(vehicle, i);
+				final int kind;
+				if (i >= numVehiclesInNetwork) {
+					kind = vehicleToTransfer;
+				} else if (tripMakingVehicles.contains(vehicle)) {
+					kind = vehicleTripMaking;
+				} else {
+					kind = vehicleInNetwork;
+				}
+				out.writeByte(kind);
+				out.writeInt(getNodeInChargeOfVehicle(vehicle, kind).index);
+				vehicle.writeState(out);
+			}
+
+			// Edges and lanes. The state of an edge is preceded by its length, so
+			// a worker can skip the edges that are not in its work area.
+			final List<Edge> edges = new ArrayList<>();
+			for (final Edge edge : network.edges) {
+				if (cells.contains(edge.endNode.gridCell)) {
+					edges.add(edge);
+				}
+			}
+			final ByteArrayOutputStream edgeBytes = new ByteArrayOutputStream();
+			final DataOutputStream edgeOut = new DataOutputStream(edgeBytes);
+			out.writeInt(edges.size());
+			for (final Edge edge : edges) {
+				edgeBytes.reset();
+				edge.writeState(edgeOut, vehicleIndices);
+				edgeOut.writeInt(edge.getLaneCount());
+				for (final Lane lane : edge.getLanes()) {
+					edgeOut.writeInt(lane.index);
+					edgeOut.writeBoolean(lane.isBlocked);
+					edgeOut.writeBoolean(lane.isPriority);
+					edgeOut.writeDouble(lane.speedOfLatestVehicleLeftThisWorker);
+					edgeOut.writeDouble(lane.endPositionOfLatestVehicleLeftThisWorker);
+					edgeOut.writeInt(lane.getVehicleCount());
+					for (final Vehicle vehicle : lane.getVehicles()) {
+						edgeOut.writeInt(vehicleIndices.getOrDefault(vehicle, -1));
+					}
+				}
+				edgeOut.flush();
+				out.writeInt(edge.index);
+				out.writeInt(edgeBytes.size());
+				edgeBytes.writeTo(out);
+			}
+
+			// Light schedules
+			final LightCoordinator lightCoordinator = network.lightCoordinator;
+			final TLManager tlManager = lightCoordinator.getTlManager();
+			final List<Integer> clusterIndices = new ArrayList<>();
+			if (tlManager != null) {
+				for (int i = 0; i < lightCoordinator.lightClusters.size(); i++) {
+					if (cells.contains(getNodeInChargeOfCluster(lightCoordinator.lightClusters.get(i)).gridCell)) {
+						clusterIndices.add(i);
+					}
+				}
+			}
+			out.writeInt(clusterIndices.size());
+			for (final int i : clusterIndices) {
+				final TrafficLightCluster cluster = lightCoordinator.lightClusters.get(i);
+				final List<Phase> phases = tlManager.getPhaseHandler().getPhaseList(cluster, timeNow);
+				final List<LightPeriod> periods = new ArrayList<>();
+				for (final LightPeriod period : cluster.getLightSchedule().getSchedule()) {
+					if (phases.contains(period.getPhase())) {
+						periods.add(period);
+					}
+				}
+				out.writeInt(i);
+				out.writeInt(periods.size());
+				for (final LightPeriod period : periods) {
+					out.writeInt(phases.indexOf(period.getPhase()));
+					out.writeInt(period.getColor().ordinal());
+					out.writeDouble(period.getStart());
+					out.writeDouble(period.getEnd());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads the step at which the snapshot in the given folder was taken.
+	 */
+	public static int readStep(final File folder) throws IOException {
+		try (DataInputStream in = open(getFiles(folder)[0])) {
+			return readHeader(in);
+		}
+	}
+
+	/**
+	 * Restores the traffic in the work area of the network from the snapshot
+	 * in the given folder. Existing traffic should be cleared before this.
+	 *
+	 * @return The step at which the snapshot was taken.
+	 */
+	public static int restore(final TrafficNetwork network, final File folder) throws IOException {
+		final Set<GridCell> cells = new HashSet<>(network.workarea.workCells);
+		int step = 0;
+		for (final File file : getFiles(folder)) {
+			try (DataInputStream in = open(file)) {
+				step = readHeader(in);
+				final double timeNow = step / network.getSettings().numStepsPerSecond;
+				if (in.readInt() != network.nodes.size() || in.readInt() != network.edges.size()
+						|| in.readInt() != network.lanes.size()
+						|| in.readInt() != network.lightCoordinator.lightClusters.size()) {
+					throw new IOException("Snapshot does not match road network: " + file);
+				}
+				// Vehicle IDs have the prefix of the partition, so continuing
+				// from the largest count of all workers avoids reusing an ID.
+				network.numInternalVehicleAllTime = Math.max(network.numInternalVehicleAllTime, in.readInt());
+
+				// Vehicles. A vehicle outside the work area is read but not kept.
+				final int numVehicles = in.readInt();
+				final List<Vehicle> vehicleTable = new ArrayList<>(numVehicles);
+				final List<Vehicle> vehiclesToTransfer = new ArrayList<>();
+				for (int i = 0; i < numVehicles; i++) {
+					final int kind = in.readByte();
+					final Node node = network.nodes.get(in.readInt());
+					final Vehicle vehicle = new Vehicle(network.getSettings());
+					vehicle.readState(in, network);
+					if (!cells.contains(node.gridCell)) {
+						vehicleTable.add(null);
+						continue;
+					}
+					vehicleTable.add(vehicle);
+					if (kind == vehicleToTransfer) {
+						vehiclesToTransfer.add(vehicle);
+					} else {
+						network.vehicles.add(vehicle);
+						if (kind == vehicleTripMaking) {
+							network.tripMakingVehicles.add(vehicle);
+						}
+					}
+				}
+
+				// Edges and lanes. An edge outside the work area is skipped.
+				final int numEdges = in.readInt();
+				for (int i = 0; i < numEdges; i++) {
+					final Edge edge = network.edges.get(in.readInt());
+					final int numBytes = in.readInt();
+					if (!cells.contains(edge.endNode.gridCell)) {
+						in.readFully(new byte[numBytes]);
+						continue;
+					}
+					edge.readState(in, vehicleTable);
+					final int numLanes = in.readInt();
+					for (int j = 0; j < numLanes; j++) {
+						final Lane lane = network.lanes.get(in.readInt());
+						lane.isBlocked = in.readBoolean();
+						lane.isPriority = in.readBoolean();
+						lane.speedOfLatestVehicleLeftThisWorker = in.readDouble();
+						lane.endPositionOfLatestVehicleLeftThisWorker = in.readDouble();
+						lane.clearVehicles();
+						final int numVehiclesInLane = in.readInt();
+						for (int k = 0; k < numVehiclesInLane; k++) {
+							final int index = in.readInt();
+							final Vehicle vehicle = index < 0 ? null : vehicleTable.get(index);
+							if (vehicle != null) {
+								// Vehicles are added from front to back, so the order is kept
+								lane.addVehicleToLane(vehicle);
+							}
+						}
+					}
+				}
+				for (final Vehicle vehicle : vehiclesToTransfer) {
+					network.addOneTransferredVehicle(vehicle, timeNow);
+				}
+
+				// Light schedules
+				final LightCoordinator lightCoordinator = network.lightCoordinator;
+				final TLManager tlManager = lightCoordinator.getTlManager();
+				final int numClusters = in.readInt();
+				for (int i = 0; i < numClusters; i++) {
+					final TrafficLightCluster cluster = lightCoordinator.lightClusters.get(in.readInt());
+					final List<Phase> phases = tlManager == null ? null
+							: tlManager.getPhaseHandler().getPhaseList(cluster, timeNow);
+					final LinkedList<LightPeriod> periods = new LinkedList<>();
+					final int numPeriods = in.readInt();
+					for (int j = 0; j < numPeriods; j++) {
+						final int phase = in.readInt();
+						final LightColor color = LightColor.values()[in.readInt()];
+						final double start = in.readDouble();
+						final double end = in.readDouble();
+						if (phases != null && phase < phases.size()) {
+							periods.add(new LightPeriod(phases.get(phase), color, start, end));
+						}
+					}
+					if (!periods.isEmpty()) {
+						cluster.setLightSchedule(new TrafficLightSchedule(periods));
+						cluster.updateLights(timeNow);
+					}
+				}
+			}
+		}
+		network.activeEdges.rebuild(network.edges, network.lanes);
+		network.routingService.markAllEdgesChanged();
+		network.routingService.updateTravelTimes();
+		return step;
+	}
+
+	/**
+	 * Gets the node whose grid cell decides which worker is in charge of the
+	 * vehicle. This is the end node of the edge where the vehicle is, or the
+	 * start node of the trip if the vehicle has not started its trip.
+	 */
+	static Node getNodeInChargeOfVehicle(final Vehicle vehicle, final int kind) {
+		if (kind == vehicleTripMaking) {
+			return vehicle.getStart();
+		} else if (vehicle.lane != null) {
+			return vehicle.lane.edge.endNode;
+		} else {
+			return vehicle.getCurrentLeg().edge.endNode;
+		}
+	}
+
+	static Node getNodeInChargeOfCluster(final TrafficLightCluster cluster) {
+		return cluster.getMovements().get(0).getControlEdge().endNode;
+	}
+
+	static File[] getFiles(final File folder) throws IOException {
+		final File[] files = folder.listFiles((dir, name) -> name.endsWith(fileExtension));
+		if (files == null || files.length == 0) {
+			throw new IOException("No snapshot is found in " + folder);
+		}
+		Arrays.sort(files);
+		return files;
+	}
+
+	static DataInputStream open(final File file) throws IOException {
+		return new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))));
+	}
+
+	/**
+	 * Reads the header and returns the step of snapshot.
+	 */
+	static int readHeader(final DataInputStream in) throws IOException {
+		if (in.readInt() != magic) {
+			throw new IOException("Not a snapshot file");
+		}
+		if (in.readInt() != version) {
+			throw new IOException("Unsupported snapshot version");
+		}
+		final int step = in.readInt();
+		in.readUTF();
+		return step;
+	}
+}
@@ -40,6 +40,10 @@ public abstract class ODDistributor {
         return random;
     }
 
+    public void setRandom(Random random) {
+        this.random = random;
+    }
+
     public abstract Node[] getStartAndEndEdge(TrafficNetwork trafficNetwork, List<Edge> possibleStartEdges, List<Edge> possibleEndEdges, int timeNow);
 
 
@@ -35,6 +35,10 @@ public abstract class TemporalDistributor {
         return random;
     }
 
+    public void setRandom(Random random) {
+        this.random = random;
+    }
+
     public TemporalDistributor() {
     }
 
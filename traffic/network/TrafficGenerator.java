@@ -1,5 +1,7 @@
 package traffic.network;
 
+import common.RandomStreams;
+import common.RandomStreams.Purpose;
 import common.Settings;
 import traffic.TrafficNetwork;
 import traffic.road.Edge;
@@ -53,5 +55,14 @@ public abstract class TrafficGenerator {
         vehicleTypeDistributor.getSettings(settings);
     }
 
+    /**
+     * Restarts the random streams of distributors for the given worker key.
+     */
+    public void setRandom(long runSeed, String workerKey){
+        if (odDistributor != null) odDistributor.setRandom(RandomStreams.forWorker(runSeed, workerKey, Purpose.OD));
+        if (temporalDistributor != null) temporalDistributor.setRandom(RandomStreams.forWorker(runSeed, workerKey, Purpose.TEMPORAL));
+        if (vehicleTypeDistributor != null) vehicleTypeDistributor.setRandom(RandomStreams.forWorker(runSeed, workerKey, Purpose.VEHICLE_TYPE));
+    }
+
     public abstract ArrayList<ODDemand> getGeneratedTraffic(TrafficNetwork trafficNetwork, List<Edge> possibleStartEdges, List<Edge> possibleEndEdges, int timeStep) throws IOException;
 }
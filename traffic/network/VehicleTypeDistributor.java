@@ -37,6 +37,10 @@ public abstract class VehicleTypeDistributor {
         return random;
     }
 
+    public void setRandom(Random random) {
+        this.random = random;
+    }
+
     public abstract VehicleType getVehicleType();
 
     public abstract void getSettings(Settings settings);
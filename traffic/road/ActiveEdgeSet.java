@@ -0,0 +1,101 @@
+package traffic.road;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Keeps track of the edges and lanes that need per-step work, so that empty
+ * roads can be skipped. Sets are indexed by {@link Edge#index} or
+ * {@link Lane#index} and are iterated in index order, which is the same order
+ * as the full lists of the network.
+ */
+public class ActiveEdgeSet {
+	/**
+	 * Edges that have vehicles on lanes or whose current speed has not settled
+	 * at free-flow speed after becoming empty.
+	 */
+	public final BitSet moving = new BitSet();
+	/**
+	 * Edges that have parked vehicles or a vehicle waiting to get into lane.
+	 */
+	public final BitSet parking = new BitSet();
+	/**
+	 * Edges whose vehicle number statistics are not zero or have had vehicles
+	 * since the last statistics update.
+	 */
+	public final BitSet statistics = new BitSet();
+	/**
+	 * Lanes that are waiting to change direction.
+	 */
+	public final BitSet lanesChangingDirection = new BitSet();
+
+	public ActiveEdgeSet(final List<Edge> edges, final List<Lane> lanes) {
+		for (final Edge edge : edges) {
+			edge.activeEdges = this;
+		}
+		// Moving average of speed needs to settle on all edges at the start
+		moving.set(0, edges.size());
+		for (final Lane lane : lanes) {
+			if (lane.isDirectionChanging) {
+				lanesChangingDirection.set(lane.index);
+			}
+		}
+	}
+
+	/**
+	 * Finds all the sets again from the state of edges and lanes, e.g., after
+	 * traffic is restored from a snapshot.
+	 */
+	public void rebuild(final List<Edge> edges, final List<Lane> lanes) {
+		moving.clear();
+		parking.clear();
+		statistics.clear();
+		lanesChangingDirection.clear();
+		moving.set(0, edges.size());
+		for (final Edge edge : edges) {
+			if (edge.hasParkingVehicles()) {
+				parking.set(edge.index);
+			}
+			if (!edge.isVehicleNumbersZero() || edge.hasVehiclesInLanes()) {
+				statistics.set(edge.index);
+			}
+		}
+		for (final Lane lane : lanes) {
+			if (lane.isDirectionChanging) {
+				lanesChangingDirection.set(lane.index);
+			}
+		}
+	}
+
+	/**
+	 * Called when a vehicle gets into a lane of the edge.
+	 */
+	public void markOccupied(final Edge edge) {
+		moving.set(edge.index);
+		statistics.set(edge.index);
+	}
+
+	public void markMoving(final Edge edge) {
+		moving.set(edge.index);
+	}
+
+	public void markParking(final Edge edge) {
+		parking.set(edge.index);
+	}
+
+	public void markLaneChangingDirection(final Lane lane) {
+		lanesChangingDirection.set(lane.index);
+	}
+
+	/**
+	 * Removes edge from the moving set if it is empty and moving further
+	 * does not change its speed.
+	 */
+	public void settleMoving(final Edge edge) {
+		if (edge.currentSpeed == edge.freeFlowSpeed
+				&& (0.01 * edge.mvgCurrentSpeed + 0.99 * edge.currentSpeed) == edge.mvgCurrentSpeed
+				&& !edge.hasVehiclesInLanes()) {
+			moving.clear(edge.index);
+		}
+	}
+}
@@ -2,6 +2,9 @@ package traffic.road;
 
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.*;
 
 import common.Settings;
@@ -146,6 +149,22 @@ public class Edge {
 	private LinkedHashMap<Edge, Integer> edgeLaneMap;
 
 	public int projectVehicles = 0;
+	/**
+	 * Active edge set of the traffic network that uses this edge. This is null
+	 * if the edge is not used in simulation.
+	 */
+	public ActiveEdgeSet activeEdges = null;
+	/**
+	 * Whether vehicles on this edge follow the mesoscopic queue model instead
+	 * of car-following and lane-changing models.
+	 */
+	public boolean isMesoscopic = false;
+	/**
+	 * Number of vehicles that can leave this edge under the mesoscopic model.
+	 * This grows with the outflow capacity of the edge.
+	 */
+	public double mesoOutflowCredit = 0;
+	public double timeMesoOutflowCreditUpdated = 0;
 
 	public double getInflow() {
 		/*computeRoadCapacity();
@@ -242,6 +261,18 @@ public class Edge {
 
 	public void changeFreeFlowSpeed(int speedChange){ // calculated in 10ms
 		freeFlowSpeed = Math.min(maxFreeFlowSpeed, minFreeFlowSpeed + speedChange*2.78);
+		if (activeEdges != null) {
+			activeEdges.markMoving(this);
+		}
+	}
+
+	public boolean hasVehiclesInLanes(){
+		for (Lane lane : lanes) {
+			if (lane.getVehicleCount() > 0) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 	public boolean allBlocked(){
@@ -262,6 +293,10 @@ public class Edge {
 		this.numVehiclesLeft = alpha*this.numVehiclesLeft + (1-alpha)*numVehiclesLeft;
 	}
 
+	public boolean isVehicleNumbersZero(){
+		return numVehicles == 0 && numVehiclesRight == 0 && numVehiclesStraight == 0 && numVehiclesLeft == 0;
+	}
+
 	public int getLaneCount(){
 		return lanes.size();
 	}
@@ -446,6 +481,16 @@ public class Edge {
 
 	public void addParkedVehicle(Vehicle v){
 		parkedVehicles.add(v);
+		if (activeEdges != null) {
+			activeEdges.markParking(this);
+		}
+	}
+
+	/**
+	 * Whether there is a vehicle to be released from parking on this edge.
+	 */
+	public boolean hasParkingVehicles(){
+		return !parkedVehicles.isEmpty() || vehicleToGetIntoTheLane != null;
 	}
 
 	public void clearParkedVehicles(){
@@ -483,6 +528,18 @@ public class Edge {
 		return null;
 	}
 
+	/**
+	 * Gets the earliest time when a parked vehicle on this edge can leave
+	 * parking, or infinity if there is no parked vehicle.
+	 */
+	public double getEarliestTimeToLeaveParking(){
+		Vehicle v =  parkedVehicles.peek();
+		if(v == null){
+			return Double.POSITIVE_INFINITY;
+		}
+		return v.earliestTimeToLeaveParking;
+	}
+
     public Vehicle getVehicleToGetIntoTheLane() {
         return vehicleToGetIntoTheLane;
     }
@@ -512,7 +569,7 @@ public class Edge {
 	}
 
 	public double getStartIntersectionLaneChangeProhibitedPos(Vehicle vehicle){
-		return getStartIntersectionSize() + vehicle.length;
+		return getStartIntersectionSize() + vehicle.getLength();
 	}
 
 
@@ -526,7 +583,7 @@ public class Edge {
 		if (v == null)
 			return getLaneChangeWaitingPos();
 		else
-			return getLaneChangeWaitingPos() - v.driverProfile.IDM_s0 - v.length - v.driverProfile.IDM_s0 - 0.0001;
+			return getLaneChangeWaitingPos() - v.driverProfile.IDM_s0 - v.getLength() - v.driverProfile.IDM_s0 - 0.0001;
 	}
 
 	public double getBeforeTurnLaneChangePos(Vehicle vehicle, boolean isDriveOnLeft){
@@ -554,9 +611,9 @@ public class Edge {
 		Collections.sort(vehicles, new Comparator<Vehicle>() {
 			@Override
 			public int compare(Vehicle o1, Vehicle o2) {
-				if(o1.headPosition > o2.headPosition){
+				if(o1.getHeadPosition() > o2.getHeadPosition()){
 					return -1;
-				}else if(o1.headPosition < o2.headPosition){
+				}else if(o1.getHeadPosition() < o2.getHeadPosition()){
 					return 1;
 				}else {
 					return 0;
@@ -587,9 +644,9 @@ public class Edge {
 		for (Lane lane : lanes) {
 			for (Vehicle vehicle : lane.getVehicles()) {
 				Vehicle v = currentVehicleInBeforeTurnLaneChangePos;
-				if(vehicle != v && vehicle.headPosition < getLaneChangeGiveChancePos() && VehicleUtil.isNeedLaneChangeForTurn(lane.edge, vehicle,isDriveOnLeft)){
+				if(vehicle != v && vehicle.getHeadPosition() < getLaneChangeGiveChancePos() && VehicleUtil.isNeedLaneChangeForTurn(lane.edge, vehicle,isDriveOnLeft)){
 					chanceGivingVehicles.add(vehicle);
-				} else if(vehicle.headPosition < getLaneChangeGiveChancePos() - vehicle.speed * (vehicle.driverProfile.IDM_T*vehicle.getHeadWayMultiplier())) {
+				} else if(vehicle.getHeadPosition() < getLaneChangeGiveChancePos() - vehicle.getSpeed() * (vehicle.driverProfile.IDM_T*vehicle.getHeadWayMultiplier())) {
 					chanceGivingVehicles.add(vehicle);
 				}
 			}
@@ -607,7 +664,7 @@ public class Edge {
 	public boolean hasSpaceInEndOfAllLane(Lane lane, Vehicle vehicle){
 		int vehicleCount = 0;
 		for (Vehicle v : lane.getVehicles()) {
-			if (v.headPosition < lane.edge.getStartIntersectionSize()) {
+			if (v.getHeadPosition() < lane.edge.getStartIntersectionSize()) {
 				vehicleCount++;
 			}
 		}
@@ -631,7 +688,7 @@ public class Edge {
 		int vehicleCount = 0;
 		for (Lane lane : lanes) {
 			for (Vehicle v : lane.getVehicles()) {
-				if (v.headPosition < lane.edge.getStartIntersectionSize() && v.speed < 1) {
+				if (v.getHeadPosition() < lane.edge.getStartIntersectionSize() && v.getSpeed() < 1) {
 					vehicleCount++;
 				}
 			}
@@ -650,11 +707,11 @@ public class Edge {
 		Vehicle last = lane.getLastVehicleInLane();
 		double startPos = lane.edge.length - lane.edge.getEndIntersectionSize();
 		if(last != null){
-			startPos = last.headPosition - last.length + last.speed * minTimeSafeToCrossIntersection + Math.pow(last.acceleration, 2)*0.5;
+			startPos = last.getHeadPosition() - last.getLength() + last.getSpeed() * minTimeSafeToCrossIntersection + Math.pow(last.getAcceleration(), 2)*0.5;
 		}
 		double expectedFill = 0;
 		for (Vehicle v : lane.vehiclesStartedMovingTowards(vehicle)) {
-			expectedFill += v.length + v.driverProfile.IDM_s0;
+			expectedFill += v.getLength() + v.driverProfile.IDM_s0;
 		}
 		double freeSpace = startPos - expectedFill;// - lane.edge.getStartIntersectionSize();
 
@@ -663,7 +720,7 @@ public class Edge {
 			return hasSpaceInEndOfAllLane(lane, vehicle);
 		}
 
-		return freeSpace >= (vehicle.length + vehicle.driverProfile.IDM_s0);
+		return freeSpace >= (vehicle.getLength() + vehicle.driverProfile.IDM_s0);
 	}
 
 	public Point2D getEdgeStartMidlle(){
@@ -724,7 +781,7 @@ public class Edge {
 					lastVehicle = v;
 				}
 
-				if (lastVehicle.headPosition > v.headPosition){
+				if (lastVehicle.getHeadPosition() > v.getHeadPosition()){
 					lastVehicle = v;
 				}
 			}
@@ -736,10 +793,116 @@ public class Edge {
 		Vehicle v = getLastVehicleInEdge();
 
 		if (v != null){
-			if (v.headPosition < 1 && v.speed < 0.1){
+			if (v.getHeadPosition() < 1 && v.getSpeed() < 0.1){
 				return true;
 			}
 		}
 		return false;
 	}
+
+	/**
+	 * Writes the dynamic state of this edge to a snapshot of traffic, except
+	 * the vehicles on its lanes. Vehicles are written as their indices in the
+	 * given map, where '-1' means null or a vehicle not in the snapshot.
+	 */
+	public void writeState(final DataOutput out, final Map<Vehicle, Integer> vehicleIndices) throws IOException {
+		out.writeDouble(freeFlowSpeed);
+		out.writeDouble(currentSpeed);
+		out.writeDouble(mvgCurrentSpeed);
+		out.writeDouble(timeTramStopping);
+		out.writeDouble(timeNoTramStopping);
+		out.writeBoolean(isDetectedVehicleForLight);
+		out.writeDouble(inflow);
+		out.writeDouble(outflow);
+		out.writeDouble(inflow_unnorm);
+		out.writeDouble(outflow_unnorm);
+		out.writeInt(inflowPerStep);
+		out.writeInt(outflowPerStep);
+		out.writeInt(iterator);
+		out.writeDouble(numVehicles);
+		out.writeDouble(numVehiclesRight);
+		out.writeDouble(numVehiclesStraight);
+		out.writeDouble(numVehiclesLeft);
+		out.writeInt(projectVehicles);
+		out.writeDouble(mesoOutflowCredit);
+		out.writeDouble(timeMesoOutflowCreditUpdated);
+		// Heap order of the queue is kept by adding vehicles in iteration order
+		out.writeInt(parkedVehicles.size());
+		for (final Vehicle vehicle : parkedVehicles) {
+			out.writeInt(vehicleIndices.getOrDefault(vehicle, -1));
+		}
+		out.writeInt(vehicleIndices.getOrDefault(vehicleToGetIntoTheLane, -1));
+		out.writeInt(vehicleIndices.getOrDefault(currentVehicleInBeforeTurnLaneChangePos, -1));
+		out.writeInt(laneChangePositions.size());
+		for (final Map.Entry<Vehicle, Double> entry : laneChangePositions.entrySet()) {
+			out.writeInt(vehicleIndices.getOrDefault(entry.getKey(), -1));
+			out.writeDouble(entry.getValue());
+		}
+		out.writeInt(chanceGivingVehicles.size());
+		for (final Vehicle vehicle : chanceGivingVehicles) {
+			out.writeInt(vehicleIndices.getOrDefault(vehicle, -1));
+		}
+	}
+
+	/**
+	 * Reads the state written by {@link #writeState(DataOutput, Map)}.
+	 * Vehicles are looked up in the given table, where null means the vehicle
+	 * is not restored.
+	 */
+	public void readState(final DataInput in, final List<Vehicle> vehicleTable) throws IOException {
+		freeFlowSpeed = in.readDouble();
+		currentSpeed = in.readDouble();
+		mvgCurrentSpeed = in.readDouble();
+		timeTramStopping = in.readDouble();
+		timeNoTramStopping = in.readDouble();
+		isDetectedVehicleForLight = in.readBoolean();
+		inflow = in.readDouble();
+		outflow = in.readDouble();
+		inflow_unnorm = in.readDouble();
+		outflow_unnorm = in.readDouble();
+		inflowPerStep = in.readInt();
+		outflowPerStep = in.readInt();
+		iterator = in.readInt();
+		numVehicles = in.readDouble();
+		numVehiclesRight = in.readDouble();
+		numVehiclesStraight = in.readDouble();
+		numVehiclesLeft = in.readDouble();
+		projectVehicles = in.readInt();
+		mesoOutflowCredit = in.readDouble();
+		timeMesoOutflowCreditUpdated = in.readDouble();
+		parkedVehicles.clear();
+		int num = in.readInt();
+		for (int i = 0; i < num; i++) {
+			final Vehicle vehicle = getVehicleInTable(vehicleTable, in.readInt());
+			if (vehicle != null) {
+				addParkedVehicle(vehicle);
+			}
+		}
+		vehicleToGetIntoTheLane = getVehicleInTable(vehicleTable, in.readInt());
+		if (vehicleToGetIntoTheLane != null && activeEdges != null) {
+			activeEdges.markParking(this);
+		}
+		currentVehicleInBeforeTurnLaneChangePos = getVehicleInTable(vehicleTable, in.readInt());
+		laneChangePositions.clear();
+		num = in.readInt();
+		for (int i = 0; i < num; i++) {
+			final Vehicle vehicle = getVehicleInTable(vehicleTable, in.readInt());
+			final double pos = in.readDouble();
+			if (vehicle != null) {
+				laneChangePositions.put(vehicle, pos);
+			}
+		}
+		chanceGivingVehicles.clear();
+		num = in.readInt();
+		for (int i = 0; i < num; i++) {
+			final Vehicle vehicle = getVehicleInTable(vehicleTable, in.readInt());
+			if (vehicle != null) {
+				chanceGivingVehicles.add(vehicle);
+			}
+		}
+	}
+
+	Vehicle getVehicleInTable(final List<Vehicle> vehicleTable, final int i) {
+		return i < 0 ? null : vehicleTable.get(i);
+	}
 }
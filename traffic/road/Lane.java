@@ -3,7 +3,6 @@ package traffic.road;
 import java.awt.geom.Line2D;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 
 import traffic.vehicle.Vehicle;
@@ -27,9 +26,12 @@ public class Lane {
 	 */
 	public int index;
 	/**
-	 * Collection of the vehicles traveling on this lane.
+	 * Collection of the vehicles traveling on this lane. The vehicles are
+	 * ordered by head position, with the vehicle closest to the end of the
+	 * lane at the beginning.
 	 */
-	private ArrayList<Vehicle> vehicles = new ArrayList<>(50);
+	private final ArrayList<Vehicle> vehicles = new ArrayList<>(50);
+	private final List<Vehicle> unmodifiableVehicles = Collections.unmodifiableList(vehicles);
 	/**
 	 * Whether this lane is manually blocked by user.
 	 */
@@ -59,15 +61,19 @@ public class Lane {
 	 */
 	public boolean isDirectionChanging = false;
 
-	public VehiclePositionComparator vehiclePositionComparator = new VehiclePositionComparator();
-
 	public Lane(final Edge edge) {
 		this.edge = edge;
 	}
 
+	/**
+	 * Inserts vehicle based on its head position. A vehicle is placed behind
+	 * the existing vehicles at the same position.
+	 */
 	public void addVehicleToLane(Vehicle v){
-		vehicles.add(v);
-		Collections.sort(vehicles, vehiclePositionComparator);
+		vehicles.add(getIndexOfFirstVehicleBelowHeadPosition(v.getHeadPosition()), v);
+		if (edge.activeEdges != null) {
+			edge.activeEdges.markOccupied(edge);
+		}
 	}
 
 	public void clearVehicles(){
@@ -101,6 +107,17 @@ public class Lane {
 	}
 
 	public void removeVehicle(Vehicle vehicle){
+		// Look for the vehicle among the vehicles at the same position first
+		for (int i = getNumVehiclesAboveHeadPosition(vehicle.getHeadPosition()); i < vehicles.size(); i++) {
+			final Vehicle v = vehicles.get(i);
+			if (v == vehicle) {
+				vehicles.remove(i);
+				return;
+			}
+			if (v.getHeadPosition() != vehicle.getHeadPosition()) {
+				break;
+			}
+		}
 		vehicles.remove(vehicle);
 	}
 
@@ -114,7 +131,11 @@ public class Lane {
 	}
 
 	public List<Vehicle> getVehicles(){
-		return Collections.unmodifiableList(vehicles);
+		return unmodifiableVehicles;
+	}
+
+	public Vehicle getVehicle(int i){
+		return vehicles.get(i);
 	}
 
 	/**
@@ -123,14 +144,8 @@ public class Lane {
 	 *
 	 */
 	public Vehicle getClosestBackVehicleInLane(final Vehicle vehicle) {
-		Vehicle backVehicle = null;
-		for (int i = 0; i < vehicles.size(); i++) {
-			if (vehicles.get(i).headPosition < vehicle.headPosition) {
-				backVehicle = vehicles.get(i);
-				break;
-			}
-		}
-		return backVehicle;
+		final int i = getIndexOfFirstVehicleBelowHeadPosition(vehicle.getHeadPosition());
+		return i < vehicles.size() ? vehicles.get(i) : null;
 	}
 
 	/**
@@ -139,47 +154,61 @@ public class Lane {
 	 *
 	 */
 	public Vehicle getClosestFrontVehicleInLane(final Vehicle vehicle, final double gapToTargetLane) {
-		Vehicle frontVehicle = null;
-
-		for (int i = vehicles.size() - 1; i >= 0; i--) {
-			if ((vehicles.get(i).headPosition + gapToTargetLane) > vehicle.headPosition) {
-				frontVehicle = vehicles.get(i);
-				break;
+		// Number of vehicles at the beginning of the list that are ahead of the given vehicle
+		int low = 0;
+		int high = vehicles.size();
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if ((vehicles.get(mid).getHeadPosition() + gapToTargetLane) > vehicle.getHeadPosition()) {
+				low = mid + 1;
+			} else {
+				high = mid;
 			}
 		}
-		return frontVehicle;
+		return low > 0 ? vehicles.get(low - 1) : null;
 	}
 
-	public Line2D getLaneLine(){
-	    return new Line2D.Double(lonStart, latStart, lonEnd, latEnd);
-    }
-
-    public List<Vehicle> getVehiclesBelowHeadPosition(double headPos){
-		List<Vehicle> list = new ArrayList<>();
-		for (int i = vehicles.size() - 1; i >= 0; i--) {
-			Vehicle v = vehicles.get(i);
-			if(v.headPosition < headPos){
-				list.add(v);
-			}else{
-				break;
+	/**
+	 * Get the number of vehicles whose head position is greater than the given
+	 * position. These vehicles are at index 0 to the returned value (exclusive).
+	 */
+	public int getNumVehiclesAboveHeadPosition(double headPos){
+		int low = 0;
+		int high = vehicles.size();
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (vehicles.get(mid).getHeadPosition() > headPos) {
+				low = mid + 1;
+			} else {
+				high = mid;
 			}
 		}
-		return list;
+		return low;
 	}
 
-	public List<Vehicle> getVehiclesAboveHeadPosition(double headPos){
-		List<Vehicle> list = new ArrayList<>();
-		for (int i = 0; i < vehicles.size(); i++) {
-			Vehicle v = vehicles.get(i);
-			if(v.headPosition > headPos){
-				list.add(v);
-			}else{
-				break;
+	/**
+	 * Get the index of the first vehicle whose head position is less than the
+	 * given position. The vehicles from this index to the end of the lane all
+	 * have lower head position.
+	 */
+	public int getIndexOfFirstVehicleBelowHeadPosition(double headPos){
+		int low = 0;
+		int high = vehicles.size();
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (vehicles.get(mid).getHeadPosition() < headPos) {
+				high = mid;
+			} else {
+				low = mid + 1;
 			}
 		}
-		return list;
+		return low;
 	}
 
+	public Line2D getLaneLine(){
+	    return new Line2D.Double(lonStart, latStart, lonEnd, latEnd);
+    }
+
 	public List<Vehicle> vehiclesStartedMovingTowards(Vehicle v){
 		List<Vehicle> towardsVehicles = new ArrayList<>();
 		Node junc = edge.startNode;
@@ -187,10 +216,11 @@ public class Lane {
 			for (Lane lane : inwardEdge.getLanes()) {
 				double aboveHeadPos = inwardEdge.length - inwardEdge.getEndIntersectionSize();
 				if(v.lane == lane){
-					aboveHeadPos = v.headPosition;
+					aboveHeadPos = v.getHeadPosition();
 				}
-				List<Vehicle> vehiclesInsideIntersection = lane.getVehiclesAboveHeadPosition(aboveHeadPos);
-				for (Vehicle vehicle : vehiclesInsideIntersection) {
+				final int numVehiclesInsideIntersection = lane.getNumVehiclesAboveHeadPosition(aboveHeadPos);
+				for (int i = 0; i < numVehiclesInsideIntersection; i++) {
+					Vehicle vehicle = lane.getVehicle(i);
 					Vehicle.IntersectionDecision decision = vehicle.getDecision();
 					if (decision != null && decision.getEndLane() == this) {//decision can be null for ending vehicles
 						towardsVehicles.add(vehicle);
@@ -201,20 +231,6 @@ public class Lane {
 		return towardsVehicles;
 	}
 
-	/**
-	 * Comparator of vehicles based on their positions in a lane. The vehicle
-	 * closest to the end of the lane, will be the first element in the sorted
-	 * list.
-	 *
-	 */
-	public class VehiclePositionComparator implements Comparator<Vehicle> {
-
-		@Override
-		public int compare(final Vehicle v1, final Vehicle v2) {
-			return v1.headPosition > v2.headPosition ? -1 : v1.headPosition == v2.headPosition ? 0 : 1;
-		}
-	}
-
 	public void changeLaneCoordinates(){
 		double temp = latStart;
 		latStart = latEnd;
@@ -262,11 +278,21 @@ public class Lane {
 		edge.addLane(this);
 	}
 
+	/**
+	 * Marks this lane to change direction once it becomes empty.
+	 */
+	public void setDirectionChanging(){
+		isDirectionChanging = true;
+		if (edge.activeEdges != null) {
+			edge.activeEdges.markLaneChangingDirection(this);
+		}
+	}
+
 	public void markLaneToChangeDir(){
 		if ( isDirectionChanging == false){
 			Edge oppositeEdge = edge.getOppositeEdge();
 			if (oppositeEdge.getLastLane().isDirectionChanging == false)
-				isDirectionChanging = true;
+				setDirectionChanging();
 			else {
 				System.out.println("WARNING: attempts to change lane direction while opposite direction lane direction change already in operation."
 				+ " Road already in changing dir: " + edge.getOppositeEdge().index + " Request denied");
@@ -279,13 +305,6 @@ public class Lane {
 	 */
 
 	public int spaceLeftAtEnd(){
-		int vehicleCount = 0;
-		for(Vehicle v : vehicles){
-			if (v.headPosition < this.edge.getStartIntersectionSize()){
-				vehicleCount++;
-			}
-		}
-
-		return vehicleCount;
+		return vehicles.size() - getIndexOfFirstVehicleBelowHeadPosition(this.edge.getStartIntersectionSize());
 	}
 }
@@ -669,7 +669,7 @@ public class RoadNetwork {
 		for (Integer edgeIndex : edges) {
 			Edge edge =  this.edges.get(edgeIndex);
 			Lane lane = edge.getLane(edge.getLaneCount()-1);
-			lane.isDirectionChanging = true;
+			lane.setDirectionChanging();
 		}
 	}
 
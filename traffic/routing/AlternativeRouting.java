@@ -0,0 +1,208 @@
+package traffic.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import traffic.TrafficNetwork;
+import traffic.road.Node;
+import traffic.vehicle.VehicleType;
+
+/**
+ * Routing that chooses among alternative routes of an origin-destination
+ * pair. The alternatives are found with the penalty method: after a route is
+ * found, the travel time of its edges is multiplied by a penalty factor and
+ * the search is repeated, so the next route tends to avoid these edges.
+ * Routes that are much slower than the fastest one are discarded.
+ * <p>
+ * The alternatives of recent pairs are kept until routing costs change. For
+ * each request, a route is chosen by a logit model over the travel time of the
+ * alternatives. So vehicles with the same origin and destination spread over
+ * several routes, and most requests cost a lookup instead of a search.
+ */
+public class AlternativeRouting extends Dijkstra_LPF {
+	/**
+	 * Alternative routes of a pair and the cumulative probabilities of
+	 * choosing them.
+	 */
+	static class Alternatives {
+		/**
+		 * Number of cost changes of the graph when the routes are found.
+		 */
+		final long numCostChanges;
+		final ArrayList<ArrayList<RouteLeg>> routes = new ArrayList<>();
+		double[] cumulativeProbabilities;
+
+		Alternatives(final long numCostChanges) {
+			this.numCostChanges = numCostChanges;
+		}
+	}
+
+	/**
+	 * Factor applied to the travel time of each edge. Factors are only
+	 * different from one while the alternatives of a pair are searched.
+	 */
+	final double[] penalties;
+	/**
+	 * Alternatives of the latest pairs, in the order of use.
+	 */
+	final LinkedHashMap<Long, Alternatives> alternatives;
+
+	public AlternativeRouting(final TrafficNetwork trafficNetwork) {
+		this(trafficNetwork, new RoutingGraph(trafficNetwork));
+	}
+
+	public AlternativeRouting(final TrafficNetwork trafficNetwork, final RoutingGraph graph) {
+		super(trafficNetwork, graph);
+		penalties = new double[graph.lengths.length];
+		Arrays.fill(penalties, 1);
+		alternatives = new LinkedHashMap<Long, Alternatives>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Long, Alternatives> eldest) {
+				return size() > Math.max(1, settings.alternativeRouteCacheSize);
+			}
+		};
+	}
+
+	@Override
+	double getCost(final int edgeIndex) {
+		return travelTimes[edgeIndex] * penalties[edgeIndex];
+	}
+
+	@Override
+	public ArrayList<RouteLeg> createCompleteRoute(final Node start, final Node end, final VehicleType type) {
+		return createCompleteRoute(start, end, type, null);
+	}
+
+	/**
+	 * Chooses a route among the alternatives with the random numbers of the
+	 * request.
+	 */
+	@Override
+	public ArrayList<RouteLeg> createCompleteRoute(final Node start, final Node end, final VehicleType type,
+			final Random random) {
+		if (start == end) {
+			return null;
+		}
+		final long key = ((((long) start.index * graph.numNodes) + end.index) * VehicleType.values().length)
+				+ type.ordinal();
+		final long numCostChanges = graph.getNumCostChanges();
+		Alternatives found = alternatives.get(key);
+		if ((found == null) || (found.numCostChanges != numCostChanges)) {
+			found = findAlternatives(start, end, type, numCostChanges);
+			alternatives.put(key, found);
+		}
+		if (found.routes.isEmpty()) {
+			return null;
+		}
+		return RouteCache.copy(found.routes.get(choose(found, getRequestRandom(start, end, type, random))));
+	}
+
+	/**
+	 * Finds the route of each request separately, so vehicles in a batch
+	 * choose their routes in the same way as single requests.
+	 */
+	@Override
+	public void createCompleteRoutes(final List<RouteRequest> requests) {
+		for (final RouteRequest request : requests) {
+			request.route = createCompleteRoute(request.start, request.end, request.type, request.random);
+		}
+	}
+
+	/**
+	 * Searches the alternative routes of a pair with increasing penalty on the
+	 * edges of the found routes. The number of searches is limited to twice
+	 * the number of alternatives, as a search may find a route that is already
+	 * found or is too slow.
+	 */
+	Alternatives findAlternatives(final Node start, final Node end, final VehicleType type,
+			final long numCostChanges) {
+		final Alternatives found = new Alternatives(numCostChanges);
+		final ArrayList<ArrayList<RouteLeg>> searchedRoutes = new ArrayList<>();
+		final int maxNumRoutes = Math.max(1, settings.numAlternativeRoutes);
+		final double[] travelTimesOfRoutes = new double[maxNumRoutes];
+		double fastestTravelTime = Double.POSITIVE_INFINITY;
+		for (int i = 0; (i < (2 * maxNumRoutes)) && (found.routes.size() < maxNumRoutes); i++) {
+			computePathsFromTo(start, end, type);
+			final ArrayList<RouteLeg> route = workspace.getRoute(graph, start.index, end.index);
+			if (route == null) {
+				break;
+			}
+			searchedRoutes.add(route);
+			double travelTime = 0;
+			for (final RouteLeg leg : route) {
+				travelTime += travelTimes[leg.edge.index];
+				penalties[leg.edge.index] *= settings.alternativeRoutePenalty;
+			}
+			fastestTravelTime = Math.min(fastestTravelTime, travelTime);
+			if ((travelTime > (fastestTravelTime * (1 + settings.alternativeRouteMaxStretch)))
+					|| isFound(route, found.routes)) {
+				continue;
+			}
+			travelTimesOfRoutes[found.routes.size()] = travelTime;
+			found.routes.add(route);
+		}
+		for (final ArrayList<RouteLeg> route : searchedRoutes) {
+			for (final RouteLeg leg : route) {
+				penalties[leg.edge.index] = 1;
+			}
+		}
+		found.cumulativeProbabilities = getCumulativeProbabilities(travelTimesOfRoutes, found.routes.size(),
+				fastestTravelTime);
+		return found;
+	}
+
+	boolean isFound(final ArrayList<RouteLeg> route, final ArrayList<ArrayList<RouteLeg>> routes) {
+		for (final ArrayList<RouteLeg> foundRoute : routes) {
+			if (foundRoute.size() != route.size()) {
+				continue;
+			}
+			int i = 0;
+			while ((i < route.size()) && (foundRoute.get(i).edge == route.get(i).edge)) {
+				i++;
+			}
+			if (i == route.size()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the cumulative probabilities of choosing routes by the logit model.
+	 * Utility of a route decreases with its travel time relative to the
+	 * fastest route.
+	 */
+	double[] getCumulativeProbabilities(final double[] travelTimesOfRoutes, final int numRoutes,
+			final double fastestTravelTime) {
+		final double[] cumulativeProbabilities = new double[numRoutes];
+		double sum = 0;
+		for (int i = 0; i < numRoutes; i++) {
+			final double relativeDelay = fastestTravelTime > 0
+					? (travelTimesOfRoutes[i] - fastestTravelTime) / fastestTravelTime
+					: 0;
+			sum += Math.exp(-settings.alternativeRouteLogitScale * relativeDelay);
+			cumulativeProbabilities[i] = sum;
+		}
+		for (int i = 0; i < numRoutes; i++) {
+			cumulativeProbabilities[i] /= sum;
+		}
+		return cumulativeProbabilities;
+	}
+
+	/**
+	 * Chooses the index of a route randomly by the probabilities.
+	 */
+	int choose(final Alternatives found, final Random random) {
+		final double draw = random.nextDouble();
+		for (int i = 0; i < found.cumulativeProbabilities.length - 1; i++) {
+			if (draw < found.cumulativeProbabilities[i]) {
+				return i;
+			}
+		}
+		return found.cumulativeProbabilities.length - 1;
+	}
+}
@@ -0,0 +1,66 @@
+package traffic.routing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import traffic.TrafficNetwork;
+import traffic.road.Node;
+import traffic.vehicle.VehicleType;
+
+/**
+ * Routing that looks up the route cache of its traffic network before
+ * searching with another routing algorithm.
+ */
+class CachedRouting extends Routing {
+	final Routing routing;
+	final Routing.Algorithm algorithm;
+	final RouteCache cache;
+
+	CachedRouting(final TrafficNetwork trafficNetwork, final Routing routing, final Routing.Algorithm algorithm,
+			final RouteCache cache) {
+		super(trafficNetwork);
+		this.routing = routing;
+		this.algorithm = algorithm;
+		this.cache = cache;
+	}
+
+	@Override
+	public ArrayList<RouteLeg> createCompleteRoute(final Node start, final Node end, final VehicleType type) {
+		final RouteCache.Key key = new RouteCache.Key(start.index, end.index, type, algorithm, cache.getEpoch());
+		final ArrayList<RouteLeg> cached = cache.get(key);
+		if (cached != null) {
+			return cached == RouteCache.noRoute ? null : RouteCache.copy(cached);
+		}
+		final ArrayList<RouteLeg> route = routing.createCompleteRoute(start, end, type);
+		cache.put(key, route == null ? RouteCache.noRoute : RouteCache.copy(route));
+		return route;
+	}
+
+	/**
+	 * Takes cached routes first and finds the others in one batch.
+	 */
+	@Override
+	public void createCompleteRoutes(final List<RouteRequest> requests) {
+		final long epoch = cache.getEpoch();
+		final ArrayList<RouteRequest> misses = new ArrayList<>();
+		for (final RouteRequest request : requests) {
+			final ArrayList<RouteLeg> cached = cache.get(
+					new RouteCache.Key(request.start.index, request.end.index, request.type, algorithm, epoch));
+			if (cached == null) {
+				misses.add(request);
+			} else {
+				request.route = cached == RouteCache.noRoute ? null : RouteCache.copy(cached);
+			}
+		}
+		routing.createCompleteRoutes(misses);
+		for (final RouteRequest request : misses) {
+			cache.put(new RouteCache.Key(request.start.index, request.end.index, request.type, algorithm, epoch),
+					request.route == null ? RouteCache.noRoute : RouteCache.copy(request.route));
+		}
+	}
+
+	@Override
+	public long getNumSettledNodes() {
+		return routing.getNumSettledNodes();
+	}
+}
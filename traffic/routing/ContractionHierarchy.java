@@ -0,0 +1,442 @@
+package traffic.routing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import traffic.road.RoadType;
+
+/**
+ * Contraction hierarchy of a routing graph, which uses edge lengths as
+ * weights. Nodes are contracted one by one, starting from the least important
+ * ones. When a node is contracted, a shortcut is added between two of its
+ * neighbours if the path through the node may be the only shortest path
+ * between them. A query then searches only towards more important nodes from
+ * both ends of a route.
+ * <p>
+ * A hierarchy is built for the vehicles that can use the same edges: either
+ * all edges or all non-tram edges. Blocked edges are not considered. The
+ * hierarchy does not change after it is built, so it can be searched by many
+ * threads at the same time.
+ */
+public class ContractionHierarchy {
+	static final int magic = 0x534D4348;
+	static final int version = 1;
+	/**
+	 * Maximum number of nodes settled by a witness search. A shortcut is added
+	 * when no witness path is found within the limit, which does not affect
+	 * the correctness of queries.
+	 */
+	static final int maxWitnessSettledNodes = 500;
+
+	final boolean isTramTrackAllowed;
+	final int numNodes;
+	/**
+	 * Order in which each node is contracted. A higher rank means a more
+	 * important node.
+	 */
+	final int[] rank;
+	final int numArcs;
+	final int[] arcFrom;
+	final int[] arcTo;
+	final double[] arcWeight;
+	/**
+	 * Index of the edge of each arc in road network. '-1' means the arc is a
+	 * shortcut, which consists of the two arcs in {@link #arcFirst} and
+	 * {@link #arcSecond}.
+	 */
+	final int[] arcEdge;
+	final int[] arcFirst;
+	final int[] arcSecond;
+	/**
+	 * Arcs to more important nodes, searched forward from the start of a route.
+	 */
+	final int[] upOffsets;
+	final int[] upArcs;
+	/**
+	 * Arcs from more important nodes, searched backward from the end of a
+	 * route.
+	 */
+	final int[] downOffsets;
+	final int[] downArcs;
+
+	ContractionHierarchy(final boolean isTramTrackAllowed, final int numNodes, final int[] rank, final int numArcs,
+			final int[] arcFrom, final int[] arcTo, final double[] arcWeight, final int[] arcEdge,
+			final int[] arcFirst, final int[] arcSecond) {
+		this.isTramTrackAllowed = isTramTrackAllowed;
+		this.numNodes = numNodes;
+		this.rank = rank;
+		this.numArcs = numArcs;
+		this.arcFrom = arcFrom;
+		this.arcTo = arcTo;
+		this.arcWeight = arcWeight;
+		this.arcEdge = arcEdge;
+		this.arcFirst = arcFirst;
+		this.arcSecond = arcSecond;
+		upOffsets = new int[numNodes + 1];
+		downOffsets = new int[numNodes + 1];
+		for (int a = 0; a < numArcs; a++) {
+			if (rank[arcFrom[a]] < rank[arcTo[a]]) {
+				upOffsets[arcFrom[a] + 1]++;
+			} else {
+				downOffsets[arcTo[a] + 1]++;
+			}
+		}
+		for (int i = 0; i < numNodes; i++) {
+			upOffsets[i + 1] += upOffsets[i];
+			downOffsets[i + 1] += downOffsets[i];
+		}
+		upArcs = new int[upOffsets[numNodes]];
+		downArcs = new int[downOffsets[numNodes]];
+		final int[] upSlots = Arrays.copyOf(upOffsets, numNodes);
+		final int[] downSlots = Arrays.copyOf(downOffsets, numNodes);
+		for (int a = 0; a < numArcs; a++) {
+			if (rank[arcFrom[a]] < rank[arcTo[a]]) {
+				upArcs[upSlots[arcFrom[a]]++] = a;
+			} else {
+				downArcs[downSlots[arcTo[a]]++] = a;
+			}
+		}
+	}
+
+	/**
+	 * Gets the hierarchy of a graph. If a cache folder is given, the hierarchy
+	 * is read from the folder when it has been built for the same graph
+	 * before. Otherwise it is built and saved to the folder.
+	 *
+	 * @param cacheFolder
+	 *            Folder of cache files. An empty string means no caching.
+	 */
+	static ContractionHierarchy load(final RoutingGraph graph, final boolean isTramTrackAllowed,
+			final String cacheFolder) {
+		File file = null;
+		if (!cacheFolder.isEmpty()) {
+			file = new File(cacheFolder, getCacheFileName(graph, isTramTrackAllowed));
+			if (file.exists()) {
+				try {
+					return read(file, graph, isTramTrackAllowed);
+				} catch (final IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+		final ContractionHierarchy hierarchy = build(graph, isTramTrackAllowed);
+		if (file != null) {
+			try {
+				hierarchy.write(file, graph);
+			} catch (final IOException e) {
+				e.printStackTrace();
+			}
+		}
+		return hierarchy;
+	}
+
+	static String getCacheFileName(final RoutingGraph graph, final boolean isTramTrackAllowed) {
+		return "ch_" + Long.toHexString(graph.getFingerprint()) + (isTramTrackAllowed ? "_all" : "_road") + ".bin";
+	}
+
+	static boolean isEdgeIncluded(final RoutingGraph graph, final int edgeIndex, final boolean isTramTrackAllowed) {
+		return isTramTrackAllowed || (graph.getEdge(edgeIndex).type != RoadType.tram);
+	}
+
+	/**
+	 * Contracts all the nodes of a graph. The next node to contract is the one
+	 * that adds the fewest shortcuts relative to the arcs it removes, with a
+	 * penalty for the neighbours already contracted so that the hierarchy
+	 * stays balanced. Priorities are updated lazily when a node is polled.
+	 */
+	static ContractionHierarchy build(final RoutingGraph graph, final boolean isTramTrackAllowed) {
+		final Contraction contraction = new Contraction(graph, isTramTrackAllowed);
+		final NodeQueue queue = new NodeQueue();
+		for (int v = 0; v < graph.numNodes; v++) {
+			queue.add(v, contraction.getPriority(v));
+		}
+		int nextRank = 0;
+		while (!queue.isEmpty()) {
+			final int v = queue.poll();
+			if (contraction.contracted[v]) {
+				continue;
+			}
+			final double priority = contraction.getPriority(v);
+			if (!queue.isEmpty() && (priority > queue.peekKey())) {
+				queue.add(v, priority);
+				continue;
+			}
+			contraction.contract(v);
+			contraction.rank[v] = nextRank++;
+		}
+		return new ContractionHierarchy(isTramTrackAllowed, graph.numNodes, contraction.rank, contraction.numArcs,
+				contraction.arcFrom, contraction.arcTo, contraction.arcWeight, contraction.arcEdge,
+				contraction.arcFirst, contraction.arcSecond);
+	}
+
+	static ContractionHierarchy read(final File file, final RoutingGraph graph, final boolean isTramTrackAllowed)
+			throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if ((in.readInt() != magic) || (in.readInt() != version)) {
+				throw new IOException("Not a contraction hierarchy file: " + file);
+			}
+			if ((in.readLong() != graph.getFingerprint()) || (in.readBoolean() != isTramTrackAllowed)
+					|| (in.readInt() != graph.numNodes)) {
+				throw new IOException("Contraction hierarchy file is for a different graph: " + file);
+			}
+			final int[] rank = new int[graph.numNodes];
+			for (int i = 0; i < rank.length; i++) {
+				rank[i] = in.readInt();
+			}
+			final int numArcs = in.readInt();
+			final int[] arcFrom = new int[numArcs];
+			final int[] arcTo = new int[numArcs];
+			final double[] arcWeight = new double[numArcs];
+			final int[] arcEdge = new int[numArcs];
+			final int[] arcFirst = new int[numArcs];
+			final int[] arcSecond = new int[numArcs];
+			for (int a = 0; a < numArcs; a++) {
+				arcFrom[a] = in.readInt();
+				arcTo[a] = in.readInt();
+				arcWeight[a] = in.readDouble();
+				arcEdge[a] = in.readInt();
+				arcFirst[a] = in.readInt();
+				arcSecond[a] = in.readInt();
+			}
+			return new ContractionHierarchy(isTramTrackAllowed, graph.numNodes, rank, numArcs, arcFrom, arcTo,
+					arcWeight, arcEdge, arcFirst, arcSecond);
+		}
+	}
+
+	/**
+	 * Writes the hierarchy to a temporary file first, so a reader never sees a
+	 * partly written file when several workers build the same hierarchy.
+	 */
+	void write(final File file, final RoutingGraph graph) throws IOException {
+		final File folder = file.getAbsoluteFile().getParentFile();
+		if (!folder.exists()) {
+			folder.mkdirs();
+		}
+		final File temp = File.createTempFile(file.getName(), ".tmp", folder);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+			out.writeInt(magic);
+			out.writeInt(version);
+			out.writeLong(graph.getFingerprint());
+			out.writeBoolean(isTramTrackAllowed);
+			out.writeInt(numNodes);
+			for (int i = 0; i < numNodes; i++) {
+				out.writeInt(rank[i]);
+			}
+			out.writeInt(numArcs);
+			for (int a = 0; a < numArcs; a++) {
+				out.writeInt(arcFrom[a]);
+				out.writeInt(arcTo[a]);
+				out.writeDouble(arcWeight[a]);
+				out.writeInt(arcEdge[a]);
+				out.writeInt(arcFirst[a]);
+				out.writeInt(arcSecond[a]);
+			}
+		}
+		if (!temp.renameTo(file)) {
+			temp.delete();
+		}
+	}
+
+	/**
+	 * State of contracting the nodes of a graph. Arcs of each node that is
+	 * not yet contracted are kept in growable lists.
+	 */
+	static class Contraction {
+		final RoutingGraph graph;
+		final int[] rank;
+		final boolean[] contracted;
+		final int[] numContractedNeighbours;
+		int numArcs = 0;
+		int[] arcFrom = new int[64];
+		int[] arcTo = new int[64];
+		double[] arcWeight = new double[64];
+		int[] arcEdge = new int[64];
+		int[] arcFirst = new int[64];
+		int[] arcSecond = new int[64];
+		final int[][] outArcs;
+		final int[] numOutArcs;
+		final int[][] inArcs;
+		final int[] numInArcs;
+		final double[] witnessCost;
+		final int[] witnessTouched;
+		int numWitnessTouched = 0;
+		final NodeQueue witnessQueue = new NodeQueue();
+
+		Contraction(final RoutingGraph graph, final boolean isTramTrackAllowed) {
+			this.graph = graph;
+			final int n = graph.numNodes;
+			rank = new int[n];
+			contracted = new boolean[n];
+			numContractedNeighbours = new int[n];
+			outArcs = new int[n][];
+			numOutArcs = new int[n];
+			inArcs = new int[n][];
+			numInArcs = new int[n];
+			for (int v = 0; v < n; v++) {
+				outArcs[v] = new int[Math.max(2, graph.offsets[v + 1] - graph.offsets[v])];
+				inArcs[v] = new int[2];
+			}
+			witnessCost = new double[n];
+			Arrays.fill(witnessCost, Double.POSITIVE_INFINITY);
+			witnessTouched = new int[n];
+			for (int u = 0; u < n; u++) {
+				for (int i = graph.offsets[u]; i < graph.offsets[u + 1]; i++) {
+					final int edge = graph.edges[i];
+					if ((graph.targets[i] != u) && isEdgeIncluded(graph, edge, isTramTrackAllowed)) {
+						addArc(u, graph.targets[i], graph.lengths[edge], edge, -1, -1);
+					}
+				}
+			}
+		}
+
+		void addArc(final int from, final int to, final double weight, final int edge, final int first,
+				final int second) {
+			if (numArcs == arcFrom.length) {
+				final int capacity = numArcs * 2;
+				arcFrom = Arrays.copyOf(arcFrom, capacity);
+				arcTo = Arrays.copyOf(arcTo, capacity);
+				arcWeight = Arrays.copyOf(arcWeight, capacity);
+				arcEdge = Arrays.copyOf(arcEdge, capacity);
+				arcFirst = Arrays.copyOf(arcFirst, capacity);
+				arcSecond = Arrays.copyOf(arcSecond, capacity);
+			}
+			final int arc = numArcs++;
+			arcFrom[arc] = from;
+			arcTo[arc] = to;
+			arcWeight[arc] = weight;
+			arcEdge[arc] = edge;
+			arcFirst[arc] = first;
+			arcSecond[arc] = second;
+			if (numOutArcs[from] == outArcs[from].length) {
+				outArcs[from] = Arrays.copyOf(outArcs[from], numOutArcs[from] * 2);
+			}
+			outArcs[from][numOutArcs[from]++] = arc;
+			if (numInArcs[to] == inArcs[to].length) {
+				inArcs[to] = Arrays.copyOf(inArcs[to], numInArcs[to] * 2);
+			}
+			inArcs[to][numInArcs[to]++] = arc;
+		}
+
+		double getPriority(final int v) {
+			int numRemovedArcs = 0;
+			for (int i = 0; i < numInArcs[v]; i++) {
+				if (!contracted[arcFrom[inArcs[v][i]]]) {
+					numRemovedArcs++;
+				}
+			}
+			for (int i = 0; i < numOutArcs[v]; i++) {
+				if (!contracted[arcTo[outArcs[v][i]]]) {
+					numRemovedArcs++;
+				}
+			}
+			return (processShortcuts(v, false) - numRemovedArcs) + numContractedNeighbours[v];
+		}
+
+		void contract(final int v) {
+			processShortcuts(v, true);
+			contracted[v] = true;
+			for (int i = 0; i < numInArcs[v]; i++) {
+				numContractedNeighbours[arcFrom[inArcs[v][i]]]++;
+			}
+			for (int i = 0; i < numOutArcs[v]; i++) {
+				numContractedNeighbours[arcTo[outArcs[v][i]]]++;
+			}
+		}
+
+		/**
+		 * Finds the shortcuts needed when a node is contracted.
+		 *
+		 * @param isAdd
+		 *            Whether to add the shortcuts to graph.
+		 * @return Number of shortcuts.
+		 */
+		int processShortcuts(final int v, final boolean isAdd) {
+			int numShortcuts = 0;
+			for (int i = 0; i < numInArcs[v]; i++) {
+				final int in = inArcs[v][i];
+				final int u = arcFrom[in];
+				if (contracted[u]) {
+					continue;
+				}
+				double maxCost = -1;
+				for (int j = 0; j < numOutArcs[v]; j++) {
+					final int w = arcTo[outArcs[v][j]];
+					if (!contracted[w] && (w != u)) {
+						maxCost = Math.max(maxCost, arcWeight[in] + arcWeight[outArcs[v][j]]);
+					}
+				}
+				if (maxCost < 0) {
+					continue;
+				}
+				searchWitness(u, v, maxCost);
+				for (int j = 0; j < numOutArcs[v]; j++) {
+					final int out = outArcs[v][j];
+					final int w = arcTo[out];
+					if (contracted[w] || (w == u)) {
+						continue;
+					}
+					final double cost = arcWeight[in] + arcWeight[out];
+					if (witnessCost[w] > cost) {
+						numShortcuts++;
+						if (isAdd) {
+							addArc(u, w, cost, -1, in, out);
+						}
+					}
+				}
+				clearWitness();
+			}
+			return numShortcuts;
+		}
+
+		/**
+		 * Searches the paths from a node that do not go through the node to
+		 * contract, up to a maximum cost.
+		 */
+		void searchWitness(final int source, final int excluded, final double maxCost) {
+			witnessCost[source] = 0;
+			witnessTouched[numWitnessTouched++] = source;
+			witnessQueue.add(source, 0);
+			int numSettled = 0;
+			while (!witnessQueue.isEmpty()) {
+				final int u = witnessQueue.poll();
+				final double cost = witnessQueue.getLastKey();
+				if (cost > witnessCost[u]) {
+					continue;
+				}
+				if ((cost > maxCost) || (++numSettled > maxWitnessSettledNodes)) {
+					break;
+				}
+				for (int i = 0; i < numOutArcs[u]; i++) {
+					final int arc = outArcs[u][i];
+					final int w = arcTo[arc];
+					if (contracted[w] || (w == excluded)) {
+						continue;
+					}
+					final double costThroughU = cost + arcWeight[arc];
+					if (costThroughU < witnessCost[w]) {
+						if (witnessCost[w] == Double.POSITIVE_INFINITY) {
+							witnessTouched[numWitnessTouched++] = w;
+						}
+						witnessCost[w] = costThroughU;
+						witnessQueue.add(w, costThroughU);
+					}
+				}
+			}
+		}
+
+		void clearWitness() {
+			for (int i = 0; i < numWitnessTouched; i++) {
+				witnessCost[witnessTouched[i]] = Double.POSITIVE_INFINITY;
+			}
+			numWitnessTouched = 0;
+			witnessQueue.clear();
+		}
+	}
+}
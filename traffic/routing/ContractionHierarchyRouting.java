@@ -0,0 +1,223 @@
+package traffic.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import traffic.TrafficNetwork;
+import traffic.road.Node;
+import traffic.vehicle.VehicleType;
+import traffic.vehicle.VehicleUtil;
+
+/**
+ * Shortest-path routing by edge length over the contraction hierarchy of the
+ * routing graph. A query is a bidirectional search that only goes towards more
+ * important nodes. The found route is unpacked from shortcuts into edges.
+ * <p>
+ * Blocked edges are not part of the hierarchy. If the found route contains an
+ * edge that the vehicle cannot go through, the route is searched again with
+ * {@link Dijkstra}.
+ */
+public class ContractionHierarchyRouting extends Routing {
+
+	final RoutingGraph graph;
+	final Dijkstra fallback;
+	final double[] forwardCost;
+	final double[] backwardCost;
+	/**
+	 * Arc through which each node is reached in each direction.
+	 */
+	final int[] forwardArc;
+	final int[] backwardArc;
+	final int[] touched;
+	int numTouched = 0;
+	final NodeQueue forwardQueue = new NodeQueue();
+	final NodeQueue backwardQueue = new NodeQueue();
+	final ArrayList<Integer> arcsOnRoute = new ArrayList<>();
+	int[] unpackStack = new int[64];
+
+	public ContractionHierarchyRouting(final TrafficNetwork trafficNetwork) {
+		this(trafficNetwork, new RoutingGraph(trafficNetwork));
+	}
+
+	public ContractionHierarchyRouting(final TrafficNetwork trafficNetwork, final RoutingGraph graph) {
+		this(trafficNetwork, graph, new Dijkstra(trafficNetwork, graph));
+	}
+
+	ContractionHierarchyRouting(final TrafficNetwork trafficNetwork, final RoutingGraph graph,
+			final Dijkstra fallback) {
+		super(trafficNetwork);
+		this.graph = graph;
+		this.fallback = fallback;
+		forwardCost = new double[graph.numNodes];
+		backwardCost = new double[graph.numNodes];
+		Arrays.fill(forwardCost, Double.POSITIVE_INFINITY);
+		Arrays.fill(backwardCost, Double.POSITIVE_INFINITY);
+		forwardArc = new int[graph.numNodes];
+		backwardArc = new int[graph.numNodes];
+		touched = new int[graph.numNodes];
+	}
+
+	@Override
+	public ArrayList<RouteLeg> createCompleteRoute(final Node start, final Node end, final VehicleType type) {
+		final boolean isTramTrackAllowed = (type == VehicleType.TRAM)
+				|| ((type == VehicleType.PRIORITY) && settings.isAllowPriorityVehicleUseTramTrack);
+		final ArrayList<RouteLeg> legsOnRoute = search(getHierarchy(isTramTrackAllowed), start.index, end.index);
+		if (legsOnRoute == null) {
+			return null;
+		}
+		for (final RouteLeg leg : legsOnRoute) {
+			if (!VehicleUtil.canGoThrough(leg.edge, type, settings.isAllowPriorityVehicleUseTramTrack)) {
+				return fallback.createCompleteRoute(start, end, type);
+			}
+		}
+		return legsOnRoute;
+	}
+
+	ContractionHierarchy getHierarchy(final boolean isTramTrackAllowed) {
+		return graph.getContractionHierarchy(isTramTrackAllowed,
+				settings.isCacheRoutingPreprocessing ? settings.routingCacheFolder : "");
+	}
+
+	ArrayList<RouteLeg> search(final ContractionHierarchy hierarchy, final int source, final int destination) {
+		if (source == destination) {
+			return null;
+		}
+		touch(source);
+		touch(destination);
+		forwardCost[source] = 0;
+		backwardCost[destination] = 0;
+		forwardQueue.add(source, 0);
+		backwardQueue.add(destination, 0);
+		double bestCost = Double.POSITIVE_INFINITY;
+		int meetingNode = -1;
+
+		while (true) {
+			final boolean isForwardDone = forwardQueue.isEmpty() || (forwardQueue.peekKey() >= bestCost);
+			final boolean isBackwardDone = backwardQueue.isEmpty() || (backwardQueue.peekKey() >= bestCost);
+			if (isForwardDone && isBackwardDone) {
+				break;
+			}
+			final boolean isForward = !isForwardDone
+					&& (isBackwardDone || (forwardQueue.peekKey() <= backwardQueue.peekKey()));
+			if (isForward) {
+				final int u = forwardQueue.poll();
+				final double cost = forwardQueue.getLastKey();
+				if (cost > forwardCost[u]) {
+					continue;
+				}
+				numSettledNodes++;
+				if (cost + backwardCost[u] < bestCost) {
+					bestCost = cost + backwardCost[u];
+					meetingNode = u;
+				}
+				for (int i = hierarchy.upOffsets[u]; i < hierarchy.upOffsets[u + 1]; i++) {
+					final int arc = hierarchy.upArcs[i];
+					final int v = hierarchy.arcTo[arc];
+					final double costThroughU = cost + hierarchy.arcWeight[arc];
+					if (costThroughU < forwardCost[v]) {
+						touch(v);
+						forwardCost[v] = costThroughU;
+						forwardArc[v] = arc;
+						forwardQueue.add(v, costThroughU);
+					}
+				}
+			} else {
+				final int u = backwardQueue.poll();
+				final double cost = backwardQueue.getLastKey();
+				if (cost > backwardCost[u]) {
+					continue;
+				}
+				numSettledNodes++;
+				if (cost + forwardCost[u] < bestCost) {
+					bestCost = cost + forwardCost[u];
+					meetingNode = u;
+				}
+				for (int i = hierarchy.downOffsets[u]; i < hierarchy.downOffsets[u + 1]; i++) {
+					final int arc = hierarchy.downArcs[i];
+					final int v = hierarchy.arcFrom[arc];
+					final double costThroughU = cost + hierarchy.arcWeight[arc];
+					if (costThroughU < backwardCost[v]) {
+						touch(v);
+						backwardCost[v] = costThroughU;
+						backwardArc[v] = arc;
+						backwardQueue.add(v, costThroughU);
+					}
+				}
+			}
+		}
+
+		ArrayList<RouteLeg> legsOnRoute = null;
+		if (meetingNode >= 0) {
+			legsOnRoute = getRoute(hierarchy, source, destination, meetingNode);
+		}
+		clear();
+		return legsOnRoute;
+	}
+
+	ArrayList<RouteLeg> getRoute(final ContractionHierarchy hierarchy, final int source, final int destination,
+			final int meetingNode) {
+		arcsOnRoute.clear();
+		int node = meetingNode;
+		while (node != source) {
+			final int arc = forwardArc[node];
+			arcsOnRoute.add(arc);
+			node = hierarchy.arcFrom[arc];
+		}
+		Collections.reverse(arcsOnRoute);
+		node = meetingNode;
+		while (node != destination) {
+			final int arc = backwardArc[node];
+			arcsOnRoute.add(arc);
+			node = hierarchy.arcTo[arc];
+		}
+		final ArrayList<RouteLeg> legsOnRoute = new ArrayList<>();
+		for (final int arc : arcsOnRoute) {
+			unpack(hierarchy, arc, legsOnRoute);
+		}
+		return legsOnRoute;
+	}
+
+	/**
+	 * Adds the edges of an arc to route in order. A shortcut is replaced by its
+	 * two arcs until only edges remain.
+	 */
+	void unpack(final ContractionHierarchy hierarchy, final int arc, final ArrayList<RouteLeg> legsOnRoute) {
+		int[] stack = unpackStack;
+		int size = 0;
+		stack[size++] = arc;
+		while (size > 0) {
+			final int a = stack[--size];
+			if (hierarchy.arcEdge[a] >= 0) {
+				legsOnRoute.add(new RouteLeg(graph.getEdge(hierarchy.arcEdge[a]), 0));
+				continue;
+			}
+			if (size + 2 > stack.length) {
+				stack = Arrays.copyOf(stack, stack.length * 2);
+				unpackStack = stack;
+			}
+			stack[size++] = hierarchy.arcSecond[a];
+			stack[size++] = hierarchy.arcFirst[a];
+		}
+	}
+
+	void touch(final int node) {
+		if ((forwardCost[node] == Double.POSITIVE_INFINITY) && (backwardCost[node] == Double.POSITIVE_INFINITY)) {
+			touched[numTouched++] = node;
+		}
+	}
+
+	/**
+	 * Resets the nodes reached by the latest search, so the next search does
+	 * not need to reset all nodes.
+	 */
+	void clear() {
+		for (int i = 0; i < numTouched; i++) {
+			forwardCost[touched[i]] = Double.POSITIVE_INFINITY;
+			backwardCost[touched[i]] = Double.POSITIVE_INFINITY;
+		}
+		numTouched = 0;
+		forwardQueue.clear();
+		backwardQueue.clear();
+	}
+}
@@ -0,0 +1,25 @@
+package traffic.routing;
+
+import traffic.TrafficNetwork;
+
+/**
+ * Contraction hierarchy search where the cost of an edge is its travel time
+ * given by the link performance function of its flow. The hierarchy is
+ * customized again whenever the flows of edges are updated, so a search costs
+ * about the same as a search by edge length.
+ */
+public class ContractionHierarchy_LPF extends ContractionHierarchyRouting {
+
+	public ContractionHierarchy_LPF(final TrafficNetwork trafficNetwork) {
+		this(trafficNetwork, new RoutingGraph(trafficNetwork));
+	}
+
+	public ContractionHierarchy_LPF(final TrafficNetwork trafficNetwork, final RoutingGraph graph) {
+		super(trafficNetwork, graph, new Dijkstra_LPF(trafficNetwork, graph));
+	}
+
+	@Override
+	ContractionHierarchy getHierarchy(final boolean isTramTrackAllowed) {
+		return graph.getTravelTimeHierarchy(isTramTrackAllowed);
+	}
+}
@@ -0,0 +1,276 @@
+package traffic.routing;
+
+import java.util.Arrays;
+
+/**
+ * Contraction hierarchy whose topology does not depend on edge costs, so it
+ * can be customized quickly whenever the costs change. Nodes are contracted in
+ * the order of minimum degree, and every two neighbours of a contracted node
+ * are connected, without witness searches. The result is an undirected graph
+ * where every path can be replaced by an up-down path of the same cost.
+ * <p>
+ * Customization computes the costs of both directions of each arc from the
+ * current costs of edges. It goes through the triangles of the graph from the
+ * least important node upwards, and keeps the cheaper of an arc and the path
+ * through the lower node of a triangle. Each customization creates a new
+ * {@link ContractionHierarchy}, so searches that have started on the previous
+ * one are not affected.
+ */
+public class CustomizableContractionHierarchy {
+	final RoutingGraph graph;
+	final boolean isTramTrackAllowed;
+	final int[] rank;
+	final int numArcs;
+	/**
+	 * Less important node of each undirected arc.
+	 */
+	final int[] arcLower;
+	final int[] arcUpper;
+	/**
+	 * Arcs of triangles in the order of customization. The lower node of a
+	 * triangle is the less important node of the first and second arcs. The
+	 * third arc connects the other two nodes, going up from the end of the
+	 * first arc to the end of the second arc.
+	 */
+	final int[] triangleFirst;
+	final int[] triangleSecond;
+	final int[] triangleThird;
+	/**
+	 * Arc of each edge and whether the edge goes up the arc. '-1' means the
+	 * edge is not included, e.g., a tram edge or a loop.
+	 */
+	final int[] edgeArc;
+	final boolean[] isEdgeUp;
+	/**
+	 * Start and end nodes of both directions of each arc. Direction '2a' of
+	 * arc 'a' goes up and direction '2a + 1' goes down.
+	 */
+	final int[] directionFrom;
+	final int[] directionTo;
+
+	CustomizableContractionHierarchy(final RoutingGraph graph, final boolean isTramTrackAllowed) {
+		this.graph = graph;
+		this.isTramTrackAllowed = isTramTrackAllowed;
+		final int n = graph.numNodes;
+		final int[][] neighbours = new int[n][];
+		final int[] numNeighbours = new int[n];
+		for (int v = 0; v < n; v++) {
+			neighbours[v] = new int[4];
+		}
+		for (int u = 0; u < n; u++) {
+			for (int i = graph.offsets[u]; i < graph.offsets[u + 1]; i++) {
+				final int v = graph.targets[i];
+				if ((u != v) && ContractionHierarchy.isEdgeIncluded(graph, graph.edges[i], isTramTrackAllowed)) {
+					addNeighbours(neighbours, numNeighbours, u, v);
+				}
+			}
+		}
+
+		// Contract nodes in the order of minimum degree, connecting neighbours
+		rank = new int[n];
+		final boolean[] contracted = new boolean[n];
+		final NodeQueue queue = new NodeQueue();
+		for (int v = 0; v < n; v++) {
+			queue.add(v, numNeighbours[v]);
+		}
+		int[] lower = new int[64];
+		int[] upper = new int[64];
+		int arcCount = 0;
+		int nextRank = 0;
+		while (!queue.isEmpty()) {
+			final int v = queue.poll();
+			if (contracted[v]) {
+				continue;
+			}
+			final int degree = removeContracted(neighbours, numNeighbours, contracted, v);
+			if (!queue.isEmpty() && (degree > queue.peekKey())) {
+				queue.add(v, degree);
+				continue;
+			}
+			contracted[v] = true;
+			rank[v] = nextRank++;
+			for (int i = 0; i < degree; i++) {
+				if (arcCount == lower.length) {
+					lower = Arrays.copyOf(lower, arcCount * 2);
+					upper = Arrays.copyOf(upper, arcCount * 2);
+				}
+				lower[arcCount] = v;
+				upper[arcCount] = neighbours[v][i];
+				arcCount++;
+				for (int j = i + 1; j < degree; j++) {
+					addNeighbours(neighbours, numNeighbours, neighbours[v][i], neighbours[v][j]);
+				}
+			}
+		}
+		numArcs = arcCount;
+		arcLower = Arrays.copyOf(lower, numArcs);
+		arcUpper = Arrays.copyOf(upper, numArcs);
+
+		// Arcs are added in the order of their lower node, so arcs going up
+		// from each node are consecutive
+		final int[] upOffsets = new int[n + 1];
+		for (int a = 0; a < numArcs; a++) {
+			upOffsets[arcLower[a] + 1]++;
+		}
+		for (int v = 0; v < n; v++) {
+			upOffsets[v + 1] += upOffsets[v];
+		}
+		final int[] upArcs = new int[numArcs];
+		final int[] slots = Arrays.copyOf(upOffsets, n);
+		for (int a = 0; a < numArcs; a++) {
+			upArcs[slots[arcLower[a]]++] = a;
+		}
+
+		final int[] nodesInOrder = new int[n];
+		int numTriangles = 0;
+		for (int v = 0; v < n; v++) {
+			nodesInOrder[rank[v]] = v;
+			final int degree = upOffsets[v + 1] - upOffsets[v];
+			numTriangles += (degree * (degree - 1)) / 2;
+		}
+		triangleFirst = new int[numTriangles];
+		triangleSecond = new int[numTriangles];
+		triangleThird = new int[numTriangles];
+		int t = 0;
+		for (final int v : nodesInOrder) {
+			for (int i = upOffsets[v]; i < upOffsets[v + 1]; i++) {
+				for (int j = upOffsets[v]; j < upOffsets[v + 1]; j++) {
+					final int first = upArcs[i];
+					final int second = upArcs[j];
+					if (rank[arcUpper[first]] < rank[arcUpper[second]]) {
+						triangleFirst[t] = first;
+						triangleSecond[t] = second;
+						triangleThird[t] = findArc(upOffsets, upArcs, arcUpper[first], arcUpper[second]);
+						t++;
+					}
+				}
+			}
+		}
+
+		edgeArc = new int[graph.lengths.length];
+		isEdgeUp = new boolean[graph.lengths.length];
+		Arrays.fill(edgeArc, -1);
+		for (int u = 0; u < n; u++) {
+			for (int i = graph.offsets[u]; i < graph.offsets[u + 1]; i++) {
+				final int v = graph.targets[i];
+				final int edge = graph.edges[i];
+				if ((u != v) && ContractionHierarchy.isEdgeIncluded(graph, edge, isTramTrackAllowed)) {
+					isEdgeUp[edge] = rank[u] < rank[v];
+					edgeArc[edge] = isEdgeUp[edge] ? findArc(upOffsets, upArcs, u, v)
+							: findArc(upOffsets, upArcs, v, u);
+				}
+			}
+		}
+
+		directionFrom = new int[numArcs * 2];
+		directionTo = new int[numArcs * 2];
+		for (int a = 0; a < numArcs; a++) {
+			directionFrom[2 * a] = arcLower[a];
+			directionTo[2 * a] = arcUpper[a];
+			directionFrom[(2 * a) + 1] = arcUpper[a];
+			directionTo[(2 * a) + 1] = arcLower[a];
+		}
+	}
+
+	/**
+	 * Computes the costs of arcs from a table of the travel time of edges given
+	 * by {@link RoutingGraph#getTravelTimes()}. Blocked edges are not
+	 * considered, as in {@link ContractionHierarchy}, since edges can become
+	 * blocked or unblocked between two customizations. A route found through a
+	 * blocked edge is searched again by the fallback of
+	 * {@link ContractionHierarchyRouting}.
+	 */
+	ContractionHierarchy customize(final double[] travelTimes) {
+		final double[] weight = new double[numArcs * 2];
+		final int[] directionEdge = new int[numArcs * 2];
+		final int[] directionFirst = new int[numArcs * 2];
+		final int[] directionSecond = new int[numArcs * 2];
+		Arrays.fill(weight, Double.POSITIVE_INFINITY);
+		Arrays.fill(directionEdge, -1);
+		Arrays.fill(directionFirst, -1);
+		Arrays.fill(directionSecond, -1);
+		for (int e = 0; e < edgeArc.length; e++) {
+			if (edgeArc[e] < 0) {
+				continue;
+			}
+			final int direction = (2 * edgeArc[e]) + (isEdgeUp[e] ? 0 : 1);
+			final double travelTime = travelTimes[e];
+			if (travelTime < weight[direction]) {
+				weight[direction] = travelTime;
+				directionEdge[direction] = e;
+			}
+		}
+		for (int t = 0; t < triangleFirst.length; t++) {
+			// Lower node is x, first arc goes to u and second arc goes to w
+			final int first = triangleFirst[t];
+			final int second = triangleSecond[t];
+			final int third = triangleThird[t];
+			final double upCost = weight[(2 * first) + 1] + weight[2 * second];
+			if (upCost < weight[2 * third]) {
+				weight[2 * third] = upCost;
+				directionEdge[2 * third] = -1;
+				directionFirst[2 * third] = (2 * first) + 1;
+				directionSecond[2 * third] = 2 * second;
+			}
+			final double downCost = weight[(2 * second) + 1] + weight[2 * first];
+			if (downCost < weight[(2 * third) + 1]) {
+				weight[(2 * third) + 1] = downCost;
+				directionEdge[(2 * third) + 1] = -1;
+				directionFirst[(2 * third) + 1] = (2 * second) + 1;
+				directionSecond[(2 * third) + 1] = 2 * first;
+			}
+		}
+		return new ContractionHierarchy(isTramTrackAllowed, graph.numNodes, rank, numArcs * 2, directionFrom,
+				directionTo, weight, directionEdge, directionFirst, directionSecond);
+	}
+
+	/**
+	 * Adds an undirected connection between two nodes if they are not already
+	 * connected.
+	 */
+	static void addNeighbours(final int[][] neighbours, final int[] numNeighbours, final int u, final int v) {
+		for (int i = 0; i < numNeighbours[u]; i++) {
+			if (neighbours[u][i] == v) {
+				return;
+			}
+		}
+		addNeighbour(neighbours, numNeighbours, u, v);
+		addNeighbour(neighbours, numNeighbours, v, u);
+	}
+
+	static void addNeighbour(final int[][] neighbours, final int[] numNeighbours, final int u, final int v) {
+		if (numNeighbours[u] == neighbours[u].length) {
+			neighbours[u] = Arrays.copyOf(neighbours[u], numNeighbours[u] * 2);
+		}
+		neighbours[u][numNeighbours[u]++] = v;
+	}
+
+	/**
+	 * Removes the contracted nodes from the neighbours of a node.
+	 *
+	 * @return Number of remaining neighbours.
+	 */
+	static int removeContracted(final int[][] neighbours, final int[] numNeighbours, final boolean[] contracted,
+			final int v) {
+		int count = 0;
+		for (int i = 0; i < numNeighbours[v]; i++) {
+			if (!contracted[neighbours[v][i]]) {
+				neighbours[v][count++] = neighbours[v][i];
+			}
+		}
+		numNeighbours[v] = count;
+		return count;
+	}
+
+	/**
+	 * Finds the arc going up from a node to another node.
+	 */
+	int findArc(final int[] upOffsets, final int[] upArcs, final int lower, final int upper) {
+		for (int i = upOffsets[lower]; i < upOffsets[lower + 1]; i++) {
+			if (arcUpper[upArcs[i]] == upper) {
+				return upArcs[i];
+			}
+		}
+		return -1;
+	}
+}
@@ -1,140 +1,83 @@
 package traffic.routing;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.PriorityQueue;
 
 import traffic.TrafficNetwork;
-import traffic.road.Edge;
 import traffic.road.Node;
-import traffic.road.RoadNetwork;
 import traffic.vehicle.VehicleType;
-import traffic.vehicle.VehicleUtil;
 
 public class Dijkstra extends Routing {
 
-	class DijkstraEdge {
-		public final DijkstraVertex target;
-		public final double weight;
-		public final Edge edge;
+	final RoutingGraph graph;
+	final RoutingWorkspace workspace;
+	final int[] singleDestination = new int[1];
 
-		public DijkstraEdge(final DijkstraVertex argTarget, final double argWeight, final Edge argEdge) {
-			target = argTarget;
-			weight = argWeight;
-			edge = argEdge;
-		}
-	}
-
-	class DijkstraVertex {
-		public Node node;
-		public ArrayList<DijkstraEdge> adjacencies = new ArrayList<>();
-		public double minDistance = Double.POSITIVE_INFINITY;
-		public DijkstraVertex previous = null;
-		RoadNetwork roadNetwork;
-		DijkstraVertexState state = DijkstraVertexState.None;
-
-		public DijkstraVertex(final Node node) {
-			this.node = node;
-		}
+	public Dijkstra(final TrafficNetwork trafficNetwork) {
+		this(trafficNetwork, new RoutingGraph(trafficNetwork));
 	}
 
-	class DijkstraVertexComparator implements Comparator<DijkstraVertex> {
-
-		@Override
-		public int compare(final DijkstraVertex o1, final DijkstraVertex o2) {
-			if (o1.minDistance < o2.minDistance) {
-				return -1;
-			}
-			if (o1.minDistance > o2.minDistance) {
-				return 1;
-			}
-			return 0;
-		}
-
+	public Dijkstra(final TrafficNetwork trafficNetwork, final RoutingGraph graph) {
+		super(trafficNetwork);
+		this.graph = graph;
+		workspace = new RoutingWorkspace(graph.numNodes);
 	}
 
-    enum DijkstraVertexState {
-		Unvisited, Visited, None
-	}
-
-	ArrayList<DijkstraVertex> vertices = new ArrayList<>();
-
-	DijkstraVertex startVertex, endVertex;
-
-	public Dijkstra(final TrafficNetwork trafficNetwork) {
-		super(trafficNetwork);
-
-		// Clear existing vertex list
-		vertices = new ArrayList<>(trafficNetwork.nodes.size());
-
-		// Collect vertices inside search space
-		for (final Node node : trafficNetwork.nodes) {
-			final DijkstraVertex vertex = new DijkstraVertex(node);
-			vertices.add(vertex);
-		}
-
-		// Add outward edges to adjacent list
-		Node targetNode = null;
-		for (final DijkstraVertex vertex : vertices) {
-			final ArrayList<DijkstraEdge> adjacentEdges = new ArrayList<>();
-			for (final Edge outwardEdge : vertex.node.outwardEdges) {
-				targetNode = outwardEdge.endNode;
-				final DijkstraEdge edge = new DijkstraEdge(vertices.get(targetNode.index), outwardEdge.length,
-						outwardEdge);
-				adjacentEdges.add(edge);
-			}
-			vertex.adjacencies = adjacentEdges;
-		}
+	/**
+	 * Gets the cost of going through an edge.
+	 */
+	double getCost(final int edgeIndex) {
+		return graph.lengths[edgeIndex];
 	}
 
 	public void computePathsFromTo(final Node sourceNode, final Node destinationNode, final VehicleType type) {
-		// Reset
-		for (final DijkstraVertex v : vertices) {
-			v.minDistance = Double.POSITIVE_INFINITY;
-			v.previous = null;
-			v.state = DijkstraVertexState.None;
-		}
-
-//		final Node sourceNode = startEdge.startNode;
-//		final Node destinationNode = endEdge.endNode;
-
-		final DijkstraVertex source = vertices.get(sourceNode.index);
-		source.minDistance = 0;
-		source.previous = null;
-
-		final PriorityQueue<DijkstraVertex> unvisited = new PriorityQueue<>(10, new DijkstraVertexComparator());
-		unvisited.add(source);
-		source.state = DijkstraVertexState.Unvisited;
-
-		while (unvisited.size() > 0) {
-			final DijkstraVertex u = unvisited.poll();
-			u.state = DijkstraVertexState.Visited;
+		singleDestination[0] = destinationNode.index;
+		computePathsFromTo(sourceNode.index, singleDestination, type);
+	}
 
-			if (u.node == destinationNode) {
+	/**
+	 * Grows the shortest-path tree from a node until all the destinations are
+	 * reached.
+	 *
+	 * @param destinations
+	 *            Sorted indexes of distinct destination nodes.
+	 */
+	void computePathsFromTo(final int source, final int[] destinations, final VehicleType type) {
+		final long[] access = graph.getAccessBits(type, settings.isAllowPriorityVehicleUseTramTrack);
+		workspace.reset();
+		final NodeHeap unvisited = workspace.queue;
+		int numDestinationsToReach = destinations.length;
+
+		workspace.reach(source, 0, -1);
+		unvisited.addOrDecrease(source, 0);
+
+		while (!unvisited.isEmpty()) {
+			final int u = unvisited.poll();
+			final double costOfU = unvisited.getLastKey();
+			workspace.visit(u);
+			numSettledNodes++;
+
+			if ((Arrays.binarySearch(destinations, u) >= 0) && (--numDestinationsToReach == 0)) {
 				break;
 			}
 
 			// Visit each edge exiting u
-			for (final DijkstraEdge e : u.adjacencies) {
-				if (!VehicleUtil.canGoThrough(u.node, e.target.node, type, settings.isAllowPriorityVehicleUseTramTrack)) {
+			for (int i = graph.offsets[u]; i < graph.offsets[u + 1]; i++) {
+				final int v = graph.targets[i];
+				if (workspace.isVisited(v)) {
 					continue;
 				}
-				final DijkstraVertex v = e.target;
-				if (v.state == DijkstraVertexState.Visited) {
+				final int edge = graph.edges[i];
+				if (!RoutingGraph.canGoThrough(access, edge)) {
 					continue;
 				}
 
-				final double distanceThroughU = u.minDistance + e.weight;
-				if (distanceThroughU < v.minDistance) {
-					v.minDistance = distanceThroughU;
-					v.previous = u;
-				}
-
-				if (v.state == DijkstraVertexState.None) {
-					unvisited.offer(v);
-					v.state = DijkstraVertexState.Unvisited;
+				final double distanceThroughU = costOfU + getCost(edge);
+				if (distanceThroughU < workspace.getCost(v)) {
+					workspace.reach(v, distanceThroughU, edge);
+					unvisited.addOrDecrease(v, distanceThroughU);
 				}
 			}
 		}
@@ -143,36 +86,44 @@ public class Dijkstra extends Routing {
 	public ArrayList<RouteLeg> createCompleteRoute(Node start, Node end, final VehicleType type) {
 		//StartEdge should be fixed to add vehicle . Otherwise it creates incorrect routes
 		computePathsFromTo(start, end, type);
-		final List<DijkstraVertex> path = getPathTo(end);
-		if (path.size() < 2) {
-			return null;
-		}
-		final ArrayList<RouteLeg> legsOnRoute = new ArrayList<>();
-		for (int i = 1; i < path.size(); i++) {
-			final Edge edge = getEdgeFromVertices(path.get(i - 1), path.get(i));
-			legsOnRoute.add(new RouteLeg(edge, 0));
-		}
-		return legsOnRoute;
+		return workspace.getRoute(graph, start.index, end.index);
 	}
 
-	Edge getEdgeFromVertices(final DijkstraVertex startVertex, final DijkstraVertex endVertex) {
-		for (final Edge edge : startVertex.node.outwardEdges) {
-			if (edge.endNode == endVertex.node) {
-				return edge;
-			}
+	/**
+	 * Groups the requests by start node and the edges their vehicles can use.
+	 * One shortest-path tree is grown from the start node of each group, and
+	 * the routes to all the destinations of the group are taken from it.
+	 */
+	@Override
+	public void createCompleteRoutes(final List<RouteRequest> requests) {
+		final LinkedHashMap<Long, ArrayList<RouteRequest>> groups = new LinkedHashMap<>();
+		for (final RouteRequest request : requests) {
+			final boolean isTramTrackAllowed = (request.type == VehicleType.TRAM)
+					|| ((request.type == VehicleType.PRIORITY) && settings.isAllowPriorityVehicleUseTramTrack);
+			final long key = (2L * request.start.index) + (isTramTrackAllowed ? 1 : 0);
+			groups.computeIfAbsent(key, k -> new ArrayList<>()).add(request);
 		}
-		return null;
-	}
-
-	List<DijkstraVertex> getPathTo(final Node destination) {
-		final List<DijkstraVertex> path = new ArrayList<>();
-
-		for (DijkstraVertex vertex = vertices.get(destination.index); vertex != null; vertex = vertex.previous) {
-			path.add(vertex);
+		for (final ArrayList<RouteRequest> group : groups.values()) {
+			final RouteRequest first = group.get(0);
+			if (group.size() == 1) {
+				first.route = createCompleteRoute(first.start, first.end, first.type);
+				continue;
+			}
+			final int[] destinations = new int[group.size()];
+			for (int i = 0; i < destinations.length; i++) {
+				destinations[i] = group.get(i).end.index;
+			}
+			Arrays.sort(destinations);
+			int numDestinations = 0;
+			for (int i = 0; i < destinations.length; i++) {
+				if ((i == 0) || (destinations[i] != destinations[i - 1])) {
+					destinations[numDestinations++] = destinations[i];
+				}
+			}
+			computePathsFromTo(first.start.index, Arrays.copyOf(destinations, numDestinations), first.type);
+			for (final RouteRequest request : group) {
+				request.route = workspace.getRoute(graph, request.start.index, request.end.index);
+			}
 		}
-
-		Collections.reverse(path);
-
-		return path;
 	}
 }
@@ -0,0 +1,60 @@
+package traffic.routing;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import traffic.TrafficNetwork;
+import traffic.road.Node;
+import traffic.vehicle.VehicleType;
+
+/**
+ * Shortest-path routing by edge length that keeps the search state of recent
+ * destinations. Routes to a destination share one {@link IncrementalSearchTree},
+ * which is repaired when lanes are blocked or unblocked instead of being
+ * searched again from scratch. Routes have the same length as the routes of
+ * {@link Dijkstra}.
+ * <p>
+ * This suits rerouting after an incident, when many vehicles going to the same
+ * destinations need new routes around a few blocked edges.
+ */
+public class IncrementalDijkstra extends Routing {
+
+	final RoutingGraph graph;
+	/**
+	 * Search trees of the latest destinations, in the order of use. The key is
+	 * twice the destination index, plus one if tram edges can be used.
+	 */
+	final LinkedHashMap<Long, IncrementalSearchTree> trees;
+
+	public IncrementalDijkstra(final TrafficNetwork trafficNetwork) {
+		this(trafficNetwork, new RoutingGraph(trafficNetwork));
+	}
+
+	public IncrementalDijkstra(final TrafficNetwork trafficNetwork, final RoutingGraph graph) {
+		super(trafficNetwork);
+		this.graph = graph;
+		trees = new LinkedHashMap<Long, IncrementalSearchTree>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Long, IncrementalSearchTree> eldest) {
+				return size() > Math.max(1, settings.numIncrementalRoutingTrees);
+			}
+		};
+	}
+
+	@Override
+	public ArrayList<RouteLeg> createCompleteRoute(final Node start, final Node end, final VehicleType type) {
+		final boolean isTramTrackAllowed = (type == VehicleType.TRAM)
+				|| ((type == VehicleType.PRIORITY) && settings.isAllowPriorityVehicleUseTramTrack);
+		final long key = (2L * end.index) + (isTramTrackAllowed ? 1 : 0);
+		IncrementalSearchTree tree = trees.get(key);
+		if (tree == null) {
+			tree = new IncrementalSearchTree(graph, end.index, isTramTrackAllowed);
+			trees.put(key, tree);
+		}
+		final long numSettledNodesBefore = tree.numSettledNodes;
+		final ArrayList<RouteLeg> route = tree.getRoute(start.index);
+		numSettledNodes += tree.numSettledNodes - numSettledNodesBefore;
+		return route;
+	}
+}
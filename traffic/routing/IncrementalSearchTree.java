@@ -0,0 +1,193 @@
+package traffic.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Shortest paths by edge length from all nodes to one destination, which are
+ * found as needed and repaired when edges become blocked or unblocked. The
+ * search is lifelong planning A* (LPA*) going backward from the destination
+ * without heuristic, which repairs its state in the same way as D* Lite.
+ * <p>
+ * Each node has a cost to the destination and a one-step lookahead cost, i.e.,
+ * the lowest cost through its outward edges. A node is consistent if both
+ * costs are the same. After some edges change, only the nodes whose costs
+ * depend on these edges become inconsistent and are searched again. A query
+ * from a node continues the search until the node is consistent, so later
+ * queries to the same destination reuse the work of earlier ones.
+ */
+class IncrementalSearchTree {
+	final RoutingGraph graph;
+	final int destination;
+	final boolean isTramTrackAllowed;
+	/**
+	 * Cost from each node to the destination.
+	 */
+	final double[] cost;
+	/**
+	 * One-step lookahead cost of each node.
+	 */
+	final double[] lookaheadCost;
+	/**
+	 * Inconsistent nodes keyed by the lower one of their two costs.
+	 */
+	final NodeHeap queue;
+	/**
+	 * Number of resets and edge changes of the graph that the tree is up to
+	 * date with.
+	 */
+	int numResets;
+	int numAppliedChanges;
+	/**
+	 * Total number of nodes taken from the queue.
+	 */
+	long numSettledNodes = 0;
+
+	IncrementalSearchTree(final RoutingGraph graph, final int destination, final boolean isTramTrackAllowed) {
+		this.graph = graph;
+		this.destination = destination;
+		this.isTramTrackAllowed = isTramTrackAllowed;
+		cost = new double[graph.numNodes];
+		lookaheadCost = new double[graph.numNodes];
+		queue = new NodeHeap(graph.numNodes);
+		reset();
+	}
+
+	/**
+	 * Discards the search state and starts again from the destination.
+	 */
+	void reset() {
+		synchronized (graph) {
+			numResets = graph.getNumResets();
+			numAppliedChanges = graph.getNumChangedEdges();
+		}
+		Arrays.fill(cost, Double.POSITIVE_INFINITY);
+		Arrays.fill(lookaheadCost, Double.POSITIVE_INFINITY);
+		queue.clear();
+		lookaheadCost[destination] = 0;
+		queue.update(destination, 0);
+	}
+
+	/**
+	 * Updates the nodes whose outward edges have changed since the last
+	 * repair. The tree is reset if the graph no longer keeps all these
+	 * changes.
+	 */
+	void repair() {
+		final int[] changedEdges;
+		synchronized (graph) {
+			if (graph.getNumResets() != numResets) {
+				reset();
+				return;
+			}
+			changedEdges = graph.getChangedEdges(numAppliedChanges);
+			if (changedEdges == null) {
+				reset();
+				return;
+			}
+			numAppliedChanges += changedEdges.length;
+		}
+		for (final int edge : changedEdges) {
+			updateNode(graph.getStartNode(edge));
+		}
+	}
+
+	/**
+	 * Gets the cost of going through an edge. Blocked edges and tram edges
+	 * that cannot be used have infinite cost.
+	 */
+	double getEdgeCost(final int edge) {
+		if (!ContractionHierarchy.isEdgeIncluded(graph, edge, isTramTrackAllowed) || graph.getEdge(edge).isBlocked()) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return graph.lengths[edge];
+	}
+
+	/**
+	 * Computes the lookahead cost of a node again and puts the node in the
+	 * queue if it is inconsistent.
+	 */
+	void updateNode(final int u) {
+		if (u != destination) {
+			double lowest = Double.POSITIVE_INFINITY;
+			for (int i = graph.offsets[u]; i < graph.offsets[u + 1]; i++) {
+				lowest = Math.min(lowest, getEdgeCost(graph.edges[i]) + cost[graph.targets[i]]);
+			}
+			lookaheadCost[u] = lowest;
+		}
+		updateQueue(u);
+	}
+
+	void updateQueue(final int u) {
+		if (cost[u] != lookaheadCost[u]) {
+			queue.update(u, Math.min(cost[u], lookaheadCost[u]));
+		} else {
+			queue.remove(u);
+		}
+	}
+
+	/**
+	 * Searches until the cost from the source is known.
+	 */
+	void computeShortestPath(final int source) {
+		while (!queue.isEmpty() && ((queue.peekKey() < Math.min(cost[source], lookaheadCost[source]))
+				|| (cost[source] != lookaheadCost[source]))) {
+			final int u = queue.poll();
+			numSettledNodes++;
+			if (cost[u] > lookaheadCost[u]) {
+				cost[u] = lookaheadCost[u];
+				for (int i = graph.reverseOffsets[u]; i < graph.reverseOffsets[u + 1]; i++) {
+					final int p = graph.reverseSources[i];
+					final double costThroughU = getEdgeCost(graph.reverseEdges[i]) + cost[u];
+					if ((p != destination) && (costThroughU < lookaheadCost[p])) {
+						lookaheadCost[p] = costThroughU;
+						updateQueue(p);
+					}
+				}
+			} else {
+				cost[u] = Double.POSITIVE_INFINITY;
+				updateNode(u);
+				for (int i = graph.reverseOffsets[u]; i < graph.reverseOffsets[u + 1]; i++) {
+					updateNode(graph.reverseSources[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the shortest route from a node to the destination, or null if the
+	 * destination cannot be reached.
+	 */
+	ArrayList<RouteLeg> getRoute(final int source) {
+		if (source == destination) {
+			return null;
+		}
+		repair();
+		computeShortestPath(source);
+		if (cost[source] == Double.POSITIVE_INFINITY) {
+			return null;
+		}
+		// Follow the outward edges that give the lookahead costs
+		final ArrayList<RouteLeg> legsOnRoute = new ArrayList<>();
+		int node = source;
+		while (node != destination) {
+			int bestEdge = -1;
+			int bestTarget = -1;
+			double bestCost = Double.POSITIVE_INFINITY;
+			for (int i = graph.offsets[node]; i < graph.offsets[node + 1]; i++) {
+				final double costThroughEdge = getEdgeCost(graph.edges[i]) + cost[graph.targets[i]];
+				if (costThroughEdge < bestCost) {
+					bestCost = costThroughEdge;
+					bestEdge = graph.edges[i];
+					bestTarget = graph.targets[i];
+				}
+			}
+			if ((bestEdge < 0) || (legsOnRoute.size() >= graph.numNodes)) {
+				return null;
+			}
+			legsOnRoute.add(new RouteLeg(graph.getEdge(bestEdge), 0));
+			node = bestTarget;
+		}
+		return legsOnRoute;
+	}
+}
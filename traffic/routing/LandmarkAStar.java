@@ -0,0 +1,75 @@
+package traffic.routing;
+
+import traffic.TrafficNetwork;
+import traffic.road.Node;
+import traffic.vehicle.VehicleType;
+
+/**
+ * A* search with landmarks and the triangle inequality (ALT), where the cost
+ * of an edge is its travel time given by the link performance function of its
+ * current flow. The heuristic is the lower bound of travel time to the
+ * destination from the landmark tables of the routing graph. It stays
+ * admissible as travel times change, so the search finds the same routes as
+ * {@link Dijkstra_LPF} while visiting far fewer nodes.
+ */
+public class LandmarkAStar extends Dijkstra_LPF {
+
+	final double[] destinationFrom;
+	final double[] destinationTo;
+
+	public LandmarkAStar(final TrafficNetwork trafficNetwork) {
+		this(trafficNetwork, new RoutingGraph(trafficNetwork));
+	}
+
+	public LandmarkAStar(final TrafficNetwork trafficNetwork, final RoutingGraph graph) {
+		super(trafficNetwork, graph);
+		destinationFrom = new double[settings.numRoutingLandmarks];
+		destinationTo = new double[settings.numRoutingLandmarks];
+	}
+
+	@Override
+	public void computePathsFromTo(final Node sourceNode, final Node destinationNode, final VehicleType type) {
+		final Landmarks landmarks = graph.getLandmarks(settings.numRoutingLandmarks, settings.routingLandmarkSelection,
+				settings.randomSeed);
+		final long[] access = graph.getAccessBits(type, settings.isAllowPriorityVehicleUseTramTrack);
+		travelTimes = graph.getTravelTimes();
+		workspace.reset();
+		final NodeHeap unvisited = workspace.queue;
+		final int destination = destinationNode.index;
+		landmarks.getDestinationCosts(destination, destinationFrom, destinationTo);
+
+		workspace.reach(sourceNode.index, 0, -1);
+		unvisited.addOrDecrease(sourceNode.index,
+				landmarks.getLowerBound(sourceNode.index, destinationFrom, destinationTo));
+
+		while (!unvisited.isEmpty()) {
+			final int u = unvisited.poll();
+			final double costOfU = workspace.getCost(u);
+			workspace.visit(u);
+			numSettledNodes++;
+
+			if (u == destination) {
+				break;
+			}
+
+			// Visit each edge exiting u
+			for (int i = graph.offsets[u]; i < graph.offsets[u + 1]; i++) {
+				final int v = graph.targets[i];
+				if (workspace.isVisited(v)) {
+					continue;
+				}
+				final int edge = graph.edges[i];
+				if (!RoutingGraph.canGoThrough(access, edge)) {
+					continue;
+				}
+
+				final double distanceThroughU = costOfU + getCost(edge);
+				if (distanceThroughU < workspace.getCost(v)) {
+					workspace.reach(v, distanceThroughU, edge);
+					unvisited.addOrDecrease(v,
+							distanceThroughU + landmarks.getLowerBound(v, destinationFrom, destinationTo));
+				}
+			}
+		}
+	}
+}
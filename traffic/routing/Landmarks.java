@@ -0,0 +1,226 @@
+package traffic.routing;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import common.RandomStreams;
+import common.RandomStreams.Purpose;
+import traffic.road.Edge;
+
+/**
+ * Landmarks and their travel time tables for A* search with landmarks and the
+ * triangle inequality (ALT). Tables store the shortest travel time from each
+ * landmark to every node and from every node to each landmark. They are
+ * computed with the lowest possible travel time of edges, i.e., edge length
+ * divided by {@link Edge#maxFreeFlowSpeed}, over all edges including blocked
+ * and tram edges.
+ * <p>
+ * Real travel time of an edge is never lower than this, whatever its current
+ * free-flow speed, flow or number of lanes, and removing edges only makes
+ * paths longer. So the bounds from the tables stay admissible and consistent
+ * when speeds change, lanes change direction or edges are blocked, and the
+ * tables never need to be recomputed during simulation.
+ */
+public class Landmarks {
+	/**
+	 * How landmarks are chosen.
+	 */
+	public enum Selection {
+		/**
+		 * Each new landmark is the node farthest from the chosen landmarks,
+		 * which tends to put landmarks at the edge of the map.
+		 */
+		FARTHEST,
+		/**
+		 * Landmarks are random nodes.
+		 */
+		RANDOM
+	}
+
+	final int numLandmarks;
+	final int[] landmarkNodes;
+	/**
+	 * Travel time from landmark i to node v at position 'v * numLandmarks + i'.
+	 */
+	final double[] fromLandmark;
+	/**
+	 * Travel time from node v to landmark i at position 'v * numLandmarks + i'.
+	 */
+	final double[] toLandmark;
+
+	Landmarks(final RoutingGraph graph, final int numLandmarks, final Selection selection, final long randomSeed) {
+		final int n = graph.numNodes;
+		this.numLandmarks = Math.min(numLandmarks, n);
+		landmarkNodes = new int[this.numLandmarks];
+		fromLandmark = new double[n * this.numLandmarks];
+		toLandmark = new double[n * this.numLandmarks];
+		if (n == 0) {
+			return;
+		}
+
+		final double[] weights = new double[graph.lengths.length];
+		for (int e = 0; e < weights.length; e++) {
+			final Edge edge = graph.getEdge(e);
+			weights[e] = graph.lengths[e] / Math.max(edge.maxFreeFlowSpeed, edge.freeFlowSpeed);
+		}
+
+		// Landmarks are chosen from the largest group of nodes that can all
+		// reach each other, so they are not stuck at dead ends. Same landmarks
+		// are chosen on all workers.
+		final int[] candidates = getLargestStronglyConnectedNodes(graph);
+		final Random random = RandomStreams.forWorker(randomSeed, "landmarks", Purpose.ROUTING);
+		final double[] minCostToLandmarks = new double[n];
+		Arrays.fill(minCostToLandmarks, Double.POSITIVE_INFINITY);
+		final double[] cost = new double[n];
+		final NodeQueue queue = new NodeQueue();
+		int next = candidates[random.nextInt(candidates.length)];
+		for (int i = 0; i < this.numLandmarks; i++) {
+			landmarkNodes[i] = next;
+			search(next, graph.offsets, graph.targets, graph.edges, weights, cost, queue);
+			for (int v = 0; v < n; v++) {
+				fromLandmark[(v * this.numLandmarks) + i] = cost[v];
+			}
+			search(next, graph.reverseOffsets, graph.reverseSources, graph.reverseEdges, weights, cost, queue);
+			for (int v = 0; v < n; v++) {
+				toLandmark[(v * this.numLandmarks) + i] = cost[v];
+			}
+			if (selection == Selection.RANDOM) {
+				next = candidates[random.nextInt(candidates.length)];
+				continue;
+			}
+			double maxCost = -1;
+			for (final int v : candidates) {
+				final int position = (v * this.numLandmarks) + i;
+				minCostToLandmarks[v] = Math.min(minCostToLandmarks[v], fromLandmark[position] + toLandmark[position]);
+				if (minCostToLandmarks[v] > maxCost) {
+					maxCost = minCostToLandmarks[v];
+					next = v;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds the largest strongly connected component of a graph with Tarjan's
+	 * algorithm, without recursion.
+	 */
+	static int[] getLargestStronglyConnectedNodes(final RoutingGraph graph) {
+		final int n = graph.numNodes;
+		final int[] index = new int[n];
+		final int[] lowLink = new int[n];
+		final boolean[] isOnStack = new boolean[n];
+		final int[] stack = new int[n];
+		final int[] callNode = new int[n];
+		final int[] callSlot = new int[n];
+		Arrays.fill(index, -1);
+		int nextIndex = 0;
+		int stackSize = 0;
+		int[] largest = new int[0];
+		for (int root = 0; root < n; root++) {
+			if (index[root] >= 0) {
+				continue;
+			}
+			int depth = 0;
+			callNode[0] = root;
+			callSlot[0] = graph.offsets[root];
+			index[root] = lowLink[root] = nextIndex++;
+			stack[stackSize++] = root;
+			isOnStack[root] = true;
+			while (depth >= 0) {
+				final int u = callNode[depth];
+				if (callSlot[depth] < graph.offsets[u + 1]) {
+					final int v = graph.targets[callSlot[depth]++];
+					if (index[v] < 0) {
+						index[v] = lowLink[v] = nextIndex++;
+						stack[stackSize++] = v;
+						isOnStack[v] = true;
+						depth++;
+						callNode[depth] = v;
+						callSlot[depth] = graph.offsets[v];
+					} else if (isOnStack[v]) {
+						lowLink[u] = Math.min(lowLink[u], index[v]);
+					}
+					continue;
+				}
+				if (lowLink[u] == index[u]) {
+					int size = 0;
+					while (stack[stackSize - 1 - size] != u) {
+						size++;
+					}
+					size++;
+					if (size > largest.length) {
+						largest = Arrays.copyOfRange(stack, stackSize - size, stackSize);
+					}
+					for (int i = stackSize - size; i < stackSize; i++) {
+						isOnStack[stack[i]] = false;
+					}
+					stackSize -= size;
+				}
+				depth--;
+				if (depth >= 0) {
+					lowLink[callNode[depth]] = Math.min(lowLink[callNode[depth]], lowLink[u]);
+				}
+			}
+		}
+		return largest;
+	}
+
+	/**
+	 * Computes the lowest cost from a node to all nodes.
+	 */
+	static void search(final int source, final int[] offsets, final int[] targets, final int[] edges,
+			final double[] weights, final double[] cost, final NodeQueue queue) {
+		Arrays.fill(cost, Double.POSITIVE_INFINITY);
+		queue.clear();
+		cost[source] = 0;
+		queue.add(source, 0);
+		while (!queue.isEmpty()) {
+			final int u = queue.poll();
+			final double c = queue.getLastKey();
+			if (c > cost[u]) {
+				continue;
+			}
+			for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+				final int v = targets[i];
+				final double costThroughU = c + weights[edges[i]];
+				if (costThroughU < cost[v]) {
+					cost[v] = costThroughU;
+					queue.add(v, costThroughU);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the lower bound of travel time from a node to the destination.
+	 *
+	 * @param destinationFrom
+	 *            Travel time from each landmark to the destination.
+	 * @param destinationTo
+	 *            Travel time from the destination to each landmark.
+	 */
+	double getLowerBound(final int node, final double[] destinationFrom, final double[] destinationTo) {
+		double bound = 0;
+		final int base = node * numLandmarks;
+		for (int i = 0; i < numLandmarks; i++) {
+			// Unreachable pairs give no bound
+			final double forward = destinationFrom[i] - fromLandmark[base + i];
+			if ((forward > bound) && (forward != Double.POSITIVE_INFINITY)) {
+				bound = forward;
+			}
+			final double backward = toLandmark[base + i] - destinationTo[i];
+			if ((backward > bound) && (backward != Double.POSITIVE_INFINITY)) {
+				bound = backward;
+			}
+		}
+		return bound;
+	}
+
+	/**
+	 * Copies the table entries of the destination of a search.
+	 */
+	void getDestinationCosts(final int destination, final double[] destinationFrom, final double[] destinationTo) {
+		System.arraycopy(fromLandmark, destination * numLandmarks, destinationFrom, 0, numLandmarks);
+		System.arraycopy(toLandmark, destination * numLandmarks, destinationTo, 0, numLandmarks);
+	}
+}
@@ -0,0 +1,185 @@
+package traffic.routing;
+
+import java.util.Arrays;
+
+/**
+ * Indexed 4-ary min-heap of nodes keyed by cost. Each node is in the heap at
+ * most once. Adding a node that is already in the heap with a lower cost
+ * decreases its key in place, so a search never polls a node twice. Keys can
+ * also be increased and nodes removed, as needed by incremental searches.
+ * <p>
+ * The position of each node in the heap is kept in an array over all nodes,
+ * which is allocated once. Clearing the heap only resets the nodes still in
+ * it.
+ */
+class NodeHeap {
+	static final int arity = 4;
+
+	/**
+	 * Position of each node in the heap. '-1' means the node is not in the
+	 * heap.
+	 */
+	private final int[] positions;
+	private double[] keys = new double[64];
+	private int[] nodes = new int[64];
+	private int size = 0;
+	private double lastKey = 0;
+
+	NodeHeap(final int numNodes) {
+		positions = new int[numNodes];
+		Arrays.fill(positions, -1);
+	}
+
+	boolean contains(final int node) {
+		return positions[node] >= 0;
+	}
+
+	/**
+	 * Gets the key of a node in the heap.
+	 */
+	double getKey(final int node) {
+		return keys[positions[node]];
+	}
+
+	/**
+	 * Adds a node, or decreases its key if it is already in the heap with a
+	 * higher key.
+	 */
+	void addOrDecrease(final int node, final double key) {
+		final int position = positions[node];
+		if (position < 0) {
+			if (size == keys.length) {
+				keys = Arrays.copyOf(keys, size * 2);
+				nodes = Arrays.copyOf(nodes, size * 2);
+			}
+			siftUp(size++, node, key);
+		} else if (key < keys[position]) {
+			siftUp(position, node, key);
+		}
+	}
+
+	/**
+	 * Adds a node, or changes its key to the given key if it is already in the
+	 * heap.
+	 */
+	void update(final int node, final double key) {
+		final int position = positions[node];
+		if ((position < 0) || (key < keys[position])) {
+			addOrDecrease(node, key);
+		} else if (key > keys[position]) {
+			siftDown(position, node, key);
+		}
+	}
+
+	/**
+	 * Removes a node if it is in the heap.
+	 */
+	void remove(final int node) {
+		final int position = positions[node];
+		if (position < 0) {
+			return;
+		}
+		positions[node] = -1;
+		size--;
+		if (position == size) {
+			return;
+		}
+		final int last = nodes[size];
+		final double key = keys[size];
+		if ((position > 0) && (key < keys[(position - 1) / arity])) {
+			siftUp(position, last, key);
+		} else {
+			siftDown(position, last, key);
+		}
+	}
+
+	/**
+	 * Removes the node with the lowest cost. The cost can be read with
+	 * {@link #getLastKey()}.
+	 */
+	int poll() {
+		final int node = nodes[0];
+		lastKey = keys[0];
+		positions[node] = -1;
+		size--;
+		if (size > 0) {
+			siftDown(0, nodes[size], keys[size]);
+		}
+		return node;
+	}
+
+	double getLastKey() {
+		return lastKey;
+	}
+
+	/**
+	 * Gets the lowest cost in the heap without removing its node.
+	 */
+	double peekKey() {
+		return keys[0];
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the node at a position of the heap array, which is not in order.
+	 */
+	int getNode(final int i) {
+		return nodes[i];
+	}
+
+	void clear() {
+		for (int i = 0; i < size; i++) {
+			positions[nodes[i]] = -1;
+		}
+		size = 0;
+	}
+
+	private void siftUp(int i, final int node, final double key) {
+		while (i > 0) {
+			final int parent = (i - 1) / arity;
+			if (keys[parent] <= key) {
+				break;
+			}
+			keys[i] = keys[parent];
+			nodes[i] = nodes[parent];
+			positions[nodes[i]] = i;
+			i = parent;
+		}
+		keys[i] = key;
+		nodes[i] = node;
+		positions[node] = i;
+	}
+
+	private void siftDown(int i, final int node, final double key) {
+		while (true) {
+			final int firstChild = (arity * i) + 1;
+			if (firstChild >= size) {
+				break;
+			}
+			int child = firstChild;
+			final int lastChild = Math.min(firstChild + arity, size);
+			for (int c = firstChild + 1; c < lastChild; c++) {
+				if (keys[c] < keys[child]) {
+					child = c;
+				}
+			}
+			if (keys[child] >= key) {
+				break;
+			}
+			keys[i] = keys[child];
+			nodes[i] = nodes[child];
+			positions[nodes[i]] = i;
+			i = child;
+		}
+		keys[i] = key;
+		nodes[i] = node;
+		positions[node] = i;
+	}
+}
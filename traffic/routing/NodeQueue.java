@@ -0,0 +1,97 @@
+package traffic.routing;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of nodes keyed by cost. A node may be added again with a
+ * lower cost instead of updating its existing entry, so a search should skip
+ * a polled node that has already been visited.
+ */
+class NodeQueue {
+	private double[] keys = new double[64];
+	private int[] nodes = new int[64];
+	private int size = 0;
+	private double lastKey = 0;
+
+	void add(final int node, final double key) {
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+			nodes = Arrays.copyOf(nodes, size * 2);
+		}
+		int i = size++;
+		while (i > 0) {
+			final int parent = (i - 1) >>> 1;
+			if (keys[parent] <= key) {
+				break;
+			}
+			keys[i] = keys[parent];
+			nodes[i] = nodes[parent];
+			i = parent;
+		}
+		keys[i] = key;
+		nodes[i] = node;
+	}
+
+	/**
+	 * Removes the node with the lowest cost. The cost can be read with
+	 * {@link #getLastKey()}.
+	 */
+	int poll() {
+		final int node = nodes[0];
+		lastKey = keys[0];
+		size--;
+		if (size > 0) {
+			final double key = keys[size];
+			final int last = nodes[size];
+			int i = 0;
+			while (true) {
+				int child = (2 * i) + 1;
+				if (child >= size) {
+					break;
+				}
+				if ((child + 1 < size) && (keys[child + 1] < keys[child])) {
+					child++;
+				}
+				if (keys[child] >= key) {
+					break;
+				}
+				keys[i] = keys[child];
+				nodes[i] = nodes[child];
+				i = child;
+			}
+			keys[i] = key;
+			nodes[i] = last;
+		}
+		return node;
+	}
+
+	double getLastKey() {
+		return lastKey;
+	}
+
+	/**
+	 * Gets the lowest cost in the heap without removing its node.
+	 */
+	double peekKey() {
+		return keys[0];
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the node at a position of the heap array, which is not in order.
+	 */
+	int getNode(final int i) {
+		return nodes[i];
+	}
+
+	void clear() {
+		size = 0;
+	}
+}
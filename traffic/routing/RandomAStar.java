@@ -2,10 +2,6 @@ package traffic.routing;
 
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
-import java.util.PriorityQueue;
 import java.util.Random;
 
 import common.Settings;
@@ -13,10 +9,8 @@ import traffic.TrafficNetwork;
 import traffic.road.Edge;
 import traffic.road.Lane;
 import traffic.road.Node;
-import traffic.road.RoadNetwork;
 import traffic.road.RoadUtil;
 import traffic.vehicle.VehicleType;
-import traffic.vehicle.VehicleUtil;
 
 public class RandomAStar extends Routing {
 	double overdoFactorInAStar = 2;//Parameter in Overdo A* routing
@@ -25,166 +19,88 @@ public class RandomAStar extends Routing {
 	double minRandomOverdoFactorInAStar = 1;//Lower bound of random factor in Overdo A*
 	double maxRandomOverdoFactorInAStar = 2;//Upper bound of random factor in Overdo A*
 
-	class DijkstraEdge {
-		public final DijkstraVertex target;
-		public final double weight;
-		public final Edge edge;
+	final RoutingGraph graph;
+	/**
+	 * Workspace of the current search. Key of a node in the queue is its known
+	 * cost plus heuristic cost.
+	 */
+	final RoutingWorkspace workspace;
+	double directDistanceToDestination = Double.POSITIVE_INFINITY;
+	/**
+	 * Random numbers of the current search.
+	 */
+	Random random;
 
-		public DijkstraEdge(final DijkstraVertex argTarget, final double argWeight, final Edge argEdge) {
-			target = argTarget;
-			weight = argWeight;
-			edge = argEdge;
-		}
-	}
-
-	class DijkstraVertex {
-		public Node node;
-		public ArrayList<DijkstraEdge> adjacencies = new ArrayList<>();
-		public double knownCost = Double.POSITIVE_INFINITY;
-		public double knownCostPlusHeuristicCost = Double.POSITIVE_INFINITY;
-		public double directDistanceToDestination = Double.POSITIVE_INFINITY;
-		public DijkstraVertex previous = null;
-		RoadNetwork roadNetwork;
-		DijkstraVertexState state = DijkstraVertexState.None;
-
-		public DijkstraVertex(final Node node) {
-			this.node = node;
-		}
-	}
-
-	class DijkstraVertexComparator implements Comparator<DijkstraVertex> {
-
-		@Override
-		public int compare(final DijkstraVertex o1, final DijkstraVertex o2) {
-			if (o1.knownCostPlusHeuristicCost < o2.knownCostPlusHeuristicCost) {
-				return -1;
-			}
-			if (o1.knownCostPlusHeuristicCost > o2.knownCostPlusHeuristicCost) {
-				return 1;
-			}
-			return 0;
-		}
-
-	}
-
-	enum DijkstraVertexState {
-		Unvisited, Visited, None
+	public RandomAStar(final TrafficNetwork trafficNetwork) {
+		this(trafficNetwork, new RoutingGraph(trafficNetwork));
 	}
 
-	ArrayList<DijkstraVertex> vertices = new ArrayList<>();
-
-	DijkstraVertex startVertex, endVertex;
-
-	Random random = new Random();
-
-	public RandomAStar(final TrafficNetwork trafficNetwork) {
+	public RandomAStar(final TrafficNetwork trafficNetwork, final RoutingGraph graph) {
 		super(trafficNetwork);
-
-		// Clear existing vertex list
-		vertices = new ArrayList<>(trafficNetwork.nodes.size());
-
-		// Collect vertices inside search space
-		for (final Node node : trafficNetwork.nodes) {
-			final DijkstraVertex vertex = new DijkstraVertex(node);
-			vertices.add(vertex);
-		}
-
-		// Add outward edges to adjacent list
-		Node targetNode = null;
-		for (final DijkstraVertex vertex : vertices) {
-			final ArrayList<DijkstraEdge> adjacentEdges = new ArrayList<>();
-			for (final Edge outwardEdge : vertex.node.outwardEdges) {
-				targetNode = outwardEdge.endNode;
-				final DijkstraEdge edge = new DijkstraEdge(vertices.get(targetNode.index), outwardEdge.length,
-						outwardEdge);
-				adjacentEdges.add(edge);
-			}
-			vertex.adjacencies = adjacentEdges;
-		}
+		this.graph = graph;
+		workspace = new RoutingWorkspace(graph.numNodes);
 	}
 
 	public void computePathsFromTo(Node sourceNode, Node destinationNode, final VehicleType type) {
 		// Reset
 		final double metersPerLongitude = RoadUtil
 				.getMetersPerLongitudeDegree((sourceNode.lon + destinationNode.lon) / 2);
-		for (final DijkstraVertex v : vertices) {
-			v.knownCost = Double.POSITIVE_INFINITY;
-			v.knownCostPlusHeuristicCost = Double.POSITIVE_INFINITY;
-			v.previous = null;
-			v.state = DijkstraVertexState.None;
-			// Use simple approach to approximate distance
-			v.directDistanceToDestination = metersPerLongitude * Point2D.distance(sourceNode.lon,
-					sourceNode.lat * settings.lonVsLat, destinationNode.lon, destinationNode.lat * settings.lonVsLat);
-		}
-
-		final DijkstraVertex source = vertices.get(sourceNode.index);
-		source.knownCost = 0;
-		source.previous = null;
-
-		PriorityQueue<DijkstraVertex> unvisited = new PriorityQueue<>(10, new DijkstraVertexComparator());
-		unvisited.add(source);
-		source.state = DijkstraVertexState.Unvisited;
-
-		while (unvisited.size() > 0) {
-			final DijkstraVertex u = unvisited.poll();
-			u.state = DijkstraVertexState.Visited;
-
-			if (u.node == destinationNode) {
+		workspace.reset();
+		// Use simple approach to approximate distance
+		directDistanceToDestination = metersPerLongitude * Point2D.distance(sourceNode.lon,
+				sourceNode.lat * settings.lonVsLat, destinationNode.lon, destinationNode.lat * settings.lonVsLat);
+		final long[] access = graph.getAccessBits(type, settings.isAllowPriorityVehicleUseTramTrack);
+		final NodeHeap unvisited = workspace.queue;
+		final int destination = destinationNode.index;
+
+		workspace.reach(sourceNode.index, 0, -1);
+		unvisited.addOrDecrease(sourceNode.index, 0);
+
+		while (!unvisited.isEmpty()) {
+			final int u = unvisited.poll();
+			workspace.visit(u);
+			numSettledNodes++;
+
+			if (u == destination) {
 				break;
 			}
 
 			// Visit each edge exiting u
-			for (final DijkstraEdge e : u.adjacencies) {
-				if (!VehicleUtil.canGoThrough(u.node, e.target.node, type, settings.isAllowPriorityVehicleUseTramTrack)) {
+			for (int i = graph.offsets[u]; i < graph.offsets[u + 1]; i++) {
+				final int v = graph.targets[i];
+				if (workspace.isVisited(v)) {
 					continue;
 				}
-				final DijkstraVertex v = e.target;
-				if (v.state == DijkstraVertexState.Visited) {
+				final int edge = graph.edges[i];
+				if (!RoutingGraph.canGoThrough(access, edge)) {
 					continue;
 				}
 
-				final double knownCostPlusHeuristicCostThroughU = getKnownCostPlusHeuristicCostThroughPoint(u, e, v,
+				final double knownCostPlusHeuristicCostThroughU = getKnownCostPlusHeuristicCostThroughPoint(u, edge,
 						overdoFactorInAStar);
 
-				if (knownCostPlusHeuristicCostThroughU < v.knownCostPlusHeuristicCost) {
-					v.knownCost = u.knownCost + e.weight;
-					v.knownCostPlusHeuristicCost = knownCostPlusHeuristicCostThroughU;
-					v.previous = u;
-				}
-
-				if (v.state == DijkstraVertexState.None) {
-					unvisited.offer(v);
-					v.state = DijkstraVertexState.Unvisited;
+				if (!unvisited.contains(v) || (knownCostPlusHeuristicCostThroughU < unvisited.getKey(v))) {
+					workspace.reach(v, workspace.getCost(u) + graph.lengths[edge], edge);
+					unvisited.addOrDecrease(v, knownCostPlusHeuristicCostThroughU);
 				}
 			}
 
 			if (isRandomOverdoFactorInAStar) {
-				unvisited = updateCostOfUnvisitedWithRandomFactor(unvisited);
+				updateCostOfUnvisitedWithRandomFactor();
 			}
 		}
 	}
 
 	public ArrayList<RouteLeg> createCompleteRoute(Node start, Node end, final VehicleType type) {
-		computePathsFromTo(start, end, type);
-		final List<DijkstraVertex> path = getPathTo(end);
-		if (path.size() < 2) {
-			return null;
-		}
-		final ArrayList<RouteLeg> legsOnRoute = new ArrayList<>(1000);
-		for (int i = 1; i < path.size(); i++) {
-			final Edge edge = getEdgeFromVertices(path.get(i - 1), path.get(i));
-			legsOnRoute.add(new RouteLeg(edge, 0));
-		}
-		return legsOnRoute;
+		return createCompleteRoute(start, end, type, null);
 	}
 
-	Edge getEdgeFromVertices(final DijkstraVertex startVertex, final DijkstraVertex endVertex) {
-		for (final Edge edge : startVertex.node.outwardEdges) {
-			if (edge.endNode == endVertex.node) {
-				return edge;
-			}
-		}
-		return null;
+	@Override
+	public ArrayList<RouteLeg> createCompleteRoute(final Node start, final Node end, final VehicleType type,
+			final Random random) {
+		this.random = getRequestRandom(start, end, type, random);
+		computePathsFromTo(start, end, type);
+		return workspace.getRoute(graph, start.index, end.index);
 	}
 
 	double getFlowDensity(final Edge edge) {
@@ -195,51 +111,33 @@ public class RandomAStar extends Routing {
 		return numV / edge.length;
 	}
 
-	double getKnownCostPlusHeuristicCostThroughPoint(final DijkstraVertex u, final DijkstraEdge e,
-			final DijkstraVertex v, final double overdoFactor) {
+	double getKnownCostPlusHeuristicCostThroughPoint(final int u, final int edge, final double overdoFactor) {
 		double knownCostPlusHeuristicCostThroughU = Double.POSITIVE_INFINITY;
 		if (isConsiderTrafficInOverdoAStar) {
 
-			knownCostPlusHeuristicCostThroughU = u.knownCost + e.weight
-					+ (overdoFactor * v.directDistanceToDestination * getFlowDensity(e.edge));
+			knownCostPlusHeuristicCostThroughU = workspace.getCost(u) + graph.lengths[edge]
+					+ (overdoFactor * directDistanceToDestination * getFlowDensity(graph.getEdge(edge)));
 		} else {
-			knownCostPlusHeuristicCostThroughU = u.knownCost + e.weight
-					+ (overdoFactor * v.directDistanceToDestination);
+			knownCostPlusHeuristicCostThroughU = workspace.getCost(u) + graph.lengths[edge]
+					+ (overdoFactor * directDistanceToDestination);
 		}
 
 		return knownCostPlusHeuristicCostThroughU;
 	}
 
-	List<DijkstraVertex> getPathTo(final Node destination) {
-		final List<DijkstraVertex> path = new ArrayList<>(1000);
-
-		for (DijkstraVertex vertex = vertices.get(destination.index); vertex != null; vertex = vertex.previous) {
-			path.add(vertex);
-		}
-
-		Collections.reverse(path);
-
-		return path;
-	}
-
-	PriorityQueue<DijkstraVertex> updateCostOfUnvisitedWithRandomFactor(final PriorityQueue<DijkstraVertex> unvisited) {
+	void updateCostOfUnvisitedWithRandomFactor() {
 		final double overdoFactor = minRandomOverdoFactorInAStar
 				+ ((maxRandomOverdoFactorInAStar - minRandomOverdoFactorInAStar) * random.nextDouble());
-		final PriorityQueue<DijkstraVertex> randomizedQueue = new PriorityQueue<>(10, new DijkstraVertexComparator());
-		while (unvisited.size() > 0) {
-			final DijkstraVertex u = unvisited.poll();
-			final DijkstraVertex p = u.previous;
-
-			for (final DijkstraEdge e : p.adjacencies) {
-				if (e.target == u) {
-					final double knownCostPlusHeuristicCostThroughP = getKnownCostPlusHeuristicCostThroughPoint(p, e, u,
-							overdoFactor);
-					u.knownCostPlusHeuristicCost = knownCostPlusHeuristicCostThroughP;
-					randomizedQueue.offer(u);
-					break;
-				}
-			}
+		final NodeHeap unvisited = workspace.queue;
+		final int[] nodes = new int[unvisited.size()];
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = unvisited.getNode(i);
+		}
+		unvisited.clear();
+		for (final int u : nodes) {
+			final int edge = workspace.getPreviousEdge(u);
+			unvisited.addOrDecrease(u,
+					getKnownCostPlusHeuristicCostThroughPoint(graph.getStartNode(edge), edge, overdoFactor));
 		}
-		return randomizedQueue;
 	}
 }
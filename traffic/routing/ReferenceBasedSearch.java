@@ -10,10 +10,9 @@ import traffic.road.RoadUtil;
 import traffic.vehicle.VehicleType;
 
 public class ReferenceBasedSearch {
-	static Random random = new Random();
-
 	static ArrayList<RouteLeg> createOneRoute(final VehicleType transport, final String ref,
-			final ArrayList<Edge> startEdgesOfRandomRoute, final ArrayList<Edge> endEdgesOfRandomRoute) {
+			final ArrayList<Edge> startEdgesOfRandomRoute, final ArrayList<Edge> endEdgesOfRandomRoute,
+			final Random random) {
 		final Edge startEdge = startEdgesOfRandomRoute.get(random.nextInt(startEdgesOfRandomRoute.size())); // 
 		Edge endEdge = endEdgesOfRandomRoute.get(random.nextInt(endEdgesOfRandomRoute.size()));
 		final ArrayList<RouteLeg> routeLegs = new ArrayList<>();
@@ -24,7 +23,7 @@ public class ReferenceBasedSearch {
 		}
 		nodesOnRoute.put(startEdge.startNode.index, null);
 		nodesOnRoute.put(startEdge.endNode.index, null);
-		Edge nextEdge = pickNextEdgeOnPublicTransportRoute(startEdge.endNode, ref, transport, nodesOnRoute);
+		Edge nextEdge = pickNextEdgeOnPublicTransportRoute(startEdge.endNode, ref, transport, nodesOnRoute, random);
 
 		while (nextEdge != null) {
 			routeLegs.add(new RouteLeg(nextEdge, 0));
@@ -32,7 +31,7 @@ public class ReferenceBasedSearch {
 			if (nextEdge == endEdge) {
 				break;
 			}
-			nextEdge = pickNextEdgeOnPublicTransportRoute(nextEdge.endNode, ref, transport, nodesOnRoute);
+			nextEdge = pickNextEdgeOnPublicTransportRoute(nextEdge.endNode, ref, transport, nodesOnRoute, random);
 		}
 
 		if (routeLegs.get(routeLegs.size() - 1).edge == endEdge) {
@@ -43,10 +42,11 @@ public class ReferenceBasedSearch {
 	}
 
 	public static ArrayList<RouteLeg> createRoute(final VehicleType transport, final String ref,
-			final ArrayList<Edge> startEdgesOfRandomRoute, final ArrayList<Edge> endEdgesOfRandomRoute) {
+			final ArrayList<Edge> startEdgesOfRandomRoute, final ArrayList<Edge> endEdgesOfRandomRoute,
+			final Random random) {
 		ArrayList<RouteLeg> routeLegs = null;
 		for (int i = 0; i < 3; i++) {
-			routeLegs = createOneRoute(transport, ref, startEdgesOfRandomRoute, endEdgesOfRandomRoute);
+			routeLegs = createOneRoute(transport, ref, startEdgesOfRandomRoute, endEdgesOfRandomRoute, random);
 			if (routeLegs != null) {
 				break;
 			}
@@ -60,7 +60,7 @@ public class ReferenceBasedSearch {
 	 * lead to the previous node; 2) already exist on the route.
 	 */
 	static Edge pickNextEdgeOnPublicTransportRoute(final Node startNode, final String ref, final VehicleType transport,
-			final HashMap<Integer, Integer> nodesOnRoute) {
+			final HashMap<Integer, Integer> nodesOnRoute, final Random random) {
 		final ArrayList<Edge> options = new ArrayList<>();
 		for (final Edge e : startNode.outwardEdges) {
 
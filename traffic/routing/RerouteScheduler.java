@@ -0,0 +1,86 @@
+package traffic.routing;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import common.Settings;
+import traffic.vehicle.Vehicle;
+
+/**
+ * Limits the number of vehicles that re-route in one step. Vehicles that need
+ * a new route are collected while they move, and only the most urgent ones
+ * re-route at the end of the moves. Vehicles on a blocked road go first, then
+ * vehicles that have been in a jam for longest, then vehicles whose last
+ * route update is the oldest. The other vehicles still need a new route in
+ * the next step and try again, so vehicles released together spread their
+ * re-routes over several steps instead of all searching in the same step.
+ */
+public class RerouteScheduler {
+	private final Settings settings;
+	private final ArrayList<Vehicle> candidates = new ArrayList<>();
+	private long numScheduled = 0;
+	private long numDeferred = 0;
+
+	public RerouteScheduler(final Settings settings) {
+		this.settings = settings;
+	}
+
+	/**
+	 * Whether re-routes are limited per step. Otherwise vehicles re-route as
+	 * soon as they need to.
+	 */
+	public boolean isEnabled() {
+		return settings.rerouteBudgetPerStep > 0;
+	}
+
+	/**
+	 * Adds a vehicle that needs a new route in this step.
+	 */
+	public void offer(final Vehicle vehicle) {
+		candidates.add(vehicle);
+	}
+
+	/**
+	 * Chooses the vehicles that re-route in this step. Vehicles are offered in
+	 * the same order on every run, and the sort is stable, so the choice is
+	 * deterministic.
+	 */
+	public List<Vehicle> select() {
+		final ArrayList<Vehicle> selected = new ArrayList<>();
+		if (candidates.size() > settings.rerouteBudgetPerStep) {
+			candidates.sort(getPriorityComparator());
+		}
+		final int numSelected = Math.min(candidates.size(), settings.rerouteBudgetPerStep);
+		selected.addAll(candidates.subList(0, numSelected));
+		numScheduled += numSelected;
+		numDeferred += candidates.size() - numSelected;
+		candidates.clear();
+		return selected;
+	}
+
+	/**
+	 * Orders vehicles by blocked road ahead, then by earliest jam start and
+	 * then by earliest route update.
+	 */
+	static Comparator<Vehicle> getPriorityComparator() {
+		return Comparator.comparing((final Vehicle v) -> !v.isRoadBlockedAhead)
+				.thenComparingDouble(v -> v.timeJamStart).thenComparingDouble(v -> v.lastReRouted);
+	}
+
+	public void clear() {
+		candidates.clear();
+	}
+
+	public long getNumScheduled() {
+		return numScheduled;
+	}
+
+	/**
+	 * Gets the total number of times that a vehicle needing a new route had to
+	 * wait for a later step.
+	 */
+	public long getNumDeferred() {
+		return numDeferred;
+	}
+}
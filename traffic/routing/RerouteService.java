@@ -0,0 +1,298 @@
+package traffic.routing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import traffic.TrafficNetwork;
+import traffic.road.Edge;
+import traffic.road.Node;
+import traffic.vehicle.Vehicle;
+import traffic.vehicle.VehicleType;
+
+/**
+ * Searches new routes of vehicles with a pool of background threads, so route
+ * searches are not part of the simulation steps. Vehicles request reroutes
+ * while they move in a step. The requests are submitted at the end of the
+ * step and searched while the worker exchanges data with other processors and
+ * simulates the following steps. The results are applied in the order of
+ * requests at the start of the step that is
+ * {@link common.Settings#rerouteDelaySteps} after the request, before any
+ * vehicle moves. If a search is not done by then, the simulation waits for it.
+ * <p>
+ * Before the inputs of routing change, e.g., lanes are blocked or travel times
+ * are updated, the searches are stopped with {@link #stopSearches()}. A search
+ * stops when its current route search is done, and all the requests in
+ * progress are searched again after the change. So every new route is found
+ * with the inputs at a fixed point of the simulation, and does not depend on
+ * the number of threads or on how long the searches take. A result is dropped
+ * if the vehicle has left the network or moved to another leg before the
+ * result is applied.
+ */
+public class RerouteService {
+	/**
+	 * Reroute requested by a vehicle.
+	 */
+	static class Request {
+		final Vehicle vehicle;
+		final int indexLegOnRoute;
+		final boolean isDynamic;
+		final double timeRequested;
+		final Node start;
+		final Node end;
+		final Edge oldNextEdge;
+		final VehicleType type;
+		/**
+		 * Step at the start of which the result is applied.
+		 */
+		int stepToApply;
+		/**
+		 * Search of the request. Null if the request is not searched yet, or
+		 * if its search was stopped and needs to be done again.
+		 */
+		Future<ArrayList<RouteLeg>> future = null;
+
+		Request(final Vehicle vehicle, final double timeRequested, final boolean isDynamic) {
+			this.vehicle = vehicle;
+			this.timeRequested = timeRequested;
+			this.isDynamic = isDynamic;
+			indexLegOnRoute = vehicle.getIndexLegOnRoute();
+			start = vehicle.getRerouteStartNode();
+			end = vehicle.getRerouteEndNode();
+			oldNextEdge = vehicle.getRouteLegs().get(indexLegOnRoute + 1).edge;
+			type = vehicle.type;
+		}
+	}
+
+	private final TrafficNetwork trafficNetwork;
+	private final int numThreads;
+	private final ExecutorService pool;
+	/**
+	 * Requests of the current step, which are not submitted yet.
+	 */
+	private final ArrayList<Request> requests = new ArrayList<>();
+	/**
+	 * Requests being searched, in the order of requests.
+	 */
+	private final ArrayList<Request> submitted = new ArrayList<>();
+	private final Set<Vehicle> pendingVehicles = Collections.newSetFromMap(new IdentityHashMap<>());
+	/**
+	 * Set while searches are being stopped. Searches check it before each
+	 * route search.
+	 */
+	private volatile boolean isStopping = false;
+	private long numApplied = 0;
+	private long numDropped = 0;
+	private long numRestarted = 0;
+
+	public RerouteService(final TrafficNetwork trafficNetwork, final int numThreads) {
+		this.trafficNetwork = trafficNetwork;
+		this.numThreads = numThreads;
+		final AtomicInteger threadCount = new AtomicInteger();
+		pool = Executors.newFixedThreadPool(numThreads, r -> {
+			final Thread thread = new Thread(r, "reroute-" + threadCount.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	public int getNumThreads() {
+		return numThreads;
+	}
+
+	/**
+	 * Checks whether a vehicle is waiting for the result of a reroute.
+	 */
+	public boolean isPending(final Vehicle vehicle) {
+		return pendingVehicles.contains(vehicle);
+	}
+
+	/**
+	 * Adds a reroute request of a vehicle, which is submitted at the end of the
+	 * current step.
+	 *
+	 * @param isDynamic
+	 *            Whether it is a regular route update of a connected autonomous
+	 *            vehicle. Otherwise the new route must not go through the next
+	 *            leg on the current route.
+	 */
+	public void request(final Vehicle vehicle, final double timeNow, final boolean isDynamic) {
+		if (pendingVehicles.add(vehicle)) {
+			requests.add(new Request(vehicle, timeNow, isDynamic));
+		}
+	}
+
+	/**
+	 * Starts searching the routes of the requests in the current step, and
+	 * searches the stopped requests again.
+	 */
+	public void submitRequests(final int step) {
+		restartStoppedSearches();
+		final int stepToApply = step + Math.max(1, trafficNetwork.getSettings().rerouteDelaySteps);
+		for (final Request request : requests) {
+			request.stepToApply = stepToApply;
+			request.future = pool.submit(() -> search(request));
+			submitted.add(request);
+		}
+		requests.clear();
+	}
+
+	void restartStoppedSearches() {
+		for (final Request request : submitted) {
+			if (request.future == null) {
+				request.future = pool.submit(() -> search(request));
+				numRestarted++;
+			}
+		}
+	}
+
+	/**
+	 * Searches the route of a request. Returns null without searching if the
+	 * searches are being stopped, as the result would be discarded.
+	 */
+	ArrayList<RouteLeg> search(final Request request) {
+		if (isStopping) {
+			return null;
+		}
+		final Routing routing = trafficNetwork.getRoutingAlgorithm();
+		// A stopped search gets the same random numbers when it is done again
+		final Random random = request.vehicle.getRoutingRandom(request.timeRequested);
+		if (request.isDynamic) {
+			return routing.createCompleteRoute(request.start, request.end, request.type, random);
+		}
+		// Try a few times for computing new route, which must be different to
+		// the old route.
+		for (int i = 0; (i < 3) && !isStopping; i++) {
+			final ArrayList<RouteLeg> partialRoute = routing.createCompleteRoute(request.start, request.end,
+					request.type, random);
+			if ((partialRoute != null) && (partialRoute.get(0).edge != request.oldNextEdge)) {
+				return partialRoute;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Applies the results of the requests due at the given step in the order
+	 * of requests, after waiting for their searches. Other requests keep being
+	 * searched.
+	 */
+	public void applyResults(final int step) {
+		restartStoppedSearches();
+		final ArrayList<Request> notDue = new ArrayList<>();
+		for (final Request request : submitted) {
+			if (request.stepToApply > step) {
+				notDue.add(request);
+				continue;
+			}
+			final ArrayList<RouteLeg> partialRoute = getResult(request);
+			final Vehicle vehicle = request.vehicle;
+			pendingVehicles.remove(vehicle);
+			if ((partialRoute == null) || !vehicle.active || vehicle.isFinished() || vehicle.isReachedFellow()) {
+				numDropped++;
+				continue;
+			}
+			if (vehicle.applyReroute(request.indexLegOnRoute, partialRoute, !request.isDynamic)) {
+				numApplied++;
+				if (request.isDynamic) {
+					vehicle.lastReRouted = request.timeRequested;
+				}
+			} else {
+				numDropped++;
+			}
+		}
+		submitted.clear();
+		submitted.addAll(notDue);
+	}
+
+	/**
+	 * Waits for the search of a request and gets its route.
+	 */
+	ArrayList<RouteLeg> getResult(final Request request) {
+		try {
+			return request.future.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (final ExecutionException e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	/**
+	 * Stops the searches in progress and waits until they stop. This is called
+	 * before the inputs of routing change, e.g., lanes, access of edges or
+	 * travel times. A search stops when its current route search is done. The
+	 * stopped requests are searched again when results are applied or new
+	 * requests are submitted, so their routes are found with the changed
+	 * inputs.
+	 */
+	public void stopSearches() {
+		boolean isAnySearched = false;
+		for (final Request request : submitted) {
+			isAnySearched |= request.future != null;
+		}
+		if (!isAnySearched) {
+			return;
+		}
+		isStopping = true;
+		try {
+			for (final Request request : submitted) {
+				if (request.future == null) {
+					continue;
+				}
+				try {
+					request.future.get();
+				} catch (final ExecutionException | CancellationException e) {
+					// The request is searched again
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				request.future = null;
+			}
+		} finally {
+			isStopping = false;
+		}
+	}
+
+	/**
+	 * Stops all the searches and drops the requests, e.g., when traffic is
+	 * reset.
+	 */
+	public void clear() {
+		stopSearches();
+		submitted.clear();
+		requests.clear();
+		pendingVehicles.clear();
+	}
+
+	public void shutdown() {
+		clear();
+		pool.shutdown();
+	}
+
+	public long getNumApplied() {
+		return numApplied;
+	}
+
+	public long getNumDropped() {
+		return numDropped;
+	}
+
+	/**
+	 * Gets the number of searches done again because routing inputs changed
+	 * while they were in progress.
+	 */
+	public long getNumRestarted() {
+		return numRestarted;
+	}
+}
@@ -0,0 +1,144 @@
+package traffic.routing;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import traffic.vehicle.VehicleType;
+
+/**
+ * Routes found recently, keyed by start node, end node, vehicle type, routing
+ * algorithm and cost epoch. The epoch increases whenever the costs used by
+ * routing may have changed, e.g., when edge flows are updated or lanes are
+ * blocked, so a route is only reused while the costs it was found with are
+ * still current. Routes of earlier epochs are never looked up again and are
+ * evicted as the least recently used ones once the cache is full.
+ * <p>
+ * The cache is shared by all threads of a traffic network.
+ */
+public class RouteCache {
+	static class Key {
+		final int start;
+		final int end;
+		final VehicleType type;
+		final Routing.Algorithm algorithm;
+		final long epoch;
+
+		Key(final int start, final int end, final VehicleType type, final Routing.Algorithm algorithm,
+				final long epoch) {
+			this.start = start;
+			this.end = end;
+			this.type = type;
+			this.algorithm = algorithm;
+			this.epoch = epoch;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			final Key key = (Key) o;
+			return (start == key.start) && (end == key.end) && (type == key.type) && (algorithm == key.algorithm)
+					&& (epoch == key.epoch);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(start, end, type, algorithm, epoch);
+		}
+	}
+
+	/**
+	 * Stored in place of a route when no route is found.
+	 */
+	static final ArrayList<RouteLeg> noRoute = new ArrayList<>(0);
+
+	private final LinkedHashMap<Key, ArrayList<RouteLeg>> routes;
+	private volatile long epoch = 0;
+	private long numHits = 0;
+	private long numMisses = 0;
+	private long numEvictions = 0;
+
+	public RouteCache(final int capacity) {
+		routes = new LinkedHashMap<Key, ArrayList<RouteLeg>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Key, ArrayList<RouteLeg>> eldest) {
+				if (size() > capacity) {
+					numEvictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Starts a new epoch. Routes cached before this are not used any more.
+	 */
+	public void bumpEpoch() {
+		epoch++;
+	}
+
+	public long getEpoch() {
+		return epoch;
+	}
+
+	/**
+	 * Gets a cached route, or null if the route is not cached. The returned
+	 * route is {@link #noRoute} if no route was found.
+	 */
+	synchronized ArrayList<RouteLeg> get(final Key key) {
+		final ArrayList<RouteLeg> route = routes.get(key);
+		if (route == null) {
+			numMisses++;
+		} else {
+			numHits++;
+		}
+		return route;
+	}
+
+	synchronized void put(final Key key, final ArrayList<RouteLeg> route) {
+		routes.put(key, route);
+	}
+
+	/**
+	 * Copies the legs of a route, so the vehicles sharing a cached route do
+	 * not change each other's legs.
+	 */
+	static ArrayList<RouteLeg> copy(final List<RouteLeg> route) {
+		final ArrayList<RouteLeg> legs = new ArrayList<>(route.size());
+		for (final RouteLeg leg : route) {
+			legs.add(new RouteLeg(leg.edge, leg.stopover));
+		}
+		return legs;
+	}
+
+	public synchronized long getNumHits() {
+		return numHits;
+	}
+
+	public synchronized long getNumMisses() {
+		return numMisses;
+	}
+
+	public synchronized long getNumEvictions() {
+		return numEvictions;
+	}
+
+	public synchronized int size() {
+		return routes.size();
+	}
+
+	/**
+	 * Gets the ratio of lookups that find a route.
+	 */
+	public synchronized double getHitRate() {
+		final long numLookups = numHits + numMisses;
+		return numLookups == 0 ? 0 : (double) numHits / numLookups;
+	}
+}
@@ -0,0 +1,32 @@
+package traffic.routing;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import traffic.road.Node;
+import traffic.vehicle.VehicleType;
+
+/**
+ * Request for a route in a batch of routing requests. The route is filled in
+ * by {@link Routing#createCompleteRoutes(java.util.List)}.
+ */
+public class RouteRequest {
+	public final Node start;
+	public final Node end;
+	public final VehicleType type;
+	/**
+	 * Random numbers of the request, e.g., the routing stream of the vehicle
+	 * at the current step. Null if the request is not made by a vehicle.
+	 */
+	public Random random = null;
+	/**
+	 * Found route, or null if there is no route.
+	 */
+	public ArrayList<RouteLeg> route = null;
+
+	public RouteRequest(final Node start, final Node end, final VehicleType type) {
+		this.start = start;
+		this.end = end;
+		this.type = type;
+	}
+}
@@ -2,7 +2,10 @@ package traffic.routing;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
+import common.RandomStreams;
+import common.RandomStreams.Purpose;
 import common.Settings;
 import traffic.TrafficNetwork;
 import traffic.road.Edge;
@@ -12,11 +15,16 @@ import traffic.vehicle.VehicleType;
 
 public abstract class Routing {
 	public enum Algorithm {
-		DIJKSTRA_LPF, RANDOM_A_STAR, DIJKSTRA
+		DIJKSTRA_LPF, RANDOM_A_STAR, DIJKSTRA, CONTRACTION_HIERARCHY, CONTRACTION_HIERARCHY_LPF, LANDMARK_A_STAR,
+		INCREMENTAL_DIJKSTRA, ALTERNATIVE_ROUTES
 	}
 
 	TrafficNetwork trafficNetwork;
 	protected Settings settings;
+	/**
+	 * Total number of nodes settled by the searches of this object.
+	 */
+	protected long numSettledNodes = 0;
 
     public Routing(final TrafficNetwork trafficNetwork) {
 		this.trafficNetwork = trafficNetwork;
@@ -25,6 +33,53 @@ public abstract class Routing {
 
 	public abstract ArrayList<RouteLeg> createCompleteRoute(Node start, Node end, VehicleType type);
 
+	/**
+	 * Finds a route with the random numbers of a request, e.g., the routing
+	 * stream of a vehicle at the current step. Algorithms that choose routes
+	 * randomly override this, so a route does not depend on which thread or
+	 * routing object finds it. Other algorithms ignore the random numbers.
+	 *
+	 * @param random
+	 *            Random numbers of the request. If null, a stream is derived
+	 *            from the nodes and type of the request.
+	 */
+	public ArrayList<RouteLeg> createCompleteRoute(final Node start, final Node end, final VehicleType type,
+			final Random random) {
+		return createCompleteRoute(start, end, type);
+	}
+
+	/**
+	 * Finds the routes of a batch of requests. By default each route is
+	 * searched separately. Algorithms that can share work among requests,
+	 * e.g., requests from the same start node, override this.
+	 */
+	public void createCompleteRoutes(final List<RouteRequest> requests) {
+		for (final RouteRequest request : requests) {
+			request.route = createCompleteRoute(request.start, request.end, request.type, request.random);
+		}
+	}
+
+	/**
+	 * Gets the random numbers of a request. A request without its own stream
+	 * gets a stream derived from its nodes and type, so repeated requests of
+	 * the same pair get the same route.
+	 */
+	Random getRequestRandom(final Node start, final Node end, final VehicleType type, final Random random) {
+		if (random != null) {
+			return random;
+		}
+		return RandomStreams.forKey(settings.randomSeed, ((long) start.index << 32) | end.index, Purpose.ROUTING,
+				type.ordinal());
+	}
+
+	/**
+	 * Gets the total number of nodes settled by the searches of this object,
+	 * which measures the work of the searches.
+	 */
+	public long getNumSettledNodes() {
+		return numSettledNodes;
+	}
+
 
 
 }
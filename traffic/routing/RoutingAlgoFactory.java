@@ -5,12 +5,30 @@ import traffic.TrafficNetwork;
 public class RoutingAlgoFactory {
 
     public Routing getRoutingAlgo(Routing.Algorithm algoName, TrafficNetwork trafficNetwork){
+        return getRoutingAlgo(algoName, trafficNetwork, new RoutingGraph(trafficNetwork));
+    }
+
+    /**
+     * Creates a routing algorithm that searches over an existing graph of the
+     * traffic network.
+     */
+    public Routing getRoutingAlgo(Routing.Algorithm algoName, TrafficNetwork trafficNetwork, RoutingGraph graph){
         if ( algoName == Routing.Algorithm.DIJKSTRA){
-            return new Dijkstra(trafficNetwork);
+            return new Dijkstra(trafficNetwork, graph);
         } else if (algoName == Routing.Algorithm.DIJKSTRA_LPF){
-            return new Dijkstra_LPF(trafficNetwork);
+            return new Dijkstra_LPF(trafficNetwork, graph);
         } else if (algoName == Routing.Algorithm.RANDOM_A_STAR){
-            return  new RandomAStar(trafficNetwork);
+            return  new RandomAStar(trafficNetwork, graph);
+        } else if (algoName == Routing.Algorithm.CONTRACTION_HIERARCHY){
+            return new ContractionHierarchyRouting(trafficNetwork, graph);
+        } else if (algoName == Routing.Algorithm.CONTRACTION_HIERARCHY_LPF){
+            return new ContractionHierarchy_LPF(trafficNetwork, graph);
+        } else if (algoName == Routing.Algorithm.LANDMARK_A_STAR){
+            return new LandmarkAStar(trafficNetwork, graph);
+        } else if (algoName == Routing.Algorithm.INCREMENTAL_DIJKSTRA){
+            return new IncrementalDijkstra(trafficNetwork, graph);
+        } else if (algoName == Routing.Algorithm.ALTERNATIVE_ROUTES){
+            return new AlternativeRouting(trafficNetwork, graph);
         } else {
             return null;
         }
@@ -0,0 +1,441 @@
+package traffic.routing;
+
+import java.util.Arrays;
+import java.util.List;
+
+import traffic.road.Edge;
+import traffic.road.Node;
+import traffic.road.RoadNetwork;
+import traffic.road.RoadType;
+import traffic.vehicle.VehicleType;
+import traffic.vehicle.VehicleUtil;
+
+/**
+ * Road graph in compressed sparse row form, which is searched by all routing
+ * algorithms. The outward edges of the node with index i are at positions
+ * offsets[i] to offsets[i + 1] - 1 of {@link #targets} and {@link #edges}.
+ * Edge lengths are indexed by {@link Edge#index}.
+ * <p>
+ * The topology arrays, i.e., offsets, targets, edges, the reverse arrays and
+ * lengths, do not change after the graph is built, so they can be searched by
+ * many threads at the same time. The travel time tables, the access bits, the
+ * hierarchies and the log of changed edges change during a simulation. They
+ * must not change while background searches read them, so the methods that
+ * change them first run the hook set with {@link #setBeforeChange(Runnable)},
+ * which {@link RoutingService} sets to
+ * {@link RoutingService#stopBackgroundSearches()}.
+ */
+public class RoutingGraph {
+	public final int numNodes;
+	public final int[] offsets;
+	/**
+	 * Index of the end node of each outward edge.
+	 */
+	public final int[] targets;
+	/**
+	 * Index of each outward edge in the road network.
+	 */
+	public final int[] edges;
+	/**
+	 * Inward edges of each node, in the same layout as outward edges.
+	 */
+	public final int[] reverseOffsets;
+	/**
+	 * Index of the start node of each inward edge.
+	 */
+	public final int[] reverseSources;
+	public final int[] reverseEdges;
+	/**
+	 * Length of edges, indexed by edge index.
+	 */
+	public final double[] lengths;
+	private final List<Edge> networkEdges;
+	private final long fingerprint;
+	/**
+	 * Contraction hierarchies of the graph, built on first use. The first one
+	 * excludes tram edges and the second one includes all edges.
+	 */
+	private final ContractionHierarchy[] contractionHierarchies = new ContractionHierarchy[2];
+	/**
+	 * Customizable contraction hierarchies of the graph and their latest
+	 * customization by travel time, in the same order as
+	 * {@link #contractionHierarchies}.
+	 */
+	private final CustomizableContractionHierarchy[] customizableHierarchies = new CustomizableContractionHierarchy[2];
+	private final ContractionHierarchy[] travelTimeHierarchies = new ContractionHierarchy[2];
+	/**
+	 * Two tables of the travel time of edges, indexed by edge index. A new
+	 * table is filled while searches read the other one, and then published.
+	 */
+	private final double[][] travelTimeBuffers = new double[2][];
+	private volatile double[] travelTimes = null;
+	/**
+	 * Edges that vehicles of each type can go through, as bits over edge
+	 * index. An edge is included if vehicles of the type may use it and it is
+	 * not blocked. The bits are updated when edges change.
+	 */
+	private final long[][] accessBits = new long[VehicleType.values().length][];
+	/**
+	 * Whether priority vehicles could use tram edges when the access bits were
+	 * built. '0' means the bits are not built, '1' means no and '2' means yes.
+	 */
+	private volatile int accessMode = 0;
+	private Landmarks landmarks = null;
+	/**
+	 * Number of the latest changed edges that are kept. An incremental search
+	 * that has fallen further behind is reset instead of repaired.
+	 */
+	static final int maxNumChangedEdges = 4096;
+	/**
+	 * Edges that may have become blocked or unblocked, in the order of
+	 * changes. Incremental searches repair their state with the edges changed
+	 * since their last repair. The latest {@link #maxNumChangedEdges} changes
+	 * are kept in a ring, where change i is at position i modulo the size.
+	 */
+	private final int[] changedEdges = new int[maxNumChangedEdges];
+	/**
+	 * Number of changes since the latest reset, including the ones that are
+	 * no longer kept.
+	 */
+	private int numChangedEdges = 0;
+	/**
+	 * Number of times that all edges are changed, e.g., when traffic is
+	 * reset. State of incremental searches from an earlier reset is discarded.
+	 */
+	private int numResets = 0;
+	/**
+	 * Number of times that the travel time table is updated or any edge is
+	 * changed. Results kept across searches are out of date when it differs.
+	 */
+	private volatile long numCostChanges = 0;
+	/**
+	 * Stops the searches that run outside the calling thread before the
+	 * mutable state of the graph changes. Null if there are no such searches.
+	 */
+	private volatile Runnable beforeChange = null;
+
+	public RoutingGraph(final RoadNetwork network) {
+		networkEdges = network.edges;
+		numNodes = network.nodes.size();
+		offsets = new int[numNodes + 1];
+		for (final Node node : network.nodes) {
+			offsets[node.index + 1] = node.outwardEdges.size();
+		}
+		for (int i = 0; i < numNodes; i++) {
+			offsets[i + 1] += offsets[i];
+		}
+		targets = new int[offsets[numNodes]];
+		edges = new int[offsets[numNodes]];
+		for (final Node node : network.nodes) {
+			int slot = offsets[node.index];
+			for (final Edge edge : node.outwardEdges) {
+				targets[slot] = edge.endNode.index;
+				edges[slot] = edge.index;
+				slot++;
+			}
+		}
+		reverseOffsets = new int[numNodes + 1];
+		for (int i = 0; i < targets.length; i++) {
+			reverseOffsets[targets[i] + 1]++;
+		}
+		for (int i = 0; i < numNodes; i++) {
+			reverseOffsets[i + 1] += reverseOffsets[i];
+		}
+		reverseSources = new int[targets.length];
+		reverseEdges = new int[targets.length];
+		final int[] slots = Arrays.copyOf(reverseOffsets, numNodes);
+		for (int u = 0; u < numNodes; u++) {
+			for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+				final int slot = slots[targets[i]]++;
+				reverseSources[slot] = u;
+				reverseEdges[slot] = edges[i];
+			}
+		}
+		lengths = new double[networkEdges.size()];
+		for (final Edge edge : networkEdges) {
+			lengths[edge.index] = edge.length;
+		}
+		fingerprint = computeFingerprint();
+	}
+
+	/**
+	 * Computes a 64-bit FNV-1a hash of the nodes, edges, lengths and tram
+	 * edges of the graph. Preprocessed routing data saved to disk is only
+	 * reused for a graph with the same fingerprint.
+	 */
+	long computeFingerprint() {
+		long h = 0xcbf29ce484222325L;
+		h = (h ^ numNodes) * 0x100000001b3L;
+		for (int i = 0; i < numNodes; i++) {
+			h = (h ^ offsets[i + 1]) * 0x100000001b3L;
+		}
+		for (int i = 0; i < targets.length; i++) {
+			h = (h ^ targets[i]) * 0x100000001b3L;
+			h = (h ^ edges[i]) * 0x100000001b3L;
+		}
+		for (final Edge edge : networkEdges) {
+			h = (h ^ Double.doubleToLongBits(edge.length)) * 0x100000001b3L;
+			h = (h ^ (edge.type == RoadType.tram ? 1 : 0)) * 0x100000001b3L;
+		}
+		return h;
+	}
+
+	public long getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * Gets the contraction hierarchy for the vehicles that can or cannot use
+	 * tram edges. The hierarchy is built or read from cache when it is first
+	 * needed, and is shared by all threads afterwards.
+	 *
+	 * @param cacheFolder
+	 *            Folder where the hierarchy is cached. An empty string means
+	 *            no caching.
+	 */
+	public synchronized ContractionHierarchy getContractionHierarchy(final boolean isTramTrackAllowed,
+			final String cacheFolder) {
+		final int i = isTramTrackAllowed ? 1 : 0;
+		if (contractionHierarchies[i] == null) {
+			contractionHierarchies[i] = ContractionHierarchy.load(this, isTramTrackAllowed, cacheFolder);
+		}
+		return contractionHierarchies[i];
+	}
+
+	public Edge getEdge(final int edgeIndex) {
+		return networkEdges.get(edgeIndex);
+	}
+
+	/**
+	 * Gets the index of the start node of an edge.
+	 */
+	public int getStartNode(final int edgeIndex) {
+		return networkEdges.get(edgeIndex).startNode.index;
+	}
+
+	/**
+	 * Gets the contraction hierarchy customized by the latest travel time of
+	 * edges. The topology is built when it is first needed.
+	 */
+	public synchronized ContractionHierarchy getTravelTimeHierarchy(final boolean isTramTrackAllowed) {
+		final int i = isTramTrackAllowed ? 1 : 0;
+		if (customizableHierarchies[i] == null) {
+			customizableHierarchies[i] = new CustomizableContractionHierarchy(this, isTramTrackAllowed);
+			travelTimeHierarchies[i] = customizableHierarchies[i].customize(getTravelTimes());
+		}
+		return travelTimeHierarchies[i];
+	}
+
+	/**
+	 * Gets the latest table of the travel time of edges given by
+	 * {@link Dijkstra_LPF#getTravelTime(Edge)}. The table is computed when it
+	 * is first needed. A search should get the table once and use it for all
+	 * its edges, so its costs do not change during the search. The table stays
+	 * unchanged until the table after the next one is published, and
+	 * background searches are stopped before each table is published.
+	 */
+	public double[] getTravelTimes() {
+		final double[] table = travelTimes;
+		if (table != null) {
+			return table;
+		}
+		synchronized (this) {
+			if (travelTimes == null) {
+				publishTravelTimes();
+			}
+			return travelTimes;
+		}
+	}
+
+	/**
+	 * Computes the travel time of edges into the table not being read, and
+	 * publishes it.
+	 */
+	private synchronized void publishTravelTimes() {
+		final double[] table;
+		if (travelTimes == travelTimeBuffers[0]) {
+			if (travelTimeBuffers[1] == null) {
+				travelTimeBuffers[1] = new double[lengths.length];
+			}
+			table = travelTimeBuffers[1];
+		} else {
+			if (travelTimeBuffers[0] == null) {
+				travelTimeBuffers[0] = new double[lengths.length];
+			}
+			table = travelTimeBuffers[0];
+		}
+		for (int e = 0; e < table.length; e++) {
+			table[e] = Dijkstra_LPF.getTravelTime(networkEdges.get(e));
+		}
+		if (travelTimes != null) {
+			numCostChanges++;
+		}
+		travelTimes = table;
+	}
+
+	/**
+	 * Computes the travel time table and customizes the hierarchies again
+	 * after the flow or free-flow speed of edges has changed. Searches that
+	 * have started on the calling thread keep using the previous table and
+	 * customization.
+	 * <p>
+	 * The new table is written into the buffer of the table before the
+	 * previous one, so no search may still read that table. Background
+	 * searches are stopped first by the hook set with
+	 * {@link #setBeforeChange(Runnable)}. This must therefore not be called
+	 * from a background search.
+	 */
+	public void updateTravelTimes() {
+		runBeforeChange();
+		publishTravelTimes();
+		final double[] table = travelTimes;
+		for (int i = 0; i < customizableHierarchies.length; i++) {
+			final CustomizableContractionHierarchy hierarchy;
+			synchronized (this) {
+				hierarchy = customizableHierarchies[i];
+			}
+			if (hierarchy != null) {
+				final ContractionHierarchy customized = hierarchy.customize(table);
+				synchronized (this) {
+					travelTimeHierarchies[i] = customized;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the landmarks of the graph, which are chosen and measured when they
+	 * are first needed.
+	 */
+	public synchronized Landmarks getLandmarks(final int numLandmarks, final Landmarks.Selection selection,
+			final long randomSeed) {
+		if (landmarks == null) {
+			landmarks = new Landmarks(this, numLandmarks, selection, randomSeed);
+		}
+		return landmarks;
+	}
+
+	/**
+	 * Records an edge that may have become blocked or unblocked. Background
+	 * searches are stopped first, as in {@link #updateTravelTimes()}.
+	 */
+	public void markEdgeChanged(final int edgeIndex) {
+		runBeforeChange();
+		synchronized (this) {
+			if (numChangedEdges == Integer.MAX_VALUE) {
+				numResets++;
+				numChangedEdges = 0;
+			}
+			changedEdges[numChangedEdges % maxNumChangedEdges] = edgeIndex;
+			numChangedEdges++;
+			numCostChanges++;
+			if (accessMode != 0) {
+				updateAccess(edgeIndex, accessMode == 2);
+			}
+		}
+	}
+
+	/**
+	 * Records that any edge may have changed. Background searches are stopped
+	 * first, as in {@link #updateTravelTimes()}.
+	 */
+	public void markAllEdgesChanged() {
+		runBeforeChange();
+		synchronized (this) {
+			numResets++;
+			numChangedEdges = 0;
+			numCostChanges++;
+			if (accessMode != 0) {
+				buildAccess(accessMode == 2);
+			}
+		}
+	}
+
+	/**
+	 * Sets the hook that stops background searches before the mutable state
+	 * of the graph changes. The hook waits for the searches, which lock the
+	 * graph, so it is run before the graph is locked.
+	 */
+	void setBeforeChange(final Runnable beforeChange) {
+		this.beforeChange = beforeChange;
+	}
+
+	private void runBeforeChange() {
+		final Runnable hook = beforeChange;
+		if (hook != null) {
+			hook.run();
+		}
+	}
+
+	/**
+	 * Gets the edges that vehicles of a type can go through, as bits over edge
+	 * index, which can be tested with {@link #canGoThrough(long[], int)}. The
+	 * bits are built again if the given setting differs from the one they are
+	 * built with.
+	 */
+	public long[] getAccessBits(final VehicleType type, final boolean isAllowPriorityVehicleUseTramTrack) {
+		final int mode = isAllowPriorityVehicleUseTramTrack ? 2 : 1;
+		if (accessMode != mode) {
+			synchronized (this) {
+				if (accessMode != mode) {
+					buildAccess(isAllowPriorityVehicleUseTramTrack);
+				}
+			}
+		}
+		return accessBits[type.ordinal()];
+	}
+
+	public static boolean canGoThrough(final long[] accessBits, final int edgeIndex) {
+		return (accessBits[edgeIndex >>> 6] & (1L << edgeIndex)) != 0;
+	}
+
+	private void buildAccess(final boolean isAllowPriorityVehicleUseTramTrack) {
+		for (int t = 0; t < accessBits.length; t++) {
+			accessBits[t] = new long[(lengths.length + 63) >>> 6];
+		}
+		for (int e = 0; e < lengths.length; e++) {
+			updateAccess(e, isAllowPriorityVehicleUseTramTrack);
+		}
+		accessMode = isAllowPriorityVehicleUseTramTrack ? 2 : 1;
+	}
+
+	private void updateAccess(final int edgeIndex, final boolean isAllowPriorityVehicleUseTramTrack) {
+		final Edge edge = getEdge(edgeIndex);
+		for (final VehicleType type : VehicleType.values()) {
+			if (VehicleUtil.canGoThrough(edge, type, isAllowPriorityVehicleUseTramTrack)) {
+				accessBits[type.ordinal()][edgeIndex >>> 6] |= 1L << edgeIndex;
+			} else {
+				accessBits[type.ordinal()][edgeIndex >>> 6] &= ~(1L << edgeIndex);
+			}
+		}
+	}
+
+	long getNumCostChanges() {
+		return numCostChanges;
+	}
+
+	synchronized int getNumResets() {
+		return numResets;
+	}
+
+	synchronized int getNumChangedEdges() {
+		return numChangedEdges;
+	}
+
+	/**
+	 * Gets the edges changed after the given number of changes since the
+	 * latest reset. Returns null if some of these changes are no longer kept,
+	 * in which case the caller must start again from the current state.
+	 */
+	synchronized int[] getChangedEdges(final int fromChange) {
+		final int count = numChangedEdges - fromChange;
+		if (count > maxNumChangedEdges) {
+			return null;
+		}
+		final int[] result = new int[count];
+		for (int i = 0; i < count; i++) {
+			result[i] = changedEdges[(fromChange + i) % maxNumChangedEdges];
+		}
+		return result;
+	}
+}
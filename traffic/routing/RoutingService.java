@@ -0,0 +1,120 @@
+package traffic.routing;
+
+import java.util.EnumMap;
+
+import traffic.TrafficNetwork;
+import traffic.road.Edge;
+
+/**
+ * Routing used by all the vehicles of a traffic network. The routing graph is
+ * built once and shared by all algorithms and threads. A routing algorithm is
+ * created once for each thread when the thread first uses it, and is reused by
+ * all the later searches of the thread. An algorithm object keeps the
+ * workspace of the current search, so it is never shared among threads.
+ */
+public class RoutingService {
+	private final RoutingAlgoFactory routingAlgoFactory = new RoutingAlgoFactory();
+	private final RoutingGraph graph;
+	private final EnumMap<Routing.Algorithm, ThreadLocal<Routing>> routings = new EnumMap<>(Routing.Algorithm.class);
+	/**
+	 * Cache of the routes found by all algorithms except random A* and
+	 * alternative routes, whose routes are random by design. Null if caching
+	 * is disabled.
+	 */
+	private final RouteCache routeCache;
+	/**
+	 * Background searches that are stopped before routing inputs change. Null
+	 * if routes are only searched on the simulation thread.
+	 */
+	private volatile RerouteService rerouteService = null;
+
+	public RoutingService(final TrafficNetwork trafficNetwork) {
+		graph = new RoutingGraph(trafficNetwork);
+		graph.setBeforeChange(this::stopBackgroundSearches);
+		final int routeCacheSize = trafficNetwork.getSettings().routeCacheSize;
+		routeCache = routeCacheSize > 0 ? new RouteCache(routeCacheSize) : null;
+		for (final Routing.Algorithm algorithm : Routing.Algorithm.values()) {
+			routings.put(algorithm, ThreadLocal.withInitial(() -> {
+				final Routing routing = routingAlgoFactory.getRoutingAlgo(algorithm, trafficNetwork, graph);
+				if ((routeCache == null) || (algorithm == Routing.Algorithm.RANDOM_A_STAR)
+						|| (algorithm == Routing.Algorithm.ALTERNATIVE_ROUTES)) {
+					return routing;
+				}
+				return new CachedRouting(trafficNetwork, routing, algorithm, routeCache);
+			}));
+		}
+	}
+
+	public RoutingGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Gets the routing algorithm of the calling thread.
+	 */
+	public Routing get(final Routing.Algorithm algorithm) {
+		return routings.get(algorithm).get();
+	}
+
+	/**
+	 * Gets the route cache, or null if caching is disabled.
+	 */
+	public RouteCache getRouteCache() {
+		return routeCache;
+	}
+
+	public void setRerouteService(final RerouteService rerouteService) {
+		this.rerouteService = rerouteService;
+	}
+
+	/**
+	 * Stops the background route searches before the inputs of routing
+	 * change, e.g., lanes, access of edges or travel times. This must be
+	 * called before changing lanes or the free-flow speed of edges. The graph
+	 * calls it before its travel times or changed edges are updated.
+	 */
+	public void stopBackgroundSearches() {
+		final RerouteService service = rerouteService;
+		if (service != null) {
+			service.stopSearches();
+		}
+	}
+
+	/**
+	 * Updates the costs used by the routing algorithms that depend on the
+	 * travel time of edges. This is called once per flow window after the
+	 * flows of edges are updated, and after free-flow speed of edges changes.
+	 */
+	public void updateTravelTimes() {
+		graph.updateTravelTimes();
+		bumpCostEpoch();
+	}
+
+	/**
+	 * Stops reusing cached routes after routing costs may have changed, e.g.,
+	 * when free-flow speed of edges changes or lanes are blocked.
+	 */
+	public void bumpCostEpoch() {
+		if (routeCache != null) {
+			routeCache.bumpEpoch();
+		}
+	}
+
+	/**
+	 * Records that an edge may have become blocked or unblocked, so
+	 * incremental searches repair their state and cached routes are not
+	 * reused.
+	 */
+	public void markEdgeChanged(final Edge edge) {
+		graph.markEdgeChanged(edge.index);
+		bumpCostEpoch();
+	}
+
+	/**
+	 * Records that any edge may have changed, e.g., when traffic is reset.
+	 */
+	public void markAllEdgesChanged() {
+		graph.markAllEdgesChanged();
+		bumpCostEpoch();
+	}
+}
@@ -0,0 +1,110 @@
+package traffic.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * State of a search over a routing graph. A workspace is owned by one routing
+ * object and reused by all its searches.
+ * <p>
+ * Each search has a new generation number. Cost and previous edge of a node
+ * are only valid if the node is reached in the current generation, so
+ * starting a new search does not need to reset all the nodes. A search only
+ * costs the nodes it reaches.
+ */
+class RoutingWorkspace {
+	private final double[] cost;
+	/**
+	 * Index of the edge through which each node is reached. '-1' means the
+	 * node is the source.
+	 */
+	private final int[] previousEdge;
+	/**
+	 * Generation in which each node is reached or visited.
+	 */
+	private final int[] reachedGeneration;
+	private final int[] visitedGeneration;
+	private int generation = 0;
+	final NodeHeap queue;
+
+	RoutingWorkspace(final int numNodes) {
+		cost = new double[numNodes];
+		previousEdge = new int[numNodes];
+		reachedGeneration = new int[numNodes];
+		visitedGeneration = new int[numNodes];
+		queue = new NodeHeap(numNodes);
+	}
+
+	/**
+	 * Starts a new search.
+	 */
+	void reset() {
+		if (generation == Integer.MAX_VALUE) {
+			Arrays.fill(reachedGeneration, 0);
+			Arrays.fill(visitedGeneration, 0);
+			generation = 0;
+		}
+		generation++;
+		queue.clear();
+	}
+
+	/**
+	 * Gets the known cost of a node, which is infinity if the node is not
+	 * reached.
+	 */
+	double getCost(final int node) {
+		return reachedGeneration[node] == generation ? cost[node] : Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Gets the edge through which a node is reached. '-1' means the node is
+	 * not reached or is the source.
+	 */
+	int getPreviousEdge(final int node) {
+		return reachedGeneration[node] == generation ? previousEdge[node] : -1;
+	}
+
+	boolean isReached(final int node) {
+		return reachedGeneration[node] == generation;
+	}
+
+	/**
+	 * Sets the known cost of a node and the edge through which it is reached.
+	 */
+	void reach(final int node, final double cost, final int previousEdge) {
+		reachedGeneration[node] = generation;
+		this.cost[node] = cost;
+		this.previousEdge[node] = previousEdge;
+	}
+
+	boolean isVisited(final int node) {
+		return visitedGeneration[node] == generation;
+	}
+
+	void visit(final int node) {
+		visitedGeneration[node] = generation;
+	}
+
+	/**
+	 * Gets the route from source to destination found by the latest search,
+	 * or null if the destination is not reached.
+	 */
+	ArrayList<RouteLeg> getRoute(final RoutingGraph graph, final int source, final int destination) {
+		final ArrayList<RouteLeg> legsOnRoute = new ArrayList<>();
+		int node = destination;
+		while (node != source) {
+			final int edge = getPreviousEdge(node);
+			if (edge < 0) {
+				return null;
+			}
+			legsOnRoute.add(new RouteLeg(graph.getEdge(edge), 0));
+			node = graph.getStartNode(edge);
+		}
+		if (legsOnRoute.isEmpty()) {
+			return null;
+		}
+		Collections.reverse(legsOnRoute);
+		return legsOnRoute;
+	}
+}
@@ -65,6 +65,10 @@ public class TrafficLoader {
     }
 
     public void readHeader(){
+        // The data file is optional, e.g., when another traffic generator is used
+        if (fileReader == null) {
+            return;
+        }
         try {
             String[] dataFields = fileReader.readLine().split(",");
         } catch (IOException e) {
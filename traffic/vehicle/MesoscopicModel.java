@@ -0,0 +1,185 @@
+package traffic.vehicle;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import common.Settings;
+import traffic.light.LightColor;
+import traffic.light.Movement;
+import traffic.road.Edge;
+import traffic.road.Lane;
+
+/**
+ * Queue-based model for moving vehicles on mesoscopic edges. When a vehicle
+ * gets onto an edge, its exit time is computed from the speed given by a
+ * fundamental diagram of the edge. The vehicle then moves at a constant speed
+ * towards the end of the edge, keeping a minimum gap to the vehicle in front.
+ * The front vehicle of each lane forms the exit queue of the edge. A vehicle
+ * in the exit queue leaves when its exit time is reached, the outflow capacity
+ * of the edge allows, the light of its movement is not red and the next edge
+ * has space.
+ */
+public class MesoscopicModel {
+	/**
+	 * Space taken by a vehicle in jam, which determines the jam density.
+	 */
+	static final double jamSpacing = VehicleType.CAR.length + DriverProfile.NORMAL.IDM_s0;
+	/**
+	 * Lowest speed of the fundamental diagram, so vehicles on a jammed edge
+	 * still get a finite exit time.
+	 */
+	static final double minSpeed = 1;
+	/**
+	 * Distance to the end of edge where a vehicle waits if it cannot leave.
+	 */
+	static final double waitingGapToEnd = 0.1;
+
+	private final Settings settings;
+	private final ArrayList<Vehicle> exitQueue = new ArrayList<>();
+
+	public MesoscopicModel(final Settings settings) {
+		this.settings = settings;
+	}
+
+	/**
+	 * Speed on the edge based on Greenshields' fundamental diagram.
+	 */
+	public static double getSpeed(final Edge edge, final int numVehicles) {
+		final double jamDensity = 1 / jamSpacing;
+		final double density = numVehicles / (Math.max(edge.length, jamSpacing) * edge.getLaneCount());
+		final double speed = edge.freeFlowSpeed * (1 - Math.min(1, density / jamDensity));
+		return Math.max(Math.min(minSpeed, edge.freeFlowSpeed), speed);
+	}
+
+	/**
+	 * Maximum number of vehicles leaving the edge per second, which is the
+	 * peak flow of the fundamental diagram.
+	 */
+	public static double getOutflowCapacity(final Edge edge) {
+		return (edge.freeFlowSpeed / jamSpacing / 4) * edge.getLaneCount();
+	}
+
+	/**
+	 * Maximum number of vehicles that can be on the edge.
+	 */
+	public static double getStorageCapacity(final Edge edge) {
+		return Math.max(1, (edge.length / jamSpacing) * edge.getLaneCount());
+	}
+
+	/**
+	 * Moves the vehicles on a mesoscopic edge for one step. Current speed of
+	 * the edge is updated in the same way as microscopic edges.
+	 *
+	 * @param movedVehicles
+	 *            Active vehicles on the edge are added to this list.
+	 */
+	public void moveVehicles(final Edge edge, final double timeNow, final List<Vehicle> movedVehicles) {
+		final double timeNextStep = timeNow + (1 / settings.numStepsPerSecond);
+		int numVehicles = 0;
+		for (final Lane lane : edge.getLanes()) {
+			numVehicles += lane.getVehicleCount();
+		}
+		final double speed = getSpeed(edge, numVehicles);
+		updateOutflowCredit(edge, timeNow);
+
+		// Schedule new vehicles and find the vehicles that want to leave
+		exitQueue.clear();
+		for (final Lane lane : edge.getLanes()) {
+			boolean isFront = true;
+			for (final Vehicle vehicle : lane.getVehicles()) {
+				if (!vehicle.active) {
+					continue;
+				}
+				if ((vehicle.mesoEdge != edge) || (vehicle.mesoLegIndex != vehicle.getIndexLegOnRoute())) {
+					vehicle.scheduleMesoscopicMove(edge, timeNow, speed);
+				}
+				if (isFront && vehicle.hasNextEdge() && (vehicle.mesoExitTime <= timeNextStep)) {
+					exitQueue.add(vehicle);
+				}
+				isFront = false;
+			}
+		}
+		exitQueue.sort(Comparator.comparingDouble(v -> v.mesoExitTime));
+		for (final Vehicle vehicle : exitQueue) {
+			if ((edge.mesoOutflowCredit >= 1) && canLeave(edge, vehicle)) {
+				edge.mesoOutflowCredit -= 1;
+				vehicle.isMesoExitGranted = true;
+			}
+		}
+
+		// Move vehicles from the front of each lane
+		double accumulatedVehicleSpeed = 0;
+		int numVehiclesOnEdge = 0;
+		for (final Lane lane : edge.getLanes()) {
+			Vehicle front = null;
+			for (final Vehicle vehicle : lane.getVehicles()) {
+				if (!vehicle.active) {
+					continue;
+				}
+				double position;
+				if (vehicle.isMesoExitGranted) {
+					position = edge.length;
+					vehicle.isMesoExitGranted = false;
+				} else {
+					position = vehicle.getScheduledMesoscopicPosition(timeNextStep);
+					if (front != null) {
+						position = Math.min(position, front.getHeadPosition() - front.getLength() - vehicle.driverProfile.IDM_s0);
+					} else if (vehicle.hasNextEdge()) {
+						position = Math.min(position, edge.length - waitingGapToEnd);
+					} else {
+						position = Math.min(position, edge.length);
+					}
+					position = Math.max(position, vehicle.getHeadPosition());
+				}
+				vehicle.commitMesoscopicMove(timeNow, position);
+				movedVehicles.add(vehicle);
+				accumulatedVehicleSpeed += vehicle.getSpeed();
+				numVehiclesOnEdge++;
+				front = vehicle;
+			}
+		}
+		if (numVehiclesOnEdge > 0) {
+			edge.currentSpeed = accumulatedVehicleSpeed / numVehiclesOnEdge;
+		} else {
+			edge.currentSpeed = edge.freeFlowSpeed;
+		}
+		edge.mvgCurrentSpeed = 0.01 * edge.mvgCurrentSpeed + 0.99 * edge.currentSpeed;
+	}
+
+	/**
+	 * Adds outflow credit for the time since the last update. Unused credit
+	 * is capped at one vehicle per lane.
+	 */
+	void updateOutflowCredit(final Edge edge, final double timeNow) {
+		final double elapsed = Math.max(0, timeNow - edge.timeMesoOutflowCreditUpdated);
+		edge.mesoOutflowCredit = Math.min(edge.getLaneCount(),
+				edge.mesoOutflowCredit + (elapsed * getOutflowCapacity(edge)));
+		edge.timeMesoOutflowCreditUpdated = timeNow;
+	}
+
+	boolean canLeave(final Edge edge, final Vehicle vehicle) {
+		final Movement movement = vehicle.getCurrentMovement();
+		if (movement != null) {
+			final LightColor color = edge.getMovementLight(movement);
+			if ((color == LightColor.GYR_R) || (color == LightColor.KEEP_RED)) {
+				return false;
+			}
+		}
+		final Edge nextEdge = vehicle.getNextEdge();
+		if (nextEdge.isMesoscopic) {
+			int numVehiclesOnNextEdge = 0;
+			for (final Lane lane : nextEdge.getLanes()) {
+				numVehiclesOnNextEdge += lane.getVehicleCount();
+			}
+			return numVehiclesOnNextEdge < getStorageCapacity(nextEdge);
+		}
+		// No lane is given if all the lanes of the next edge are blocked
+		final Lane nextLane = settings.getLaneDecider().getNextEdgeLane(vehicle);
+		if ((nextLane == null) || nextLane.isBlocked) {
+			return false;
+		}
+		final Vehicle last = nextLane.getLastVehicleInLane();
+		return (last == null) || ((last.getHeadPosition() - last.getLength()) >= vehicle.driverProfile.IDM_s0);
+	}
+}
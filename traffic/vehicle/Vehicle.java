@@ -2,8 +2,13 @@ package traffic.vehicle;
 
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.*;
 
+import common.RandomStreams;
+import common.RandomStreams.Purpose;
 import common.Settings;
 import processor.worker.Fellow;
 import processor.worker.Simulation;
@@ -11,7 +16,9 @@ import traffic.light.Movement;
 import traffic.road.Edge;
 import traffic.road.Lane;
 import traffic.road.Node;
+import traffic.road.RoadNetwork;
 import traffic.road.RoadUtil;
+import traffic.routing.RerouteService;
 import traffic.routing.RouteLeg;
 import traffic.routing.Routing;
 import traffic.vehicle.carfollow.CarFollow;
@@ -25,14 +32,21 @@ import traffic.vehicle.lanedecide.LaneDecider;
 public class Vehicle {
 	public String id = "";
 	public int vid = -1;
+	public int registryIndex = -1;//Index of this vehicle in the vehicle registry of traffic network
 	private List<RouteLeg> routeLegs = new ArrayList<>(1000);
 	public VehicleType type = null;
-	public double headPosition = 0;
+	/**
+	 * Store that keeps the head position, speed, acceleration, length, lane
+	 * index and route cursor of this vehicle. The vehicle is a view over its
+	 * slot in the store.
+	 */
+	VehicleStateStore states;
+	int stateSlot;
+	/**
+	 * Lane of this vehicle. Changed with {@link #setLane(Lane)}, which keeps the
+	 * lane index in the state store.
+	 */
 	public Lane lane = null;
-	public double speed = 0;
-	public double length = 0;
-	public double acceleration = 0;
-	public int indexLegOnRoute = 0;
 	public boolean active = false;
 	public double timeRouteStart = 0;
 	public double earliestTimeToLeaveParking = 0;
@@ -58,6 +72,16 @@ public class Vehicle {
 	 * This is for highlighting vehicles affected by emergency vehicles on GUI
 	 */
 	public boolean isAffectedByPriorityVehicle = false;
+	/**
+	 * Schedule of this vehicle on a mesoscopic edge. The schedule is made
+	 * when the vehicle is found on the edge with a different route leg.
+	 */
+	Edge mesoEdge = null;
+	int mesoLegIndex = -1;
+	double mesoEntryTime = 0;
+	double mesoEntryPosition = 0;
+	double mesoExitTime = 0;
+	boolean isMesoExitGranted = false;
 
 	public Edge edgeBeforeTurnRight = null;
 	public Edge edgeBeforeTurnLeft = null;
@@ -74,6 +98,19 @@ public class Vehicle {
 	private IntersectionDecision decision = null;
 
 	private Lane laneBeforeChange = null;
+	/**
+	 * Lane on the next edge and whether traffic is directional, as seen in the
+	 * compute phase of the current step. They are used in the commit phase, so
+	 * the move does not depend on vehicles of other edges that have moved.
+	 */
+	private Lane nextEdgeLaneAtStep = null;
+	private boolean isOnDirectionalTrafficAtStep = false;
+	/**
+	 * Acceleration found in the compute phase. It becomes the acceleration of
+	 * this vehicle in the commit phase, as other vehicles read the acceleration
+	 * of the previous step while computing theirs.
+	 */
+	private double computedAcceleration = 0;
 	private Node start;
 	private Node end;
 	private Settings settings;
@@ -86,6 +123,60 @@ public class Vehicle {
 		this.carFollow = new CarFollow(settings);
 		this.laneChange = new LaneChange(settings);
 		this.laneDecider = settings.getLaneDecider();
+		VehicleStateStore.createOwn(this);
+	}
+
+	public double getHeadPosition() {
+		return states.headPosition[stateSlot];
+	}
+
+	public void setHeadPosition(final double headPosition) {
+		states.headPosition[stateSlot] = headPosition;
+	}
+
+	public double getSpeed() {
+		return states.speed[stateSlot];
+	}
+
+	public void setSpeed(final double speed) {
+		states.speed[stateSlot] = speed;
+	}
+
+	public double getAcceleration() {
+		return states.acceleration[stateSlot];
+	}
+
+	public void setAcceleration(final double acceleration) {
+		states.acceleration[stateSlot] = acceleration;
+	}
+
+	public double getLength() {
+		return states.length[stateSlot];
+	}
+
+	public void setLength(final double length) {
+		states.length[stateSlot] = length;
+	}
+
+	public int getIndexLegOnRoute() {
+		return states.indexLegOnRoute[stateSlot];
+	}
+
+	public void setIndexLegOnRoute(final int indexLegOnRoute) {
+		states.indexLegOnRoute[stateSlot] = indexLegOnRoute;
+	}
+
+	public void setLane(final Lane lane) {
+		this.lane = lane;
+		states.laneIndex[stateSlot] = lane == null ? -1 : lane.index;
+	}
+
+	public VehicleStateStore getStates() {
+		return states;
+	}
+
+	public int getStateSlot() {
+		return stateSlot;
 	}
 
 	/**
@@ -96,24 +187,24 @@ public class Vehicle {
 	 * safe, especially when all the three legs are very short.
 	 */
 	public double getStartPositionInLane0() {
-		Edge currentEdge = routeLegs.get(indexLegOnRoute).edge;
+		Edge currentEdge = routeLegs.get(getIndexLegOnRoute()).edge;
 
 		double headPosSpaceFront = currentEdge.length - currentEdge.getEndIntersectionSize();
 
-		if (indexLegOnRoute + 1 < routeLegs.size()) {
-			RouteLeg legToCheck = routeLegs.get(indexLegOnRoute + 1);
+		if (getIndexLegOnRoute() + 1 < routeLegs.size()) {
+			RouteLeg legToCheck = routeLegs.get(getIndexLegOnRoute() + 1);
 			Lane laneToCheck = legToCheck.edge.getFirstLane();
 			if (laneToCheck.getVehicleCount() > 0) {
 				Vehicle vehicleToCheck = laneToCheck.getLastVehicleInLane();
-				double endPosOfLastVehicleOnNextLeg = vehicleToCheck.headPosition + currentEdge.length
-						- vehicleToCheck.length;
+				double endPosOfLastVehicleOnNextLeg = vehicleToCheck.getHeadPosition() + currentEdge.length
+						- vehicleToCheck.getLength();
 				if (endPosOfLastVehicleOnNextLeg < headPosSpaceFront) {
 					headPosSpaceFront = endPosOfLastVehicleOnNextLeg;
 				}
 			}
 		}
 
-		double headPosSpaceBack = getNonCollidingHeadPosSpaceBack(currentEdge) + length;
+		double headPosSpaceBack = getNonCollidingHeadPosSpaceBack(currentEdge) + getLength();
 
 		headPosSpaceFront = headPosSpaceFront - driverProfile.IDM_s0;
 		headPosSpaceBack = headPosSpaceBack + driverProfile.IDM_s0;
@@ -126,12 +217,12 @@ public class Vehicle {
 
 			double gapFront = headPosSpaceFront;
 			for (Vehicle vehicleToCheck : currentEdge.getFirstLane().getVehicles()) {
-				double safePosFromLaneVehicle = vehicleToCheck.headPosition +
+				double safePosFromLaneVehicle = vehicleToCheck.getHeadPosition() +
 						vehicleToCheck.getUnsafeDistanceForVehiclesFromParking() + driverProfile.IDM_s0;
-				if (gapFront - length > safePosFromLaneVehicle) {
-					gaps.add(new double[]{gapFront, safePosFromLaneVehicle + length});
+				if (gapFront - getLength() > safePosFromLaneVehicle) {
+					gaps.add(new double[]{gapFront, safePosFromLaneVehicle + getLength()});
 				}
-				gapFront = vehicleToCheck.headPosition - (vehicleToCheck.length + driverProfile.IDM_s0);
+				gapFront = vehicleToCheck.getHeadPosition() - (vehicleToCheck.getLength() + driverProfile.IDM_s0);
 				if (gapFront < headPosSpaceBack) {
 					break;
 				}
@@ -142,13 +233,14 @@ public class Vehicle {
 		} else {
 			gaps.add(new double[]{headPosSpaceFront, headPosSpaceBack});
 		}
-		double minGapBack = currentEdge.getStartIntersectionSize() + driverProfile.IDM_s0 + length;
+		double minGapBack = currentEdge.getStartIntersectionSize() + driverProfile.IDM_s0 + getLength();
 		double minGapFront = currentEdge.getEndIntersectionSize() + driverProfile.IDM_s0;
 		List<double[]> validGaps = getValidGaps(gaps, currentEdge.length, minGapBack, minGapFront);
 		if (validGaps.size() == 0) {
 			return -1;
 		} else {
-			Random random = new Random();
+			final Random random = RandomStreams.forVehicle(settings.randomSeed, id, Purpose.START_POSITION,
+					getIndexLegOnRoute());
 			// Pick a random position within a random gap
 			final double[] gap = validGaps.get(random.nextInt(validGaps.size()));
 
@@ -167,7 +259,7 @@ public class Vehicle {
 			if (first != null) {
 				Edge next = first.getNextEdge();
 				if (next != null && next.index == current.index) {
-					double remainingDist = getUnsafeDistanceForVehiclesFromParking() - (inEdge.length - first.headPosition);
+					double remainingDist = getUnsafeDistanceForVehiclesFromParking() - (inEdge.length - first.getHeadPosition());
 					if (maxHeadPos < remainingDist) {
 						maxHeadPos = remainingDist;
 					}
@@ -178,7 +270,7 @@ public class Vehicle {
 	}
 
 	public double getUnsafeDistanceForVehiclesFromParking() {
-		return speed * (driverProfile.IDM_T * headWayMultiplier);
+		return getSpeed() * (driverProfile.IDM_T * headWayMultiplier);
 	}
 
 
@@ -197,17 +289,17 @@ public class Vehicle {
 	 * Moves vehicle to parking.
 	 */
 	public void park(final boolean isNewVehicle, final double timeNow) {
-		speed = 0;
-		acceleration = 0;
-		routeLegs.get(indexLegOnRoute).edge.addParkedVehicle(this);
+		setSpeed(0);
+		setAcceleration(0);
+		routeLegs.get(getIndexLegOnRoute()).edge.addParkedVehicle(this);
 		if (isNewVehicle) {
 			earliestTimeToLeaveParking = timeRouteStart + routeLegs.get(0).stopover;
 		} else {
-			earliestTimeToLeaveParking = timeNow + routeLegs.get(indexLegOnRoute).stopover;
+			earliestTimeToLeaveParking = timeNow + routeLegs.get(getIndexLegOnRoute()).stopover;
 		}
 		if (lane != null) {
 			lane.removeVehicle(this);
-			lane = null;
+			setLane(null);
 		}
 	}
 
@@ -215,15 +307,15 @@ public class Vehicle {
 	 * Moves vehicle from parking area onto roads.
 	 */
 	public boolean startFromParking() {
-		final RouteLeg leg = routeLegs.get(indexLegOnRoute);
+		final RouteLeg leg = routeLegs.get(getIndexLegOnRoute());
 		final Edge edge = leg.edge;
 		final Lane lane = laneDecider.getNextEdgeLane(this);// Start from the lane closest to roadside
 		final double pos = getStartPositionInLane0();
 		if (pos >= 0) {
-			this.lane = lane;
-			headPosition = pos;
-			startHeadPosition = headPosition;
-			speed = 0;
+			setLane(lane);
+			setHeadPosition(pos);
+			startHeadPosition = getHeadPosition();
+			setSpeed(0);
 			lane.addVehicleToLane(this);
 			edge.setNextVehicleToGetIntoTheLane(null);
 			edge.setInflowPerStep();
@@ -241,12 +333,12 @@ public class Vehicle {
 	}
 
 	public void changeLane(final double timeNow) {
-		if (!((lane == null) || !active || (type == VehicleType.TRAM)
+		if (!((lane == null) || !active || (type == VehicleType.TRAM) || lane.edge.isMesoscopic
 				|| ((timeNow - timeOfLastLaneChange) < driverProfile.minLaneChangeTimeGap))) {
 
 			LaneChangeDirection laneChangeDecision = LaneChangeDirection.SAME;
 			MOBILInput mobilInput = new MOBILInput(settings, lane, getRouteInLookAheadDistance(), type);
-			laneChangeDecision = laneChange.decideLaneChange(mobilInput, this);
+			laneChangeDecision = laneChange.decideLaneChange(mobilInput, this, timeNow);
 
 			if (laneChangeDecision == LaneChangeDirection.SAME && isCAV()) {
 				laneChangeDecision = laneChange.dynamicLaneChange(this);
@@ -268,7 +360,7 @@ public class Vehicle {
 				}
 				currentLane.removeVehicle(this);
 				nextLane.addVehicleToLane(this);
-				lane = nextLane;
+				setLane(nextLane);
 
 				// Set priority lanes
 				setPriorityLanes(true);
@@ -278,7 +370,7 @@ public class Vehicle {
 
 	public void updateRoadBlockInfo() {
 		double examinedDist = 0;
-		int indexLegOnRouteBeingChecked = indexLegOnRoute;
+		int indexLegOnRouteBeingChecked = getIndexLegOnRoute();
 		while (indexLegOnRouteBeingChecked <= (routeLegs.size() - 1)) {
 			final Edge edgeBeingChecked = routeLegs.get(indexLegOnRouteBeingChecked).edge;
 			if (edgeBeingChecked.isBlocked()) {
@@ -287,7 +379,7 @@ public class Vehicle {
 			}
 			examinedDist += routeLegs.get(indexLegOnRouteBeingChecked).edge.length;
 			// Proceeds to the next leg on route if look-ahead distance is not exhausted
-			if (((examinedDist - headPosition) < settings.lookAheadDistance)
+			if (((examinedDist - getHeadPosition()) < settings.lookAheadDistance)
 					&& (indexLegOnRouteBeingChecked < (routeLegs.size() - 1))) {
 				indexLegOnRouteBeingChecked++;
 			} else {
@@ -301,7 +393,7 @@ public class Vehicle {
 		double examinedDist = 0;
 		edgeBeforeTurnLeft = null;
 		edgeBeforeTurnRight = null;
-		int indexLegOnRouteBeingChecked = indexLegOnRoute;
+		int indexLegOnRouteBeingChecked = getIndexLegOnRoute();
 		while (indexLegOnRouteBeingChecked < (routeLegs.size() - 1)) {
 			final Edge e1 = routeLegs.get(indexLegOnRouteBeingChecked).edge;
 			final Edge e2 = routeLegs.get(indexLegOnRouteBeingChecked + 1).edge;
@@ -324,7 +416,7 @@ public class Vehicle {
 			}
 
 			examinedDist += e1.length;
-			if (((examinedDist - headPosition) < settings.lookAheadDistance)
+			if (((examinedDist - getHeadPosition()) < settings.lookAheadDistance)
 					&& (indexLegOnRouteBeingChecked < (routeLegs.size() - 1))) {
 				indexLegOnRouteBeingChecked++;
 			} else {
@@ -336,10 +428,10 @@ public class Vehicle {
 	public List<RouteLeg> getRouteInLookAheadDistance() {
 		List<RouteLeg> legsAhead = new ArrayList<>();
 		double examinedDist = 0;
-		for (int i = indexLegOnRoute; i < routeLegs.size(); i++) {
+		for (int i = getIndexLegOnRoute(); i < routeLegs.size(); i++) {
 			final Edge e1 = routeLegs.get(i).edge;
 			examinedDist += e1.length;
-			if ((examinedDist - headPosition) < settings.lookAheadDistance) {
+			if ((examinedDist - getHeadPosition()) < settings.lookAheadDistance) {
 				legsAhead.add(routeLegs.get(i));
 			} else {
 				break;
@@ -350,6 +442,17 @@ public class Vehicle {
 
 
 	public void moveForward(double timeNow) {
+		computeAcceleration(timeNow);
+		commitMove(timeNow);
+	}
+
+	/**
+	 * First half of moving forward. Finds impeding objects and computes the
+	 * acceleration. Only the fields of this vehicle are changed, so this can be
+	 * done for all vehicles before any vehicle moves. Data of other edges that
+	 * is needed by {@link #commitMove(double)} is also read here.
+	 */
+	public void computeAcceleration(double timeNow) {
 		if (active) {
 			// Reset priority vehicle effect flag
 			isAffectedByPriorityVehicle = false;
@@ -358,9 +461,24 @@ public class Vehicle {
 			//Update headway if there is a guidance on safety
 			updateHeadway();
 			// Find impeding objects and compute acceleration based on the objects
-			acceleration = carFollow.computeAccelerationBasedOnImpedingObjects(this);
+			computedAcceleration = carFollow.computeAccelerationBasedOnImpedingObjects(this);
+			// Read other edges before any vehicle moves
+			nextEdgeLaneAtStep = hasNextEdge() ? laneDecider.getNextEdgeLane(this) : null;
+			isOnDirectionalTrafficAtStep = isOnDirectionalTraffic();
+		}
+	}
+
+	/**
+	 * Second half of moving forward. Updates speed and position based on the
+	 * acceleration computed in {@link #computeAcceleration(double)}.
+	 */
+	public void commitMove(double timeNow) {
+		if (active) {
+			final VehicleStateStore states = this.states;
+			final int slot = stateSlot;
+			double acceleration = computedAcceleration;
 			// Update vehicle speed, which must be between 0 and free-flow speed
-			speed += acceleration / settings.numStepsPerSecond;
+			double speed = states.speed[slot] + acceleration / settings.numStepsPerSecond;
 			if (speed > lane.edge.freeFlowSpeed) {
 				speed = lane.edge.freeFlowSpeed;
 			}
@@ -374,11 +492,13 @@ public class Vehicle {
 				speed = 0;
 				acceleration = 0;
 			}
+			states.acceleration[slot] = acceleration;
+			states.speed[slot] = speed;
 
 			/*
 			 * Move forward in the current lane
 			 */
-			headPosition += speed / settings.numStepsPerSecond;
+			states.headPosition[slot] += speed / settings.numStepsPerSecond;
 
 			if (speed > 0) {
 				lastSpeedChangeTime = timeNow;
@@ -393,48 +513,96 @@ public class Vehicle {
 
 			// Check whether road is explicitly blocked on vehicle's route
 			updateRoadBlockInfo();
-			takeIntersectionDecision();
+			takeIntersectionDecision(nextEdgeLaneAtStep);
+			// Conflict data is kept by the current edge, which is only changed
+			// by vehicles on the edge
 			updateLaneChangeConflictData();
 
 			//check for directional traffic
-			if (lane.edge.getNumVehicles()/lane.edge.getLaneCount() * 0.5 >=
-					lane.edge.getOppositeEdge().getNumVehicles()/lane.edge.getOppositeEdge().getLaneCount()) {
+			if (isOnDirectionalTrafficAtStep) {
 				timeOnDirectionalTraffic += (1 / settings.numStepsPerSecond);
 				if (lane.edge.currentSpeed > 0.1) {
 					timeOnDirectionalTraffic_speed += (1 / settings.numStepsPerSecond);
 				}
 			}
 
-			if ((indexLegOnRoute == getRouteLegCount() - 1) && (headPosition >= lane.edge.length - lane.edge.getEndIntersectionSize())) {
+			if ((getIndexLegOnRoute() == getRouteLegCount() - 1) && (getHeadPosition() >= lane.edge.length - lane.edge.getEndIntersectionSize())) {
 				markAsFinished();
 				timeTravel = timeNow - timeRouteStart;
 			}
 		}
 	}
 
+	/**
+	 * Schedules the move of this vehicle to the end of a mesoscopic edge
+	 * based on the speed of the edge.
+	 */
+	void scheduleMesoscopicMove(final Edge edge, final double timeNow, final double edgeSpeed) {
+		mesoEdge = edge;
+		mesoLegIndex = getIndexLegOnRoute();
+		mesoEntryTime = timeNow;
+		mesoEntryPosition = Math.min(getHeadPosition(), edge.length);
+		mesoExitTime = timeNow + ((edge.length - mesoEntryPosition) / edgeSpeed);
+	}
+
+	/**
+	 * Gets the position on the mesoscopic edge at the given time if the
+	 * vehicle is not held back.
+	 */
+	double getScheduledMesoscopicPosition(final double time) {
+		if (time >= mesoExitTime) {
+			return mesoEdge.length;
+		}
+		final double ratio = (time - mesoEntryTime) / (mesoExitTime - mesoEntryTime);
+		return mesoEntryPosition + ((mesoEdge.length - mesoEntryPosition) * ratio);
+	}
+
+	/**
+	 * Moves vehicle to a position on a mesoscopic edge. This replaces
+	 * {@link #computeAcceleration(double)} and {@link #commitMove(double)},
+	 * which are used on microscopic edges.
+	 */
+	void commitMesoscopicMove(final double timeNow, final double newHeadPosition) {
+		final double newSpeed = (newHeadPosition - getHeadPosition()) * settings.numStepsPerSecond;
+		setAcceleration((newSpeed - getSpeed()) * settings.numStepsPerSecond);
+		setSpeed(newSpeed);
+		setHeadPosition(newHeadPosition);
+		if (getSpeed() > 0) {
+			lastSpeedChangeTime = timeNow;
+		}
+		if (getSpeed() > settings.congestionSpeedThreshold) {
+			timeJamStart = timeNow;
+		}
+		takeIntersectionDecision();
+		if ((getIndexLegOnRoute() == getRouteLegCount() - 1) && (getHeadPosition() >= lane.edge.length - lane.edge.getEndIntersectionSize())) {
+			markAsFinished();
+			timeTravel = timeNow - timeRouteStart;
+		}
+	}
+
 	public void updateHeadway() {
-		RouteLeg routeLeg = routeLegs.get(indexLegOnRoute);
-		setHeadWayMultiplier(routeLeg.getHeadwayMultiplier(headPosition, settings.safetyHeadwayMultiplier));
+		RouteLeg routeLeg = routeLegs.get(getIndexLegOnRoute());
+		setHeadWayMultiplier(routeLeg.getHeadwayMultiplier(getHeadPosition(), settings.safetyHeadwayMultiplier));
 	}
 
 	public double getInstructedAcc(double timeNow) {
-		RouteLeg routeLeg = routeLegs.get(indexLegOnRoute);
+		RouteLeg routeLeg = routeLegs.get(getIndexLegOnRoute());
 		double deltaT = 1 / settings.numStepsPerSecond;
 		double s = routeLeg.getTargetPosition(timeNow + deltaT);
 		if (s < 0) {
 			return Double.POSITIVE_INFINITY;
 		}
-		double deltaS = s - headPosition;
-		return (2 * (deltaS - speed * deltaT)) / Math.pow(deltaT, 2);
+		double deltaS = s - getHeadPosition();
+		return (2 * (deltaS - getSpeed() * deltaT)) / Math.pow(deltaT, 2);
 	}
 
 	public void updateLaneChangeConflictData() {
 		if (laneBeforeChange != null) {
-			if (laneBeforeChange != lane || headPosition > lane.edge.getEndIntersectionLaneChangeProhibitedPos()) {
+			if (laneBeforeChange != lane || getHeadPosition() > lane.edge.getEndIntersectionLaneChangeProhibitedPos()) {
 				//The vehicle has changed the lane or gone beyond the waiting position
 				laneBeforeChange = null;
 				lane.edge.updateLaneChangeConflicts(settings.isDriveOnLeft);
-			} else if (headPosition > lane.edge.getLaneChangeGiveChancePos()) {
+			} else if (getHeadPosition() > lane.edge.getLaneChangeGiveChancePos()) {
 				lane.edge.findChanceGivingVehicle(settings.isDriveOnLeft);
 			}
 		}
@@ -446,20 +614,39 @@ public class Vehicle {
 	}
 
 	public void takeIntersectionDecision() {
+		takeIntersectionDecision(hasNextEdge() ? laneDecider.getNextEdgeLane(this) : null);
+	}
+
+	/**
+	 * Takes the decision at the end of the current edge with the given lane on
+	 * the next edge.
+	 */
+	private void takeIntersectionDecision(Lane next) {
 		Edge current = lane.edge;
 		if (hasNextEdge()) {
-			if (headPosition > current.getEndIntersectionLaneChangeProhibitedPos()) {
-				Lane next = laneDecider.getNextEdgeLane(this);
+			if (getHeadPosition() > current.getEndIntersectionLaneChangeProhibitedPos()) {
 				//SimpleCurve curve = VehicleUtil.getIntersectionCurve(this);
 				decision = new IntersectionDecision(lane, next);
-			} else if (headPosition > current.getStartIntersectionLaneChangeProhibitedPos(this)) {
-				Lane next = laneDecider.getNextEdgeLane(this);
+			} else if (getHeadPosition() > current.getStartIntersectionLaneChangeProhibitedPos(this)) {
 				//SimpleCurve curve = VehicleUtil.getIntersectionCurve(this);
 				decision = null; //new IntersectionDecision(lane, next); //new IntersectionDecision(lane, next);
 			}
 		}
 	}
 
+	/**
+	 * Whether traffic on the current edge is much heavier than traffic in the
+	 * opposite direction. One-way roads have no directional traffic.
+	 */
+	boolean isOnDirectionalTraffic() {
+		final Edge opposite = lane.edge.getOppositeEdge();
+		if (opposite == null) {
+			return false;
+		}
+		return lane.edge.getNumVehicles()/lane.edge.getLaneCount() * 0.5 >=
+				opposite.getNumVehicles()/opposite.getLaneCount();
+	}
+
 	public IntersectionDecision getDecision() {
 		return decision;
 	}
@@ -468,16 +655,16 @@ public class Vehicle {
 		if (active && lane != null && type == VehicleType.TRAM) {
 			final double brakingDist = VehicleUtil.getBrakingDistance(this);
 			double examinedDist = 0;
-			for (int j = indexLegOnRoute; j < routeLegs.size(); j++) {
+			for (int j = getIndexLegOnRoute(); j < routeLegs.size(); j++) {
 				final Edge edge = routeLegs.get(j).edge;
 				examinedDist += edge.length;
-				if (edge.endNode.tramStop && ((examinedDist - headPosition) < (2 * brakingDist))
-						&& ((examinedDist - headPosition) > brakingDist) && (edge.timeNoTramStopping <= 0)
+				if (edge.endNode.tramStop && ((examinedDist - getHeadPosition()) < (2 * brakingDist))
+						&& ((examinedDist - getHeadPosition()) > brakingDist) && (edge.timeNoTramStopping <= 0)
 						&& (edge.timeTramStopping <= 0)) {
 					edge.timeTramStopping = settings.periodOfTrafficWaitForTramAtStop;
 					break;
 				}
-				if ((examinedDist - headPosition) > settings.lookAheadDistance) {
+				if ((examinedDist - getHeadPosition()) > settings.lookAheadDistance) {
 					break;
 				}
 			}
@@ -488,7 +675,7 @@ public class Vehicle {
 		if (this.lane != null) {
 			this.lane.removeVehicle(this);
 		}
-		this.lane = lane;
+		setLane(lane);
 		if (lane != null) {
 			lane.addVehicleToLane(this);
 		}
@@ -502,8 +689,8 @@ public class Vehicle {
 			double examinedDist = 0;
 			int laneNumber = lane.laneNumber;
 			Edge edge = lane.edge;
-			while ((examinedDist < settings.lookAheadDistance) && (indexLegOnRoute < (routeLegs.size() - 1))) {
-				final Edge targetEdge = routeLegs.get(indexLegOnRoute).edge;
+			while ((examinedDist < settings.lookAheadDistance) && (getIndexLegOnRoute() < (routeLegs.size() - 1))) {
+				final Edge targetEdge = routeLegs.get(getIndexLegOnRoute()).edge;
 				if (!isPriority) {
 					// Cancel priority status for all the lanes in the edge
 					for (Lane lane : targetEdge.getLanes()) {
@@ -515,7 +702,7 @@ public class Vehicle {
 					targetEdge.getLane(laneNumber).isPriority = true;
 				}
 				examinedDist += targetEdge.length;
-				indexLegOnRoute++;
+				setIndexLegOnRoute(getIndexLegOnRoute() + 1);
 				edge = targetEdge;
 			}
 		}
@@ -528,7 +715,7 @@ public class Vehicle {
 	public ArrayList<RouteLeg> getNextRouteLegs() {
 		ArrayList<RouteLeg> nextRouteLegs = new ArrayList<>();
 		if (routeLegs != null) {
-			for (int i = indexLegOnRoute; i < routeLegs.size(); i++) {
+			for (int i = getIndexLegOnRoute(); i < routeLegs.size(); i++) {
 				nextRouteLegs.add(routeLegs.get(i));
 			}
 		}
@@ -544,16 +731,16 @@ public class Vehicle {
 	}
 
 	public RouteLeg getCurrentLeg() {
-		if (indexLegOnRoute > -1 && indexLegOnRoute < routeLegs.size()) {
-			return routeLegs.get(indexLegOnRoute);
+		if (getIndexLegOnRoute() > -1 && getIndexLegOnRoute() < routeLegs.size()) {
+			return routeLegs.get(getIndexLegOnRoute());
 		}
 		return null;
 	}
 
 
 	public RouteLeg getNextLeg() {
-		if (indexLegOnRoute > 0 && indexLegOnRoute+1 < routeLegs.size()) {
-			return routeLegs.get(indexLegOnRoute+1);
+		if (getIndexLegOnRoute() > 0 && getIndexLegOnRoute()+1 < routeLegs.size()) {
+			return routeLegs.get(getIndexLegOnRoute()+1);
 		}
 		return null;
 	}
@@ -603,130 +790,209 @@ public class Vehicle {
 	}
 
 	public void reRoute(double timeNow, Routing routingAlgorithm){
+		reRoute(timeNow, routingAlgorithm, null);
+	}
+
+	/**
+	 * Re-routes vehicle in certain situations. If a reroute service is given,
+	 * the new route is searched in background and applied at the start of the
+	 * next step. Otherwise it is searched now with the given algorithm.
+	 */
+	public void reRoute(double timeNow, Routing routingAlgorithm, RerouteService rerouteService){
 		/*
 		 * Re-route vehicle in certain situations
 		 */
-		if ((type != VehicleType.TRAM) && (settings.isAllowReroute)) {
-			boolean reRoute = false;
-			// Reroute happens if vehicle has moved too slowly for too long or the road is blocked ahead
-			if (indexLegOnRoute < (getRouteLegs().size() - 1)) {
-				if ((timeNow - timeJamStart) > driverProfile.minRerouteTimeGap || isRoadBlockedAhead) {
-					reRoute = true;
-				}
-			}
+		if (!isReRouteNeeded(timeNow)) {
+			return;
+		}
+		// Wait for the result of an earlier request
+		if ((rerouteService != null) && rerouteService.isPending(this)) {
+			return;
+		}
 
-			//if ((timeNow - timeJamStart) > 60){
-			//	reRoute = true;
-			//}
+		// Cancel priority lanes
+		setPriorityLanes(false);
 
-			if (reRoute) {
-				// Cancel priority lanes
-				setPriorityLanes(false);
+		// Reroute vehicle
+		if (rerouteService != null) {
+			rerouteService.request(this, timeNow, false);
+		} else {
+			reRoute(routingAlgorithm, getRoutingRandom(timeNow));
+		}
 
-				// Reroute vehicle
-				reRoute(routingAlgorithm);
+		// Reset jam start time
+		timeJamStart = timeNow;
+		// Increment reroute count
+		numReRoute++;
+		// Limit number of re-route for internal vehicle
+		if ((numReRoute > settings.maxNumReRouteOfInternalVehicle) && !isExternal) {
+			markAsFinished();
+		}
+	}
 
-				// Reset jam start time
-				timeJamStart = timeNow;
-				// Increment reroute count
-				numReRoute++;
-				// Limit number of re-route for internal vehicle
-				if ((numReRoute > settings.maxNumReRouteOfInternalVehicle) && !isExternal) {
-					markAsFinished();
-				}
+	/**
+	 * Whether vehicle should find a new route, i.e., it has moved too slowly
+	 * for too long or the road is blocked ahead.
+	 */
+	public boolean isReRouteNeeded(double timeNow) {
+		if ((type == VehicleType.TRAM) || !settings.isAllowReroute) {
+			return false;
+		}
+		// Reroute happens if vehicle has moved too slowly for too long or the road is blocked ahead
+		if (getIndexLegOnRoute() < (getRouteLegs().size() - 1)) {
+			if ((timeNow - timeJamStart) > driverProfile.minRerouteTimeGap || isRoadBlockedAhead) {
+				return true;
 			}
 		}
+
+		//if ((timeNow - timeJamStart) > 60){
+		//	return true;
+		//}
+		return false;
 	}
 
 	public void dynamicReRoute(double timeNow, Routing routingAlgorithm){
+		dynamicReRoute(timeNow, routingAlgorithm, null);
+	}
+
+	/**
+	 * Updates route of a connected autonomous vehicle regularly. If a reroute
+	 * service is given, the new route is searched in background and applied at
+	 * the start of the next step. Otherwise it is searched now with the given
+	 * algorithm.
+	 */
+	public void dynamicReRoute(double timeNow, Routing routingAlgorithm, RerouteService rerouteService){
 		/*
 		 * Re-route vehicle in certain situations
 		 */
-		if ((type != VehicleType.TRAM) && (settings.isDynamicRerouteAllowed) && isCAV) {
-			boolean reRoute = false;
-			// Reroute happens if vehicle has moved too slowly for too long or the road is blocked ahead
-			if (indexLegOnRoute < (getRouteLegs().size() - 1)) {
-				if ((timeNow - lastReRouted) > settings.routeUpdateInterval){
-					reRoute = true;
-				}
-			}
+		if (!isDynamicReRouteNeeded(timeNow)) {
+			return;
+		}
+		// Wait for the result of an earlier request
+		if ((rerouteService != null) && rerouteService.isPending(this)) {
+			return;
+		}
 
-			if (reRoute) {
-				// Cancel priority lanes
-				setPriorityLanes(false);
+		// Cancel priority lanes
+		setPriorityLanes(false);
 
-				// Reroute vehicle
-				boolean reRouted = dynamicReRoute(routingAlgorithm);
+		// Reroute vehicle. Reroute service sets the reroute time when the new
+		// route is applied.
+		if (rerouteService != null) {
+			rerouteService.request(this, timeNow, true);
+		} else if (dynamicReRoute(routingAlgorithm, getRoutingRandom(timeNow))) {
+			// Reset jam start time
+			lastReRouted = timeNow;
+		}
+	}
 
-				if (reRouted) {
-					// Reset jam start time
-					lastReRouted = timeNow;
-				}
-			}
+	/**
+	 * Whether a connected autonomous vehicle should update its route, i.e.,
+	 * the route update interval has passed since its last update.
+	 */
+	public boolean isDynamicReRouteNeeded(double timeNow) {
+		if ((type == VehicleType.TRAM) || !settings.isDynamicRerouteAllowed || !isCAV) {
+			return false;
 		}
+		return (getIndexLegOnRoute() < (getRouteLegs().size() - 1))
+				&& ((timeNow - lastReRouted) > settings.routeUpdateInterval);
+	}
+
+	/**
+	 * Gets the random numbers for choosing a route at the given time. The
+	 * stream only depends on the vehicle and the step, so the route does not
+	 * depend on which thread or routing object finds it.
+	 */
+	public Random getRoutingRandom(final double timeNow) {
+		return RandomStreams.forVehicle(settings.randomSeed, id, Purpose.ROUTING,
+				Math.round(timeNow * settings.numStepsPerSecond));
 	}
 
 	/**
 	 * Create a new route from a given vehicle's current edge to its
 	 * destination. The new route must be different to the old route.
 	 */
-	private boolean reRoute(Routing routingAlgorithm) {
-
-		List<RouteLeg> oldRoute = getRouteLegs();
-		int currentIndexOnOldRoute = indexLegOnRoute;
+	private boolean reRoute(Routing routingAlgorithm, Random random) {
 
 		// No re-route if vehicle is on last leg
-		if (currentIndexOnOldRoute >= oldRoute.size() - 1) {
+		if (getIndexLegOnRoute() >= getRouteLegs().size() - 1) {
 			return false;
 		}
 
-		// Copy earlier parts of old route to new route
-		ArrayList<RouteLeg> newRoute = new ArrayList<RouteLeg>();
-		for (int i = 0; i <= currentIndexOnOldRoute; i++) {
-			newRoute.add(oldRoute.get(i));
-		}
-
 		// Try a few times for computing new route.
 		for (int i = 0; i < 3; i++) {
-			ArrayList<RouteLeg> partialRoute = routingAlgorithm.createCompleteRoute(oldRoute.get(currentIndexOnOldRoute + 1).edge.startNode,
-					oldRoute.get(oldRoute.size() - 1).edge.endNode, type);
-			// The next leg on the old route cannot be the next leg on the new route!
-			if (partialRoute != null && partialRoute.get(0).edge != oldRoute.get(currentIndexOnOldRoute + 1).edge) {
-				newRoute.addAll(partialRoute);
-				setRouteLegs(newRoute);
+			ArrayList<RouteLeg> partialRoute = routingAlgorithm.createCompleteRoute(getRerouteStartNode(),
+					getRerouteEndNode(), type, random);
+			if (applyReroute(getIndexLegOnRoute(), partialRoute, true)) {
 				return true;
 			}
 		}
 		return false;
+	}
+
+	private boolean dynamicReRoute(Routing routingAlgorithm, Random random) {
 
+		// No re-route if vehicle is on last leg
+		if (getIndexLegOnRoute() >= getRouteLegs().size() - 1) {
+			return false;
+		}
+
+		ArrayList<RouteLeg> partialRoute = routingAlgorithm.createCompleteRoute(getRerouteStartNode(),
+				getRerouteEndNode(), type, random);
+		return applyReroute(getIndexLegOnRoute(), partialRoute, false);
 	}
 
-	private boolean dynamicReRoute(Routing routingAlgorithm) {
+	/**
+	 * Gets the node where a new route starts, i.e., the start of the next leg.
+	 */
+	public Node getRerouteStartNode() {
+		return routeLegs.get(getIndexLegOnRoute() + 1).edge.startNode;
+	}
 
-		List<RouteLeg> oldRoute = getRouteLegs();
-		int currentIndexOnOldRoute = indexLegOnRoute;
+	/**
+	 * Gets the node where a new route ends, i.e., the end of the last leg.
+	 */
+	public Node getRerouteEndNode() {
+		return routeLegs.get(routeLegs.size() - 1).edge.endNode;
+	}
 
-		// No re-route if vehicle is on last leg
-		if (currentIndexOnOldRoute >= oldRoute.size() - 1) {
+	/**
+	 * Replaces the legs after the current leg with a new partial route. The
+	 * route is not changed if the vehicle has moved to another leg since the
+	 * partial route was requested, or the partial route does not connect the
+	 * next leg to the destination.
+	 *
+	 * @param indexAtRequest
+	 *            Index of the current leg when the partial route was requested.
+	 * @param isDifferentNextLegRequired
+	 *            Whether the next leg on the old route cannot be the next leg
+	 *            on the new route.
+	 * @return Whether the route is changed.
+	 */
+	public boolean applyReroute(int indexAtRequest, List<RouteLeg> partialRoute, boolean isDifferentNextLegRequired) {
+		List<RouteLeg> oldRoute = getRouteLegs();
+		if ((partialRoute == null) || partialRoute.isEmpty() || (indexAtRequest != getIndexLegOnRoute())
+				|| (getIndexLegOnRoute() >= oldRoute.size() - 1)) {
+			return false;
+		}
+		Edge oldNextEdge = oldRoute.get(getIndexLegOnRoute() + 1).edge;
+		if ((partialRoute.get(0).edge.startNode != oldNextEdge.startNode)
+				|| (partialRoute.get(partialRoute.size() - 1).edge.endNode != getRerouteEndNode())) {
+			return false;
+		}
+		// The next leg on the old route cannot be the next leg on the new route!
+		if (isDifferentNextLegRequired && (partialRoute.get(0).edge == oldNextEdge)) {
 			return false;
 		}
 
 		// Copy earlier parts of old route to new route
 		ArrayList<RouteLeg> newRoute = new ArrayList<RouteLeg>();
-		for (int i = 0; i <= currentIndexOnOldRoute; i++) {
+		for (int i = 0; i <= getIndexLegOnRoute(); i++) {
 			newRoute.add(oldRoute.get(i));
 		}
-
-		ArrayList<RouteLeg> partialRoute = routingAlgorithm.createCompleteRoute(oldRoute.get(currentIndexOnOldRoute+1).edge.startNode,
-					oldRoute.get(oldRoute.size() - 1).edge.endNode, type);
-		if (partialRoute != null) {
-			newRoute.addAll(partialRoute);
-			setRouteLegs(newRoute);
-			return true;
-		}
-
-		return false;
-
+		newRoute.addAll(partialRoute);
+		setRouteLegs(newRoute);
+		return true;
 	}
 
 
@@ -740,21 +1006,25 @@ public class Vehicle {
 
 	public void moveToNextLink(double timeNow, List<Fellow> connectedFellows){
 		if (active) {
-			double overshootDist = headPosition - lane.edge.length;
+			double overshootDist = getHeadPosition() - lane.edge.length;
 
 			if (overshootDist >= 0) {
 
 				// Cancel priority lanes
 				setPriorityLanes(false);
 
-				while ((indexLegOnRoute < getRouteLegCount()) && (overshootDist >= 0)) {
+				while ((getIndexLegOnRoute() < getRouteLegCount()) && (overshootDist >= 0)) {
+					// Leave the current lane before the head position changes, as
+					// the lane finds the vehicle by its head position
+					final Lane currentLane = lane;
+					updateLane(null);
 					// Update head position
-					headPosition -= lane.edge.length;
+					setHeadPosition(getHeadPosition() - currentLane.edge.length);
 					// Update route leg
-					indexLegOnRoute++;
+					setIndexLegOnRoute(getIndexLegOnRoute() + 1);
 
 					// Locate the new lane of vehicle. If the specified lane does not exist (e.g., moving from primary road to secondary road), change to the one with the highest lane number
-					final RouteLeg nextLeg = getRouteLeg(indexLegOnRoute);
+					final RouteLeg nextLeg = getRouteLeg(getIndexLegOnRoute());
 					final Edge nextEdge = nextLeg.edge;
 					Lane newLane = decision.getEndLane();
 
@@ -804,7 +1074,7 @@ public class Vehicle {
 	public Point2D getCurrentPosition(){
 		Edge current = getCurrentEdge();
 		if(current != null){
-			double ratio = headPosition/current.length;
+			double ratio = getHeadPosition()/current.length;
 			Point2D p = new Point2D.Double(current.startNode.lon + ratio * (current.endNode.lon - current.startNode.lon),
 					current.startNode.lat + ratio * (current.endNode.lat - current.startNode.lat));
 			return p;
@@ -861,19 +1131,19 @@ public class Vehicle {
 
 	public Edge getNextEdge(){
 		if(hasNextEdge()) {
-			return routeLegs.get(indexLegOnRoute + 1).edge;
+			return routeLegs.get(getIndexLegOnRoute() + 1).edge;
 		}else{
 			return null;
 		}
 	}
 
 	public boolean hasNextEdge(){
-		return indexLegOnRoute < routeLegs.size() - 1;
+		return getIndexLegOnRoute() < routeLegs.size() - 1;
 	}
 
 	public Edge getPreviousEdge(){
-		if(indexLegOnRoute > 0) {
-			return routeLegs.get(indexLegOnRoute - 1).edge;
+		if(getIndexLegOnRoute() > 0) {
+			return routeLegs.get(getIndexLegOnRoute() - 1).edge;
 		}else{
 			return null;
 		}
@@ -889,12 +1159,12 @@ public class Vehicle {
 
 	public boolean isWithinEndIntersection(){
 		Edge e = lane.edge;
-		return headPosition > e.length - e.getEndIntersectionSize();
+		return getHeadPosition() > e.length - e.getEndIntersectionSize();
 	}
 
 	public boolean isWithinStartIntersection(){
 		Edge e = lane.edge;
-		return (headPosition - length) <= e.getStartIntersectionSize();
+		return (getHeadPosition() - getLength()) <= e.getStartIntersectionSize();
 	}
 
 	public boolean isWithinAnyIntersection(){
@@ -906,8 +1176,8 @@ public class Vehicle {
 	}
 
 	public boolean isWithinLaneChangeProhibitedArea(){
-		return headPosition > lane.edge.getEndIntersectionLaneChangeProhibitedPos()
-				|| headPosition <= lane.edge.getStartIntersectionLaneChangeProhibitedPos(this);
+		return getHeadPosition() > lane.edge.getEndIntersectionLaneChangeProhibitedPos()
+				|| getHeadPosition() <= lane.edge.getStartIntersectionLaneChangeProhibitedPos(this);
 	}
 
 	public Node getStart() {
@@ -944,8 +1214,8 @@ public class Vehicle {
 
 
 	public double getDisplacement(){
-		double displacement = headPosition;
-		for (int i = 0; i < indexLegOnRoute; i++) {
+		double displacement = getHeadPosition();
+		for (int i = 0; i < getIndexLegOnRoute(); i++) {
 			displacement += getRouteLeg(i).edge.length;
 		}
 		return displacement;
@@ -953,7 +1223,7 @@ public class Vehicle {
 
 	public double getDistanceToNode(Node node){
 		int index = -1;
-		for (int i = indexLegOnRoute; i < routeLegs.size(); i++) {
+		for (int i = getIndexLegOnRoute(); i < routeLegs.size(); i++) {
 			Edge edge = routeLegs.get(i).edge;
 			if(edge.endNode == node){
 				index = i;
@@ -961,10 +1231,10 @@ public class Vehicle {
 		}
 		double dist = 0;
 		if(index > 0){
-			for (int i = indexLegOnRoute; i <= index; i++) {
+			for (int i = getIndexLegOnRoute(); i <= index; i++) {
 				Edge edge = routeLegs.get(i).edge;
-				if(i == indexLegOnRoute){
-					dist += edge.length - headPosition;
+				if(i == getIndexLegOnRoute()){
+					dist += edge.length - getHeadPosition();
 				}else{
 					dist += edge.length;
 				}
@@ -975,12 +1245,163 @@ public class Vehicle {
 
 	public Movement getCurrentMovement(){
 		//TODO There is a conflict between light group movements and this. Both should be equal and need to be fixed in future
-		if(indexLegOnRoute < getRouteLegCount() - 1){
-			return new Movement(Arrays.asList(new Edge[]{getRouteLeg(indexLegOnRoute).edge, getRouteLeg(indexLegOnRoute + 1).edge}));
+		if(getIndexLegOnRoute() < getRouteLegCount() - 1){
+			return new Movement(Arrays.asList(new Edge[]{getRouteLeg(getIndexLegOnRoute()).edge, getRouteLeg(getIndexLegOnRoute() + 1).edge}));
 		}
 		return null;
 	}
 
+	/**
+	 * Writes the state of this vehicle to a snapshot of traffic. Nodes, edges
+	 * and lanes are written as their indices in the road network, where '-1'
+	 * means null.
+	 */
+	public void writeState(final DataOutput out) throws IOException {
+		out.writeUTF(id);
+		out.writeInt(vid);
+		out.writeUTF(type.name());
+		out.writeUTF(driverProfile.name());
+		out.writeInt(start == null ? -1 : start.index);
+		out.writeInt(end == null ? -1 : end.index);
+		if (routeLegs == null) {
+			out.writeInt(-1);
+		} else {
+			out.writeInt(routeLegs.size());
+			for (final RouteLeg leg : routeLegs) {
+				out.writeInt(leg.edge.index);
+				out.writeDouble(leg.stopover);
+				out.writeInt(leg.lane);
+			}
+		}
+		out.writeInt(getIndexLegOnRoute());
+		out.writeInt(lane == null ? -1 : lane.index);
+		out.writeInt(laneBeforeChange == null ? -1 : laneBeforeChange.index);
+		out.writeDouble(getHeadPosition());
+		out.writeDouble(startHeadPosition);
+		out.writeDouble(getSpeed());
+		out.writeDouble(getLength());
+		out.writeDouble(getAcceleration());
+		out.writeBoolean(active);
+		out.writeBoolean(finished);
+		out.writeBoolean(reachedFellow);
+		out.writeBoolean(isExternal);
+		out.writeBoolean(isForeground);
+		out.writeBoolean(isCAV);
+		out.writeBoolean(isConnectedV);
+		out.writeDouble(timeRouteStart);
+		out.writeDouble(earliestTimeToLeaveParking);
+		out.writeDouble(timeTravel);
+		out.writeDouble(timeJamStart);
+		out.writeDouble(lastReRouted);
+		out.writeInt(numReRoute);
+		out.writeDouble(distToImpedingObject);
+		out.writeDouble(spdOfImpedingObject);
+		out.writeDouble(timeOfLastLaneChange);
+		out.writeBoolean(isRoadBlockedAhead);
+		out.writeDouble(timeOnDirectionalTraffic);
+		out.writeDouble(timeOnDirectionalTraffic_speed);
+		out.writeLong(idLightGroupPassed);
+		out.writeBoolean(isAffectedByPriorityVehicle);
+		out.writeDouble(headWayMultiplier);
+		out.writeDouble(lastSpeedChangeTime);
+		out.writeInt(recentSlowDownFactor == null ? -1 : recentSlowDownFactor.ordinal());
+		out.writeInt(edgeBeforeTurnRight == null ? -1 : edgeBeforeTurnRight.index);
+		out.writeInt(edgeBeforeTurnLeft == null ? -1 : edgeBeforeTurnLeft.index);
+		if (decision == null) {
+			out.writeBoolean(false);
+		} else {
+			out.writeBoolean(true);
+			out.writeInt(decision.getStartLane() == null ? -1 : decision.getStartLane().index);
+			out.writeInt(decision.getEndLane() == null ? -1 : decision.getEndLane().index);
+		}
+		out.writeInt(mesoEdge == null ? -1 : mesoEdge.index);
+		out.writeInt(mesoLegIndex);
+		out.writeDouble(mesoEntryTime);
+		out.writeDouble(mesoEntryPosition);
+		out.writeDouble(mesoExitTime);
+		out.writeBoolean(isMesoExitGranted);
+	}
+
+	/**
+	 * Reads the state written by {@link #writeState(DataOutput)}. The vehicle
+	 * is not added to any lane or parking area.
+	 */
+	public void readState(final DataInput in, final RoadNetwork network) throws IOException {
+		id = in.readUTF();
+		vid = in.readInt();
+		type = VehicleType.valueOf(in.readUTF());
+		driverProfile = DriverProfile.valueOf(in.readUTF());
+		int i = in.readInt();
+		start = i < 0 ? null : network.nodes.get(i);
+		i = in.readInt();
+		end = i < 0 ? null : network.nodes.get(i);
+		final int numLegs = in.readInt();
+		if (numLegs < 0) {
+			routeLegs = null;
+		} else {
+			routeLegs = new ArrayList<>(numLegs);
+			for (int j = 0; j < numLegs; j++) {
+				final RouteLeg leg = new RouteLeg(network.edges.get(in.readInt()), in.readDouble());
+				leg.setLane(in.readInt());
+				routeLegs.add(leg);
+			}
+		}
+		setIndexLegOnRoute(in.readInt());
+		i = in.readInt();
+		setLane(i < 0 ? null : network.lanes.get(i));
+		i = in.readInt();
+		laneBeforeChange = i < 0 ? null : network.lanes.get(i);
+		setHeadPosition(in.readDouble());
+		startHeadPosition = in.readDouble();
+		setSpeed(in.readDouble());
+		setLength(in.readDouble());
+		setAcceleration(in.readDouble());
+		active = in.readBoolean();
+		finished = in.readBoolean();
+		reachedFellow = in.readBoolean();
+		isExternal = in.readBoolean();
+		isForeground = in.readBoolean();
+		isCAV = in.readBoolean();
+		isConnectedV = in.readBoolean();
+		timeRouteStart = in.readDouble();
+		earliestTimeToLeaveParking = in.readDouble();
+		timeTravel = in.readDouble();
+		timeJamStart = in.readDouble();
+		lastReRouted = in.readDouble();
+		numReRoute = in.readInt();
+		distToImpedingObject = in.readDouble();
+		spdOfImpedingObject = in.readDouble();
+		timeOfLastLaneChange = in.readDouble();
+		isRoadBlockedAhead = in.readBoolean();
+		timeOnDirectionalTraffic = in.readDouble();
+		timeOnDirectionalTraffic_speed = in.readDouble();
+		idLightGroupPassed = in.readLong();
+		isAffectedByPriorityVehicle = in.readBoolean();
+		headWayMultiplier = in.readDouble();
+		lastSpeedChangeTime = in.readDouble();
+		i = in.readInt();
+		recentSlowDownFactor = i < 0 ? null : SlowdownFactor.values()[i];
+		i = in.readInt();
+		edgeBeforeTurnRight = i < 0 ? null : network.edges.get(i);
+		i = in.readInt();
+		edgeBeforeTurnLeft = i < 0 ? null : network.edges.get(i);
+		decision = null;
+		if (in.readBoolean()) {
+			i = in.readInt();
+			final Lane startLane = i < 0 ? null : network.lanes.get(i);
+			i = in.readInt();
+			final Lane endLane = i < 0 ? null : network.lanes.get(i);
+			decision = new IntersectionDecision(startLane, endLane);
+		}
+		i = in.readInt();
+		mesoEdge = i < 0 ? null : network.edges.get(i);
+		mesoLegIndex = in.readInt();
+		mesoEntryTime = in.readDouble();
+		mesoEntryPosition = in.readDouble();
+		mesoExitTime = in.readDouble();
+		isMesoExitGranted = in.readBoolean();
+	}
+
 	public class IntersectionDecision{
 		private Lane startLane;
 		private Lane endLane;
@@ -0,0 +1,170 @@
+package traffic.vehicle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Collection of the vehicles in a traffic network. Each vehicle remembers its
+ * index in the collection, so membership check and removal take constant
+ * time. A removed vehicle leaves an empty slot, which is reclaimed when there
+ * are many empty slots. Reclaiming keeps the order of the remaining vehicles,
+ * so iteration order is always the order in which vehicles are added. The
+ * number of internal vehicles of each type is also maintained here. The state
+ * of the vehicles, e.g., position and speed, is kept in the column store of
+ * the registry while they are registered.
+ */
+public class VehicleRegistry implements Iterable<Vehicle> {
+	private final ArrayList<Vehicle> slots = new ArrayList<>();
+	private final List<Vehicle> unmodifiableSlots = Collections.unmodifiableList(slots);
+	private int numVehicles = 0;
+	private final int[] numVehiclesByType = new int[VehicleType.values().length];
+	private final int[] numInternalVehiclesByType = new int[VehicleType.values().length];
+	private final VehicleStateStore states = new VehicleStateStore();
+
+	public void add(final Vehicle vehicle) {
+		if (contains(vehicle)) {
+			return;
+		}
+		vehicle.registryIndex = slots.size();
+		slots.add(vehicle);
+		states.add(vehicle);
+		numVehicles++;
+		numVehiclesByType[vehicle.type.ordinal()]++;
+		if (!vehicle.isExternal) {
+			numInternalVehiclesByType[vehicle.type.ordinal()]++;
+		}
+	}
+
+	/**
+	 * Removes vehicle from the registry. This must not be called while
+	 * iterating the registry.
+	 */
+	public boolean remove(final Vehicle vehicle) {
+		if (!contains(vehicle)) {
+			return false;
+		}
+		slots.set(vehicle.registryIndex, null);
+		vehicle.registryIndex = -1;
+		states.remove(vehicle);
+		numVehicles--;
+		numVehiclesByType[vehicle.type.ordinal()]--;
+		if (!vehicle.isExternal) {
+			numInternalVehiclesByType[vehicle.type.ordinal()]--;
+		}
+		if (slots.size() - numVehicles > Math.max(32, numVehicles)) {
+			compact();
+		}
+		return true;
+	}
+
+	public boolean contains(final Vehicle vehicle) {
+		final int i = vehicle.registryIndex;
+		return i >= 0 && i < slots.size() && slots.get(i) == vehicle;
+	}
+
+	public void clear() {
+		for (final Vehicle vehicle : slots) {
+			if (vehicle != null) {
+				vehicle.registryIndex = -1;
+			}
+		}
+		slots.clear();
+		states.clear();
+		numVehicles = 0;
+		Arrays.fill(numVehiclesByType, 0);
+		Arrays.fill(numInternalVehiclesByType, 0);
+	}
+
+	/**
+	 * Gets the column store of the state of the registered vehicles.
+	 */
+	public VehicleStateStore getStates() {
+		return states;
+	}
+
+	public int size() {
+		return numVehicles;
+	}
+
+	public int getNumVehicles(final VehicleType type) {
+		return numVehiclesByType[type.ordinal()];
+	}
+
+	/**
+	 * Gets the number of internally generated vehicles of the given type.
+	 */
+	public int getNumInternalVehicles(final VehicleType type) {
+		return numInternalVehiclesByType[type.ordinal()];
+	}
+
+	public int getNumInternalVehicles() {
+		int total = 0;
+		for (final int num : numInternalVehiclesByType) {
+			total += num;
+		}
+		return total;
+	}
+
+	/**
+	 * Gets a read-only list of the vehicles in the order they were added. The
+	 * list is backed by the registry and becomes invalid after the next
+	 * removal.
+	 */
+	public List<Vehicle> asList() {
+		compact();
+		return unmodifiableSlots;
+	}
+
+	/**
+	 * Removes the empty slots left by removed vehicles. The order of the
+	 * remaining vehicles does not change.
+	 */
+	void compact() {
+		if (slots.size() == numVehicles) {
+			return;
+		}
+		int next = 0;
+		for (int i = 0; i < slots.size(); i++) {
+			final Vehicle vehicle = slots.get(i);
+			if (vehicle != null) {
+				vehicle.registryIndex = next;
+				slots.set(next, vehicle);
+				next++;
+			}
+		}
+		slots.subList(next, slots.size()).clear();
+	}
+
+	@Override
+	public Iterator<Vehicle> iterator() {
+		return new Iterator<Vehicle>() {
+			int next = findNext(0);
+
+			@Override
+			public boolean hasNext() {
+				return next < slots.size();
+			}
+
+			@Override
+			public Vehicle next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				final Vehicle vehicle = slots.get(next);
+				next = findNext(next + 1);
+				return vehicle;
+			}
+		};
+	}
+
+	int findNext(int i) {
+		while (i < slots.size() && slots.get(i) == null) {
+			i++;
+		}
+		return i;
+	}
+}
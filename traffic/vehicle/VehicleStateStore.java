@@ -0,0 +1,161 @@
+package traffic.vehicle;
+
+import java.util.Arrays;
+
+/**
+ * Column-wise state of vehicles: head position, speed, acceleration, length,
+ * lane index and route cursor, kept in primitive arrays. A vehicle is a view
+ * over its slot in a store, so the state is only kept here. The car-following
+ * model reads the columns directly.
+ * <p>
+ * The vehicle registry of a traffic network has one store for all its
+ * vehicles. A vehicle that is not in a network, e.g., one that is being
+ * created or has left the network, has a store of its own with one slot. When
+ * a vehicle is added to another store, its state is copied and its old slot
+ * is freed. Freed slots are reused, so the arrays stay dense. Slots are not
+ * the same as vid, as internal vids grow for the whole run and repeated
+ * external vehicles share a vid.
+ */
+public class VehicleStateStore {
+	public double[] headPosition;
+	public double[] speed;
+	public double[] acceleration;
+	public double[] length;
+	/**
+	 * Index of the lane in the traffic network. '-1' means the vehicle is not
+	 * on road.
+	 */
+	public int[] laneIndex;
+	public int[] indexLegOnRoute;
+	private Vehicle[] owners;
+	private int[] freeSlots;
+	private int numFreeSlots = 0;
+	private int numSlotsUsed = 0;
+
+	public VehicleStateStore() {
+		this(1024);
+	}
+
+	public VehicleStateStore(final int initialCapacity) {
+		final int capacity = Math.max(initialCapacity, 1);
+		headPosition = new double[capacity];
+		speed = new double[capacity];
+		acceleration = new double[capacity];
+		length = new double[capacity];
+		laneIndex = new int[capacity];
+		indexLegOnRoute = new int[capacity];
+		owners = new Vehicle[capacity];
+		freeSlots = new int[capacity];
+	}
+
+	/**
+	 * Gets a store of one slot for a vehicle that is not in a network.
+	 */
+	static VehicleStateStore createOwn(final Vehicle vehicle) {
+		final VehicleStateStore store = new VehicleStateStore(1);
+		vehicle.states = store;
+		vehicle.stateSlot = store.allocate(vehicle);
+		store.laneIndex[vehicle.stateSlot] = -1;
+		return store;
+	}
+
+	/**
+	 * Moves a vehicle into this store. Its state is copied from its current
+	 * store, where its slot is freed.
+	 */
+	public void add(final Vehicle vehicle) {
+		final VehicleStateStore from = vehicle.states;
+		if (from == this) {
+			return;
+		}
+		final int fromSlot = vehicle.stateSlot;
+		final int slot = allocate(vehicle);
+		headPosition[slot] = from.headPosition[fromSlot];
+		speed[slot] = from.speed[fromSlot];
+		acceleration[slot] = from.acceleration[fromSlot];
+		length[slot] = from.length[fromSlot];
+		laneIndex[slot] = from.laneIndex[fromSlot];
+		indexLegOnRoute[slot] = from.indexLegOnRoute[fromSlot];
+		from.free(fromSlot);
+		vehicle.states = this;
+		vehicle.stateSlot = slot;
+	}
+
+	/**
+	 * Moves a vehicle out of this store to a store of its own, so its state
+	 * can still be read after it leaves the network.
+	 */
+	public void remove(final Vehicle vehicle) {
+		if (vehicle.states == this) {
+			new VehicleStateStore(1).add(vehicle);
+		}
+	}
+
+	/**
+	 * Moves all the vehicles out of this store.
+	 */
+	public void clear() {
+		for (int i = 0; i < numSlotsUsed; i++) {
+			if (owners[i] != null) {
+				remove(owners[i]);
+			}
+		}
+		numSlotsUsed = 0;
+		numFreeSlots = 0;
+	}
+
+	public boolean contains(final Vehicle vehicle) {
+		return vehicle.states == this;
+	}
+
+	public Vehicle getVehicle(final int slot) {
+		return owners[slot];
+	}
+
+	/**
+	 * Number of slots in use, including freed slots that are not reused yet.
+	 * Slots below this number can be scanned. A freed slot has no vehicle.
+	 */
+	public int getSlotCount() {
+		return numSlotsUsed;
+	}
+
+	public int getVehicleCount() {
+		return numSlotsUsed - numFreeSlots;
+	}
+
+	int allocate(final Vehicle vehicle) {
+		final int slot;
+		if (numFreeSlots > 0) {
+			numFreeSlots--;
+			slot = freeSlots[numFreeSlots];
+		} else {
+			if (numSlotsUsed == owners.length) {
+				grow();
+			}
+			slot = numSlotsUsed;
+			numSlotsUsed++;
+		}
+		owners[slot] = vehicle;
+		return slot;
+	}
+
+	void free(final int slot) {
+		owners[slot] = null;
+		laneIndex[slot] = -1;
+		freeSlots[numFreeSlots] = slot;
+		numFreeSlots++;
+	}
+
+	void grow() {
+		final int capacity = owners.length * 2;
+		headPosition = Arrays.copyOf(headPosition, capacity);
+		speed = Arrays.copyOf(speed, capacity);
+		acceleration = Arrays.copyOf(acceleration, capacity);
+		length = Arrays.copyOf(length, capacity);
+		laneIndex = Arrays.copyOf(laneIndex, capacity);
+		indexLegOnRoute = Arrays.copyOf(indexLegOnRoute, capacity);
+		owners = Arrays.copyOf(owners, capacity);
+		freeSlots = Arrays.copyOf(freeSlots, capacity);
+	}
+}
@@ -20,12 +20,12 @@ public class VehicleUtil {
         //SimpleCurve curve = getIntersectionCurve(v);
         SimpleCurve curve = null;
 	    if(curve != null){
-	        Point2D[] points = curve.getMappedPositions(v.headPosition, v.length, v.lane);
+	        Point2D[] points = curve.getMappedPositions(v.getHeadPosition(), v.getLength(), v.lane);
             final double[] coords = {points[0].getX(), points[0].getY(), points[1].getX(), points[1].getY()};
             return coords;
         }else {
-            final double headToEdgeRatio = v.headPosition / v.lane.edge.length;
-            final double tailToEdgeRatio = (v.headPosition - v.length) / v.lane.edge.length;
+            final double headToEdgeRatio = v.getHeadPosition() / v.lane.edge.length;
+            final double tailToEdgeRatio = (v.getHeadPosition() - v.getLength()) / v.lane.edge.length;
 
             final double lonLength = v.lane.lonEnd - v.lane.lonStart;
             final double latLength = v.lane.latEnd - v.lane.latStart;
@@ -43,9 +43,9 @@ public class VehicleUtil {
 	public static SimpleCurve getIntersectionCurve(Vehicle v){
         Edge edge = v.lane.edge;
         Node junc = null;
-        if(v.headPosition > edge.length - edge.endNode.getIntersectionSize(edge.startNode)){
+        if(v.getHeadPosition() > edge.length - edge.endNode.getIntersectionSize(edge.startNode)){
             junc = edge.endNode;
-        }else if(v.headPosition <= edge.startNode.getIntersectionSize(edge.endNode) + v.length){
+        }else if(v.getHeadPosition() <= edge.startNode.getIntersectionSize(edge.endNode) + v.getLength()){
             junc = edge.startNode;
         }
         if(junc != null){
@@ -106,12 +106,26 @@ public class VehicleUtil {
 		return false;
 	}
 
+	/**
+	 * Whether a vehicle of the given type can go through the given edge.
+	 */
+	public static boolean canGoThrough(final Edge e, final VehicleType vehicleType, boolean isAllowPriorityVehicleUseTramTrack) {
+		if (e.type == RoadType.tram) {
+			if ((vehicleType == VehicleType.PRIORITY) && !isAllowPriorityVehicleUseTramTrack) {
+				return false;
+			} else if ((vehicleType != VehicleType.PRIORITY) && (vehicleType != VehicleType.TRAM)) {
+				return false;
+			}
+		}
+		return !e.isBlocked();
+	}
+
 
 	/**
 	 * Get the braking distance for stopping a vehicle completely.
 	 */
 	public static double getBrakingDistance(final Vehicle vehicle) {
-		return (vehicle.speed * vehicle.speed) / 2.0 / vehicle.driverProfile.IDM_b;
+		return (vehicle.getSpeed() * vehicle.getSpeed()) / 2.0 / vehicle.driverProfile.IDM_b;
 	}
 
 
@@ -30,22 +30,26 @@ public class IDM {
 	 *
 	 */
 	public static double computeAcceleration(final Vehicle vehicle, final ImpedingObject impedingObject) {
+		// State of this vehicle is read from the columns of its state store
+		final VehicleStateStore states = vehicle.getStates();
+		final int slot = vehicle.getStateSlot();
+
 		/*
 		 * Actual bumper-to-bumper distance from the end of the front vehicle to
 		 * the head of this vehicle. Value is in meters.
 		 */
-		final double s = impedingObject.headPosition - impedingObject.length - vehicle.headPosition;
+		final double s = impedingObject.headPosition - impedingObject.length - states.headPosition[slot];
 
 		/*
 		 * Current speed of this vehicle
 		 */
-		final double v = vehicle.speed;
+		final double v = states.speed[slot];
 
 		/*
 		 * Difference between the speed of this vehicle and the speed of the
 		 * front vehicle
 		 */
-		final double dV = vehicle.speed - impedingObject.speed;
+		final double dV = v - impedingObject.speed;
 
 		/*
 		 * Desired dynamic distance
@@ -80,7 +84,7 @@ public class IDM {
 	 */
 	public double computeAccelerationWithImpedingObject(final Vehicle vehicle, final ImpedingObject impedingObject,
 			final Lane targetLane, final SlowdownFactor factor) {
-		updateImpedingObject(vehicle, vehicle.indexLegOnRoute, targetLane.laneNumber, impedingObject,
+		updateImpedingObject(vehicle, vehicle.getIndexLegOnRoute(), targetLane.laneNumber, impedingObject,
 				factor);
 		return computeAcceleration(vehicle, impedingObject);
 	}
@@ -95,7 +99,7 @@ public class IDM {
 	double getLowerAccelerationAndUpdateSlowdownFactor(final Vehicle vehicle, final ImpedingObject impedingObject,
 			final double acc1, final double acc2) {
 		if (acc1 > acc2) {
-			vehicle.distToImpedingObject = impedingObject.headPosition - impedingObject.length - vehicle.headPosition;
+			vehicle.distToImpedingObject = impedingObject.headPosition - impedingObject.length - vehicle.getHeadPosition();
 			vehicle.spdOfImpedingObject = impedingObject.speed;
 			vehicle.setRecentSlowDownFactor(impedingObject.factor);
 			return acc2;
@@ -173,7 +177,7 @@ public class IDM {
 				examinedDist += vehicle.getRouteLegEdge(indexLegOnRouteBeingChecked).length;
 				// Proceeds to the next leg on route if look-ahead distance is
 				// not exhausted
-				if (((examinedDist - vehicle.headPosition) < settings.lookAheadDistance)
+				if (((examinedDist - vehicle.getHeadPosition()) < settings.lookAheadDistance)
 						&& (indexLegOnRouteBeingChecked < (vehicle.getRouteLegCount() - 1))) {
 					indexLegOnRouteBeingChecked++;
 				} else {
@@ -181,7 +185,7 @@ public class IDM {
 					// distance, returns a virtual one that moves fast at long
 					// distance
 					impObj.speed = 100;
-					impObj.headPosition = vehicle.headPosition + 10000;
+					impObj.headPosition = vehicle.getHeadPosition() + 10000;
 					impObj.type = VehicleType.VIRTUAL_STATIC;
 					impObj.length = 0;
 					impObj.factor = SlowdownFactor.FRONT;
@@ -193,7 +197,7 @@ public class IDM {
 		// Make sure there is a virtual impeding object
 		if (impObj.headPosition < 0) {
 			impObj.speed = 100;
-			impObj.headPosition = vehicle.headPosition + 10000;
+			impObj.headPosition = vehicle.getHeadPosition() + 10000;
 			impObj.type = VehicleType.VIRTUAL_STATIC;
 			impObj.length = 0;
 			impObj.factor = SlowdownFactor.FRONT;
@@ -226,8 +230,8 @@ public class IDM {
 				for (final Lane lane : e.getLanes()) {
 					if (lane.getVehicleCount() > 0) {
 						final Vehicle firstV = lane.getFrontVehicleInLane();
-						if (firstV.speed > 0) {
-							final double arrivalTime = (e.length - e.getEndIntersectionSize() - firstV.headPosition) / firstV.speed;
+						if (firstV.getSpeed() > 0) {
+							final double arrivalTime = (e.length - e.getEndIntersectionSize() - firstV.getHeadPosition()) / firstV.getSpeed();
 							if (arrivalTime < earliestTime) {
 								earliestTime = arrivalTime;
 							}
@@ -260,7 +264,7 @@ public class IDM {
 			 * intersection to prevent collision.
 			 */
 			double pos = (examinedDist + targetEdge.length - targetEdge.getEndIntersectionSize() + vehicle.driverProfile.IDM_s0);
-			if(pos < vehicle.headPosition) {
+			if(pos < vehicle.getHeadPosition()) {
 				return;
 			}
 			if ((!vehicle.lane.isPriority && (earliestTime < settings.minTimeSafeToCrossIntersection))
@@ -303,18 +307,20 @@ public class IDM {
 		}
 
 		if ((frontVehicle != null) && correctLane) {
-			slowdownObj.speed = frontVehicle.speed;
-			slowdownObj.headPosition = examinedDist + frontVehicle.headPosition;
+			final VehicleStateStore frontStates = frontVehicle.getStates();
+			final int frontSlot = frontVehicle.getStateSlot();
+			slowdownObj.speed = frontStates.speed[frontSlot];
+			slowdownObj.headPosition = examinedDist + frontStates.headPosition[frontSlot];
 			slowdownObj.type = frontVehicle.type;
-			slowdownObj.length = frontVehicle.length;
+			slowdownObj.length = frontStates.length[frontSlot];
 			slowdownObj.factor = SlowdownFactor.FRONT;
 			// Do not cross the intersection that is immediately behind the front vehicle if the front vehicle is too slow and is too close to the intersection
 			if (RoadUtil.hasIntersectionAtEdgeStart(frontVehicle.lane.edge)
 					&& (vehicle.lane.edge != frontVehicle.lane.edge)
 					&& (slowdownObj.speed < settings.intersectionSpeedThresholdOfFront)
-					&& (frontVehicle.headPosition - frontVehicle.length <= vehicle.driverProfile.IDM_s0 + vehicle.length)//The current vehicle cannot stop between the intersection and the front vehicle due to limited space
-					&& (frontVehicle.headPosition - frontVehicle.length >= 0)//Only consider the situation where front vehicle has passed the intersection in whole
-					&& (VehicleUtil.getBrakingDistance(vehicle) <= (examinedDist - vehicle.headPosition))) {
+					&& (frontVehicle.getHeadPosition() - frontVehicle.getLength() <= vehicle.driverProfile.IDM_s0 + vehicle.getLength())//The current vehicle cannot stop between the intersection and the front vehicle due to limited space
+					&& (frontVehicle.getHeadPosition() - frontVehicle.getLength() >= 0)//Only consider the situation where front vehicle has passed the intersection in whole
+					&& (VehicleUtil.getBrakingDistance(vehicle) <= (examinedDist - vehicle.getHeadPosition()))) {
 				slowdownObj.speed = 0;
 				slowdownObj.headPosition = examinedDist - 0.00001;
 				slowdownObj.type = VehicleType.VIRTUAL_STATIC;
@@ -351,7 +357,7 @@ public class IDM {
 			if (edgeBeingChecked.getLane(i).isPriority
 					&& (settings.emergencyStrategy == EmergencyStrategy.NonEmergencyPullOffToRoadside)) {
 				final double brakingDist = VehicleUtil.getBrakingDistance(vehicle);
-				slowdownObj.headPosition = vehicle.headPosition + brakingDist;
+				slowdownObj.headPosition = vehicle.getHeadPosition() + brakingDist;
 				slowdownObj.length = 0;
 				slowdownObj.speed = 0;
 				slowdownObj.type = VehicleType.VIRTUAL_STATIC;
@@ -401,7 +407,7 @@ public class IDM {
 				// Priority vehicle ignores any traffic light
 				return;
 			}
-		    if(vehicle.headPosition > targetEdge.length - targetEdge.getEndIntersectionSize()){
+		    if(vehicle.getHeadPosition() > targetEdge.length - targetEdge.getEndIntersectionSize()){
 		        return;
             }
 			Movement movement = vehicle.getCurrentMovement();
@@ -420,7 +426,7 @@ public class IDM {
 
 			// Flags the event that vehicle is within certain distance to light
 			if ((((examinedDist + targetEdge.length)
-					- vehicle.headPosition) < settings.trafficLightDetectionDistance)) {
+					- vehicle.getHeadPosition()) < settings.trafficLightDetectionDistance)) {
 				targetEdge.isDetectedVehicleForLight = true;
 			}
 
@@ -430,7 +436,7 @@ public class IDM {
 				if ((movementLight == LightColor.GYR_R) || (movementLight == LightColor.KEEP_RED)) {
 					stopAtLight = true;
 				} else if (movementLight == LightColor.GYR_Y) {
-					if (VehicleUtil.getBrakingDistance(vehicle) <= ((examinedDist + targetEdge.length) - vehicle.headPosition)) {
+					if (VehicleUtil.getBrakingDistance(vehicle) <= ((examinedDist + targetEdge.length) - vehicle.getHeadPosition())) {
 						stopAtLight = true;
 					}
 				}
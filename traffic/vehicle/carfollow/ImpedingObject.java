@@ -38,10 +38,10 @@ public class ImpedingObject {
     }
 
     public ImpedingObject(Vehicle vehicle){
-        this.headPosition = vehicle.headPosition;
+        this.headPosition = vehicle.getHeadPosition();
         this.type = vehicle.type;
-        this.length = vehicle.length;
-        this.speed = vehicle.speed;
+        this.length = vehicle.getLength();
+        this.speed = vehicle.getSpeed();
     }
 
 }
@@ -22,8 +22,8 @@ public class LaneChange {
 	 * Uses a lane-changing model to decide lane change.
 	 *
 	 */
-	public LaneChangeDirection decideLaneChange(MOBILInput input, final Vehicle vehicle) {
-		return mobil.decideLaneChange(vehicle);
+	public LaneChangeDirection decideLaneChange(MOBILInput input, final Vehicle vehicle, final double timeNow) {
+		return mobil.decideLaneChange(vehicle, timeNow);
 	}
 
 	public LaneChangeDirection dynamicLaneChange(final  Vehicle vehicle) {
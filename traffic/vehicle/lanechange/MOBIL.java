@@ -1,7 +1,7 @@
 package traffic.vehicle.lanechange;
 
-import java.util.Random;
-
+import common.RandomStreams;
+import common.RandomStreams.Purpose;
 import common.Settings;
 import traffic.light.LightColor;
 import traffic.light.Movement;
@@ -22,14 +22,14 @@ public class MOBIL {
 
 	private Vehicle backVehicleInTargetLane = null;
 	private Vehicle frontVehicleInTargetLane = null;
-	private Random random;
 	private ImpedingObject impedingObject;
 	private IDM idm;
+	private Settings settings;
 
 	public MOBIL(Settings settings) {
+		this.settings = settings;
 		idm = new IDM(settings);
 		impedingObject = new ImpedingObject();
-		random = new Random();
 	}
 
 	/**
@@ -37,7 +37,7 @@ public class MOBIL {
 	 *
 	 * @return One of the possible lane-changing decisions.
 	 */
-	public LaneChangeDirection decideLaneChange(MOBILInput input, final Vehicle vehicle) {
+	public LaneChangeDirection decideLaneChange(MOBILInput input, final Vehicle vehicle, final double timeNow) {
 
 		LaneChangeDirection decision = SAME;
 		double gainTowardsRoadside = getGainFromChangeTowardsRoadSide(input, vehicle);
@@ -48,7 +48,8 @@ public class MOBIL {
 		} else if ((gainTowardsRoadside > 0) && ((gainTowardsRoadside - gainAwayFromRoadside) > 0)) {
 			decision = TOWARDS_ROADSIDE;
 		} else if ((gainAwayFromRoadside > 0) && (gainTowardsRoadside > 0)) {
-			if (random.nextBoolean()) {
+			final long step = Math.round(timeNow * settings.numStepsPerSecond);
+			if (RandomStreams.forVehicle(settings.randomSeed, vehicle.id, Purpose.LANE_CHANGE, step).nextBoolean()) {
 				decision = AWAY_FROM_ROADSIDE;
 			} else {
 				decision = TOWARDS_ROADSIDE;
@@ -125,7 +126,7 @@ public class MOBIL {
 	 */
 	double getPotentialAdvatangeGainOfThisVehicleInTargetLane(final Vehicle vehicle, final Lane lane) {
 		double newAcc = computeAccelerationWithImpedingObject(vehicle, lane, SlowdownFactor.FRONT);
-		return newAcc - vehicle.acceleration;
+		return newAcc - vehicle.getAcceleration();
 	}
 
 
@@ -139,7 +140,7 @@ public class MOBIL {
 		if (backVehicleInTargetLane == null) {
 			return vehicle.driverProfile.MOBIL_a_thr;
 		} else {
-			final double currentAccBackVehicleTargetLane = backVehicleInTargetLane.acceleration;
+			final double currentAccBackVehicleTargetLane = backVehicleInTargetLane.getAcceleration();
 			final double nextAccBackVehicleTargetLane = idm.computeAcceleration(backVehicleInTargetLane, new ImpedingObject(vehicle));
 			return (vehicle.driverProfile.MOBIL_p * (currentAccBackVehicleTargetLane - nextAccBackVehicleTargetLane))
 					+ vehicle.driverProfile.MOBIL_a_thr;
@@ -198,15 +199,15 @@ public class MOBIL {
 	private boolean isSafeToChangeToTargetLane(Lane targetLane, Vehicle vehicle){
 		// Cannot change if front vehicle in target lane is too close
 		frontVehicleInTargetLane = targetLane.getClosestFrontVehicleInLane(vehicle, 0);
-		if ((frontVehicleInTargetLane != null) && ((frontVehicleInTargetLane.headPosition
-				- frontVehicleInTargetLane.length - vehicle.headPosition) < vehicle.driverProfile.IDM_s0)) {
+		if ((frontVehicleInTargetLane != null) && ((frontVehicleInTargetLane.getHeadPosition()
+				- frontVehicleInTargetLane.getLength() - vehicle.getHeadPosition()) < vehicle.driverProfile.IDM_s0)) {
 			return false;
 		}
 
 		// Cannot change if back vehicle in target lane is too close
 		backVehicleInTargetLane = targetLane.getClosestBackVehicleInLane(vehicle);
-		if ((backVehicleInTargetLane != null) && ((vehicle.headPosition - vehicle.length
-				- backVehicleInTargetLane.headPosition) < vehicle.driverProfile.IDM_s0)) {
+		if ((backVehicleInTargetLane != null) && ((vehicle.getHeadPosition() - vehicle.getLength()
+				- backVehicleInTargetLane.getHeadPosition()) < vehicle.driverProfile.IDM_s0)) {
 			return false;
 		}
 
@@ -229,7 +230,7 @@ public class MOBIL {
 	 */
 	double computeAccelerationWithImpedingObject(final Vehicle vehicle, final Lane targetLane,
 												 final SlowdownFactor factor) {
-		idm.updateImpedingObject(vehicle, vehicle.indexLegOnRoute, targetLane.laneNumber, impedingObject,
+		idm.updateImpedingObject(vehicle, vehicle.getIndexLegOnRoute(), targetLane.laneNumber, impedingObject,
 				factor);
 		return idm.computeAcceleration(vehicle, impedingObject);
 	}
@@ -1,8 +1,9 @@
 package traffic.vehicle.lanechange;
 
 import java.util.HashMap;
-import java.util.Random;
 
+import common.RandomStreams;
+import common.RandomStreams.Purpose;
 import common.Settings;
 import traffic.light.LightColor;
 import traffic.light.Movement;
@@ -36,7 +37,6 @@ public class MOBIL_OLD {
 
     //Vehicle frontVehicleInTargetLane = new Vehicle();
 
-    Random random = new Random();
     VehicleUtil vehicleUtil;
     ImpedingObject impedingObject = new ImpedingObject();
 
@@ -56,7 +56,7 @@ public class MOBIL_OLD {
      */
     double computeAccelerationWithImpedingObject(final Vehicle vehicle, final Lane targetLane,
                                                  final SlowdownFactor factor) {
-        idm.updateImpedingObject(vehicle, vehicle.indexLegOnRoute, targetLane.laneNumber, impedingObject,
+        idm.updateImpedingObject(vehicle, vehicle.getIndexLegOnRoute(), targetLane.laneNumber, impedingObject,
                 factor);
         return idm.computeAcceleration(vehicle, impedingObject);
     }
@@ -66,7 +66,7 @@ public class MOBIL_OLD {
      *
      * @return One of the possible lane-changing decisions.
      */
-    public LaneChangeDirection decideLaneChange(final Vehicle vehicle) {
+    public LaneChangeDirection decideLaneChange(final Vehicle vehicle, final double timeNow) {
         LaneChangeDirection decision = LaneChangeDirection.SAME;
         double overallGainForChangeTowardsRoadside = 0, overallGainForChangeAwayFromRoadside = 0;
 
@@ -80,7 +80,7 @@ public class MOBIL_OLD {
                 final double newAccByChangeTowardsRoadside = getPotentialAccelerationOfThisVehicleInTargetLane(vehicle,
                         vehicle.lane.edge.getLane(vehicle.lane.laneNumber - 1));
                 overallGainForChangeTowardsRoadside = getPotentialAdvatangeGainOfThisVehicleInTargetLane(
-                        newAccByChangeTowardsRoadside, vehicle.acceleration)
+                        newAccByChangeTowardsRoadside, vehicle.getAcceleration())
                         - getPotentialDisadvantageGainOfBackVehicleInTargetLane(vehicle);
             }
             overallGainForChangeTowardsRoadside += getAdditionalIncentive(vehicle,
@@ -95,7 +95,7 @@ public class MOBIL_OLD {
                 final double newAccByChangeAwayFromRoadside = getPotentialAccelerationOfThisVehicleInTargetLane(vehicle,
                         vehicle.lane.edge.getLane(vehicle.lane.laneNumber + 1));
                 overallGainForChangeAwayFromRoadside = getPotentialAdvatangeGainOfThisVehicleInTargetLane(
-                        newAccByChangeAwayFromRoadside, vehicle.acceleration)
+                        newAccByChangeAwayFromRoadside, vehicle.getAcceleration())
                         - getPotentialDisadvantageGainOfBackVehicleInTargetLane(vehicle);
             }
             overallGainForChangeAwayFromRoadside += getAdditionalIncentive(vehicle,
@@ -119,7 +119,8 @@ public class MOBIL_OLD {
             else
                 decision = LaneChangeDirection.TOWARDS_ROADSIDE;
         } else if ((overallGainForChangeAwayFromRoadside > 0) && (overallGainForChangeTowardsRoadside > 0)) {
-            if (random.nextBoolean()) {
+            final long step = Math.round(timeNow * settings.numStepsPerSecond);
+            if (RandomStreams.forVehicle(settings.randomSeed, vehicle.id, Purpose.LANE_CHANGE, step).nextBoolean()) {
                 decision = LaneChangeDirection.AWAY_FROM_ROADSIDE;
             } else {
                 decision = LaneChangeDirection.TOWARDS_ROADSIDE;
@@ -151,7 +152,7 @@ public class MOBIL_OLD {
     double getAdditionalIncentive(final Vehicle vehicle, final LaneChangeDirection direction) {
 
         double incentive = 0;
-        final Edge currentEdge = vehicle.getRouteLeg(vehicle.indexLegOnRoute).edge;
+        final Edge currentEdge = vehicle.getRouteLeg(vehicle.getIndexLegOnRoute()).edge;
         final Edge nextEdge = vehicle.getNextEdge();
 
         if (direction == LaneChangeDirection.TOWARDS_ROADSIDE) {
@@ -218,7 +219,7 @@ public class MOBIL_OLD {
         if (backVehicleInTargetLane == null) {
             return vehicle.driverProfile.MOBIL_a_thr;
         } else {
-            final double currentAccBackVehicleTargetLane = backVehicleInTargetLane.acceleration;
+            final double currentAccBackVehicleTargetLane = backVehicleInTargetLane.getAcceleration();
             final double nextAccBackVehicleTargetLane = idm.computeAcceleration(backVehicleInTargetLane, new ImpedingObject(vehicle));
             return (vehicle.driverProfile.MOBIL_p * (currentAccBackVehicleTargetLane - nextAccBackVehicleTargetLane))
                     + vehicle.driverProfile.MOBIL_a_thr;
@@ -334,15 +335,15 @@ public class MOBIL_OLD {
 
         // Cannot change if front vehicle in target lane is too close
         Vehicle frontVehicleInTargetLane = targetLane.getClosestFrontVehicleInLane(vehicle,  0);
-        if ((frontVehicleInTargetLane != null) && ((frontVehicleInTargetLane.headPosition
-                - frontVehicleInTargetLane.length - vehicle.headPosition) < vehicle.driverProfile.IDM_s0)) {
+        if ((frontVehicleInTargetLane != null) && ((frontVehicleInTargetLane.getHeadPosition()
+                - frontVehicleInTargetLane.getLength() - vehicle.getHeadPosition()) < vehicle.driverProfile.IDM_s0)) {
             return false;
         }
 
         // Cannot change if back vehicle in target lane is too close
         backVehicleInTargetLane = targetLane.getClosestBackVehicleInLane(vehicle);
-        if ((backVehicleInTargetLane != null) && ((vehicle.headPosition - vehicle.length
-                - backVehicleInTargetLane.headPosition) < vehicle.driverProfile.IDM_s0)) {
+        if ((backVehicleInTargetLane != null) && ((vehicle.getHeadPosition() - vehicle.getLength()
+                - backVehicleInTargetLane.getHeadPosition()) < vehicle.driverProfile.IDM_s0)) {
             return false;
         }
 
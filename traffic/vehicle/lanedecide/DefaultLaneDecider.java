@@ -54,7 +54,7 @@ public class DefaultLaneDecider extends LaneDecider {
                 return newLane;
             }
         }else{
-            RouteLeg firstLeg = vehicle.getRouteLeg(vehicle.indexLegOnRoute);
+            RouteLeg firstLeg = vehicle.getRouteLeg(vehicle.getIndexLegOnRoute());
             return firstLeg.edge.getFirstLane();
         }
     }
@@ -48,9 +48,9 @@ public class PredefinedLaneDecider extends LaneDecider {
     public Lane getNextEdgeLane(Vehicle vehicle) {
         RouteLeg nextLeg = null;
         if(vehicle.lane == null){
-            nextLeg = vehicle.getRouteLeg(vehicle.indexLegOnRoute);
+            nextLeg = vehicle.getRouteLeg(vehicle.getIndexLegOnRoute());
         }else{
-            nextLeg = vehicle.getRouteLeg(vehicle.indexLegOnRoute + 1);
+            nextLeg = vehicle.getRouteLeg(vehicle.getIndexLegOnRoute() + 1);
         }
         return nextLeg.edge.getLane(nextLeg.lane);
     }
@@ -57,7 +57,7 @@ public class UnbalancedLaneDecider extends LaneDecider {
                 return newLane;
             }
         }else{
-            RouteLeg firstLeg = vehicle.getRouteLeg(vehicle.indexLegOnRoute);
+            RouteLeg firstLeg = vehicle.getRouteLeg(vehicle.getIndexLegOnRoute());
             return firstLeg.edge.getFirstNonBlockedLane();
         }
     }